@@ -1,7 +1,14 @@
 package pt.up.fe.els2024;
 
-import java.util.ArrayList;
+import pt.up.fe.els2024.storage.ColumnStorage;
+import pt.up.fe.els2024.storage.ColumnType;
+import pt.up.fe.els2024.storage.DictionaryStorage;
+import pt.up.fe.els2024.storage.NumericStorage;
+import pt.up.fe.els2024.storage.ObjectStorage;
+
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * {@code Column} represents a column in a table structure. Each column has a name and a list of rows,
@@ -10,40 +17,83 @@ import java.util.List;
  * This class provides methods to manipulate the column's name and rows. It also allows for adding new
  * rows, accessing rows by index, and retrieving the name of the column.
  * </p>
+ * <p>
+ * Rows are kept in a {@link ColumnStorage} specialized for their {@link ColumnType} (primitive arrays for numbers
+ * and booleans, dictionary-encoded strings, nested tables). When a value that doesn't fit the current layout is
+ * added, the column falls back to a generic storage. {@link #getRows()} exposes the rows as a boxed list view.
+ * </p>
  */
 public class Column {
 
+    /** The initial capacity of columns whose type is decided by their first row. */
+    private static final int DEFAULT_CAPACITY = 4;
+
     private String name;
-    private List<Object> rows;
+    private ColumnStorage storage;
+    private final List<Object> rows = new RowsView();
 
     /**
      * Default constructor that initializes a column with no name and an empty list of rows.
      */
     public Column() {
         this.name = null;
-        this.rows = new ArrayList<>();
+        this.storage = null;
     }
 
     /**
      * Constructor to initialize a column with a specific name.
-     * The rows list will be empty upon creation.
+     * The rows list will be empty upon creation, and its layout is chosen by the first row added.
      *
      * @param name the name of the column
      */
     public Column(String name) {
         this.name = name;
-        this.rows = new ArrayList<>();
+        this.storage = null;
+    }
+
+    /**
+     * Constructor to initialize an empty column with a specific name and layout.
+     *
+     * @param name the name of the column
+     * @param type the layout used to store the rows
+     */
+    public Column(String name, ColumnType type) {
+        this(name, type, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor to initialize an empty column with a specific name, layout and initial capacity.
+     *
+     * @param name     the name of the column
+     * @param type     the layout used to store the rows
+     * @param capacity the number of rows the column can hold before growing
+     */
+    public Column(String name, ColumnType type, int capacity) {
+        this.name = name;
+        this.storage = type.create(capacity);
+    }
+
+    /**
+     * Constructor to initialize a column with a specific name over an existing storage.
+     *
+     * @param name    the name of the column
+     * @param storage the storage holding the rows
+     */
+    public Column(String name, ColumnStorage storage) {
+        this.name = name;
+        this.storage = storage;
     }
 
     /**
      * Constructor to initialize a column with a specific name and a given list of rows.
+     * The rows are copied into the layout that best fits them.
      *
      * @param name the name of the column
      * @param rows the list of rows to initialize the column with
      */
     public Column(String name, List<Object> rows) {
         this.name = name;
-        this.rows = rows;
+        this.storage = Column.storageOf(rows);
     }
 
     /**
@@ -57,15 +107,18 @@ public class Column {
 
     /**
      * Sets a new name for the column.
+     * Columns are renamed through {@link Table#renameColumn(String, String)}, which keeps the name index of the
+     * table up to date.
      *
      * @param newName the new name to set for the column
      */
-    public void setName(String newName) {
+    void setName(String newName) {
         this.name = newName;
     }
 
     /**
      * Retrieves the list of rows in the column.
+     * The list is a view over the column's storage: reads box the stored values and writes go to the column.
      *
      * @return a list of rows in the column
      */
@@ -73,8 +126,13 @@ public class Column {
         return this.rows;
     }
 
+    /**
+     * Replaces the rows of the column, copying them into the layout that best fits them.
+     *
+     * @param rows the new rows of the column
+     */
     public void setRows(List<Object> rows) {
-        this.rows = rows;
+        this.storage = Column.storageOf(rows);
     }
 
     /**
@@ -83,7 +141,24 @@ public class Column {
      * @param row the row to add to the column
      */
     public void addRow(Object row) {
-        this.rows.add(row);
+        this.prepareFor(row).add(row);
+    }
+
+    /**
+     * Appends every row of another column, copying them in bulk when both columns share the same layout.
+     *
+     * @param other the column whose rows are appended
+     */
+    public void addRows(Column other) {
+        if (other.size() == 0) {
+            return;
+        }
+        if (this.storage == null) {
+            this.storage = other.getType().create(other.size());
+        } else if (this.storage.getType() != other.getType() && this.storage.getType() != ColumnType.OBJECT) {
+            this.storage = this.storage.toObjectStorage();
+        }
+        this.storage.addAll(other.storage);
     }
 
     /**
@@ -94,6 +169,142 @@ public class Column {
      * @return the value of the row at the specified index, or {@code null} if the index is out of bounds
      */
     public Object getValueAttribute(int index) {
-        return index < this.rows.size() ? this.rows.get(index) : null;
+        return index < this.size() ? this.storage.get(index) : null;
+    }
+
+    /**
+     * Retrieves the number of rows in the column.
+     *
+     * @return the number of rows
+     */
+    public int size() {
+        return this.storage == null ? 0 : this.storage.size();
+    }
+
+    /**
+     * Retrieves the layout currently used to store the rows.
+     *
+     * @return the {@link ColumnType} of the column, or {@link ColumnType#OBJECT} if it has no rows yet
+     */
+    public ColumnType getType() {
+        return this.storage == null ? ColumnType.OBJECT : this.storage.getType();
+    }
+
+    /**
+     * Retrieves the storage holding the rows, giving operations access to the typed values.
+     *
+     * @return the {@link ColumnStorage} of the column, or {@code null} if the column has no rows yet
+     */
+    public ColumnStorage getStorage() {
+        return this.storage;
+    }
+
+    /**
+     * Copies the rows of the column into a primitive array, if every row is a number.
+     * Strings that are numbers count as numbers, and are only parsed once per distinct string.
+     *
+     * @return an array with one {@code double} per row, or {@code null} if some row is not a number
+     */
+    public double[] toDoubleArray() {
+        if (this.storage instanceof NumericStorage numericStorage && !numericStorage.hasNulls()) {
+            return numericStorage.toDoubleArray();
+        }
+        if (this.storage instanceof DictionaryStorage dictionaryStorage) {
+            return dictionaryStorage.toDoubleArray(dictionaryStorage.size());
+        }
+
+        double[] values = new double[this.size()];
+        for (int i = 0; i < values.length; i++) {
+            if (!(this.storage.get(i) instanceof Number number)) {
+                return null;
+            }
+            values[i] = number.doubleValue();
+        }
+        return values;
+    }
+
+    /**
+     * Copies rows into a new storage of the layout that best fits them.
+     *
+     * @param rows the rows to copy
+     * @return the storage holding the rows
+     */
+    private static ColumnStorage storageOf(List<Object> rows) {
+        ColumnStorage storage = ColumnType.of(rows).create(rows.size());
+        for (Object row : rows) {
+            storage.add(row);
+        }
+        return storage;
+    }
+
+    /**
+     * Makes sure the storage can hold the given value, creating it or falling back to a generic layout if needed.
+     *
+     * @param value the value about to be stored
+     * @return the storage able to hold the value
+     */
+    private ColumnStorage prepareFor(Object value) {
+        if (this.storage == null) {
+            this.storage = ColumnType.of(value).create(DEFAULT_CAPACITY);
+        } else if (value != null && !this.storage.accepts(value)) {
+            this.storage = this.storage.toObjectStorage();
+        }
+        return this.storage;
+    }
+
+    /**
+     * Converts the storage to the generic layout, which supports inserting and removing rows in the middle.
+     *
+     * @return the generic storage of the column
+     */
+    private ObjectStorage toObjectStorage() {
+        ObjectStorage objectStorage = this.storage == null ? new ObjectStorage(DEFAULT_CAPACITY) : this.storage.toObjectStorage();
+        this.storage = objectStorage;
+        return objectStorage;
+    }
+
+    /**
+     * A boxed {@link List} view over the rows of the column, kept for compatibility with code
+     * that handles rows as plain objects.
+     */
+    private class RowsView extends AbstractList<Object> implements RandomAccess {
+
+        @Override
+        public Object get(int index) {
+            if (index < 0 || index >= this.size()) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + this.size());
+            }
+            return Column.this.storage.get(index);
+        }
+
+        @Override
+        public int size() {
+            return Column.this.size();
+        }
+
+        @Override
+        public Object set(int index, Object value) {
+            Object previous = this.get(index);
+            Column.this.prepareFor(value).set(index, value);
+            return previous;
+        }
+
+        @Override
+        public void add(int index, Object value) {
+            if (index == this.size()) {
+                Column.this.addRow(value);
+            } else {
+                Column.this.toObjectStorage().insert(index, value);
+            }
+            this.modCount++;
+        }
+
+        @Override
+        public Object remove(int index) {
+            Object previous = this.get(index);
+            Column.this.toObjectStorage().remove(index);
+            this.modCount++;
+            return previous;
+        }
     }
 }
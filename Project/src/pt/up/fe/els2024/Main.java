@@ -2,7 +2,9 @@ package pt.up.fe.els2024;
 
 import java.io.File;
 
+import pt.up.fe.els2024.cache.ParseCache;
 import pt.up.fe.els2024.parser.DSLParser;
+import pt.up.fe.els2024.plan.Optimizer;
 
 public class Main {
 
@@ -11,6 +13,9 @@ public class Main {
      * This method parses DSL files whose directory path is provided as a command-line argument.
      *
      * @param args Command-line arguments. The first argument should be the directory containing the DSL files to parse.
+     *             An optional second argument is a directory where parsed input files are cached between runs.
+     *             Scripts are read by the hand-written reader, unless the system property {@code preql.frontend}
+     *             is {@code xtext}, which validates them with the Xtext parser instead.
      * @throws Exception if any error occurs during the parsing process or if the argument is missing/invalid.
      */
     public static void main(String[] args) throws Exception {
@@ -25,8 +30,15 @@ public class Main {
             throw new IllegalArgumentException("The provided path does not point to a valid file: " + filePath);
         }
 
+        // Cache of parsed input files, if requested
+        ParseCache cache = args.length > 1 ? new ParseCache(new File(args[1])) : null;
+
+        // Front-end that reads the preql file
+        DSLParser.Frontend frontend = DSLParser.Frontend.valueOf(
+                System.getProperty("preql.frontend", "reader").toUpperCase());
+
         // Executing preql file
-        DSLParser parser = new DSLParser();
+        DSLParser parser = new DSLParser(cache, new Optimizer(), frontend);
         parser.parse(filePath);
     
         /* Internal DSL for Alice scenario
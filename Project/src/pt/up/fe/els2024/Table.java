@@ -1,9 +1,12 @@
 package pt.up.fe.els2024;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import pt.up.fe.els2024.exception.OperationException;
+import pt.up.fe.els2024.utils.PathExpression;
 
 /**
  * {@code Table} represents a table structure with columns and rows.
@@ -12,12 +15,26 @@ import pt.up.fe.els2024.exception.OperationException;
  * This class provides methods to manipulate columns, including adding, removing, renaming columns,
  * and retrieving columns by name. It also supports adding rows to columns and extracting subtables.
  * </p>
+ * <p>
+ * Columns are resolved by name through a hash index that maps each name to the position of its first column.
+ * The index is built on the first lookup and kept up to date by the methods of this class, including
+ * {@link #renameColumn(String, String)}, which is the only way to rename a column.
+ * </p>
  */
 public class Table {
 
     private String name;
     private List<Column> columns;
 
+    /** Maps each column name to the position of the first column with that name, or {@code null} if not built. */
+    private Map<String, Integer> columnIndex;
+
+    /** The number of columns when {@link #columnIndex} was last updated, used to detect outside changes. */
+    private int indexedColumns;
+
+    /** The number of summary rows appended at the end of the columns by aggregate operations. */
+    private int summaryRows;
+
     /**
      * Default constructor initializes a table with no name and an empty list of columns.
      */
@@ -66,6 +83,24 @@ public class Table {
         this.name = name;
     }
 
+    /**
+     * Retrieves the number of summary rows at the end of the columns, which are not part of the data.
+     *
+     * @return the number of summary rows
+     */
+    public int getSummaryRows() {
+        return this.summaryRows;
+    }
+
+    /**
+     * Records summary rows appended at the end of the columns.
+     *
+     * @param count the number of summary rows appended
+     */
+    public void addSummaryRows(int count) {
+        this.summaryRows += count;
+    }
+
     /**
      * Adds a new column to the table.
      *
@@ -73,6 +108,7 @@ public class Table {
      */
     public void addColumn(Column column) {
         this.columns.add(column);
+        this.indexColumn(column, this.columns.size() - 1);
     }
 
     /**
@@ -87,8 +123,9 @@ public class Table {
             newColumns.add(column);
             newColumns.addAll(this.columns);
             this.columns = newColumns;
+            this.invalidateIndex();
         } else {
-            this.columns.add(column);
+            this.addColumn(column);
         }
     }
 
@@ -99,6 +136,7 @@ public class Table {
      */
     public void setColumns(List<Column> columns) {
         this.columns = columns;
+        this.invalidateIndex();
     }
 
     /**
@@ -107,7 +145,57 @@ public class Table {
      * @param columns the list of columns to append
      */
     public void appendColumns(List<Column> columns) {
+        int position = this.columns.size();
         this.columns.addAll(columns);
+        for (Column column : columns) {
+            this.indexColumn(column, position++);
+        }
+    }
+
+    /**
+     * Retrieves the position of a column by its name.
+     *
+     * @param name the name of the column
+     * @return the position of the first column with the specified name, or {@code -1} if no such column exists
+     */
+    public int indexOf(String name) {
+        if (this.columnIndex == null || this.indexedColumns != this.columns.size()) {
+            this.buildIndex();
+        }
+
+        Integer index = this.columnIndex.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Rebuilds the name index from the current list of columns.
+     */
+    private void buildIndex() {
+        this.columnIndex = new HashMap<>();
+        this.indexedColumns = 0;
+        for (Column column : this.columns) {
+            this.columnIndex.putIfAbsent(column.getName(), this.indexedColumns++);
+        }
+    }
+
+    /**
+     * Registers a column appended at the given position in the name index, if the index is built.
+     *
+     * @param column   the appended column
+     * @param position the position of the column
+     */
+    private void indexColumn(Column column, int position) {
+        if (this.columnIndex != null && this.indexedColumns == position) {
+            this.columnIndex.putIfAbsent(column.getName(), position);
+            this.indexedColumns += 1;
+        }
+    }
+
+    /**
+     * Discards the name index, so that it is rebuilt on the next lookup.
+     */
+    private void invalidateIndex() {
+        this.columnIndex = null;
     }
 
     /**
@@ -117,12 +205,8 @@ public class Table {
      * @return the column with the specified name, or {@code null} if no such column exists
      */
     public Column getColumn(String name) {
-        for (Column column : this.columns) {
-            if (column.getName().equals(name)) {
-                return column;
-            }
-        }
-        return null;
+        int index = this.indexOf(name);
+        return index < 0 ? null : this.columns.get(index);
     }
 
     /**
@@ -142,13 +226,12 @@ public class Table {
      * @return {@code true} if the value was successfully appended, {@code false} otherwise
      */
     public boolean appendToColumn(String columnName, Object value) {
-        for (Column column : this.columns) {
-            if (column.getName().equals(columnName)) {
-                column.addRow(value);
-                return true;
-            }
+        Column column = this.getColumn(columnName);
+        if (column == null) {
+            return false;
         }
-        return false;
+        column.addRow(value);
+        return true;
     }
 
     /**
@@ -167,22 +250,29 @@ public class Table {
     }
 
     /**
-     * Renames an existing column.
+     * Renames an existing column, updating the entries of both names in the name index.
      *
      * @param columnOldName the old name of the column
      * @param columnNewName the new name of the column
      * @throws OperationException if the old column name doesn't exist
      */
     public void renameColumn(String columnOldName, String columnNewName) throws OperationException {
-        this.checkColumn(columnOldName);
-        int index = -1;
-        for (int i = 0; i < this.columns.size(); i++) {
-            if (this.columns.get(i).getName().equals(columnOldName)) {
-                index = i;
+        Column column = this.checkColumn(columnOldName);
+        int position = this.indexOf(columnOldName);
+        column.setName(columnNewName);
+
+        // The old name now resolves to the next column with that name, if any
+        this.columnIndex.remove(columnOldName);
+        for (int i = position + 1; i < this.columns.size(); i++) {
+            if (columnOldName.equals(this.columns.get(i).getName())) {
+                this.columnIndex.put(columnOldName, i);
                 break;
             }
         }
-        this.columns.get(index).setName(columnNewName);
+        Integer index = this.columnIndex.get(columnNewName);
+        if (index == null || index > position) {
+            this.columnIndex.put(columnNewName, position);
+        }
     }
 
     /**
@@ -193,43 +283,19 @@ public class Table {
      */
     public void remove(String columnName) throws OperationException {
         this.checkColumn(columnName);
-        Column column = this.getColumn(columnName);
-        this.columns.remove(column);
+        this.columns.remove(this.indexOf(columnName));
+        this.invalidateIndex();
     }
 
     /**
      * Retrieves a list of subtables by traversing through nested columns and matching the directory path.
      * The directory path is a list of column names to navigate through the nested structure.
+     * Paths that are used repeatedly should be compiled once with {@link PathExpression#compile(String)} instead.
      *
      * @param directory the directory path to match
-     * @return a list of subtables matching the directory path
+     * @return a list of subtables matching the directory path, or {@code null} if the first column of the path doesn't exist
      */
     public List<Table> getSubTables(List<String> directory) {
-
-        List<Table> tables = new ArrayList<>();
-
-        // Base case: if the directory is empty, return the current table
-        if (directory.isEmpty()) {
-            tables.add(this);
-            return tables;
-        }
-
-        // Process the first part of the directory path
-        String dir = directory.get(0);
-        Column column = this.getColumn(dir);
-
-        if (column != null) {
-            for (Object row : column.getRows()) {
-                if (row instanceof Table) {
-                    // Recursive call to find subtables
-                    List<Table> listTables = ((Table) row).getSubTables(directory.subList(1, directory.size()));
-                    tables.addAll(listTables);
-                }
-            }
-            return tables;
-        }
-
-        // Column not found
-        return null;
+        return PathExpression.of(directory).resolve(this);
     }
 }
@@ -2,8 +2,16 @@ package pt.up.fe.els2024.builders;
 
 import pt.up.fe.els2024.Column;
 import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.cache.ParseCache;
+import pt.up.fe.els2024.engine.ColumnSketch;
+import pt.up.fe.els2024.engine.HashJoin;
+import pt.up.fe.els2024.engine.RowFilter;
+import pt.up.fe.els2024.engine.TableMerger;
+import pt.up.fe.els2024.exception.OperationException;
 import pt.up.fe.els2024.exception.ParserException;
+import pt.up.fe.els2024.parser.BatchParser;
 import pt.up.fe.els2024.parser.Parser;
+import pt.up.fe.els2024.utils.PathExpression;
 import pt.up.fe.els2024.utils.Utils;
 
 import java.io.File;
@@ -23,6 +31,9 @@ public class ImportBuilder extends Builder {
     /** A list of tables parsed from files. */
     private List<Table> tables = new ArrayList<>();
 
+    /** The files imported but not parsed yet, which follow the tables in import order. */
+    private List<PendingTable> pendingTables = new ArrayList<>();
+
     /** A parser instance to read files. */
     private Parser parser = new Parser();
 
@@ -35,7 +46,30 @@ public class ImportBuilder extends Builder {
     /** The name of the current file being processed. */
     private String fileName;
 
-    private Map<String, Map<String, Table>> fromFoldersMap = new HashMap<>(); //Key: path, Value: Extension
+    private Map<String, Map<String, PendingTable>> fromFoldersMap = new HashMap<>(); //Key: path, Value: Extension
+
+    /** The maximum number of files parsed at the same time. */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /** The files that failed to parse in the last batch, with their errors. */
+    private Map<File, Exception> failures = new LinkedHashMap<>();
+
+    /** The column the imported table is joined on, or {@code null} to append its columns instead. */
+    private String joinColumn;
+
+    /** The kind of join with the imported table. */
+    private HashJoin.Type joinType = HashJoin.Type.INNER;
+
+    /** Whether the tables of the folders are being selected by extension, one extension at a time. */
+    private boolean filteringByExtension;
+
+    /**
+     * A file imported but not parsed yet.
+     *
+     * @param file the file to parse.
+     * @param name the name given to the parsed table, or {@code null} to keep the file name.
+     */
+    private record PendingTable(File file, String name) {}
 
     /**
      * Constructs an ImportBuilder instance with a specified name and operation builder.
@@ -51,24 +85,199 @@ public class ImportBuilder extends Builder {
 
     /**
      * Retrieves the list of tables imported by this builder.
+     * Files imported but not parsed yet are parsed in full.
+     *
+     * @return a list of {@link Table} instances.
+     * @throws ParserException if any of the files could not be parsed.
+     */
+    public List<Table> getContent() throws ParserException {
+        return this.getContent(List.of());
+    }
+
+    /**
+     * Retrieves the list of tables imported by this builder, to select the given path from them.
+     * Files imported but not parsed yet are only parsed along the path, so the rest of their content
+     * is skipped while reading them.
+     *
+     * @param path the keys of the path that will be selected, or an empty list to parse everything.
+     * @return a list of {@link Table} instances.
+     * @throws ParserException if any of the files could not be parsed.
+     */
+    public List<Table> getContent(List<String> path) throws ParserException {
+        this.parsePending(path, null);
+        return this.tables;
+    }
+
+    /**
+     * Retrieves the list of tables imported by this builder, to select the given path from them and filter
+     * the selected tables.
+     * Files imported but not parsed yet are only parsed along the path, and the filter is pushed down to their
+     * parsers, so that the rows it rejects are dropped while reading them. Tables parsed before are returned
+     * unfiltered.
      *
+     * @param path the keys of the path that will be selected, or an empty list to parse everything.
+     * @param filter the filter applied to the tables the path leads to.
      * @return a list of {@link Table} instances.
+     * @throws ParserException if any of the files could not be parsed.
      */
-    public List<Table> getContent() {
+    public List<Table> getContent(List<String> path, RowFilter filter) throws ParserException {
+        this.parsePending(path, filter);
         return this.tables;
     }
 
     /**
-     * Retrieves the map of folder names to their corresponding tables.
+     * Sketches columns of the tables a path leads to in the files imported but not parsed yet, without keeping
+     * the tables. Each file is sketched by the thread that parsed it and its table is dropped right away, so only
+     * the files being parsed at the same time are in memory; the sketches are then merged in import order.
+     * Files that fail to parse are handled as described in {@link #getFailures()}.
+     *
+     * @param path    the path to the tables to sketch, or an empty string for the root table of each file.
+     * @param columns the names of the columns to sketch.
+     * @return the merged sketch of each column, by name, in the given order.
+     * @throws ParserException if any of the files could not be parsed.
+     */
+    public Map<String, ColumnSketch> sketch(String path, List<String> columns) throws ParserException {
+        PathExpression expression = PathExpression.compile(path);
+        List<File> files = this.pendingTables.stream().map(PendingTable::file).toList();
+        BatchParser batchParser = new BatchParser(this.parser, this.parallelism);
+
+        List<Map<String, ColumnSketch>> sketches = batchParser.mapAll(files, expression.getSegments(), null, table -> {
+            Map<String, ColumnSketch> fileSketches = new LinkedHashMap<>();
+            List<Table> selected = expression.isEmpty() ? List.of(table) : expression.resolve(table);
+            for (String name : columns) {
+                ColumnSketch sketch = new ColumnSketch();
+                for (Table selectedTable : selected == null ? List.<Table>of() : selected) {
+                    Column column = selectedTable.getColumn(name);
+                    if (column != null) {
+                        sketch.merge(ColumnSketch.of(column, column.size()));
+                    }
+                }
+                fileSketches.put(name, sketch);
+            }
+            return fileSketches;
+        });
+        this.failures = new LinkedHashMap<>(batchParser.getFailures());
+        ParserException failure = batchParser.failuresAsException();
+        if (failure != null) {
+            throw failure;
+        }
+
+        Map<String, ColumnSketch> merged = new LinkedHashMap<>();
+        for (String name : columns) {
+            merged.put(name, new ColumnSketch());
+        }
+        for (Map<String, ColumnSketch> fileSketches : sketches) {
+            fileSketches.forEach((name, sketch) -> merged.get(name).merge(sketch));
+        }
+        return merged;
+    }
+
+    /**
+     * Retrieves the files imported but not parsed yet, in import order.
+     *
+     * @return the list of files.
+     */
+    public List<File> getPendingFiles() {
+        return this.pendingTables.stream().map(PendingTable::file).toList();
+    }
+
+    /**
+     * Creates a builder that imports one of the files imported by this builder on its own, into the result
+     * table of another operation builder. The new builder parses like this one, so a file imported through it
+     * gives the same tables as it would as part of the whole import.
+     *
+     * @param file                   the file to import.
+     * @param columnOperationBuilder the operation builder of the result table of the new builder.
+     * @return the new instance of {@code ImportBuilder}.
+     */
+    public ImportBuilder forFile(File file, OperationBuilder columnOperationBuilder) {
+        ImportBuilder importBuilder = new ImportBuilder(Builder.name, columnOperationBuilder);
+        importBuilder.parser = this.parser;
+        importBuilder.parallelism = 1;
+        importBuilder.filePath = this.filePath;
+        importBuilder.fileName = this.fileName;
+        importBuilder.pendingTables.add(this.pendingTables.stream()
+                                                          .filter(pendingTable -> pendingTable.file().equals(file))
+                                                          .findFirst()
+                                                          .orElse(new PendingTable(file, null)));
+        return importBuilder;
+    }
+
+    /**
+     * Retrieves the names of the folders imported by {@link #fromFolders(String)}.
      *
-     * @return a map where the keys are folder names and the values are maps of table names to {@link Table} instances.
+     * @return the set of folder names.
      */
-    public Map<String, Map<String, Table>> getFromFoldersMap() {
-        return this.fromFoldersMap;
+    public Set<String> getFolderNames() {
+        return this.fromFoldersMap.keySet();
+    }
+
+    /**
+     * Sets the maximum number of files parsed at the same time.
+     * A value of {@code 1} parses the files one after another on the calling thread.
+     *
+     * @param parallelism the degree of parallelism, by default the number of available processors.
+     * @return the current instance of {@code ImportBuilder}.
+     */
+    public ImportBuilder withParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        return this;
+    }
+
+    /**
+     * Sets the cache used to reuse the tables of files that haven't changed since they were last parsed.
+     *
+     * @param cache the cache of parsed tables, or {@code null} to parse every file.
+     * @return the current instance of {@code ImportBuilder}.
+     */
+    public ImportBuilder withCache(ParseCache cache) {
+        this.parser = new Parser(cache);
+        return this;
+    }
+
+    /**
+     * Joins the imported table with the result table on a key column when the import ends,
+     * instead of appending its columns side by side.
+     *
+     * @param column the name of the key column, in both tables.
+     * @param type   the kind of join, as described in {@link HashJoin}.
+     * @return the current instance of {@link ImportBuilder} for method chaining.
+     */
+    public ImportBuilder joinOn(String column, HashJoin.Type type) {
+        this.joinColumn = column;
+        this.joinType = type;
+        return this;
+    }
+
+    /**
+     * Retrieves the files that failed to parse in the last batch.
+     * <p>
+     * A batch is always parsed to the end, so that every file that fails is recorded here rather than only the
+     * first one. The failures are then reported together in a single {@link ParserException}, which stops the
+     * import like the failure of a single file does. Only {@link #getContent(List)} and its variants keep the
+     * tables of the files that were parsed, for callers that catch the exception.
+     * </p>
+     *
+     * @return a map from each failed file to its error, in the order the files were listed.
+     */
+    public Map<File, Exception> getFailures() {
+        return this.failures;
+    }
+
+    /**
+     * Checks whether the tables of the folders are being selected by extension, which is the case once
+     * {@link #whenExtension(String)} was called.
+     *
+     * @return {@code true} if an extension was selected, whose tables {@link #endWhen()} merges.
+     */
+    public boolean isFilteringByExtension() {
+        return this.filteringByExtension;
     }
 
     /**
      * Imports data from a specified file.
+     * The file is parsed once its tables are needed, so that a following selection can restrict
+     * the parsing to the selected path.
      *
      * @param filePath the path to the file to be parsed.
      * @return the current instance of {@code ImportBuilder}.
@@ -77,7 +286,7 @@ public class ImportBuilder extends Builder {
      */
     public ImportBuilder fromFile(String filePath) throws ParserException, IOException {
         File file = new File(filePath);
-        this.tables.add(parser.parseFile(file));
+        this.pendingTables.add(new PendingTable(file, null));
         this.filePath = filePath;
         this.fileName = Utils.extractFileName(filePath);
         return this;
@@ -130,6 +339,19 @@ public class ImportBuilder extends Builder {
         return new SelectBuilder(path, constraints, this, false);
     }
 
+    /**
+     * Selects tables by specified path and constraints, keeping only the rows that satisfy a condition.
+     *
+     * @param path        the path to filter tables.
+     * @param constraints the list of constraints for filtering.
+     * @param where       the condition the rows of the selected tables must satisfy, or {@code null} to keep every row.
+     * @return an instance of {@link SelectBuilder}.
+     * @throws Exception if an error occurs during selection.
+     */
+    public SelectBuilder selectByTable(String path, List<String> constraints, RowFilter where) throws Exception {
+        return new SelectBuilder(path, constraints, where, this, false);
+    }
+
     /**
      * Selects columns by specified path and constraints.
      *
@@ -142,6 +364,20 @@ public class ImportBuilder extends Builder {
         return new SelectBuilder(path, constraints, this, true);
     }
 
+    /**
+     * Selects columns by specified path and constraints, keeping only the rows that satisfy a condition.
+     * The condition is evaluated over the table holding the column, so it can read the other columns of that table.
+     *
+     * @param path        the path to filter columns.
+     * @param constraints the list of constraints for filtering.
+     * @param where       the condition the rows of the selected tables must satisfy, or {@code null} to keep every row.
+     * @return an instance of {@link SelectBuilder}.
+     * @throws Exception if an error occurs during selection.
+     */
+    public SelectBuilder selectByColumn(String path, List<String> constraints, RowFilter where) throws Exception {
+        return new SelectBuilder(path, constraints, where, this, true);
+    }
+
     /**
      * Parses a directory structure and maps folder names to tables contained in their files.
      * 
@@ -168,16 +404,15 @@ public class ImportBuilder extends Builder {
         for (File subFolder : subFolders) {
             String subFolderName = subFolder.getName();
 
-            Map<String, Table> tablesMap = new HashMap<>();
+            Map<String, PendingTable> tablesMap = new HashMap<>();
 
             File[] tableFiles = subFolder.listFiles(File::isFile);
             if (tableFiles != null) {
                 for (File tableFile : tableFiles) {
                     String tableName = tableFile.getName();
 
-                    Table table = parser.parseFile(new File(foldersPath + "/" + subFolderName + "/" + tableFile.getName()));
-                    table.setName(foldersPath + subFolderName + "/" + tableName);
-                    tablesMap.put(tableName, table);
+                    File file = new File(foldersPath + "/" + subFolderName + "/" + tableFile.getName());
+                    tablesMap.put(tableName, new PendingTable(file, foldersPath + subFolderName + "/" + tableName));
                 }
             }
 
@@ -187,6 +422,44 @@ public class ImportBuilder extends Builder {
         return this;
     }
 
+    /**
+     * Parses the files imported but not parsed yet as a single batch, and adds their tables in import order.
+     * The files that fail to parse are handled as described in {@link #getFailures()}, once the rest of the
+     * batch has been added.
+     *
+     * @param path the keys of the path that will be selected, or an empty list to parse everything.
+     * @param filter the filter applied to the tables the path leads to, or {@code null} to keep every row.
+     * @throws ParserException if any of the files could not be parsed.
+     */
+    private void parsePending(List<String> path, RowFilter filter) throws ParserException {
+        if (this.pendingTables.isEmpty()) {
+            return;
+        }
+
+        List<File> files = this.pendingTables.stream().map(PendingTable::file).toList();
+        BatchParser batchParser = new BatchParser(this.parser, this.parallelism);
+        List<Table> parsedTables = batchParser.parseAll(files, path, filter);
+        this.failures = new LinkedHashMap<>(batchParser.getFailures());
+
+        int parsed = 0;
+        for (PendingTable pendingTable : this.pendingTables) {
+            if (this.failures.containsKey(pendingTable.file())) {
+                continue;
+            }
+            Table table = parsedTables.get(parsed++);
+            if (pendingTable.name() != null) {
+                table.setName(pendingTable.name());
+            }
+            this.tables.add(table);
+        }
+        this.pendingTables.clear();
+
+        ParserException failure = batchParser.failuresAsException();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
     /**
      * Selects values based on filter criteria.
      *
@@ -221,24 +494,15 @@ public class ImportBuilder extends Builder {
      */
     public void setTables(List<Table> tables) {
         this.tables = tables;
+        this.pendingTables.clear();
     }
 
     /**
-     * Merges all imported tables by columns or rows, adding columns or rows from each table
-     * to the result table.
+     * Merges all imported tables by rows into the result table, using the union of their columns.
+     * Cells of columns missing from a table are filled with {@code null}.
      */
     private void merge() {
-        Table firstTable = new Table(this.filePath);
-        for (Table table : this.tables) {
-            for (Column column : table.getColumns()) {
-                for (Object row : column.getRows()) {
-                    if (!firstTable.appendToColumn(column.getName(), row)) {
-                        firstTable.addColumn(column);
-                    }
-                }
-            }
-        }
-        this.resulTable = firstTable;
+        this.resulTable = TableMerger.merge(this.filePath, this.tables);
     }
 
     /**
@@ -246,7 +510,8 @@ public class ImportBuilder extends Builder {
      * If only one table is imported, it becomes the result table.
      * If multiple tables are imported, they are merged by columns or by rows.
      */
-    private void mergeTables() {
+    private void mergeTables() throws ParserException {
+        this.parsePending(List.of(), null);
         if (tables.isEmpty()) return;
         if (tables.size() == 1) {
             this.resulTable = this.tables.get(0);
@@ -257,21 +522,12 @@ public class ImportBuilder extends Builder {
 
     /**
      * Merges all tables into a single table by consolidating their columns and rows.
-     * If a column already exists in the first table, rows are appended to it; 
-     * otherwise, a new column is added to the first table.
-     */
-    private void mergeTablesSingleLine(){
-        Table firstTable = new Table(this.filePath);
-        for (Table table : this.tables) {
-            for (Column column : table.getColumns()) {
-                for (Object row : column.getRows()) {
-                    if (!firstTable.appendToColumn(column.getName(), row)) {
-                        firstTable.addColumn(column);
-                    }
-                }
-            }
-        }
-        this.resulTable = firstTable;
+     * Every column of every table is copied to the result in bulk, and missing cells
+     * are filled with {@code null} so that all columns have the same number of rows.
+     */
+    private void mergeTablesSingleLine() throws ParserException {
+        this.parsePending(List.of(), null);
+        this.resulTable = TableMerger.merge(this.filePath, this.tables);
     }
 
     /**
@@ -299,17 +555,18 @@ public class ImportBuilder extends Builder {
      * @return the current instance of {@link ImportBuilder} for method chaining.
      */
     public ImportBuilder whenExtension(String extension) {
-        for (Map.Entry<String, Map<String, Table>> subFolderEntry : this.fromFoldersMap.entrySet()) {
+        this.filteringByExtension = true;
+        for (Map.Entry<String, Map<String, PendingTable>> subFolderEntry : this.fromFoldersMap.entrySet()) {
             String subFolderName = subFolderEntry.getKey();
-            Map<String, Table> tablesMap = subFolderEntry.getValue();
+            Map<String, PendingTable> tablesMap = subFolderEntry.getValue();
 
-            for (Map.Entry<String, Table> tableEntry : tablesMap.entrySet()) {
+            for (Map.Entry<String, PendingTable> tableEntry : tablesMap.entrySet()) {
                 String tableName = tableEntry.getKey();
-                Table table = tableEntry.getValue();
+                PendingTable table = tableEntry.getValue();
                 String tableExtension = Utils.getExtension(tableName);
 
                 if (tableExtension.equals(extension)) {
-                    tables.add(table);
+                    pendingTables.add(table);
                 }
             }
         }
@@ -322,8 +579,9 @@ public class ImportBuilder extends Builder {
      * to prepare for further operations.
      *
      * @return the current instance of {@link ImportBuilder} for method chaining.
+     * @throws ParserException if any of the filtered files could not be parsed.
      */
-    public ImportBuilder endWhen() {
+    public ImportBuilder endWhen() throws ParserException {
         this.mergeTablesSingleLine();
         tables.clear();
         //tables.add(this.resulTable);
@@ -336,12 +594,19 @@ public class ImportBuilder extends Builder {
 
     /**
      * Finalizes the import process, merges tables, and returns the associated operation builder.
+     * If a join column was given, the imported table is joined with the result table on it.
      *
      * @return the associated {@link OperationBuilder} instance.
+     * @throws ParserException if any of the imported files could not be parsed.
+     * @throws OperationException if a table to join has no join column.
      */
-    public OperationBuilder end() {
+    public OperationBuilder end() throws ParserException, OperationException {
         this.mergeTables();
-        this.operationBuilder.mergeTables(this.resulTable);
+        if (this.joinColumn != null && !this.tables.isEmpty()) {
+            this.operationBuilder.join(this.resulTable, this.joinColumn, this.joinType);
+        } else {
+            this.operationBuilder.mergeTables(this.resulTable);
+        }
         return this.operationBuilder;
     }
 }
@@ -3,10 +3,19 @@ package pt.up.fe.els2024.builders;
 import pt.up.fe.els2024.Table;
 import pt.up.fe.els2024.exception.OperationException;
 import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.engine.Aggregator;
+import pt.up.fe.els2024.engine.ArithmeticKernels;
+import pt.up.fe.els2024.engine.ColumnSketch;
+import pt.up.fe.els2024.engine.Expression;
+import pt.up.fe.els2024.engine.GroupAggregator;
+import pt.up.fe.els2024.engine.HashJoin;
+import pt.up.fe.els2024.engine.RowFilter;
+import pt.up.fe.els2024.engine.TableSorter;
+import pt.up.fe.els2024.storage.DoubleStorage;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.function.BiFunction;
 
 /**
  * A builder class for performing operations on tables and columns.
@@ -21,7 +30,9 @@ public class OperationBuilder extends Builder {
 
     /** The table on which operations are performed. */
     private Table resultTable;
-    private int addedRows = 0;
+
+    /** Whether the results of the operations between columns are rounded to two decimal places. */
+    private boolean rounding = true;
 
     /**
      * Constructs an OperationBuilder instance with a specified name and table builder.
@@ -77,6 +88,18 @@ public class OperationBuilder extends Builder {
         return this;
     }
 
+    /**
+     * Sets whether the results of the operations between columns are rounded to two decimal places,
+     * which they are by default.
+     *
+     * @param rounding {@code true} to round the results, {@code false} to keep them exact.
+     * @return the current instance of {@code OperationBuilder}.
+     */
+    public OperationBuilder withRounding(boolean rounding) {
+        this.rounding = rounding;
+        return this;
+    }
+
     /**
      * Verifies the existence of a column with the specified name in the table.
      *
@@ -90,39 +113,89 @@ public class OperationBuilder extends Builder {
 
     /**
      * Performs a specified mathematical operation on two numeric columns.
+     * The values are read into primitive arrays, combined by the {@link ArithmeticKernels}, optionally rounded
+     * in a separate pass, and the result is stored in a primitive column. A division by zero gives an infinity
+     * or {@code NaN}, which rounding keeps as it is.
      *
      * @param columnName1      the name of the first column.
      * @param columnName2      the name of the second column.
      * @param resultColumnName the name of the result column.
-     * @param operation        a {@link BiFunction} defining the operation to perform.
+     * @param operation        the element-wise operation to perform.
      * @return the current instance of {@code OperationBuilder}.
      * @throws OperationException if columns have different sizes or contain non-numeric values.
      */
     private OperationBuilder operate(String columnName1, String columnName2, String resultColumnName,
-                                     BiFunction<Number, Number, Number> operation) throws OperationException {
-        List<Object> column1rows = this.checkColumn(columnName1).getRows();
-        List<Object> column2rows = this.checkColumn(columnName2).getRows();
+                                     ArithmeticKernels.Operation operation) throws OperationException {
+        Column column1 = this.checkColumn(columnName1);
+        Column column2 = this.checkColumn(columnName2);
 
-        if (column1rows.size() != column2rows.size()) {
+        if (column1.size() != column2.size()) {
             throw new OperationException("Cannot operate on columns with different sizes");
         }
 
-        boolean justNumbers = column1rows.stream().allMatch(element -> element instanceof Number) 
-                                && column2rows.stream().allMatch(element -> element instanceof Number);
-        if (!justNumbers) {
+        double[] column1values = column1.toDoubleArray();
+        double[] column2values = column2.toDoubleArray();
+        if (column1values == null || column2values == null) {
             throw new OperationException("Cannot operate on columns with non-numbers");
         }
 
-        List<Object> resultRows = new ArrayList<>();
-        for (int i = 0 ; i < column1rows.size() ; i++) {
-            Number n1 = (Number) column1rows.get(i);
-            Number n2 = (Number) column2rows.get(i);
-            Number result = operation.apply(n1, n2);
-            result = Math.round(result.doubleValue() * 100.0) / 100.0;
-            resultRows.add(result);
+        // The first operand is a copy of the column, so the results can overwrite it
+        double[] resultValues = column1values;
+        ArithmeticKernels.apply(operation, column1values, column2values, resultValues);
+        if (this.rounding) {
+            ArithmeticKernels.round(resultValues);
+        }
+
+        Column resultColumn = new Column(resultColumnName, new DoubleStorage(resultValues, resultValues.length));
+        this.resultTable.addColumn(resultColumn);
+        return this;
+    }
+
+    /**
+     * Verifies that the operands of an operation between columns could be computed, without computing it:
+     * that the columns exist, have the same size and only hold numbers.
+     *
+     * @param columnNames the names of the columns read by the operation.
+     * @return the current instance of {@code OperationBuilder}.
+     * @throws OperationException if a column does not exist, the columns have different sizes or contain
+     *                            non-numeric values.
+     */
+    public OperationBuilder checkOperands(Collection<String> columnNames) throws OperationException {
+        List<Column> columns = new ArrayList<>();
+        for (String columnName : columnNames) {
+            columns.add(this.checkColumn(columnName));
+        }
+
+        for (Column column : columns) {
+            if (column.size() != columns.getFirst().size()) {
+                throw new OperationException("Cannot operate on columns with different sizes");
+            }
+        }
+        for (Column column : columns) {
+            if (column.toDoubleArray() == null) {
+                throw new OperationException("Cannot operate on columns with non-numbers");
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Adds a new column with the values of an arithmetic expression over numeric columns, such as {@code a * b + c / 2}.
+     * The expression is compiled once and computes every row in a single pass, without intermediate columns,
+     * and the results are rounded like those of the operations between two columns.
+     *
+     * @param resultColumnName the name of the result column.
+     * @param expression       the expression to compute.
+     * @return the current instance of {@code OperationBuilder}.
+     * @throws OperationException if the columns have different sizes, contain non-numeric values or do not exist.
+     */
+    public OperationBuilder addExpressionColumn(String resultColumnName, Expression expression) throws OperationException {
+        double[] resultValues = expression.evaluate(this.resultTable);
+        if (this.rounding) {
+            ArithmeticKernels.round(resultValues);
         }
 
-        Column resultColumn = new Column(resultColumnName, resultRows);
+        Column resultColumn = new Column(resultColumnName, new DoubleStorage(resultValues, resultValues.length));
         this.resultTable.addColumn(resultColumn);
         return this;
     }
@@ -137,7 +210,7 @@ public class OperationBuilder extends Builder {
      * @throws OperationException if the columns contain non-numeric values or have different sizes.
      */
     public OperationBuilder sum(String columnName1, String columnName2, String resultColumnName) throws OperationException {
-        return operate(columnName1, columnName2, resultColumnName, (n1, n2) -> n1.doubleValue() + n2.doubleValue());
+        return operate(columnName1, columnName2, resultColumnName, ArithmeticKernels.Operation.SUM);
     }
 
     /**
@@ -150,7 +223,7 @@ public class OperationBuilder extends Builder {
      * @throws OperationException if the columns contain non-numeric values or have different sizes.
      */
     public OperationBuilder sub(String columnName1, String columnName2, String resultColumnName) throws OperationException {
-        return operate(columnName1, columnName2, resultColumnName, (n1, n2) -> n1.doubleValue() - n2.doubleValue());
+        return operate(columnName1, columnName2, resultColumnName, ArithmeticKernels.Operation.SUB);
     }
 
     /**
@@ -163,7 +236,7 @@ public class OperationBuilder extends Builder {
      * @throws OperationException if the columns contain non-numeric values or have different sizes.
      */
     public OperationBuilder div(String columnName1, String columnName2, String resultColumnName) throws OperationException {
-        return operate(columnName1, columnName2, resultColumnName, (n1, n2) -> n1.doubleValue() / n2.doubleValue());
+        return operate(columnName1, columnName2, resultColumnName, ArithmeticKernels.Operation.DIV);
     }
 
     /**
@@ -176,54 +249,111 @@ public class OperationBuilder extends Builder {
      * @throws OperationException if the columns contain non-numeric values or have different sizes.
      */
     public OperationBuilder mul(String columnName1, String columnName2, String resultColumnName) throws OperationException {
-        return operate(columnName1, columnName2, resultColumnName, (n1, n2) -> n1.doubleValue() * n2.doubleValue());
+        return operate(columnName1, columnName2, resultColumnName, ArithmeticKernels.Operation.MUL);
     }
 
     /**
-     * Computes the sum of numeric values in each column of the result table and appends the total as a new row.
+     * Computes the given statistics of each column of the result table in a single pass per column,
+     * and appends them as new rows, one per statistic, in the given order.
      *
-     * - For columns containing numeric values (`Number`), it calculates the sum of all rows excluding the added rows.
-     * - For columns containing strings that can be converted to numbers, it attempts the conversion and calculates the sum.
-     * - For non-numeric columns or invalid strings, appends "N/A" to the column.
+     * - The statistics are computed over the data rows, excluding the summary rows appended before.
+     * - For columns containing numeric values (`Number`), or strings that can be converted to numbers, the statistics are computed.
+     * - For non-numeric columns or invalid strings, appends "N/A" to the column for each statistic.
      *
+     * @param statistics the statistics to compute, as described in {@link Aggregator}.
      * @return the current {@link OperationBuilder} instance for method chaining.
      */
-    public OperationBuilder sum() {
+    public OperationBuilder aggregate(List<Aggregator.Statistic> statistics) {
+        int summaryRows = this.resultTable.getSummaryRows();
 
         for (Column column : this.resultTable.getColumns()) {
-            double total = 0;
-
+            int dataRows = Math.max(0, column.size() - summaryRows);
+            for (Object value : Aggregator.aggregate(column, dataRows, statistics)) {
+                column.addRow(value);
+            }
+        }
 
-            if (column.getRows().getFirst() instanceof Number) {
-                for (int i = 0; i < column.getRows().size() - this.addedRows; i++) {
-                    Number value = (Number) column.getRows().get(i);
-                    total += value.doubleValue();
-                }
+        this.resultTable.addSummaryRows(statistics.size());
+        return this;
+    }
 
-                column.addRow((double) Math.round(total * 100) / 100);
-            }
+    /**
+     * Estimates the given approximate aggregates of each column of the result table from a sketch of the column,
+     * and appends them as new rows, one per aggregate, in the given order.
+     *
+     * - The aggregates are estimated over the data rows, excluding the summary rows appended before.
+     * - The distinct count counts every value, comparing numbers and strings that are numbers by value.
+     * - Percentiles are estimated over the numeric values, and are "N/A" for columns without any.
+     *
+     * @param approximations the aggregates to estimate, as described in {@link ColumnSketch}.
+     * @return the current {@link OperationBuilder} instance for method chaining.
+     */
+    public OperationBuilder approximate(List<ColumnSketch.Approximation> approximations) {
+        int summaryRows = this.resultTable.getSummaryRows();
 
-            // Check if the column contains Strings that can be converted to numbers
-            else if (column.getRows().getFirst() instanceof String && !column.getName().equals("Folder")) {
-                try {
-                    for (int i = 0; i < column.getRows().size() - this.addedRows; i++) {
-                        double value = Double.parseDouble((String) column.getRows().get(i));
-                        total += value;
-                    }
-                    column.addRow((double) Math.round(total * 100) / 100);
-                } catch (NumberFormatException e) {
-                    column.addRow("N/A");
-                }
-            }
-            else {
-                column.addRow("N/A");
+        for (Column column : this.resultTable.getColumns()) {
+            ColumnSketch sketch = ColumnSketch.of(column, Math.max(0, column.size() - summaryRows));
+            for (ColumnSketch.Approximation approximation : approximations) {
+                column.addRow(approximation.estimate(sketch));
             }
         }
 
-        this.addedRows += 1;
+        this.resultTable.addSummaryRows(approximations.size());
+        return this;
+    }
+
+    /**
+     * Groups the rows of the result table by the values of some key columns and replaces it with one row per group.
+     *
+     * - The key columns come first, holding the values of each group, in the order the groups first appear.
+     * - Each value column is followed by one column per statistic, named after the column and the statistic.
+     * - The statistics are computed over the data rows, excluding the summary rows appended before, as in {@link #aggregate(List)}.
+     *
+     * @param keyColumns   the columns whose values identify the groups.
+     * @param valueColumns the columns to compute statistics of, or {@code null} for every column that is not a key.
+     * @param statistics   the statistics to compute, as described in {@link Aggregator}.
+     * @return the current {@link OperationBuilder} instance for method chaining.
+     * @throws OperationException if a column does not exist or the aggregation fails.
+     */
+    public OperationBuilder groupBy(List<String> keyColumns, List<String> valueColumns,
+                                    List<Aggregator.Statistic> statistics) throws OperationException {
+        int dataRows = Math.max(0, RowFilter.rowCount(this.resultTable) - this.resultTable.getSummaryRows());
+
+        this.resultTable = new GroupAggregator(keyColumns, valueColumns, statistics)
+                .aggregate(this.resultTable, dataRows);
+        return this;
+    }
+
+    /**
+     * Sorts the rows of the result table by the values of some columns.
+     *
+     * - Numbers, and strings that can be converted to numbers, are compared by value and come before other strings.
+     * - Missing values come last, and rows with equal values keep their order.
+     * - The summary rows appended before stay at the end of the table.
+     *
+     * @param keys the columns to sort by, the first one deciding first.
+     * @return the current {@link OperationBuilder} instance for method chaining.
+     * @throws OperationException if a column does not exist or the sort fails.
+     */
+    public OperationBuilder orderBy(List<TableSorter.SortKey> keys) throws OperationException {
+        int dataRows = Math.max(0, RowFilter.rowCount(this.resultTable) - this.resultTable.getSummaryRows());
+        this.resultTable = new TableSorter(keys).sort(this.resultTable, dataRows);
         return this;
     }
 
+    /**
+     * Computes the sum of numeric values in each column of the result table and appends the total as a new row.
+     *
+     * - For columns containing numeric values (`Number`), it calculates the sum of all rows excluding the added rows.
+     * - For columns containing strings that can be converted to numbers, it attempts the conversion and calculates the sum.
+     * - For non-numeric columns or invalid strings, appends "N/A" to the column.
+     *
+     * @return the current {@link OperationBuilder} instance for method chaining.
+     */
+    public OperationBuilder sum() {
+        return this.aggregate(List.of(Aggregator.Statistic.SUM));
+    }
+
     /**
      * Calculates the average of numeric values in each column of the result table and appends it as a new row.
      *
@@ -236,41 +366,7 @@ public class OperationBuilder extends Builder {
      * @return the current {@link OperationBuilder} instance for method chaining.
      */
     public OperationBuilder average() {
-        for (Column column : this.resultTable.getColumns()) {
-            double total = 0;
-            int count = column.getRows().size() - this.addedRows;
-
-            if (column.getRows().getFirst() instanceof Number) {
-                for (int i = 0; i < count; i++) {
-                    Number value = (Number) column.getRows().get(i);
-                    total += value.doubleValue();
-                }
-
-                double average = (double) Math.round((total / count) * 100) / 100;
-                column.addRow(average);
-            }
-
-            // Check if the column contains Strings that can be converted to numbers
-            else if (column.getRows().getFirst() instanceof String && !column.getName().equals("Folder")) {
-                try {
-                    for (int i = 0; i < count; i++) {
-                        String rowValue = (String) column.getRows().get(i);
-                        double value = Double.parseDouble(rowValue);
-                        total += value;
-                    }
-
-                    double average = (double) Math.round((total / count) * 100) / 100;
-                    column.addRow(average);
-                } catch (NumberFormatException e) {
-                    column.addRow("N/A");
-                }
-            } else {
-                column.addRow("N/A");
-            }
-        }
-
-        this.addedRows += 1;
-        return this;
+        return this.aggregate(List.of(Aggregator.Statistic.AVG));
     }
 
     /**
@@ -335,6 +431,29 @@ public class OperationBuilder extends Builder {
         this.resultTable.appendColumns(importedTable.getColumns());
     }
 
+    /**
+     * Joins an imported table with the result table on a key column, replacing the result table.
+     * If the result table has no columns yet, the columns of the imported table are appended instead.
+     *
+     * - Rows are paired by equal keys, and numeric strings match the numbers they represent.
+     * - The columns of the result table come first, followed by those of the imported table except its key column.
+     * - The summary rows appended before are not joined.
+     *
+     * @param importedTable the {@link Table} instance to join.
+     * @param column        the name of the key column, in both tables.
+     * @param type          the kind of join, as described in {@link HashJoin}.
+     * @throws OperationException if a table has no key column.
+     */
+    public void join(Table importedTable, String column, HashJoin.Type type) throws OperationException {
+        if (this.resultTable.getColumns().isEmpty()) {
+            this.mergeTables(importedTable);
+            return;
+        }
+
+        int dataRows = Math.max(0, RowFilter.rowCount(this.resultTable) - this.resultTable.getSummaryRows());
+        this.resultTable = new HashJoin(column, type).join(this.resultTable, dataRows, importedTable);
+    }
+
     /**
      * Retrieves the current result table.
      *
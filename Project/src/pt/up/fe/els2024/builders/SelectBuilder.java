@@ -2,7 +2,10 @@ package pt.up.fe.els2024.builders;
 
 import pt.up.fe.els2024.Column;
 import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.engine.RowFilter;
+import pt.up.fe.els2024.engine.TopNSelector;
 import pt.up.fe.els2024.exception.SelectException;
+import pt.up.fe.els2024.utils.PathExpression;
 import pt.up.fe.els2024.utils.Utils;
 
 import java.util.ArrayList;
@@ -25,8 +28,7 @@ public class SelectBuilder extends Builder {
     private String filterValue = null;
     private List<String> extractedValues = null;
     private Integer targetN = 1;
-    private Map<String, List<Table>> folderTables = new HashMap<>();
-    private Map<String, Table> FoldersMap = new HashMap<>();
+    private RowFilter where = null;
 
     /**
      * Initializes a new SelectBuilder with specified path, constraints, and an import builder.
@@ -39,11 +41,39 @@ public class SelectBuilder extends Builder {
      * @throws Exception if any error occurs during the selection process
      */
     public SelectBuilder(String path, List<String> constraints, ImportBuilder importBuilder, Boolean byColumn) throws Exception {
+        this(path, constraints, null, importBuilder, byColumn);
+    }
+
+    /**
+     * Initializes a new SelectBuilder with specified path, constraints, row condition and an import builder.
+     * Applies initial selections based on the provided parameters.
+     * <p>
+     * The condition is evaluated over the selected tables, or over the tables holding the selected column, and the
+     * tables left without rows are dropped. It is pushed down to the parsing of the files not parsed yet.
+     * </p>
+     *
+     * @param path the file path or directory path to select from
+     * @param constraints a list of constraints for the selection
+     * @param where the condition the rows of the selected tables must satisfy, or {@code null} to keep every row
+     * @param importBuilder the {@link ImportBuilder} instance linked to this selection
+     * @param byColumn specifies whether selection is by column or not
+     * @throws Exception if any error occurs during the selection process
+     */
+    public SelectBuilder(String path, List<String> constraints, RowFilter where, ImportBuilder importBuilder, Boolean byColumn) throws Exception {
         this.path = path;
         this.importBuilder = importBuilder;
-        this.tables = this.importBuilder.getContent();
+        this.where = where;
         this.constraints = constraints;
 
+        // Only the selected path needs to be parsed, or the table holding the selected column when it is filtered
+        PathExpression selected = PathExpression.compile(path);
+        if (where == null) {
+            this.tables = this.importBuilder.getContent(selected.getSegments());
+        } else {
+            PathExpression filtered = byColumn ? selected.getParent() : selected;
+            this.tables = this.importBuilder.getContent(filtered.getSegments(), where);
+        }
+
         // Select by path, if needed
         if (path != null) {
             if (byColumn)
@@ -52,6 +82,11 @@ public class SelectBuilder extends Builder {
                 selectByPath(false);
         }
 
+        // Select the rows by condition, if needed (columns are already filtered while selecting them)
+        if (where != null && (path == null || !byColumn)) {
+            selectByCondition();
+        }
+
         // Select by constraints (composite/non-composite), if needed
         if (constraints != null && !constraints.isEmpty()) {
             selectByConstraints();
@@ -72,7 +107,8 @@ public class SelectBuilder extends Builder {
         this.function = function;
         this.extractedValues = extractedValues;
         this.importBuilder = importBuilder;
-        this.tables = this.importBuilder.getContent();
+        // Only the table holding the filtered column needs to be parsed
+        this.tables = this.importBuilder.getContent(PathExpression.compile(filterValue).getParent().getSegments());
         this.path = null;
         this.constraints = null;
         this.targetN = targetN;
@@ -118,58 +154,32 @@ public class SelectBuilder extends Builder {
 
     /**
      * Applies the specified function to target rows for selection purposes.
+     * The tables of each file are fed to a {@link TopNSelector}, which keeps only the best {@code targetN} of them.
      *
      * @param function the name of the function to apply to the target row(s).
      * @throws SelectException if the function is invalid or the operation fails.
      */
     private void selectByTargetRow(String function) throws SelectException {
 
+        TopNSelector selector = switch (function) {
+            case "MAX" -> new TopNSelector(this.targetN, true);
+            case "MIN" -> new TopNSelector(this.targetN, false);
+            default -> throw new SelectException("Unknown function comparator: " + function);
+        };
+
         for (Table table : this.tables) {
-            if (this.folderTables.containsKey(table.getName())) {
-                List<Table> helper = this.folderTables.get(table.getName());
-                helper.add(table); // This works buse helper is now mutable
-                this.folderTables.put(table.getName(), helper);
-            } else {
-                this.folderTables.put(table.getName(), new ArrayList<>(List.of(table)));
-            }
+            selector.offer(table.getName(), table);
         }
 
-        for (String name : this.folderTables.keySet()){
+        Map<String, Table> foldersMap = new HashMap<>();
 
-            List<Table> tablesToBeOrdered = this.folderTables.get(name);
+        for (String name : selector.getGroups()) {
 
-            if (tablesToBeOrdered.size() < this.targetN) {
+            if (selector.getCount(name) < this.targetN) {
                 throw new SelectException("Target row is out of bounds");
             }
 
-            if (function.equals("MAX")){
-                tablesToBeOrdered.sort((t1, t2) -> {
-                    if (t1.getColumns().get(0).getRows().get(0) instanceof Number && t2.getColumns().get(0).getRows().get(0) instanceof Number){
-                        return Double.compare(((Number) t2.getColumns().get(0).getRows().get(0)).doubleValue(), ((Number) t1.getColumns().get(0).getRows().get(0)).doubleValue());
-                    }
-                    return 0;
-                });
-
-            }
-            else if (function.equals("MIN")){
-                tablesToBeOrdered.sort((t1, t2) -> {
-                    if (t1.getColumns().get(0).getRows().get(0) instanceof Number && t2.getColumns().get(0).getRows().get(0) instanceof Number){
-                        return Double.compare(((Number) t1.getColumns().get(0).getRows().get(0)).doubleValue(), ((Number) t2.getColumns().get(0).getRows().get(0)).doubleValue());
-                    }
-                    return 0;
-                });
-            }
-            else {
-                throw new SelectException("Unknown function comparator: " + function);
-            }
-
-            this.folderTables.put(name, tablesToBeOrdered);
-        }
-
-        this.tables.clear();
-
-        for (String name : this.folderTables.keySet()){
-            List<Table> tablesToBeAdded = this.folderTables.get(name);
+            List<Table> tablesToBeAdded = selector.getTop(name);
             Table toBeAdded = new Table(name);
             for (int i = 0; i < this.targetN; i++){
                 for (Column column : tablesToBeAdded.get(i).getColumns()) {
@@ -185,12 +195,13 @@ public class SelectBuilder extends Builder {
 
             toBeAdded.addColumn(fileCol);
 
-            this.FoldersMap.put(folderName, toBeAdded);
+            foldersMap.put(folderName, toBeAdded);
         }
 
-        Map<String, Map<String, Table>> fromFoldersMap = this.importBuilder.getFromFoldersMap();
-        for (String name : fromFoldersMap.keySet()) {
-            this.tables.add(this.FoldersMap.get(name));
+        this.tables = new ArrayList<>();
+
+        for (String name : this.importBuilder.getFolderNames()) {
+            this.tables.add(foldersMap.get(name));
         }
     }
 
@@ -202,19 +213,26 @@ public class SelectBuilder extends Builder {
     private void selectByTargetColumn() throws SelectException {
 
         List<Table> selectedTables = new ArrayList<>();
-        String targetColumn = Utils.getDirectory(this.path).getLast();
-        List<String> reducedPath = Utils.getDirectoryPath(this.path);
+        PathExpression path = PathExpression.compile(this.path);
+        String targetColumn = path.getLast();
+        PathExpression reducedPath = path.getParent();
 
         for (Table table : this.tables) {
-            List<Table> subTables = table.getSubTables(reducedPath);
-        
+            List<Table> subTables = reducedPath.resolve(table);
+
+            if (subTables == null || subTables.isEmpty()) {
+                throw new SelectException("Subtable " + reducedPath + " not found!");
+            }
+
             if (subTables.size() > 1) {
                 throw new SelectException("Table " + table.getName() + " is ambiguous!");
             }
 
             Table subTable = subTables.get(0);
-            if (subTable == null) {
-                throw new SelectException("Subtable " + reducedPath + " not found!");
+
+            // Filter the rows of the table holding the column, so that the condition can read its other columns
+            if (this.where != null && !this.where.filter(subTable)) {
+                continue;
             }
 
             Column column = subTable.getColumn(targetColumn);
@@ -256,7 +274,7 @@ public class SelectBuilder extends Builder {
      */
     private void selectByFunction() throws Exception {
 
-        List<String> directory = Utils.getDirectory(this.filterValue);
+        List<String> directory = PathExpression.compile(this.filterValue).getSegments();
         String targetColumn = directory.getLast();
         this.path = String.join("/", directory.subList(0, directory.size() - 1));
 
@@ -283,21 +301,21 @@ public class SelectBuilder extends Builder {
      */
     private void selectByPath(boolean hasMultipleTables) throws Exception {
 
-        List<String> directory = Utils.getDirectory(this.path);
+        PathExpression directory = PathExpression.compile(this.path);
         List<Table> selectedTables = new ArrayList<>();
 
         for (Table table : this.tables) {
 
-            List<Table> subTables = table.getSubTables(directory);
-
-            for (Table subTable : subTables) {
-                subTable.setName(table.getName());
-            }
+            List<Table> subTables = directory.resolve(table);
 
             if (subTables == null || subTables.isEmpty()) {
                 throw new SelectException("Subtable " + this.path + " not found!");
             }
 
+            for (Table subTable : subTables) {
+                subTable.setName(table.getName());
+            }
+
             if (!hasMultipleTables && subTables.size() > 1) {
                 throw new SelectException("Is ambiguous which table to select!");
             }
@@ -308,6 +326,19 @@ public class SelectBuilder extends Builder {
         this.tables = selectedTables;
     }
 
+    /**
+     * Keeps only the rows of the selected tables that satisfy the condition, dropping the tables left without rows.
+     */
+    private void selectByCondition() {
+        List<Table> selectedTables = new ArrayList<>();
+        for (Table table : this.tables) {
+            if (this.where.filter(table)) {
+                selectedTables.add(table);
+            }
+        }
+        this.tables = selectedTables;
+    }
+
     /**
      * Determines if a column is composite by inspecting its rows.
      *
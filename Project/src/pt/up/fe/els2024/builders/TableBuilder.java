@@ -5,6 +5,7 @@ import pt.up.fe.els2024.exception.ExportException;
 import pt.up.fe.els2024.export.CSVExporter;
 import pt.up.fe.els2024.export.HTMLExporter;
 import pt.up.fe.els2024.export.JSONExporter;
+import pt.up.fe.els2024.export.PTBLExporter;
 import pt.up.fe.els2024.export.XMLExporter;
 import pt.up.fe.els2024.utils.Utils;
 
@@ -75,7 +76,7 @@ public class TableBuilder extends Builder {
     }
 
     /**
-     * Assembles and exports the table to a specified file path, supporting CSV, HTML, JSON, and XML formats.
+     * Assembles and exports the table to a specified file path, supporting CSV, HTML, JSON, XML and PTBL formats.
      *
      * @param outputFilePath the file path to export the table to
      * @return the assembled {@link Table} instance
@@ -91,6 +92,7 @@ public class TableBuilder extends Builder {
             case "html" -> HTMLExporter.export(this.table, tableName, outputFilePath);
             case "json" -> JSONExporter.export(this.table, outputFilePath);
             case "xml" -> XMLExporter.export(this.table, outputFilePath);
+            case "ptbl" -> PTBLExporter.export(this.table, outputFilePath);
             default -> throw new ExportException("Unknown export extension: " + extension);
         }
 
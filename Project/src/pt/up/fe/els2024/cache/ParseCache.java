@@ -0,0 +1,285 @@
+package pt.up.fe.els2024.cache;
+
+import pt.up.fe.els2024.Table;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * {@code ParseCache} keeps the tables parsed from files in a directory, so that unchanged files don't have to be
+ * parsed again by later runs.
+ * <p>
+ * Each entry holds the {@link Table} of one file, parsed in full or along a selection path, encoded with
+ * {@link TableCodec}. Entries are keyed by the absolute path of the file and the selection path, and are only
+ * used while the file keeps the same {@link Fingerprint}: size, modification time and a CRC32C hash of its content.
+ * </p>
+ * <p>
+ * The total size of the entries is capped: when it is exceeded, the least recently used entries are removed.
+ * The last use of an entry is recorded in its modification time, so it carries over between runs. The cache is
+ * safe to use from several threads, and entries are written atomically so that concurrent runs never read
+ * a partial entry.
+ * </p>
+ */
+public class ParseCache {
+
+    /** The default cap on the total size of the entries, in bytes. */
+    public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+    /** The first bytes of every entry. */
+    private static final int MAGIC = 0x50514332; // "PQC2"
+
+    /** The extension of the entry files. */
+    private static final String EXTENSION = ".cache";
+
+    private final Path directory;
+    private final long maxSize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * The state of a file when it was parsed. An entry is only valid for a file in the same state.
+     *
+     * @param path     the absolute path of the file
+     * @param size     the size of the file, in bytes
+     * @param modified the modification time of the file, in milliseconds
+     * @param hash     the CRC32C hash of the content of the file
+     */
+    public record Fingerprint(String path, long size, long modified, int hash) {}
+
+    /**
+     * Constructs a {@code ParseCache} in the given directory, with the default size cap.
+     *
+     * @param directory the directory of the entries, created if it doesn't exist
+     * @throws IOException if the directory can't be created
+     */
+    public ParseCache(File directory) throws IOException {
+        this(directory, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructs a {@code ParseCache} in the given directory.
+     *
+     * @param directory the directory of the entries, created if it doesn't exist
+     * @param maxSize   the cap on the total size of the entries, in bytes
+     * @throws IOException if the directory can't be created
+     */
+    public ParseCache(File directory, long maxSize) throws IOException {
+        this.directory = directory.toPath();
+        this.maxSize = maxSize;
+        Files.createDirectories(this.directory);
+    }
+
+    /**
+     * Computes the current fingerprint of a file, reading its whole content.
+     *
+     * @param file the file
+     * @return the fingerprint of the file
+     * @throws IOException if the file can't be read
+     */
+    public Fingerprint fingerprint(File file) throws IOException {
+        Path path = file.toPath().toAbsolutePath();
+        long size = Files.size(path);
+        long modified = Files.getLastModifiedTime(path).toMillis();
+
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+
+        return new Fingerprint(path.toString(), size, modified, (int) crc.getValue());
+    }
+
+    /**
+     * Retrieves the table cached for a file in the given state.
+     *
+     * @param fingerprint the current fingerprint of the file
+     * @param path        the selection path the file was parsed along, or an empty list if it was parsed in full
+     * @return the cached table, or {@code null} if there is no valid entry
+     */
+    public Table get(Fingerprint fingerprint, List<String> path) {
+        Path entry = this.entryOf(fingerprint, path);
+        if (!Files.isRegularFile(entry)) {
+            this.misses.incrementAndGet();
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+            if (in.readInt() != MAGIC
+                    || !fingerprint.path().equals(TableCodec.readString(in))
+                    || !String.join("/", path).equals(TableCodec.readString(in))
+                    || in.readLong() != fingerprint.size()
+                    || in.readLong() != fingerprint.modified()
+                    || in.readInt() != fingerprint.hash()) {
+                this.misses.incrementAndGet();
+                return null;
+            }
+
+            Table table = TableCodec.read(in);
+            this.touch(entry);
+            this.hits.incrementAndGet();
+            return table;
+        } catch (IOException | RuntimeException e) {
+            // A corrupted entry is dropped and counted as a miss
+            this.delete(entry);
+            this.misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Stores the table parsed from a file in the given state, evicting old entries if the cache gets too big.
+     * Tables holding values that can't be encoded are not cached.
+     *
+     * @param fingerprint the fingerprint of the file when it was parsed
+     * @param path        the selection path the file was parsed along, or an empty list if it was parsed in full
+     * @param table       the parsed table
+     */
+    public void put(Fingerprint fingerprint, List<String> path, Table table) {
+        Path entry = this.entryOf(fingerprint, path);
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(this.directory, "entry", ".tmp");
+            try (OutputStream stream = Files.newOutputStream(temporary);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                out.writeInt(MAGIC);
+                TableCodec.writeString(out, fingerprint.path());
+                TableCodec.writeString(out, String.join("/", path));
+                out.writeLong(fingerprint.size());
+                out.writeLong(fingerprint.modified());
+                out.writeInt(fingerprint.hash());
+                TableCodec.write(out, table);
+            }
+            Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            // The cache is only an optimization, so a table that can't be stored is simply parsed again next time
+            if (temporary != null) {
+                this.delete(temporary);
+            }
+            return;
+        }
+
+        this.evict();
+    }
+
+    /**
+     * Retrieves the number of lookups that found a valid entry.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Retrieves the number of lookups that found no valid entry.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Retrieves the number of entries removed to keep the cache under its size cap.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    /**
+     * Removes the least recently used entries until the total size of the entries is under the cap.
+     */
+    private synchronized void evict() {
+        List<Path> entries = new ArrayList<>();
+        long total = 0;
+        try (Stream<Path> files = Files.list(this.directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().endsWith(EXTENSION)) {
+                    entries.add(file);
+                    total += file.toFile().length();
+                }
+            }
+        } catch (IOException e) {
+            return;
+        }
+
+        if (total <= this.maxSize) {
+            return;
+        }
+
+        entries.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+        for (Path file : entries) {
+            if (total <= this.maxSize) {
+                break;
+            }
+            long size = file.toFile().length();
+            if (this.delete(file)) {
+                total -= size;
+                this.evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Computes the file of the entry of a parsed file.
+     *
+     * @param fingerprint the fingerprint of the parsed file
+     * @param path        the selection path the file was parsed along
+     * @return the path of the entry in the cache directory
+     */
+    private Path entryOf(Fingerprint fingerprint, List<String> path) {
+        String key = fingerprint.path() + '\n' + String.join("/", path);
+        return this.directory.resolve(UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)) + EXTENSION);
+    }
+
+    /**
+     * Records the use of an entry, so that it is the last to be evicted.
+     *
+     * @param entry the entry used
+     */
+    private void touch(Path entry) {
+        entry.toFile().setLastModified(System.currentTimeMillis());
+    }
+
+    /**
+     * Deletes a file of the cache directory, ignoring failures.
+     *
+     * @param file the file to delete
+     * @return {@code true} if the file was deleted
+     */
+    private boolean delete(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
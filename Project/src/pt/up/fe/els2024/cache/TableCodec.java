@@ -0,0 +1,426 @@
+package pt.up.fe.els2024.cache;
+
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.storage.ColumnStorage;
+import pt.up.fe.els2024.storage.ColumnType;
+import pt.up.fe.els2024.storage.DictionaryStorage;
+import pt.up.fe.els2024.storage.LongStorage;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code TableCodec} converts {@link Table} trees to and from a compact binary form.
+ * <p>
+ * Each column is written with its {@link ColumnType}, so that reading it back restores the same layout:
+ * numbers and booleans are written as primitives, strings as a dictionary followed by one code per row,
+ * nested tables recursively, and the values of generic columns with a tag for their type. Missing values
+ * are written as a validity bitmap before the values of the column, and integral columns also write a bitmap of
+ * the rows that hold a {@link Long} rather than an {@link Integer}.
+ * </p>
+ */
+public class TableCodec {
+
+    /** Marks a column that has no storage yet. */
+    private static final int NO_STORAGE = -1;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_INTEGER = 2;
+    private static final byte TAG_LONG = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_BOOLEAN = 5;
+    private static final byte TAG_BIG_INTEGER = 6;
+    private static final byte TAG_BIG_DECIMAL = 7;
+    private static final byte TAG_LIST = 8;
+    private static final byte TAG_MAP = 9;
+    private static final byte TAG_TABLE = 10;
+
+    /**
+     * Writes a table, including its nested tables.
+     *
+     * @param out   the output to write to
+     * @param table the table to write
+     * @throws IOException if the table holds a value that can't be encoded, or if writing fails
+     */
+    public static void write(DataOutput out, Table table) throws IOException {
+        writeString(out, table.getName());
+        out.writeInt(table.getColumns().size());
+        for (Column column : table.getColumns()) {
+            writeColumn(out, column);
+        }
+    }
+
+    /**
+     * Reads a table written by {@link #write(DataOutput, Table)}.
+     *
+     * @param in the input to read from
+     * @return the table
+     * @throws IOException if the input is not a valid table, or if reading fails
+     */
+    public static Table read(DataInput in) throws IOException {
+        Table table = new Table(readString(in));
+        int columns = in.readInt();
+        for (int i = 0; i < columns; i++) {
+            table.addColumn(readColumn(in));
+        }
+        return table;
+    }
+
+    /**
+     * Writes a column: its name, layout, size and values.
+     *
+     * @param out    the output to write to
+     * @param column the column to write
+     * @throws IOException if the column holds a value that can't be encoded, or if writing fails
+     */
+    private static void writeColumn(DataOutput out, Column column) throws IOException {
+        writeString(out, column.getName());
+
+        ColumnStorage storage = column.getStorage();
+        if (storage == null) {
+            out.writeInt(NO_STORAGE);
+            return;
+        }
+
+        out.writeInt(storage.getType().ordinal());
+        out.writeInt(storage.size());
+        writeValues(out, storage, 0, storage.size());
+    }
+
+    /**
+     * Reads a column written by {@link #writeColumn(DataOutput, Column)}.
+     *
+     * @param in the input to read from
+     * @return the column, with the same layout it was written with
+     * @throws IOException if the input is not a valid column, or if reading fails
+     */
+    private static Column readColumn(DataInput in) throws IOException {
+        String name = readString(in);
+
+        int typeOrdinal = in.readInt();
+        if (typeOrdinal == NO_STORAGE) {
+            return new Column(name);
+        }
+
+        ColumnType type = typeOf(typeOrdinal);
+        int size = in.readInt();
+        ColumnStorage storage = type.create(size);
+        readValues(in, storage, size);
+        return new Column(name, storage);
+    }
+
+    /**
+     * Retrieves the column type written as the given ordinal.
+     *
+     * @param ordinal the ordinal of the type
+     * @return the column type
+     * @throws IOException if the ordinal is not a valid column type
+     */
+    public static ColumnType typeOf(int ordinal) throws IOException {
+        if (ordinal < 0 || ordinal >= ColumnType.values().length) {
+            throw new IOException("Invalid column type: " + ordinal);
+        }
+        return ColumnType.values()[ordinal];
+    }
+
+    /**
+     * Writes a range of rows of a storage: a validity bitmap followed by the values, in the storage's layout.
+     * Strings are written as a dictionary of the strings in the range followed by one code per row.
+     *
+     * @param out     the output to write to
+     * @param storage the storage to write
+     * @param from    the first row to write
+     * @param to      the row after the last one to write
+     * @throws IOException if the storage holds a value that can't be encoded, or if writing fails
+     */
+    public static void writeValues(DataOutput out, ColumnStorage storage, int from, int to) throws IOException {
+        int size = to - from;
+
+        long[] nulls = new long[(size + 63) / 64];
+        for (int i = 0; i < size; i++) {
+            if (storage.isNull(from + i)) {
+                nulls[i / 64] |= 1L << (i % 64);
+            }
+        }
+        for (long word : nulls) {
+            out.writeLong(word);
+        }
+
+        switch (storage.getType()) {
+            case DOUBLE -> {
+                for (int i = from; i < to; i++) {
+                    out.writeDouble(storage.isNull(i) ? 0 : ((Number) storage.get(i)).doubleValue());
+                }
+            }
+            case LONG -> {
+                // The rows stored as Long rather than Integer, so that they are read back with the same type
+                LongStorage longStorage = (LongStorage) storage;
+                long[] longs = new long[nulls.length];
+                for (int i = 0; i < size; i++) {
+                    if (longStorage.holdsLong(from + i)) {
+                        longs[i / 64] |= 1L << (i % 64);
+                    }
+                }
+                for (long word : longs) {
+                    out.writeLong(word);
+                }
+                for (int i = from; i < to; i++) {
+                    out.writeLong(storage.isNull(i) ? 0 : longStorage.getLong(i));
+                }
+            }
+            case BOOLEAN -> {
+                for (int i = from; i < to; i++) {
+                    out.writeBoolean(!storage.isNull(i) && (Boolean) storage.get(i));
+                }
+            }
+            case STRING -> {
+                // Renumber the codes used in the range, so the range is readable on its own
+                DictionaryStorage dictionary = (DictionaryStorage) storage;
+                int[] localCodes = new int[dictionary.getDictionarySize()];
+                List<String> localDictionary = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    if (!storage.isNull(i) && localCodes[dictionary.getCode(i)] == 0) {
+                        localDictionary.add(dictionary.decode(dictionary.getCode(i)));
+                        localCodes[dictionary.getCode(i)] = localDictionary.size();
+                    }
+                }
+                out.writeInt(localDictionary.size());
+                for (String string : localDictionary) {
+                    writeString(out, string);
+                }
+                for (int i = from; i < to; i++) {
+                    out.writeInt(storage.isNull(i) ? 0 : localCodes[dictionary.getCode(i)] - 1);
+                }
+            }
+            case TABLE -> {
+                for (int i = from; i < to; i++) {
+                    if (!storage.isNull(i)) {
+                        write(out, (Table) storage.get(i));
+                    }
+                }
+            }
+            case OBJECT -> {
+                for (int i = from; i < to; i++) {
+                    if (!storage.isNull(i)) {
+                        writeValue(out, storage.get(i));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads rows written by {@link #writeValues(DataOutput, ColumnStorage, int, int)} and appends them to a storage.
+     *
+     * @param in      the input to read from
+     * @param storage the storage that receives the rows, of the layout they were written with
+     * @param size    the number of rows to read
+     * @throws IOException if the input is not a valid range of rows, or if reading fails
+     */
+    public static void readValues(DataInput in, ColumnStorage storage, int size) throws IOException {
+        long[] nulls = new long[(size + 63) / 64];
+        for (int i = 0; i < nulls.length; i++) {
+            nulls[i] = in.readLong();
+        }
+
+        switch (storage.getType()) {
+            case DOUBLE -> {
+                for (int i = 0; i < size; i++) {
+                    double value = in.readDouble();
+                    storage.add(isSet(nulls, i) ? null : value);
+                }
+            }
+            case LONG -> {
+                long[] longs = new long[nulls.length];
+                for (int i = 0; i < longs.length; i++) {
+                    longs[i] = in.readLong();
+                }
+                for (int i = 0; i < size; i++) {
+                    long value = in.readLong();
+                    storage.add(isSet(nulls, i) ? null : isSet(longs, i) ? (Object) value : (Object) (int) value);
+                }
+            }
+            case BOOLEAN -> {
+                for (int i = 0; i < size; i++) {
+                    boolean value = in.readBoolean();
+                    storage.add(isSet(nulls, i) ? null : value);
+                }
+            }
+            case STRING -> {
+                String[] dictionary = new String[in.readInt()];
+                for (int code = 0; code < dictionary.length; code++) {
+                    dictionary[code] = readString(in);
+                }
+                for (int i = 0; i < size; i++) {
+                    int code = in.readInt();
+                    storage.add(isSet(nulls, i) ? null : dictionary[code]);
+                }
+            }
+            case TABLE -> {
+                for (int i = 0; i < size; i++) {
+                    storage.add(isSet(nulls, i) ? null : read(in));
+                }
+            }
+            case OBJECT -> {
+                for (int i = 0; i < size; i++) {
+                    storage.add(isSet(nulls, i) ? null : readValue(in));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a value of a generic column, preceded by a tag with its type.
+     *
+     * @param out   the output to write to
+     * @param value the value to write
+     * @throws IOException if the value can't be encoded, or if writing fails
+     */
+    private static void writeValue(DataOutput out, Object value) throws IOException {
+        switch (value) {
+            case null -> out.writeByte(TAG_NULL);
+            case String string -> {
+                out.writeByte(TAG_STRING);
+                writeString(out, string);
+            }
+            case Integer integer -> {
+                out.writeByte(TAG_INTEGER);
+                out.writeInt(integer);
+            }
+            case Long number -> {
+                out.writeByte(TAG_LONG);
+                out.writeLong(number);
+            }
+            case Double number -> {
+                out.writeByte(TAG_DOUBLE);
+                out.writeDouble(number);
+            }
+            case Boolean bool -> {
+                out.writeByte(TAG_BOOLEAN);
+                out.writeBoolean(bool);
+            }
+            case BigInteger number -> {
+                out.writeByte(TAG_BIG_INTEGER);
+                writeString(out, number.toString());
+            }
+            case BigDecimal number -> {
+                out.writeByte(TAG_BIG_DECIMAL);
+                writeString(out, number.toString());
+            }
+            case List<?> list -> {
+                out.writeByte(TAG_LIST);
+                out.writeInt(list.size());
+                for (Object element : list) {
+                    writeValue(out, element);
+                }
+            }
+            case Map<?, ?> map -> {
+                out.writeByte(TAG_MAP);
+                out.writeInt(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    writeString(out, String.valueOf(entry.getKey()));
+                    writeValue(out, entry.getValue());
+                }
+            }
+            case Table table -> {
+                out.writeByte(TAG_TABLE);
+                write(out, table);
+            }
+            default -> throw new IOException("Can't encode value of type " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * Reads a value written by {@link #writeValue(DataOutput, Object)}.
+     *
+     * @param in the input to read from
+     * @return the value, with the same type it was written with
+     * @throws IOException if the input is not a valid value, or if reading fails
+     */
+    private static Object readValue(DataInput in) throws IOException {
+        byte tag = in.readByte();
+        return switch (tag) {
+            case TAG_NULL -> null;
+            case TAG_STRING -> readString(in);
+            case TAG_INTEGER -> in.readInt();
+            case TAG_LONG -> in.readLong();
+            case TAG_DOUBLE -> in.readDouble();
+            case TAG_BOOLEAN -> in.readBoolean();
+            case TAG_BIG_INTEGER -> new BigInteger(readString(in));
+            case TAG_BIG_DECIMAL -> new BigDecimal(readString(in));
+            case TAG_LIST -> {
+                int size = in.readInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                yield list;
+            }
+            case TAG_MAP -> {
+                int size = in.readInt();
+                Map<String, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(readString(in), readValue(in));
+                }
+                yield map;
+            }
+            case TAG_TABLE -> read(in);
+            default -> throw new IOException("Invalid value tag: " + tag);
+        };
+    }
+
+    /**
+     * Writes a string, which may be {@code null}, as its length followed by its UTF-8 bytes.
+     *
+     * @param out    the output to write to
+     * @param string the string to write
+     * @throws IOException if writing fails
+     */
+    public static void writeString(DataOutput out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutput, String)}.
+     *
+     * @param in the input to read from
+     * @return the string, or {@code null}
+     * @throws IOException if reading fails
+     */
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks a row of a bitmap, such as the validity bitmap.
+     *
+     * @param bitmap the bitmap, one bit per row
+     * @param index  the row to check
+     * @return {@code true} if the bit of the row is set
+     */
+    private static boolean isSet(long[] bitmap, int index) {
+        return (bitmap[index / 64] & (1L << (index % 64))) != 0;
+    }
+}
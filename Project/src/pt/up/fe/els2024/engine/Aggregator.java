@@ -0,0 +1,377 @@
+package pt.up.fe.els2024.engine;
+
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.storage.ColumnStorage;
+import pt.up.fe.els2024.storage.DictionaryStorage;
+import pt.up.fe.els2024.storage.NumericStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * {@code Aggregator} computes summary statistics of a column in a single pass over its rows.
+ * <p>
+ * Every requested statistic is derived from one set of accumulators, so asking for several statistics costs
+ * the same scan as asking for one. Sums are accumulated with Neumaier's compensated summation and the variance
+ * with Welford's online algorithm, which keep their precision over long columns of values of mixed magnitudes.
+ * </p>
+ * <p>
+ * Columns whose first row is a number are aggregated directly. Columns whose first row is a string are aggregated
+ * if every string is a number, as checked by {@link DictionaryStorage#isDecimal(String)}, except for the
+ * {@code Folder} column added by folder imports. The statistics of any other column are {@link #NOT_AVAILABLE}.
+ * Results are rounded to two decimal places, except for the count.
+ * The standard deviation is the sample standard deviation, which is {@code 0} for fewer than two values.
+ * </p>
+ * <p>
+ * Columns longer than {@link #CHUNK_ROWS} rows are reduced in parallel on the common fork-join pool. The rows are
+ * split in chunks of a fixed size, each accumulated on its own, and the chunks are combined pairwise along a tree
+ * whose shape only depends on the number of rows. The same column therefore always gives bit-identical results,
+ * whatever the number of cores and however the tasks are scheduled.
+ * </p>
+ */
+public class Aggregator {
+
+    /** The statistics that can be computed. */
+    public enum Statistic {
+        SUM, AVG, MIN, MAX, COUNT, STDDEV
+    }
+
+    /** The value of the statistics of a column that holds non-numeric values. */
+    public static final String NOT_AVAILABLE = "N/A";
+
+    /** The number of rows accumulated by each task; shorter columns are accumulated on the calling thread. */
+    public static final int CHUNK_ROWS = 16 * 1024;
+
+    /** The ways the rows of a numeric column are read. */
+    private enum Source {
+        /** Primitive numbers without missing values, read without boxing. */
+        PRIMITIVE,
+        /** Strings of a dictionary, which are all numbers. */
+        DICTIONARY,
+        /** Boxed values, which must all be numbers. */
+        NUMBERS,
+        /** Boxed values, which must all be numbers or strings that are numbers. */
+        STRINGS
+    }
+
+    /**
+     * Computes the given statistics over the first rows of a column.
+     *
+     * @param column     the column to aggregate
+     * @param rows       the number of rows to aggregate, from the first one
+     * @param statistics the statistics to compute
+     * @return one value per statistic, in the same order, or {@link #NOT_AVAILABLE} if the column is not numeric
+     */
+    public static List<Object> aggregate(Column column, int rows, List<Statistic> statistics) {
+        return Aggregator.aggregate(column, rows, statistics, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes the given statistics over the first rows of a column, reducing long columns on the given pool.
+     *
+     * @param column     the column to aggregate
+     * @param rows       the number of rows to aggregate, from the first one
+     * @param statistics the statistics to compute
+     * @param pool       the pool that reduces the chunks of long columns
+     * @return one value per statistic, in the same order, or {@link #NOT_AVAILABLE} if the column is not numeric
+     */
+    static List<Object> aggregate(Column column, int rows, List<Statistic> statistics, ForkJoinPool pool) {
+        Accumulator accumulator = Aggregator.accumulate(column, Math.min(rows, column.size()), pool);
+
+        List<Object> results = new ArrayList<>(statistics.size());
+        for (Statistic statistic : statistics) {
+            results.add(accumulator == null ? NOT_AVAILABLE : accumulator.result(statistic));
+        }
+        return results;
+    }
+
+    /**
+     * Feeds the first rows of a column to a new accumulator, in parallel chunks if the column is long.
+     *
+     * @param column the column to aggregate
+     * @param rows   the number of rows to aggregate
+     * @param pool   the pool that reduces the chunks
+     * @return the accumulator, or {@code null} if the column is not numeric
+     */
+    private static Accumulator accumulate(Column column, int rows, ForkJoinPool pool) {
+        if (column.size() == 0) {
+            return null;
+        }
+
+        ColumnStorage storage = column.getStorage();
+        Source source = Aggregator.source(column, rows);
+        if (source == null) {
+            return null;
+        }
+
+        if (rows <= CHUNK_ROWS) {
+            return Aggregator.accumulate(storage, source, 0, rows);
+        }
+        int chunks = (rows + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        return pool.invoke(new ChunkTask(storage, source, 0, chunks, rows));
+    }
+
+    /**
+     * Decides how the rows of a column are read, if it is numeric.
+     *
+     * @param column the column to aggregate
+     * @param rows   the number of rows to aggregate
+     * @return the way to read the rows, or {@code null} if the column is not numeric
+     */
+    private static Source source(Column column, int rows) {
+        ColumnStorage storage = column.getStorage();
+        Object first = storage.get(0);
+
+        if (first instanceof Number) {
+            return storage instanceof NumericStorage && !storage.hasNulls() ? Source.PRIMITIVE : Source.NUMBERS;
+        }
+
+        // Check if the column contains Strings that can be converted to numbers
+        if (first instanceof String && !"Folder".equals(column.getName())) {
+
+            // String columns parse each distinct string once, here, before any chunk reads them
+            if (storage instanceof DictionaryStorage dictionaryStorage) {
+                return dictionaryStorage.isNumeric(rows) ? Source.DICTIONARY : null;
+            }
+            return Source.STRINGS;
+        }
+
+        return null;
+    }
+
+    /**
+     * Feeds a range of rows of a column to a new accumulator.
+     *
+     * @param storage the storage of the column
+     * @param source  the way to read the rows
+     * @param from    the first row of the range
+     * @param to      the row after the last one of the range
+     * @return the accumulator, or {@code null} if some row is not a number
+     */
+    private static Accumulator accumulate(ColumnStorage storage, Source source, int from, int to) {
+        Accumulator accumulator = new Accumulator();
+
+        switch (source) {
+            case PRIMITIVE -> {
+                NumericStorage numericStorage = (NumericStorage) storage;
+                for (int i = from; i < to; i++) {
+                    accumulator.add(numericStorage.getDouble(i));
+                }
+            }
+            case DICTIONARY -> {
+                DictionaryStorage dictionaryStorage = (DictionaryStorage) storage;
+                for (int i = from; i < to; i++) {
+                    accumulator.add(dictionaryStorage.getDouble(i));
+                }
+            }
+            case NUMBERS -> {
+                for (int i = from; i < to; i++) {
+                    if (!(storage.get(i) instanceof Number number)) {
+                        return null;
+                    }
+                    accumulator.add(number.doubleValue());
+                }
+            }
+            case STRINGS -> {
+                for (int i = from; i < to; i++) {
+                    Object value = storage.get(i);
+                    if (value instanceof Number number) {
+                        accumulator.add(number.doubleValue());
+                    } else if (value instanceof String string && DictionaryStorage.isDecimal(string)) {
+                        accumulator.add(Double.parseDouble(string));
+                    } else {
+                        return null;
+                    }
+                }
+            }
+        }
+        return accumulator;
+    }
+
+    /**
+     * Computes a statistic from the state of its accumulators, rounding it like every other statistic.
+     *
+     * @param statistic    the statistic to compute
+     * @param count        the number of values
+     * @param sum          the running sum of the values
+     * @param compensation the accumulated rounding error of the sum
+     * @param squares      the sum of squared differences from the mean
+     * @param min          the smallest value
+     * @param max          the largest value
+     * @return the value of the statistic
+     */
+    static Object result(Statistic statistic, int count, double sum, double compensation,
+                         double squares, double min, double max) {
+        // Infinite sums have no meaningful compensation
+        double total = Double.isFinite(sum) ? sum + compensation : sum;
+
+        return switch (statistic) {
+            case SUM -> Aggregator.round(total);
+            case AVG -> Aggregator.round(total / count);
+            case MIN -> count == 0 ? NOT_AVAILABLE : Aggregator.round(min);
+            case MAX -> count == 0 ? NOT_AVAILABLE : Aggregator.round(max);
+            case COUNT -> count;
+            case STDDEV -> count < 2 ? 0.0 : Aggregator.round(Math.sqrt(squares / (count - 1)));
+        };
+    }
+
+    /**
+     * Rounds a value to two decimal places.
+     *
+     * @param value the value to round
+     * @return the rounded value
+     */
+    private static double round(double value) {
+        return (double) Math.round(value * 100) / 100;
+    }
+
+    /**
+     * The running state of the statistics of a column.
+     */
+    private static class Accumulator {
+
+        private int count;
+
+        /** The running sum and the compensation of its rounding errors. */
+        private double sum;
+        private double compensation;
+
+        /** The running mean and sum of squared differences from it. */
+        private double mean;
+        private double squares;
+
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        /**
+         * Adds a value to every statistic.
+         *
+         * @param value the value to add
+         */
+        void add(double value) {
+            this.count++;
+
+            double total = this.sum + value;
+            if (Math.abs(this.sum) >= Math.abs(value)) {
+                this.compensation += (this.sum - total) + value;
+            } else {
+                this.compensation += (value - total) + this.sum;
+            }
+            this.sum = total;
+
+            double delta = value - this.mean;
+            this.mean += delta / this.count;
+            this.squares += delta * (value - this.mean);
+
+            this.min = Math.min(this.min, value);
+            this.max = Math.max(this.max, value);
+        }
+
+        /**
+         * Adds the values of another accumulator, as if they had been added after the values of this one.
+         * The sums are added with the same compensation as single values, and the squared differences are
+         * combined with Chan's formula.
+         *
+         * @param other the accumulator to add
+         */
+        void merge(Accumulator other) {
+            if (other.count == 0) {
+                return;
+            }
+            if (this.count == 0) {
+                this.count = other.count;
+                this.sum = other.sum;
+                this.compensation = other.compensation;
+                this.mean = other.mean;
+                this.squares = other.squares;
+                this.min = other.min;
+                this.max = other.max;
+                return;
+            }
+
+            int count = this.count + other.count;
+
+            double total = this.sum + other.sum;
+            if (Math.abs(this.sum) >= Math.abs(other.sum)) {
+                this.compensation += (this.sum - total) + other.sum;
+            } else {
+                this.compensation += (other.sum - total) + this.sum;
+            }
+            this.compensation += other.compensation;
+            this.sum = total;
+
+            double delta = other.mean - this.mean;
+            this.mean += delta * other.count / count;
+            this.squares += other.squares + delta * delta * ((double) this.count * other.count / count);
+
+            this.min = Math.min(this.min, other.min);
+            this.max = Math.max(this.max, other.max);
+            this.count = count;
+        }
+
+        /**
+         * Computes a statistic of the values added so far.
+         *
+         * @param statistic the statistic to compute
+         * @return the value of the statistic
+         */
+        Object result(Statistic statistic) {
+            return Aggregator.result(statistic, this.count, this.sum, this.compensation, this.squares, this.min, this.max);
+        }
+    }
+
+    /**
+     * Accumulates a range of chunks of a column, splitting it in two halves at the middle chunk.
+     * The halves always split the same way, so their results always combine in the same order.
+     */
+    private static class ChunkTask extends RecursiveTask<Accumulator> {
+        private static final long serialVersionUID = 1L;
+
+        // Tasks only live inside a fork-join pool, so the column they read is never serialized
+        private final transient ColumnStorage storage;
+        private final transient Source source;
+        private final int fromChunk;
+        private final int toChunk;
+        private final int rows;
+
+        /**
+         * Constructs a task over a range of chunks.
+         *
+         * @param storage   the storage of the column
+         * @param source    the way to read the rows
+         * @param fromChunk the first chunk of the range
+         * @param toChunk   the chunk after the last one of the range
+         * @param rows      the number of rows to aggregate, which ends the last chunk
+         */
+        ChunkTask(ColumnStorage storage, Source source, int fromChunk, int toChunk, int rows) {
+            this.storage = storage;
+            this.source = source;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+            this.rows = rows;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            if (this.toChunk - this.fromChunk == 1) {
+                int from = this.fromChunk * CHUNK_ROWS;
+                return Aggregator.accumulate(this.storage, this.source, from, Math.min(this.rows, from + CHUNK_ROWS));
+            }
+
+            int middle = (this.fromChunk + this.toChunk) >>> 1;
+            ChunkTask left = new ChunkTask(this.storage, this.source, this.fromChunk, middle, this.rows);
+            ChunkTask right = new ChunkTask(this.storage, this.source, middle, this.toChunk, this.rows);
+            right.fork();
+            Accumulator accumulator = left.compute();
+            Accumulator other = right.join();
+
+            if (accumulator == null || other == null) {
+                return null;
+            }
+            accumulator.merge(other);
+            return accumulator;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package pt.up.fe.els2024.engine;
+
+/**
+ * {@code ArithmeticKernels} applies arithmetic operations element by element over primitive {@code double} arrays.
+ * <p>
+ * When the incubating Vector API ({@code jdk.incubator.vector}) is available and its kernels were built, the
+ * operations run on SIMD lanes through {@code VectorKernels}, which is loaded by name so that nothing else depends on
+ * the incubator module; otherwise they run as plain scalar loops, which the JIT can still unroll.
+ * Both paths give exactly the same results, since every lane applies the same IEEE 754 operation.
+ * Rounding is kept as a separate pass, so that callers that don't need it don't pay for it.
+ * </p>
+ */
+public class ArithmeticKernels {
+
+    /** The element-wise operations supported by the kernels. */
+    public enum Operation {
+        SUM, SUB, MUL, DIV
+    }
+
+    /** The name of the class holding the Vector API kernels, which is only compiled with the incubator module. */
+    private static final String VECTOR_KERNELS = "pt.up.fe.els2024.engine.VectorKernels";
+
+    /** The Vector API kernels, or {@code null} if the operations run as scalar loops. */
+    private static final Kernel VECTOR = ArithmeticKernels.loadVectorKernel();
+
+    /** An implementation of the operations over a prefix of the arrays. */
+    interface Kernel {
+
+        /**
+         * Applies an operation to each pair of elements of two arrays.
+         *
+         * @param operation the operation to apply
+         * @param left      the left operands
+         * @param right     the right operands
+         * @param result    the array receiving the results
+         * @param length    the number of elements to process
+         */
+        void apply(Operation operation, double[] left, double[] right, double[] result, int length);
+    }
+
+    /**
+     * Loads the Vector API kernels, if the module was resolved at startup and the kernels were built.
+     *
+     * @return the kernels, or {@code null} if they can't be used
+     */
+    private static Kernel loadVectorKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (Kernel) Class.forName(ArithmeticKernels.VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether the operations run on the Vector API.
+     *
+     * @return {@code true} if the operations are vectorized, {@code false} if they run as scalar loops
+     */
+    public static boolean isVectorized() {
+        return ArithmeticKernels.VECTOR != null;
+    }
+
+    /**
+     * Applies an operation to each pair of elements of two arrays.
+     *
+     * @param operation the operation to apply
+     * @param left      the left operands
+     * @param right     the right operands, at least as long as {@code left}
+     * @param result    the array receiving the results, at least as long as {@code left}; may be one of the operands
+     */
+    public static void apply(Operation operation, double[] left, double[] right, double[] result) {
+        if (ArithmeticKernels.VECTOR != null) {
+            ArithmeticKernels.VECTOR.apply(operation, left, right, result, left.length);
+        } else {
+            ArithmeticKernels.applyScalar(operation, left, right, result, 0, left.length);
+        }
+    }
+
+    /**
+     * Rounds each element of an array to two decimal places, in place.
+     * Infinities and {@code NaN}, such as the results of a division by zero, are kept as they are. Rounding them
+     * with {@link Math#round(double)} would give {@code 9.223372036854776E16}, {@code -9.223372036854776E16} and
+     * {@code 0}, which operations between columns produced before the kernels.
+     *
+     * @param values the values to round
+     */
+    public static void round(double[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (Double.isFinite(values[i])) {
+                values[i] = Math.round(values[i] * 100.0) / 100.0;
+            }
+        }
+    }
+
+    /**
+     * Applies an operation to a range of pairs of elements with scalar loops.
+     * Each operation has its own loop, so that the loops have no branch or call per element.
+     *
+     * @param operation the operation to apply
+     * @param left      the left operands
+     * @param right     the right operands
+     * @param result    the array receiving the results
+     * @param from      the first index of the range
+     * @param to        the index after the last one of the range
+     */
+    static void applyScalar(Operation operation, double[] left, double[] right, double[] result, int from, int to) {
+        switch (operation) {
+            case SUM -> {
+                for (int i = from; i < to; i++) {
+                    result[i] = left[i] + right[i];
+                }
+            }
+            case SUB -> {
+                for (int i = from; i < to; i++) {
+                    result[i] = left[i] - right[i];
+                }
+            }
+            case MUL -> {
+                for (int i = from; i < to; i++) {
+                    result[i] = left[i] * right[i];
+                }
+            }
+            case DIV -> {
+                for (int i = from; i < to; i++) {
+                    result[i] = left[i] / right[i];
+                }
+            }
+        }
+    }
+}
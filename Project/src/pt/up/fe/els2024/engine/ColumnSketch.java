@@ -0,0 +1,239 @@
+package pt.up.fe.els2024.engine;
+
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.storage.ColumnStorage;
+import pt.up.fe.els2024.storage.DictionaryStorage;
+import pt.up.fe.els2024.storage.NumericStorage;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * {@code ColumnSketch} summarizes the values of a column in a fixed amount of memory, to answer approximate
+ * aggregates: a {@link HyperLogLog} of every value for the number of distinct values, and a {@link TDigest} of
+ * the numeric values for their percentiles.
+ * <p>
+ * Values are identified like {@link RowFilter} compares them: numbers, and strings that are numbers, by value, and
+ * other values by their text. Missing values are ignored. Sketches of several columns, files or chunks can be
+ * merged into the sketch of all their values, so a column never needs to be in memory as a whole.
+ * </p>
+ */
+public class ColumnSketch {
+
+    /**
+     * An approximate aggregate of a column.
+     *
+     * @param kind       the aggregate
+     * @param percentile the percentile of {@link Kind#APPROX_PERCENTILE}, between {@code 0} and {@code 100}
+     */
+    public record Approximation(Kind kind, double percentile) {
+
+        /** The approximate aggregates that can be computed. */
+        public enum Kind {
+            APPROX_DISTINCT, APPROX_PERCENTILE
+        }
+
+        /**
+         * Creates the approximate number of distinct values.
+         *
+         * @return the aggregate
+         */
+        public static Approximation distinct() {
+            return new Approximation(Kind.APPROX_DISTINCT, 0);
+        }
+
+        /**
+         * Creates an approximate percentile of the numeric values.
+         *
+         * @param percentile the percentile, between {@code 0} and {@code 100}
+         * @return the aggregate
+         */
+        public static Approximation percentile(double percentile) {
+            return new Approximation(Kind.APPROX_PERCENTILE, percentile);
+        }
+
+        /**
+         * Computes the aggregate from a sketch.
+         *
+         * @param sketch the sketch of the column
+         * @return the estimated number of distinct values, or the estimated percentile rounded to two decimal
+         *         places, or {@link Aggregator#NOT_AVAILABLE} if the column has no numeric value
+         */
+        public Object estimate(ColumnSketch sketch) {
+            return switch (this.kind) {
+                case APPROX_DISTINCT -> sketch.getDistinct();
+                case APPROX_PERCENTILE -> {
+                    double value = sketch.getPercentile(this.percentile);
+                    yield Double.isNaN(value) ? Aggregator.NOT_AVAILABLE : (double) Math.round(value * 100) / 100;
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return this.kind == Kind.APPROX_DISTINCT
+                    ? this.kind.name()
+                    : this.kind.name() + "(" + (this.percentile == Math.rint(this.percentile)
+                                                ? String.valueOf((long) this.percentile)
+                                                : String.valueOf(this.percentile)) + ")";
+        }
+    }
+
+    private final HyperLogLog distinct = new HyperLogLog();
+    private final TDigest numbers = new TDigest();
+
+    /**
+     * Sketches the first rows of a column, in parallel chunks of {@link Aggregator#CHUNK_ROWS} rows if it is long.
+     * The chunks are merged in order, so the same column always gives the same sketch.
+     *
+     * @param column the column to sketch
+     * @param rows   the number of rows to sketch, from the first one
+     * @return the sketch of the rows
+     */
+    public static ColumnSketch of(Column column, int rows) {
+        int size = Math.min(rows, column.size());
+        ColumnStorage storage = column.getStorage();
+        long[] hashes = storage instanceof DictionaryStorage dictionaryStorage
+                ? ColumnSketch.hashEntries(dictionaryStorage)
+                : null;
+
+        if (size <= Aggregator.CHUNK_ROWS) {
+            ColumnSketch sketch = new ColumnSketch();
+            sketch.add(storage, hashes, 0, size);
+            return sketch;
+        }
+
+        int chunks = (size + Aggregator.CHUNK_ROWS - 1) / Aggregator.CHUNK_ROWS;
+        List<ColumnSketch> sketches = IntStream.range(0, chunks).parallel().mapToObj(chunk -> {
+            ColumnSketch sketch = new ColumnSketch();
+            int from = chunk * Aggregator.CHUNK_ROWS;
+            sketch.add(storage, hashes, from, Math.min(size, from + Aggregator.CHUNK_ROWS));
+            return sketch;
+        }).toList();
+
+        ColumnSketch sketch = sketches.getFirst();
+        for (int i = 1; i < sketches.size(); i++) {
+            sketch.merge(sketches.get(i));
+        }
+        return sketch;
+    }
+
+    /**
+     * Adds a value to the sketch.
+     *
+     * @param value the value, ignored if {@code null}
+     */
+    public void add(Object value) {
+        switch (value) {
+            case null -> { }
+            case Number number -> this.addNumber(number.doubleValue());
+            case String string when DictionaryStorage.isDecimal(string) -> this.addNumber(Double.parseDouble(string));
+            default -> this.distinct.add(HyperLogLog.hash(value.toString()));
+        }
+    }
+
+    /**
+     * Hashes each distinct string of a dictionary once, parsing the dictionary before any chunk reads it.
+     *
+     * @param dictionaryStorage the storage of the column
+     * @return the hash of each dictionary entry, by code
+     */
+    private static long[] hashEntries(DictionaryStorage dictionaryStorage) {
+        long[] hashes = new long[dictionaryStorage.getDictionarySize()];
+        for (int code = 0; code < hashes.length; code++) {
+            hashes[code] = dictionaryStorage.isNumberEntry(code)
+                    ? ColumnSketch.hash(dictionaryStorage.getEntryDouble(code))
+                    : HyperLogLog.hash(dictionaryStorage.decode(code));
+        }
+        return hashes;
+    }
+
+    /**
+     * Adds a range of rows of a column to the sketch, reading its typed storage directly.
+     *
+     * @param storage the storage of the column, or {@code null} if it has no rows
+     * @param hashes  the hash of each dictionary entry, if the storage is a dictionary
+     * @param from    the first row of the range
+     * @param to      the row after the last one of the range
+     */
+    private void add(ColumnStorage storage, long[] hashes, int from, int to) {
+        switch (storage) {
+            case null -> { }
+            case NumericStorage numericStorage -> {
+                for (int i = from; i < to; i++) {
+                    if (!numericStorage.isNull(i)) {
+                        this.addNumber(numericStorage.getDouble(i));
+                    }
+                }
+            }
+            case DictionaryStorage dictionaryStorage -> {
+                for (int i = from; i < to; i++) {
+                    if (dictionaryStorage.isNull(i)) {
+                        continue;
+                    }
+                    int code = dictionaryStorage.getCode(i);
+                    this.distinct.add(hashes[code]);
+                    if (dictionaryStorage.isNumberEntry(code)) {
+                        this.numbers.add(dictionaryStorage.getEntryDouble(code));
+                    }
+                }
+            }
+            default -> {
+                for (int i = from; i < to; i++) {
+                    this.add(storage.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a number to both sketches.
+     *
+     * @param value the number
+     */
+    private void addNumber(double value) {
+        this.distinct.add(ColumnSketch.hash(value));
+        this.numbers.add(value);
+    }
+
+    /**
+     * Computes the hash of a number, so that zero and negative zero are the same value.
+     *
+     * @param value the number
+     * @return the hash of the number
+     */
+    private static long hash(double value) {
+        return HyperLogLog.hash(Double.doubleToLongBits(value == 0.0 ? 0.0 : value));
+    }
+
+    /**
+     * Adds the values of another sketch to this one.
+     *
+     * @param other the sketch to merge
+     * @return the current instance of {@code ColumnSketch}
+     */
+    public ColumnSketch merge(ColumnSketch other) {
+        this.distinct.merge(other.distinct);
+        this.numbers.merge(other.numbers);
+        return this;
+    }
+
+    /**
+     * Estimates the number of distinct values added.
+     *
+     * @return the estimated number of distinct values
+     */
+    public long getDistinct() {
+        return this.distinct.estimate();
+    }
+
+    /**
+     * Estimates a percentile of the numeric values added.
+     *
+     * @param percentile the percentile, between {@code 0} and {@code 100}
+     * @return the estimated value, or {@link Double#NaN} if no numeric value was added
+     */
+    public double getPercentile(double percentile) {
+        return this.numbers.percentile(percentile);
+    }
+}
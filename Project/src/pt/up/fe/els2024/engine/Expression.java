@@ -0,0 +1,256 @@
+package pt.up.fe.els2024.engine;
+
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.exception.OperationException;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code Expression} is an arithmetic expression over the numeric columns of a table, such as {@code a * b + c / 2}.
+ * <p>
+ * An expression is compiled once per table into a tree of evaluators over primitive arrays: each referenced column
+ * is read into a {@code double} array once, operations between constants are folded, and operations whose operands
+ * are columns or constants read the arrays directly. The compiled tree then computes every row in a single pass,
+ * without boxing, allocating per row or materializing the intermediate results as columns.
+ * </p>
+ */
+public sealed interface Expression permits Expression.ColumnReference, Expression.Constant, Expression.Negation,
+                                           Expression.Binary {
+
+    /**
+     * Retrieves the columns read by the expression.
+     *
+     * @return the names of the columns, in the order they appear in the expression
+     */
+    Set<String> getColumns();
+
+    /**
+     * Computes the value of the expression for every row of a table.
+     *
+     * @param table the table whose columns the expression reads
+     * @return an array with the value of each row
+     * @throws OperationException if a column is missing or not numeric, or the columns have different sizes
+     */
+    default double[] evaluate(Table table) throws OperationException {
+        Map<String, double[]> columns = new LinkedHashMap<>();
+        int rows = -1;
+        for (String name : this.getColumns()) {
+            Column column = table.checkColumn(name);
+            double[] values = column.toDoubleArray();
+            if (values == null) {
+                throw new OperationException("Cannot operate on columns with non-numbers");
+            }
+            if (rows >= 0 && values.length != rows) {
+                throw new OperationException("Cannot operate on columns with different sizes");
+            }
+            rows = values.length;
+            columns.put(name, values);
+        }
+        if (rows < 0) {
+            rows = RowFilter.rowCount(table);
+        }
+
+        RowEvaluator evaluator = this.compile(columns);
+        double[] results = new double[rows];
+        for (int row = 0; row < rows; row++) {
+            results[row] = evaluator.at(row);
+        }
+        return results;
+    }
+
+    /**
+     * Compiles the expression into an evaluator over the arrays of its columns.
+     *
+     * @param columns the values of each column read by the expression
+     * @return the evaluator of the expression
+     */
+    RowEvaluator compile(Map<String, double[]> columns);
+
+    /**
+     * Computes the value of a compiled expression for a row.
+     */
+    @FunctionalInterface
+    interface RowEvaluator {
+
+        /**
+         * Computes the value of the expression for a row.
+         *
+         * @param row the row
+         * @return the value of the expression
+         */
+        double at(int row);
+    }
+
+    /**
+     * The value of a column.
+     *
+     * @param column the name of the column
+     */
+    record ColumnReference(String column) implements Expression {
+
+        @Override
+        public Set<String> getColumns() {
+            return Set.of(this.column);
+        }
+
+        @Override
+        public RowEvaluator compile(Map<String, double[]> columns) {
+            return new ColumnValues(columns.get(this.column));
+        }
+    }
+
+    /**
+     * A number.
+     *
+     * @param value the number
+     */
+    record Constant(double value) implements Expression {
+
+        @Override
+        public Set<String> getColumns() {
+            return Set.of();
+        }
+
+        @Override
+        public RowEvaluator compile(Map<String, double[]> columns) {
+            return new ConstantValue(this.value);
+        }
+    }
+
+    /**
+     * The negation of an expression.
+     *
+     * @param operand the expression to negate
+     */
+    record Negation(Expression operand) implements Expression {
+
+        @Override
+        public Set<String> getColumns() {
+            return this.operand.getColumns();
+        }
+
+        @Override
+        public RowEvaluator compile(Map<String, double[]> columns) {
+            RowEvaluator operand = this.operand.compile(columns);
+            return switch (operand) {
+                case ConstantValue constant -> new ConstantValue(-constant.value());
+                case ColumnValues column -> {
+                    double[] values = column.values();
+                    yield row -> -values[row];
+                }
+                default -> row -> -operand.at(row);
+            };
+        }
+    }
+
+    /**
+     * An operation between two expressions.
+     *
+     * @param operation the operation
+     * @param left      the left operand
+     * @param right     the right operand
+     */
+    record Binary(ArithmeticKernels.Operation operation, Expression left, Expression right) implements Expression {
+
+        @Override
+        public Set<String> getColumns() {
+            Set<String> columns = new LinkedHashSet<>(this.left.getColumns());
+            columns.addAll(this.right.getColumns());
+            return columns;
+        }
+
+        @Override
+        public RowEvaluator compile(Map<String, double[]> columns) {
+            RowEvaluator left = this.left.compile(columns);
+            RowEvaluator right = this.right.compile(columns);
+
+            // Each shape of operands and each operation gets its own evaluator, so none of them branches per row
+            if (left instanceof ConstantValue l && right instanceof ConstantValue r) {
+                return new ConstantValue(Binary.apply(this.operation, l.value(), r.value()));
+            }
+            if (left instanceof ColumnValues l && right instanceof ColumnValues r) {
+                double[] a = l.values();
+                double[] b = r.values();
+                return switch (this.operation) {
+                    case SUM -> row -> a[row] + b[row];
+                    case SUB -> row -> a[row] - b[row];
+                    case MUL -> row -> a[row] * b[row];
+                    case DIV -> row -> a[row] / b[row];
+                };
+            }
+            if (left instanceof ColumnValues l && right instanceof ConstantValue r) {
+                double[] a = l.values();
+                double b = r.value();
+                return switch (this.operation) {
+                    case SUM -> row -> a[row] + b;
+                    case SUB -> row -> a[row] - b;
+                    case MUL -> row -> a[row] * b;
+                    case DIV -> row -> a[row] / b;
+                };
+            }
+            if (left instanceof ConstantValue l && right instanceof ColumnValues r) {
+                double a = l.value();
+                double[] b = r.values();
+                return switch (this.operation) {
+                    case SUM -> row -> a + b[row];
+                    case SUB -> row -> a - b[row];
+                    case MUL -> row -> a * b[row];
+                    case DIV -> row -> a / b[row];
+                };
+            }
+            return switch (this.operation) {
+                case SUM -> row -> left.at(row) + right.at(row);
+                case SUB -> row -> left.at(row) - right.at(row);
+                case MUL -> row -> left.at(row) * right.at(row);
+                case DIV -> row -> left.at(row) / right.at(row);
+            };
+        }
+
+        /**
+         * Applies an operation to two numbers.
+         *
+         * @param operation the operation
+         * @param left      the left operand
+         * @param right     the right operand
+         * @return the result of the operation
+         */
+        private static double apply(ArithmeticKernels.Operation operation, double left, double right) {
+            return switch (operation) {
+                case SUM -> left + right;
+                case SUB -> left - right;
+                case MUL -> left * right;
+                case DIV -> left / right;
+            };
+        }
+    }
+
+    /**
+     * The evaluator of a column, which operations read directly.
+     *
+     * @param values the values of the column
+     */
+    record ColumnValues(double[] values) implements RowEvaluator {
+
+        @Override
+        public double at(int row) {
+            return this.values[row];
+        }
+    }
+
+    /**
+     * The evaluator of a constant, which operations fold or read directly.
+     *
+     * @param value the constant
+     */
+    record ConstantValue(double value) implements RowEvaluator {
+
+        @Override
+        public double at(int row) {
+            return this.value;
+        }
+    }
+}
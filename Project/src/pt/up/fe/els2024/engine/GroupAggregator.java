@@ -0,0 +1,452 @@
+package pt.up.fe.els2024.engine;
+
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.exception.OperationException;
+import pt.up.fe.els2024.storage.ColumnStorage;
+import pt.up.fe.els2024.storage.DictionaryStorage;
+import pt.up.fe.els2024.storage.NumericStorage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * {@code GroupAggregator} groups the rows of a table by the values of some key columns and computes statistics
+ * of the other columns within each group.
+ * <p>
+ * The key columns are first encoded into {@code long} codes by a {@link KeyEncoder}, one column at a time, so keys
+ * are compared as {@link RowFilter} compares values: numbers, integers included, and strings that are numbers by
+ * their {@code double} value, and any other value by equality. The rows are then split in morsels of {@link #MORSEL_ROWS} rows,
+ * each aggregated into its own {@link GroupHashTable} by a pool of threads. The partial tables are merged in row
+ * order into a fixed number of partitions, chosen by the hash of the keys, so the result does not depend on the
+ * number of threads.
+ * </p>
+ * <p>
+ * When the merged partitions outgrow the memory budget, they are spilled to temporary files and emptied. Each
+ * partition is then merged back from its files one at a time, so only one partition needs to fit in memory.
+ * </p>
+ * <p>
+ * Statistics follow {@link Aggregator}: missing values are skipped, strings that are numbers count as numbers, and
+ * the statistics of a column of a group holding any other value are {@link Aggregator#NOT_AVAILABLE}. The groups
+ * are listed in the order of their first row, with the key columns first, followed by one column per value column
+ * and statistic, named after both.
+ * </p>
+ */
+public class GroupAggregator {
+
+    /** The number of rows aggregated by each task. */
+    public static final int MORSEL_ROWS = 64 * 1024;
+
+    /** The default memory budget of the merged groups, in bytes. */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+
+    /** The number of partitions of the groups, chosen by the top bits of the hash of their key. */
+    private static final int PARTITIONS = 16;
+
+    /** The shift that leaves the bits of the hash choosing the partition. */
+    private static final int PARTITION_SHIFT = Integer.SIZE - Integer.numberOfTrailingZeros(PARTITIONS);
+
+    /** The state of a value that is missing, and so skipped. */
+    private static final byte MISSING = 0;
+
+    /** The state of a value that is a number. */
+    private static final byte NUMBER = 1;
+
+    /** The state of a value that is not a number. */
+    private static final byte INVALID = 2;
+
+    private final List<String> keyColumns;
+    private final List<String> valueColumns;
+    private final List<Aggregator.Statistic> statistics;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+
+    /** The number of partitions written to disk by the last aggregation. */
+    private int spilledPartitions;
+
+    /**
+     * A value column of the aggregated rows, read as numbers.
+     *
+     * @param values the value of each row holding a number
+     * @param states whether each row is missing, a number or not a number
+     */
+    private record ValueColumn(double[] values, byte[] states) {}
+
+    /**
+     * Constructs an aggregator over the given columns.
+     *
+     * @param keyColumns   the columns whose values identify the groups
+     * @param valueColumns the columns to compute statistics of, or {@code null} for every column that is not a key
+     * @param statistics   the statistics to compute
+     */
+    public GroupAggregator(List<String> keyColumns, List<String> valueColumns, List<Aggregator.Statistic> statistics) {
+        this.keyColumns = List.copyOf(keyColumns);
+        this.valueColumns = valueColumns == null ? null : List.copyOf(valueColumns);
+        this.statistics = List.copyOf(statistics);
+    }
+
+    /**
+     * Sets the maximum number of threads aggregating morsels at the same time.
+     * A value of {@code 1} aggregates every morsel on the calling thread.
+     *
+     * @param parallelism the degree of parallelism, by default the number of available processors
+     * @return the current instance of {@code GroupAggregator}
+     */
+    public GroupAggregator withParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        return this;
+    }
+
+    /**
+     * Sets the memory the merged groups can take before they are spilled to disk.
+     *
+     * @param memoryBudget the budget, in bytes
+     * @return the current instance of {@code GroupAggregator}
+     */
+    public GroupAggregator withMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        return this;
+    }
+
+    /**
+     * Retrieves the number of times the merged groups were spilled to disk by the last aggregation.
+     *
+     * @return the number of partitions written to disk
+     */
+    public int getSpilledPartitions() {
+        return this.spilledPartitions;
+    }
+
+    /**
+     * Groups the rows of a table and computes the statistics of each group.
+     *
+     * @param table the table to aggregate
+     * @param rows  the number of rows to aggregate, from the first one
+     * @return a new table, named after the given one, with one row per group
+     * @throws OperationException if a column is missing or the aggregation fails
+     */
+    public Table aggregate(Table table, int rows) throws OperationException {
+        if (this.keyColumns.isEmpty() || this.keyColumns.size() > Long.SIZE) {
+            throw new OperationException("Group by needs between 1 and " + Long.SIZE + " key columns");
+        }
+
+        List<Column> keys = new ArrayList<>();
+        for (String name : this.keyColumns) {
+            keys.add(table.checkColumn(name));
+        }
+
+        List<Column> values = new ArrayList<>();
+        if (this.valueColumns == null) {
+            for (Column column : table.getColumns()) {
+                if (!this.keyColumns.contains(column.getName())) {
+                    values.add(column);
+                }
+            }
+        } else {
+            for (String name : this.valueColumns) {
+                values.add(table.checkColumn(name));
+            }
+        }
+
+        KeyEncoder encoder = new KeyEncoder();
+        KeyEncoder.Keys[] keyData = new KeyEncoder.Keys[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            keyData[i] = encoder.encode(keys.get(i), rows);
+        }
+        ValueColumn[] valueData = new ValueColumn[values.size()];
+        for (int i = 0; i < values.size(); i++) {
+            valueData[i] = GroupAggregator.readValues(values.get(i), rows);
+        }
+
+        GroupHashTable[] partitions = this.aggregatePartitions(keyData, valueData, rows);
+
+        // Emit the groups in the order of their first row
+        List<Object[]> groups = new ArrayList<>();
+        for (GroupHashTable partition : partitions) {
+            for (int group = 0; group < partition.size(); group++) {
+                Object[] results = new Object[1 + values.size() * this.statistics.size()];
+                results[0] = partition.firstRow(group);
+                int position = 1;
+                for (int column = 0; column < values.size(); column++) {
+                    for (Aggregator.Statistic statistic : this.statistics) {
+                        results[position++] = partition.result(group, column, statistic);
+                    }
+                }
+                groups.add(results);
+            }
+        }
+        groups.sort(Comparator.comparingInt(group -> (Integer) group[0]));
+
+        Table result = new Table(table.getName());
+        for (Column key : keys) {
+            Column column = new Column(key.getName());
+            for (Object[] group : groups) {
+                column.addRow(key.getValueAttribute((Integer) group[0]));
+            }
+            result.addColumn(column);
+        }
+        int position = 1;
+        for (Column value : values) {
+            for (Aggregator.Statistic statistic : this.statistics) {
+                Column column = new Column(value.getName() + " " + statistic);
+                for (Object[] group : groups) {
+                    column.addRow(group[position]);
+                }
+                result.addColumn(column);
+                position++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Aggregates the morsels of the rows and merges them into the partitions, spilling them if needed.
+     *
+     * @param keys   the encoded key columns
+     * @param values the value columns
+     * @param rows   the number of rows
+     * @return the partitions holding every group
+     * @throws OperationException if a morsel fails or the partitions can't be spilled
+     */
+    private GroupHashTable[] aggregatePartitions(KeyEncoder.Keys[] keys, ValueColumn[] values, int rows)
+            throws OperationException {
+        GroupHashTable[] partitions = new GroupHashTable[PARTITIONS];
+        for (int i = 0; i < PARTITIONS; i++) {
+            partitions[i] = new GroupHashTable(keys.length, values.length);
+        }
+
+        int morsels = (rows + MORSEL_ROWS - 1) / MORSEL_ROWS;
+        this.spilledPartitions = 0;
+        Path spillDirectory = null;
+
+        try {
+            if (this.parallelism == 1 || morsels <= 1) {
+                for (int morsel = 0; morsel < morsels; morsel++) {
+                    GroupHashTable[] partial = GroupAggregator.aggregateMorsel(keys, values, morsel, rows);
+                    spillDirectory = this.mergePartial(partial, partitions, spillDirectory);
+                }
+            } else {
+                int threads = Math.min(this.parallelism, morsels);
+                ExecutorService executor = Executors.newFixedThreadPool(threads);
+                try {
+                    List<Future<GroupHashTable[]>> partials = new ArrayList<>(morsels);
+                    for (int morsel = 0; morsel < morsels; morsel++) {
+                        final int index = morsel;
+                        partials.add(executor.submit(() -> GroupAggregator.aggregateMorsel(keys, values, index, rows)));
+                    }
+                    // Partial tables are merged in row order, whatever order they finish in
+                    for (Future<GroupHashTable[]> partial : partials) {
+                        spillDirectory = this.mergePartial(partial.get(), partitions, spillDirectory);
+                    }
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+
+            if (spillDirectory != null) {
+                for (int i = 0; i < PARTITIONS; i++) {
+                    partitions[i] = GroupAggregator.restorePartition(spillDirectory, i, partitions[i], keys.length, values.length);
+                }
+            }
+            return partitions;
+        } catch (ExecutionException e) {
+            throw new OperationException("Group by failed: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperationException("Group by was interrupted");
+        } catch (IOException | UncheckedIOException e) {
+            throw new OperationException("Group by failed to spill to disk: " + e.getMessage());
+        } finally {
+            if (spillDirectory != null) {
+                GroupAggregator.deleteDirectory(spillDirectory);
+            }
+        }
+    }
+
+    /**
+     * Aggregates the rows of a morsel into new tables, one per partition.
+     *
+     * @param keys   the encoded key columns
+     * @param values the value columns
+     * @param morsel the position of the morsel
+     * @param rows   the number of rows
+     * @return the groups of the morsel, by partition
+     */
+    private static GroupHashTable[] aggregateMorsel(KeyEncoder.Keys[] keys, ValueColumn[] values, int morsel, int rows) {
+        GroupHashTable[] tables = new GroupHashTable[PARTITIONS];
+        for (int i = 0; i < PARTITIONS; i++) {
+            tables[i] = new GroupHashTable(keys.length, values.length);
+        }
+        long[] key = new long[keys.length];
+        int from = morsel * MORSEL_ROWS;
+        int to = Math.min(rows, from + MORSEL_ROWS);
+
+        for (int row = from; row < to; row++) {
+            long nullMask = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].nulls()[row]) {
+                    nullMask |= 1L << i;
+                    key[i] = 0;
+                } else {
+                    key[i] = keys[i].codes()[row];
+                }
+            }
+
+            int hash = GroupHashTable.hash(key, nullMask);
+            GroupHashTable table = tables[hash >>> PARTITION_SHIFT];
+            int group = table.findOrAdd(key, nullMask, hash, row);
+            for (int column = 0; column < values.length; column++) {
+                switch (values[column].states()[row]) {
+                    case NUMBER -> table.add(group, column, values[column].values()[row]);
+                    case INVALID -> table.invalidate(group, column);
+                    default -> { }
+                }
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Merges the groups of a morsel into the partitions, spilling every partition if they outgrow the budget.
+     *
+     * @param partial        the groups of the morsel, by partition
+     * @param partitions     the partitions of the merged groups
+     * @param spillDirectory the directory of the spilled partitions, or {@code null} if nothing was spilled yet
+     * @return the directory of the spilled partitions, or {@code null} if nothing was spilled yet
+     * @throws IOException if the partitions can't be spilled
+     */
+    private Path mergePartial(GroupHashTable[] partial, GroupHashTable[] partitions, Path spillDirectory)
+            throws IOException {
+        long bytes = 0;
+        for (int i = 0; i < PARTITIONS; i++) {
+            partitions[i].merge(partial[i]);
+            bytes += partitions[i].estimatedBytes();
+        }
+        if (bytes <= this.memoryBudget) {
+            return spillDirectory;
+        }
+
+        if (spillDirectory == null) {
+            spillDirectory = Files.createTempDirectory("preql-group");
+        }
+        for (int i = 0; i < PARTITIONS; i++) {
+            if (partitions[i].size() == 0) {
+                continue;
+            }
+            Path file = spillDirectory.resolve("partition-" + i);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+                partitions[i].write(out);
+            }
+            partitions[i].clear();
+            this.spilledPartitions++;
+        }
+        return spillDirectory;
+    }
+
+    /**
+     * Merges the spilled runs of a partition, in the order they were written, with its groups still in memory.
+     *
+     * @param spillDirectory the directory of the spilled partitions
+     * @param partition      the position of the partition
+     * @param inMemory       the groups of the partition merged since the last spill
+     * @param keyWidth       the number of key columns
+     * @param valueWidth     the number of value columns
+     * @return the partition holding all its groups
+     * @throws IOException if a spilled run can't be read
+     */
+    private static GroupHashTable restorePartition(Path spillDirectory, int partition, GroupHashTable inMemory,
+                                                   int keyWidth, int valueWidth) throws IOException {
+        Path file = spillDirectory.resolve("partition-" + partition);
+        if (!Files.exists(file)) {
+            return inMemory;
+        }
+
+        GroupHashTable restored = new GroupHashTable(keyWidth, valueWidth);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (in.available() > 0) {
+                restored.merge(in);
+            }
+        }
+        restored.merge(inMemory);
+        return restored;
+    }
+
+    /**
+     * Reads the first rows of a value column as numbers.
+     *
+     * @param column the value column
+     * @param rows   the number of rows to read
+     * @return the values and the state of each row
+     */
+    private static ValueColumn readValues(Column column, int rows) {
+        double[] values = new double[rows];
+        byte[] states = new byte[rows];
+        ColumnStorage storage = column.getStorage();
+        int size = storage == null ? 0 : Math.min(rows, column.size());
+
+        for (int i = 0; i < size; i++) {
+            if (storage.isNull(i)) {
+                continue;
+            }
+            switch (storage) {
+                case NumericStorage numericStorage -> {
+                    values[i] = numericStorage.getDouble(i);
+                    states[i] = NUMBER;
+                }
+                case DictionaryStorage dictionaryStorage -> {
+                    if (dictionaryStorage.isNumber(i)) {
+                        values[i] = dictionaryStorage.getDouble(i);
+                        states[i] = NUMBER;
+                    } else {
+                        states[i] = INVALID;
+                    }
+                }
+                default -> {
+                    Object value = storage.get(i);
+                    if (value instanceof Number number) {
+                        values[i] = number.doubleValue();
+                        states[i] = NUMBER;
+                    } else if (value instanceof String string && DictionaryStorage.isDecimal(string)) {
+                        values[i] = Double.parseDouble(string);
+                        states[i] = NUMBER;
+                    } else if (value != null) {
+                        states[i] = INVALID;
+                    }
+                }
+            }
+        }
+        return new ValueColumn(values, states);
+    }
+
+    /**
+     * Deletes a directory of spilled partitions, ignoring the files that can't be deleted.
+     *
+     * @param directory the directory to delete
+     */
+    private static void deleteDirectory(Path directory) {
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            // Temporary files are only left behind
+        }
+    }
+}
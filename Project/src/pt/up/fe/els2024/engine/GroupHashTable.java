@@ -0,0 +1,412 @@
+package pt.up.fe.els2024.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * {@code GroupHashTable} is the open-addressing hash table behind {@link GroupAggregator}.
+ * <p>
+ * Each group is identified by a tuple of {@code long} key codes, one per key column, and a bitmask of the key
+ * columns that are {@code null}. Groups are numbered in insertion order, and their keys and accumulators are kept
+ * in primitive arrays indexed by that number, with one set of accumulators per value column. The slots of the table
+ * hold group numbers and are probed linearly, so a lookup touches a handful of adjacent {@code int}s and never
+ * allocates.
+ * </p>
+ * <p>
+ * Tables built over different rows can be merged, and written to and read back from a stream, which lets the
+ * aggregation run in parallel and spill to disk.
+ * </p>
+ */
+final class GroupHashTable {
+
+    /** The initial number of groups a table can hold before growing. */
+    private static final int INITIAL_GROUPS = 16;
+
+    private final int keyWidth;
+    private final int valueWidth;
+
+    /** The group number plus one of each slot, or {@code 0} for an empty slot. */
+    private int[] slots;
+    private int groups;
+
+    /** The key codes of each group, {@code keyWidth} per group. */
+    private long[] keys;
+    private long[] nullMasks;
+    private int[] hashes;
+
+    /** The first row of each group among the aggregated rows. */
+    private int[] firstRows;
+
+    /** The accumulators of each group, {@code valueWidth} per group. */
+    private int[] counts;
+    private double[] sums;
+    private double[] compensations;
+    private double[] means;
+    private double[] squares;
+    private double[] mins;
+    private double[] maxs;
+    private boolean[] invalid;
+
+    /**
+     * Creates an empty table.
+     *
+     * @param keyWidth   the number of key columns
+     * @param valueWidth the number of value columns
+     */
+    GroupHashTable(int keyWidth, int valueWidth) {
+        this.keyWidth = keyWidth;
+        this.valueWidth = valueWidth;
+        this.clear();
+    }
+
+    /**
+     * Removes every group, releasing the arrays grown so far.
+     */
+    void clear() {
+        this.groups = 0;
+        this.slots = new int[INITIAL_GROUPS * 2];
+        this.keys = new long[INITIAL_GROUPS * this.keyWidth];
+        this.nullMasks = new long[INITIAL_GROUPS];
+        this.hashes = new int[INITIAL_GROUPS];
+        this.firstRows = new int[INITIAL_GROUPS];
+        int accumulators = INITIAL_GROUPS * this.valueWidth;
+        this.counts = new int[accumulators];
+        this.sums = new double[accumulators];
+        this.compensations = new double[accumulators];
+        this.means = new double[accumulators];
+        this.squares = new double[accumulators];
+        this.mins = new double[accumulators];
+        this.maxs = new double[accumulators];
+        this.invalid = new boolean[accumulators];
+    }
+
+    /**
+     * Retrieves the number of groups.
+     *
+     * @return the number of groups in the table
+     */
+    int size() {
+        return this.groups;
+    }
+
+    /**
+     * Estimates the memory held by the arrays of the table.
+     *
+     * @return the approximate size of the table, in bytes
+     */
+    long estimatedBytes() {
+        long perGroup = (long) this.keyWidth * Long.BYTES + Long.BYTES + 2 * Integer.BYTES
+                + (long) this.valueWidth * (Integer.BYTES + 6 * Double.BYTES + 1);
+        return (long) this.slots.length * Integer.BYTES + (long) this.hashes.length * perGroup;
+    }
+
+    /**
+     * Computes the hash of a key tuple.
+     *
+     * @param key      the key codes
+     * @param nullMask the key columns that are {@code null}
+     * @return the hash of the key
+     */
+    static int hash(long[] key, long nullMask) {
+        long hash = nullMask * 0x9E3779B97F4A7C15L;
+        for (long code : key) {
+            hash = (hash ^ code) * 0xC2B2AE3D27D4EB4FL;
+            hash ^= hash >>> 29;
+        }
+        hash ^= hash >>> 32;
+        return (int) hash;
+    }
+
+    /**
+     * Finds the group of a key, adding it if it is new.
+     *
+     * @param key      the key codes, copied if the group is added
+     * @param nullMask the key columns that are {@code null}
+     * @param hash     the hash of the key, as computed by {@link #hash(long[], long)}
+     * @param firstRow the row the key was found in, kept if the group is added
+     * @return the number of the group
+     */
+    int findOrAdd(long[] key, long nullMask, int hash, int firstRow) {
+        int mask = this.slots.length - 1;
+        int slot = hash & mask;
+        while (true) {
+            int entry = this.slots[slot];
+            if (entry == 0) {
+                break;
+            }
+            int group = entry - 1;
+            if (this.hashes[group] == hash && this.nullMasks[group] == nullMask && this.keyEquals(group, key)) {
+                if (firstRow < this.firstRows[group]) {
+                    this.firstRows[group] = firstRow;
+                }
+                return group;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int group = this.groups++;
+        this.ensureGroups(this.groups);
+        System.arraycopy(key, 0, this.keys, group * this.keyWidth, this.keyWidth);
+        this.nullMasks[group] = nullMask;
+        this.hashes[group] = hash;
+        this.firstRows[group] = firstRow;
+        for (int column = 0; column < this.valueWidth; column++) {
+            int index = group * this.valueWidth + column;
+            this.mins[index] = Double.POSITIVE_INFINITY;
+            this.maxs[index] = Double.NEGATIVE_INFINITY;
+        }
+
+        if (this.groups * 2 > this.slots.length) {
+            this.rehash(this.slots.length * 2);
+        } else {
+            this.slots[slot] = group + 1;
+        }
+        return group;
+    }
+
+    /**
+     * Checks whether the key of a group is equal to the given codes.
+     *
+     * @param group the number of the group
+     * @param key   the key codes
+     * @return {@code true} if every code is equal
+     */
+    private boolean keyEquals(int group, long[] key) {
+        int offset = group * this.keyWidth;
+        for (int i = 0; i < this.keyWidth; i++) {
+            if (this.keys[offset + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a number to the accumulators of a value column of a group.
+     *
+     * @param group  the number of the group
+     * @param column the position of the value column
+     * @param value  the number to add
+     */
+    void add(int group, int column, double value) {
+        int index = group * this.valueWidth + column;
+        int count = ++this.counts[index];
+
+        // Neumaier's compensated sum
+        double sum = this.sums[index];
+        double total = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            this.compensations[index] += (sum - total) + value;
+        } else {
+            this.compensations[index] += (value - total) + sum;
+        }
+        this.sums[index] = total;
+
+        // Welford's online variance
+        double delta = value - this.means[index];
+        this.means[index] += delta / count;
+        this.squares[index] += delta * (value - this.means[index]);
+
+        this.mins[index] = Math.min(this.mins[index], value);
+        this.maxs[index] = Math.max(this.maxs[index], value);
+    }
+
+    /**
+     * Marks a value column of a group as holding a value that is not a number.
+     *
+     * @param group  the number of the group
+     * @param column the position of the value column
+     */
+    void invalidate(int group, int column) {
+        this.invalid[group * this.valueWidth + column] = true;
+    }
+
+    /**
+     * Merges every group of another table into this one.
+     *
+     * @param other a table with the same key and value columns
+     */
+    void merge(GroupHashTable other) {
+        long[] key = new long[this.keyWidth];
+        for (int group = 0; group < other.groups; group++) {
+            System.arraycopy(other.keys, group * this.keyWidth, key, 0, this.keyWidth);
+            int target = this.findOrAdd(key, other.nullMasks[group], other.hashes[group], other.firstRows[group]);
+            for (int column = 0; column < this.valueWidth; column++) {
+                int index = group * this.valueWidth + column;
+                this.combine(target, column, other.invalid[index], other.counts[index], other.sums[index],
+                        other.compensations[index], other.means[index], other.squares[index],
+                        other.mins[index], other.maxs[index]);
+            }
+        }
+    }
+
+    /**
+     * Merges every group of a table written by {@link #write(DataOutput)} into this one.
+     *
+     * @param in the input to read from
+     * @throws IOException if the table can't be read
+     */
+    void merge(DataInput in) throws IOException {
+        long[] key = new long[this.keyWidth];
+        int groups = in.readInt();
+        for (int group = 0; group < groups; group++) {
+            for (int i = 0; i < this.keyWidth; i++) {
+                key[i] = in.readLong();
+            }
+            long nullMask = in.readLong();
+            int hash = in.readInt();
+            int firstRow = in.readInt();
+            int target = this.findOrAdd(key, nullMask, hash, firstRow);
+            for (int column = 0; column < this.valueWidth; column++) {
+                this.combine(target, column, in.readBoolean(), in.readInt(), in.readDouble(), in.readDouble(),
+                        in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+            }
+        }
+    }
+
+    /**
+     * Writes every group of the table, so that it can be merged back with {@link #merge(DataInput)}.
+     *
+     * @param out the output to write to
+     * @throws IOException if the table can't be written
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeInt(this.groups);
+        for (int group = 0; group < this.groups; group++) {
+            for (int i = 0; i < this.keyWidth; i++) {
+                out.writeLong(this.keys[group * this.keyWidth + i]);
+            }
+            out.writeLong(this.nullMasks[group]);
+            out.writeInt(this.hashes[group]);
+            out.writeInt(this.firstRows[group]);
+            for (int column = 0; column < this.valueWidth; column++) {
+                int index = group * this.valueWidth + column;
+                out.writeBoolean(this.invalid[index]);
+                out.writeInt(this.counts[index]);
+                out.writeDouble(this.sums[index]);
+                out.writeDouble(this.compensations[index]);
+                out.writeDouble(this.means[index]);
+                out.writeDouble(this.squares[index]);
+                out.writeDouble(this.mins[index]);
+                out.writeDouble(this.maxs[index]);
+            }
+        }
+    }
+
+    /**
+     * Merges the accumulators of a value column computed over other rows into those of a group.
+     * Sums keep their compensation and variances are combined with Chan's formula.
+     *
+     * @param group        the number of the group
+     * @param column       the position of the value column
+     * @param invalid      whether the other rows hold values that are not numbers
+     * @param count        the number of values of the other rows
+     * @param sum          the sum of the values of the other rows
+     * @param compensation the rounding error of that sum
+     * @param mean         the mean of the values of the other rows
+     * @param squares      the sum of squared differences from that mean
+     * @param min          the smallest value of the other rows
+     * @param max          the largest value of the other rows
+     */
+    private void combine(int group, int column, boolean invalid, int count, double sum, double compensation,
+                         double mean, double squares, double min, double max) {
+        int index = group * this.valueWidth + column;
+        this.invalid[index] |= invalid;
+        if (count == 0) {
+            return;
+        }
+
+        int ownCount = this.counts[index];
+        int total = ownCount + count;
+
+        double ownSum = this.sums[index];
+        double newSum = ownSum + sum;
+        if (Math.abs(ownSum) >= Math.abs(sum)) {
+            this.compensations[index] += (ownSum - newSum) + sum;
+        } else {
+            this.compensations[index] += (sum - newSum) + ownSum;
+        }
+        this.compensations[index] += compensation;
+        this.sums[index] = newSum;
+
+        double delta = mean - this.means[index];
+        this.means[index] += delta * count / total;
+        this.squares[index] += squares + delta * delta * ((double) ownCount * count / total);
+
+        this.counts[index] = total;
+        this.mins[index] = Math.min(this.mins[index], min);
+        this.maxs[index] = Math.max(this.maxs[index], max);
+    }
+
+    /**
+     * Retrieves the first row of a group among the aggregated rows.
+     *
+     * @param group the number of the group
+     * @return the first row of the group
+     */
+    int firstRow(int group) {
+        return this.firstRows[group];
+    }
+
+    /**
+     * Computes a statistic of a value column of a group.
+     *
+     * @param group     the number of the group
+     * @param column    the position of the value column
+     * @param statistic the statistic to compute
+     * @return the value of the statistic, or {@link Aggregator#NOT_AVAILABLE} if the column holds values that are
+     *         not numbers
+     */
+    Object result(int group, int column, Aggregator.Statistic statistic) {
+        int index = group * this.valueWidth + column;
+        if (this.invalid[index]) {
+            return Aggregator.NOT_AVAILABLE;
+        }
+        return Aggregator.result(statistic, this.counts[index], this.sums[index], this.compensations[index],
+                this.squares[index], this.mins[index], this.maxs[index]);
+    }
+
+    /**
+     * Grows the arrays of the groups so that at least the given number of groups fit.
+     *
+     * @param required the number of groups
+     */
+    private void ensureGroups(int required) {
+        if (required <= this.hashes.length) {
+            return;
+        }
+        int capacity = Math.max(required, this.hashes.length * 2);
+        this.keys = Arrays.copyOf(this.keys, capacity * this.keyWidth);
+        this.nullMasks = Arrays.copyOf(this.nullMasks, capacity);
+        this.hashes = Arrays.copyOf(this.hashes, capacity);
+        this.firstRows = Arrays.copyOf(this.firstRows, capacity);
+        int accumulators = capacity * this.valueWidth;
+        this.counts = Arrays.copyOf(this.counts, accumulators);
+        this.sums = Arrays.copyOf(this.sums, accumulators);
+        this.compensations = Arrays.copyOf(this.compensations, accumulators);
+        this.means = Arrays.copyOf(this.means, accumulators);
+        this.squares = Arrays.copyOf(this.squares, accumulators);
+        this.mins = Arrays.copyOf(this.mins, accumulators);
+        this.maxs = Arrays.copyOf(this.maxs, accumulators);
+        this.invalid = Arrays.copyOf(this.invalid, accumulators);
+    }
+
+    /**
+     * Rebuilds the slots with a new capacity, keeping the table at most half full.
+     *
+     * @param capacity the new number of slots, a power of two
+     */
+    private void rehash(int capacity) {
+        this.slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int group = 0; group < this.groups; group++) {
+            int slot = this.hashes[group] & mask;
+            while (this.slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            this.slots[slot] = group + 1;
+        }
+    }
+}
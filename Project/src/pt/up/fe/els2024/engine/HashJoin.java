@@ -0,0 +1,270 @@
+package pt.up.fe.els2024.engine;
+
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.exception.OperationException;
+import pt.up.fe.els2024.storage.ColumnStorage;
+
+import java.util.Arrays;
+
+/**
+ * {@code HashJoin} combines the rows of two tables that have the same value in a key column.
+ * <p>
+ * The rows of the smaller table are indexed by their key in a hash table, which the rows of the larger one then
+ * look their matches up in. Both key columns are encoded by one {@link KeyEncoder}, so keys are compared as
+ * {@link RowFilter} compares values: numbers, and strings that are numbers, by value, and other values by equality.
+ * Missing keys never match.
+ * </p>
+ * <p>
+ * The result has one row per matching pair, ordered by the row of the left table and then by the row of the right
+ * one, whichever table was indexed. A {@link Type#LEFT} join also keeps the left rows without a match, with
+ * {@code null} in the columns of the right table. The columns of the left table come first, followed by those of
+ * the right table except its key column. Each output column is copied with the layout of its input column.
+ * </p>
+ */
+public class HashJoin {
+
+    /** The kinds of join. */
+    public enum Type {
+        /** Keeps only the pairs of matching rows. */
+        INNER,
+        /** Keeps the pairs of matching rows and the rows of the left table without a match. */
+        LEFT
+    }
+
+    private final String column;
+    private final Type type;
+
+    /**
+     * Constructs a join on a key column.
+     *
+     * @param column the name of the key column, in both tables
+     * @param type   the kind of join
+     */
+    public HashJoin(String column, Type type) {
+        this.column = column;
+        this.type = type;
+    }
+
+    /**
+     * Joins two tables on the key column.
+     *
+     * @param left      the left table
+     * @param leftRows  the number of rows of the left table to join, from the first one
+     * @param right     the right table
+     * @return a new table, named after the left one, with the joined rows
+     * @throws OperationException if a table has no key column
+     */
+    public Table join(Table left, int leftRows, Table right) throws OperationException {
+        Column leftKey = left.checkColumn(this.column);
+        Column rightKey = right.checkColumn(this.column);
+        int rightRows = RowFilter.rowCount(right);
+
+        // One encoder numbers the keys of both tables, so equal keys share a code
+        KeyEncoder encoder = new KeyEncoder();
+        KeyEncoder.Keys leftKeys = encoder.encode(leftKey, leftRows);
+        KeyEncoder.Keys rightKeys = encoder.encode(rightKey, rightRows);
+
+        int[][] pairs = rightRows <= leftRows
+                ? this.probeLeft(leftKeys, leftRows, rightKeys, rightRows)
+                : this.probeRight(leftKeys, leftRows, rightKeys, rightRows);
+        int[] leftMatches = pairs[0];
+        int[] rightMatches = pairs[1];
+        int count = pairs[2][0];
+
+        Table result = new Table(left.getName());
+        for (Column column : left.getColumns()) {
+            result.addColumn(HashJoin.gather(column, leftMatches, count));
+        }
+        for (Column column : right.getColumns()) {
+            if (column != rightKey) {
+                result.addColumn(HashJoin.gather(column, rightMatches, count));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Indexes the right table and looks the rows of the left table up in it, in order.
+     *
+     * @param leftKeys  the keys of the left table
+     * @param leftRows  the number of rows of the left table
+     * @param rightKeys the keys of the right table
+     * @param rightRows the number of rows of the right table
+     * @return the left rows, the right rows and the number of pairs
+     */
+    private int[][] probeLeft(KeyEncoder.Keys leftKeys, int leftRows, KeyEncoder.Keys rightKeys, int rightRows) {
+        KeyIndex index = new KeyIndex(rightKeys, rightRows);
+        int[] leftMatches = new int[Math.max(leftRows, 16)];
+        int[] rightMatches = new int[leftMatches.length];
+        int count = 0;
+
+        for (int row = 0; row < leftRows; row++) {
+            int match = index.first(leftKeys, row);
+            if (match < 0 && this.type == Type.INNER) {
+                continue;
+            }
+            do {
+                if (count == leftMatches.length) {
+                    leftMatches = Arrays.copyOf(leftMatches, count * 2);
+                    rightMatches = Arrays.copyOf(rightMatches, count * 2);
+                }
+                leftMatches[count] = row;
+                rightMatches[count++] = match;
+                match = match < 0 ? -1 : index.next(match);
+            } while (match >= 0);
+        }
+        return new int[][] {leftMatches, rightMatches, {count}};
+    }
+
+    /**
+     * Indexes the left table and looks the rows of the right table up in it, then orders the pairs by left row.
+     *
+     * @param leftKeys  the keys of the left table
+     * @param leftRows  the number of rows of the left table
+     * @param rightKeys the keys of the right table
+     * @param rightRows the number of rows of the right table
+     * @return the left rows, the right rows and the number of pairs
+     */
+    private int[][] probeRight(KeyEncoder.Keys leftKeys, int leftRows, KeyEncoder.Keys rightKeys, int rightRows) {
+        KeyIndex index = new KeyIndex(leftKeys, leftRows);
+        int[] matches = new int[leftRows];
+        int[] probeLeft = new int[Math.max(rightRows, 16)];
+        int[] probeRight = new int[probeLeft.length];
+        int found = 0;
+
+        for (int row = 0; row < rightRows; row++) {
+            for (int match = index.first(rightKeys, row); match >= 0; match = index.next(match)) {
+                if (found == probeLeft.length) {
+                    probeLeft = Arrays.copyOf(probeLeft, found * 2);
+                    probeRight = Arrays.copyOf(probeRight, found * 2);
+                }
+                probeLeft[found] = match;
+                probeRight[found++] = row;
+                matches[match]++;
+            }
+        }
+
+        // A stable counting sort by left row keeps the right rows of each left row in order
+        int[] offsets = new int[leftRows + 1];
+        for (int row = 0; row < leftRows; row++) {
+            int slots = this.type == Type.LEFT ? Math.max(matches[row], 1) : matches[row];
+            offsets[row + 1] = offsets[row] + slots;
+        }
+        int count = offsets[leftRows];
+        int[] leftMatches = new int[count];
+        int[] rightMatches = new int[count];
+        if (this.type == Type.LEFT) {
+            for (int row = 0; row < leftRows; row++) {
+                if (matches[row] == 0) {
+                    leftMatches[offsets[row]] = row;
+                    rightMatches[offsets[row]] = -1;
+                }
+            }
+        }
+        for (int i = 0; i < found; i++) {
+            int position = offsets[probeLeft[i]]++;
+            leftMatches[position] = probeLeft[i];
+            rightMatches[position] = probeRight[i];
+        }
+        return new int[][] {leftMatches, rightMatches, {count}};
+    }
+
+    /**
+     * Copies the rows of a column matched by the join into a new column of the same layout.
+     *
+     * @param column the column to copy
+     * @param rows   the row of each pair, or {@code -1} for a missing row
+     * @param count  the number of pairs
+     * @return the new column
+     */
+    private static Column gather(Column column, int[] rows, int count) {
+        ColumnStorage storage = column.getStorage();
+        if (storage == null) {
+            Column empty = new Column(column.getName());
+            for (int i = 0; i < count; i++) {
+                empty.addRow(null);
+            }
+            return empty;
+        }
+        return new Column(column.getName(), storage.gather(rows, count));
+    }
+
+    /**
+     * The rows of the indexed table, chained by key.
+     * <p>
+     * The keys are found through an open-addressing table of their codes. Each key leads to its first row, and each
+     * row to the next row with the same key. Missing keys are left out.
+     * </p>
+     */
+    private static final class KeyIndex {
+
+        private final long[] slotCodes;
+        private final int[] slotHeads;
+        private final int mask;
+        private final int[] next;
+
+        /**
+         * Indexes the rows of a table by their key.
+         *
+         * @param keys the keys of the table
+         * @param rows the number of rows of the table
+         */
+        KeyIndex(KeyEncoder.Keys keys, int rows) {
+            int capacity = Integer.highestOneBit(Math.max(rows, 8) * 2 - 1) << 1;
+            this.slotCodes = new long[capacity];
+            this.slotHeads = new int[capacity];
+            Arrays.fill(this.slotHeads, -1);
+            this.mask = capacity - 1;
+            this.next = new int[rows];
+
+            // Rows are chained from the last one, so each chain lists its rows in order
+            for (int row = rows - 1; row >= 0; row--) {
+                if (keys.nulls()[row]) {
+                    this.next[row] = -1;
+                    continue;
+                }
+                int slot = this.slot(keys.codes()[row]);
+                this.slotCodes[slot] = keys.codes()[row];
+                this.next[row] = this.slotHeads[slot];
+                this.slotHeads[slot] = row;
+            }
+        }
+
+        /**
+         * Finds the slot of a key: the one holding it, or the empty one it would be stored in.
+         *
+         * @param code the code of the key
+         * @return the position of the slot
+         */
+        private int slot(long code) {
+            long hash = code * 0x9E3779B97F4A7C15L;
+            int slot = (int) (hash ^ (hash >>> 32)) & this.mask;
+            while (this.slotHeads[slot] >= 0 && this.slotCodes[slot] != code) {
+                slot = (slot + 1) & this.mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Finds the first indexed row with the key of a row of the other table.
+         *
+         * @param keys the keys of the other table
+         * @param row  the row of the other table
+         * @return the first matching row, or {@code -1} if there is none
+         */
+        int first(KeyEncoder.Keys keys, int row) {
+            return keys.nulls()[row] ? -1 : this.slotHeads[this.slot(keys.codes()[row])];
+        }
+
+        /**
+         * Finds the next indexed row with the same key as a matching row.
+         *
+         * @param row the matching row
+         * @return the next matching row, or {@code -1} if there is none
+         */
+        int next(int row) {
+            return this.next[row];
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package pt.up.fe.els2024.engine;
+
+/**
+ * {@code HyperLogLog} estimates the number of distinct values it was given, in a fixed amount of memory.
+ * <p>
+ * Each value is added by its 64-bit hash: the first {@link #PRECISION} bits choose one of the registers, and the
+ * register keeps the longest run of leading zeros seen in the remaining bits. With {@code 2^14} registers of one
+ * byte each, the estimate has a standard error of about 0.8%, whatever the number of values. Small cardinalities
+ * are estimated by linear counting of the empty registers instead, which is exact in practice.
+ * </p>
+ * <p>
+ * Two sketches merge by keeping the larger of each pair of registers, which gives the sketch of the union of their
+ * values. Merging is commutative, so sketches of files or chunks can be merged in any order.
+ * </p>
+ */
+public class HyperLogLog {
+
+    /** The number of bits of the hash choosing the register. */
+    public static final int PRECISION = 14;
+
+    /** The number of registers. */
+    private static final int REGISTERS = 1 << PRECISION;
+
+    /** The bias correction of the raw estimate for this number of registers. */
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final byte[] registers = new byte[REGISTERS];
+
+    /**
+     * Adds a value by its hash.
+     *
+     * @param hash the 64-bit hash of the value, such as given by {@link #hash(long)} or {@link #hash(CharSequence)}
+     */
+    public void add(long hash) {
+        int register = (int) (hash >>> (Long.SIZE - PRECISION));
+        // The sentinel bit bounds the run of zeros when the remaining bits are all zero
+        long remaining = (hash << PRECISION) | (1L << (PRECISION - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > this.registers[register]) {
+            this.registers[register] = rank;
+        }
+    }
+
+    /**
+     * Adds the values of another sketch to this one.
+     *
+     * @param other the sketch to merge
+     */
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > this.registers[i]) {
+                this.registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Estimates the number of distinct values added.
+     *
+     * @return the estimated cardinality
+     */
+    public long estimate() {
+        double sum = 0;
+        int empty = 0;
+        for (byte register : this.registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                empty++;
+            }
+        }
+
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && empty > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / empty);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Mixes the bits of a 64-bit value into a hash, with the finalizer of MurmurHash3.
+     *
+     * @param value the value to hash
+     * @return the hash of the value
+     */
+    public static long hash(long value) {
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Computes a 64-bit hash of a text, with FNV-1a over its characters followed by {@link #hash(long)}.
+     *
+     * @param text the text to hash
+     * @return the hash of the text
+     */
+    public static long hash(CharSequence text) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return HyperLogLog.hash(hash);
+    }
+}
@@ -0,0 +1,117 @@
+package pt.up.fe.els2024.engine;
+
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.storage.ColumnStorage;
+import pt.up.fe.els2024.storage.DictionaryStorage;
+import pt.up.fe.els2024.storage.NumericStorage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code KeyEncoder} encodes key columns into {@code long} codes that are equal for equal keys, for the operators
+ * that match rows by key: {@link GroupAggregator} and {@link HashJoin}.
+ * <p>
+ * Keys are compared as {@link RowFilter} compares values: numbers, and strings that are numbers, by their
+ * {@code double} value, with zero and negative zero being the same key, and any other value by equality. The code
+ * of a number is the bits of its value. The other values are numbered densely, in the order the encoder first
+ * meets them, and their codes are bit patterns of negative NaNs, which {@link Double#doubleToLongBits(double)}
+ * never returns, so they don't collide with the codes of numbers.
+ * </p>
+ * <p>
+ * The numbering is kept by the encoder, so the columns encoded by the same encoder give equal codes to equal keys,
+ * even when their layouts differ.
+ * </p>
+ */
+final class KeyEncoder {
+
+    /** The first code of the keys that are not numbers, a negative NaN. */
+    private static final long OTHER_CODES = 0xFFF8_0000_0000_0000L;
+
+    /** The numbers of the keys that are not numbers, in the order they were met. */
+    private final Map<Object, Long> others = new HashMap<>();
+
+    /**
+     * The first rows of a key column, encoded one code per row.
+     *
+     * @param codes the code of each row, meaningless for missing rows
+     * @param nulls whether each row is missing
+     */
+    record Keys(long[] codes, boolean[] nulls) {}
+
+    /**
+     * Encodes the first rows of a key column. Rows past the end of the column are missing.
+     *
+     * @param column the key column
+     * @param rows   the number of rows to encode
+     * @return the encoded rows
+     */
+    Keys encode(Column column, int rows) {
+        long[] codes = new long[rows];
+        boolean[] nulls = new boolean[rows];
+        ColumnStorage storage = column.getStorage();
+        int size = Math.min(rows, column.size());
+        Arrays.fill(nulls, size, rows, true);
+
+        switch (storage) {
+            case DictionaryStorage dictionaryStorage -> {
+                // Encode each distinct string once, then spread it to the rows through their codes
+                long[] entryCodes = new long[dictionaryStorage.getDictionarySize()];
+                for (int code = 0; code < entryCodes.length; code++) {
+                    entryCodes[code] = dictionaryStorage.isNumberEntry(code)
+                            ? KeyEncoder.numberCode(dictionaryStorage.getEntryDouble(code))
+                            : this.otherCode(dictionaryStorage.decode(code));
+                }
+                for (int i = 0; i < size; i++) {
+                    codes[i] = entryCodes[dictionaryStorage.getCode(i)];
+                }
+            }
+            case NumericStorage numericStorage -> {
+                for (int i = 0; i < size; i++) {
+                    codes[i] = KeyEncoder.numberCode(numericStorage.getDouble(i));
+                }
+            }
+            case null -> { }
+            default -> {
+                for (int i = 0; i < size; i++) {
+                    Object value = storage.get(i);
+                    if (value instanceof Number number) {
+                        codes[i] = KeyEncoder.numberCode(number.doubleValue());
+                    } else if (value instanceof String string && DictionaryStorage.isDecimal(string)) {
+                        codes[i] = KeyEncoder.numberCode(Double.parseDouble(string));
+                    } else if (value != null) {
+                        codes[i] = this.otherCode(value);
+                    }
+                }
+            }
+        }
+
+        if (storage != null && storage.hasNulls()) {
+            for (int i = 0; i < size; i++) {
+                nulls[i] = storage.isNull(i);
+            }
+        }
+        return new Keys(codes, nulls);
+    }
+
+    /**
+     * Computes the code of a numeric key, so that zero and negative zero are the same key.
+     *
+     * @param value the value of the key
+     * @return the code of the key
+     */
+    static long numberCode(double value) {
+        return Double.doubleToLongBits(value == 0.0 ? 0.0 : value);
+    }
+
+    /**
+     * Computes the code of a key that is not a number, numbering it if the encoder meets it for the first time.
+     *
+     * @param value the value of the key
+     * @return the code of the key
+     */
+    private long otherCode(Object value) {
+        return this.others.computeIfAbsent(value, ignored -> OTHER_CODES + this.others.size());
+    }
+}
@@ -0,0 +1,385 @@
+package pt.up.fe.els2024.engine;
+
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.storage.ColumnStorage;
+import pt.up.fe.els2024.storage.DictionaryStorage;
+import pt.up.fe.els2024.storage.NumericStorage;
+import pt.up.fe.els2024.utils.PathExpression;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@code RowFilter} is the condition of a {@code WHERE} clause, which selects the rows of a table.
+ * <p>
+ * A filter is evaluated over whole columns at a time, producing a selection bitmap with one bit per row of the
+ * table. Conditions on a column read its typed storage directly: numbers are compared without boxing, and the
+ * condition on a string column is decided once per distinct string of its dictionary, then spread to the rows
+ * through their codes. {@code AND} and {@code OR} combine the bitmaps of their operands.
+ * </p>
+ * <p>
+ * Numeric literals match numbers and strings that are numbers, compared by value. String literals match the text
+ * of the rows, compared lexicographically. Missing values, and rows of columns the table doesn't have, never match.
+ * </p>
+ */
+public sealed interface RowFilter permits RowFilter.And, RowFilter.Or, RowFilter.ValueTest {
+
+    /** The operators of a comparison. */
+    enum Operator {
+        EQ, NE, LT, LE, GT, GE, CONTAINS, STARTS_WITH, ENDS_WITH;
+
+        /**
+         * Checks whether the operator only applies to the text of the values.
+         *
+         * @return {@code true} for {@code CONTAINS}, {@code STARTS WITH} and {@code ENDS WITH}
+         */
+        public boolean isTextual() {
+            return this == CONTAINS || this == STARTS_WITH || this == ENDS_WITH;
+        }
+    }
+
+    /**
+     * Evaluates the filter over a table.
+     *
+     * @param table the table to evaluate
+     * @return the rows of the table that satisfy the filter
+     */
+    BitSet evaluate(Table table);
+
+    /**
+     * Retrieves the columns read by the filter.
+     *
+     * @return the names of the columns, in the order they appear in the filter
+     */
+    Set<String> getColumns();
+
+    /**
+     * Keeps only the rows of a table that satisfy the filter, replacing its columns.
+     *
+     * @param table the table to filter
+     * @return {@code true} if some row of the table satisfies the filter
+     */
+    default boolean filter(Table table) {
+        BitSet rows = this.evaluate(table);
+        int size = RowFilter.rowCount(table);
+        if (rows.cardinality() == size) {
+            return size > 0;
+        }
+
+        List<Column> columns = new ArrayList<>(table.getColumns().size());
+        for (Column column : table.getColumns()) {
+            ColumnStorage storage = column.getStorage();
+            columns.add(storage == null ? column : new Column(column.getName(), storage.select(rows)));
+        }
+        table.setColumns(columns);
+        return !rows.isEmpty();
+    }
+
+    /**
+     * Keeps only the rows that satisfy the filter in every table a path leads to from a table.
+     *
+     * @param table the table to start from
+     * @param path  the path to the tables to filter
+     */
+    default void filter(Table table, PathExpression path) {
+        List<Table> tables = path.resolve(table);
+        if (tables != null) {
+            for (Table selected : tables) {
+                this.filter(selected);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of rows of a table, which is the size of its longest column.
+     *
+     * @param table the table
+     * @return the number of rows of the table
+     */
+    static int rowCount(Table table) {
+        int size = 0;
+        for (Column column : table.getColumns()) {
+            size = Math.max(size, column.size());
+        }
+        return size;
+    }
+
+    /**
+     * The rows that satisfy both operands.
+     *
+     * @param left  the first operand
+     * @param right the second operand, only evaluated if some row satisfies the first one
+     */
+    record And(RowFilter left, RowFilter right) implements RowFilter {
+
+        @Override
+        public BitSet evaluate(Table table) {
+            BitSet rows = this.left.evaluate(table);
+            if (!rows.isEmpty()) {
+                rows.and(this.right.evaluate(table));
+            }
+            return rows;
+        }
+
+        @Override
+        public Set<String> getColumns() {
+            Set<String> columns = new LinkedHashSet<>(this.left.getColumns());
+            columns.addAll(this.right.getColumns());
+            return columns;
+        }
+    }
+
+    /**
+     * The rows that satisfy either operand.
+     *
+     * @param left  the first operand
+     * @param right the second operand
+     */
+    record Or(RowFilter left, RowFilter right) implements RowFilter {
+
+        @Override
+        public BitSet evaluate(Table table) {
+            BitSet rows = this.left.evaluate(table);
+            rows.or(this.right.evaluate(table));
+            return rows;
+        }
+
+        @Override
+        public Set<String> getColumns() {
+            Set<String> columns = new LinkedHashSet<>(this.left.getColumns());
+            columns.addAll(this.right.getColumns());
+            return columns;
+        }
+    }
+
+    /**
+     * The rows whose value in a column compares to a literal with an operator.
+     * The literal of a textual operator is always compared as a string.
+     *
+     * @param column   the name of the column
+     * @param operator the operator
+     * @param value    the literal, a {@link Number} or a {@link String}
+     */
+    record Comparison(String column, Operator operator, Object value) implements ValueTest {
+
+        /**
+         * Normalizes the literal: numbers are compared as {@code double}, and textual operators compare strings.
+         */
+        public Comparison {
+            if (operator.isTextual() && !(value instanceof String)) {
+                value = String.valueOf(value);
+            } else if (value instanceof Number number) {
+                value = number.doubleValue();
+            }
+        }
+
+        @Override
+        public boolean hasNumbers() {
+            return this.value instanceof Double;
+        }
+
+        @Override
+        public boolean hasTexts() {
+            return this.value instanceof String;
+        }
+
+        @Override
+        public boolean matchesNumber(double number) {
+            double literal = (Double) this.value;
+            return switch (this.operator) {
+                case EQ -> number == literal;
+                case NE -> number != literal;
+                case LT -> number < literal;
+                case LE -> number <= literal;
+                case GT -> number > literal;
+                case GE -> number >= literal;
+                case CONTAINS, STARTS_WITH, ENDS_WITH -> false;
+            };
+        }
+
+        @Override
+        public boolean matchesText(String text) {
+            String literal = (String) this.value;
+            return switch (this.operator) {
+                case EQ -> text.equals(literal);
+                case NE -> !text.equals(literal);
+                case LT -> text.compareTo(literal) < 0;
+                case LE -> text.compareTo(literal) <= 0;
+                case GT -> text.compareTo(literal) > 0;
+                case GE -> text.compareTo(literal) >= 0;
+                case CONTAINS -> text.contains(literal);
+                case STARTS_WITH -> text.startsWith(literal);
+                case ENDS_WITH -> text.endsWith(literal);
+            };
+        }
+    }
+
+    /**
+     * The rows whose value in a column is equal to one of a list of literals.
+     *
+     * @param column the name of the column
+     * @param values the literals, each a {@link Number} or a {@link String}
+     */
+    record Membership(String column, List<Object> values) implements ValueTest {
+
+        /**
+         * Copies the literals, keeping numbers as {@code double}.
+         */
+        public Membership {
+            List<Object> literals = new ArrayList<>(values.size());
+            for (Object value : values) {
+                literals.add(value instanceof Number number ? (Object) number.doubleValue() : value);
+            }
+            values = List.copyOf(literals);
+        }
+
+        @Override
+        public boolean hasNumbers() {
+            return this.values.stream().anyMatch(Double.class::isInstance);
+        }
+
+        @Override
+        public boolean hasTexts() {
+            return this.values.stream().anyMatch(String.class::isInstance);
+        }
+
+        @Override
+        public boolean matchesNumber(double number) {
+            for (Object value : this.values) {
+                if (value instanceof Double literal && number == literal) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean matchesText(String text) {
+            return this.values.contains(text);
+        }
+    }
+
+    /**
+     * A condition on the values of a single column, decided value by value.
+     */
+    sealed interface ValueTest extends RowFilter permits Comparison, Membership {
+
+        /**
+         * Retrieves the column the condition applies to.
+         *
+         * @return the name of the column
+         */
+        String column();
+
+        /**
+         * Checks whether the condition has numeric literals, which numbers are compared to.
+         *
+         * @return {@code true} if numbers can match
+         */
+        boolean hasNumbers();
+
+        /**
+         * Checks whether the condition has string literals, which the text of the values is compared to.
+         *
+         * @return {@code true} if text can match
+         */
+        boolean hasTexts();
+
+        /**
+         * Checks whether a number satisfies the numeric literals of the condition.
+         *
+         * @param number the number
+         * @return {@code true} if the number matches
+         */
+        boolean matchesNumber(double number);
+
+        /**
+         * Checks whether a text satisfies the string literals of the condition.
+         *
+         * @param text the text
+         * @return {@code true} if the text matches
+         */
+        boolean matchesText(String text);
+
+        @Override
+        default Set<String> getColumns() {
+            return Set.of(this.column());
+        }
+
+        @Override
+        default BitSet evaluate(Table table) {
+            Column column = table.getColumn(this.column());
+            ColumnStorage storage = column == null ? null : column.getStorage();
+            if (storage == null || storage.size() == 0) {
+                return new BitSet();
+            }
+
+            int size = storage.size();
+            long[] words = new long[(size + 63) >>> 6];
+
+            if (storage instanceof NumericStorage numericStorage && !this.hasTexts()) {
+                for (int i = 0; i < size; i++) {
+                    if (this.matchesNumber(numericStorage.getDouble(i))) {
+                        words[i >>> 6] |= 1L << i;
+                    }
+                }
+            } else if (storage instanceof DictionaryStorage dictionaryStorage) {
+                // Decide each distinct string once, then look the rows up by their code
+                boolean[] matches = new boolean[dictionaryStorage.getDictionarySize()];
+                boolean texts = this.hasTexts();
+                boolean numbers = this.hasNumbers();
+                for (int code = 0; code < matches.length; code++) {
+                    matches[code] = texts && this.matchesText(dictionaryStorage.decode(code))
+                            || numbers && dictionaryStorage.isNumberEntry(code)
+                                       && this.matchesNumber(dictionaryStorage.getEntryDouble(code));
+                }
+                for (int i = 0; i < size; i++) {
+                    if (matches[dictionaryStorage.getCode(i)]) {
+                        words[i >>> 6] |= 1L << i;
+                    }
+                }
+            } else {
+                boolean texts = this.hasTexts();
+                boolean numbers = this.hasNumbers();
+                for (int i = 0; i < size; i++) {
+                    if (this.matches(storage.get(i), numbers, texts)) {
+                        words[i >>> 6] |= 1L << i;
+                    }
+                }
+            }
+
+            BitSet rows = BitSet.valueOf(words);
+            if (storage.hasNulls()) {
+                for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+                    if (storage.isNull(i)) {
+                        rows.clear(i);
+                    }
+                }
+            }
+            return rows;
+        }
+
+        /**
+         * Checks whether a boxed value satisfies the condition.
+         *
+         * @param value   the value
+         * @param numbers whether the condition has numeric literals
+         * @param texts   whether the condition has string literals
+         * @return {@code true} if the value matches
+         */
+        private boolean matches(Object value, boolean numbers, boolean texts) {
+            return switch (value) {
+                case Number number -> numbers && this.matchesNumber(number.doubleValue())
+                        || texts && this.matchesText(number.toString());
+                case String text -> texts && this.matchesText(text)
+                        || numbers && DictionaryStorage.isDecimal(text) && this.matchesNumber(Double.parseDouble(text));
+                case Boolean bool -> texts && this.matchesText(bool.toString());
+                case null, default -> false;
+            };
+        }
+    }
+}
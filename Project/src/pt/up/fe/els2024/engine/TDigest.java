@@ -0,0 +1,203 @@
+package pt.up.fe.els2024.engine;
+
+import java.util.Arrays;
+
+/**
+ * {@code TDigest} estimates the percentiles of the numbers it was given, in a bounded amount of memory.
+ * <p>
+ * The numbers are summarized by centroids, each a mean and the number of values it stands for, kept sorted by
+ * mean. Centroids near the median may stand for many values, while those near the extremes stand for few, so the
+ * tails, such as the 99th percentile, stay accurate. New values are buffered and sorted, then merged with the
+ * centroids in one pass that joins neighbours while the {@code asin} scale function allows it, which keeps about
+ * {@link #COMPRESSION} centroids.
+ * </p>
+ * <p>
+ * Two digests merge by merging their centroids the same way. The result barely depends on the order of the merges,
+ * so digests of files or chunks merged in a fixed order always give the same estimates.
+ * </p>
+ */
+public class TDigest {
+
+    /** The compression of the digest, roughly the number of centroids kept. */
+    public static final double COMPRESSION = 100;
+
+    /** The number of values buffered before they are merged into the centroids. */
+    private static final int BUFFER_SIZE = 500;
+
+    /** The most centroids a merge can produce, since each pair of neighbours spans at least one unit of scale. */
+    private static final int MAX_CENTROIDS = (int) (2 * COMPRESSION) + 10;
+
+    private double[] means = new double[MAX_CENTROIDS];
+    private double[] weights = new double[MAX_CENTROIDS];
+    private int centroids;
+    private double totalWeight;
+
+    private final double[] buffer = new double[BUFFER_SIZE];
+    private int buffered;
+
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Adds a number to the digest. Numbers that are not finite are ignored.
+     *
+     * @param value the number to add
+     */
+    public void add(double value) {
+        if (!Double.isFinite(value)) {
+            return;
+        }
+        this.buffer[this.buffered++] = value;
+        this.min = Math.min(this.min, value);
+        this.max = Math.max(this.max, value);
+        if (this.buffered == BUFFER_SIZE) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Adds the numbers of another digest to this one.
+     *
+     * @param other the digest to merge
+     */
+    public void merge(TDigest other) {
+        other.flush();
+        this.flush();
+        if (other.centroids == 0) {
+            return;
+        }
+        this.compress(other.means, other.weights, other.centroids);
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+    }
+
+    /**
+     * Retrieves the number of values added.
+     *
+     * @return the number of values
+     */
+    public long size() {
+        return Math.round(this.totalWeight) + this.buffered;
+    }
+
+    /**
+     * Estimates a percentile of the values added.
+     *
+     * @param percentile the percentile, between {@code 0} and {@code 100}
+     * @return the estimated value at the percentile, or {@link Double#NaN} if no value was added
+     */
+    public double percentile(double percentile) {
+        this.flush();
+        if (this.centroids == 0) {
+            return Double.NaN;
+        }
+        if (this.centroids == 1) {
+            return this.means[0];
+        }
+
+        double target = Math.clamp(percentile / 100, 0, 1) * this.totalWeight;
+
+        // Each centroid sits at the middle of the weight it stands for; the extremes anchor both ends
+        double position = this.weights[0] / 2;
+        if (target < position) {
+            return this.interpolate(this.min, this.means[0], target / position);
+        }
+        for (int i = 0; i < this.centroids - 1; i++) {
+            double next = position + (this.weights[i] + this.weights[i + 1]) / 2;
+            if (target < next) {
+                return this.interpolate(this.means[i], this.means[i + 1], (target - position) / (next - position));
+            }
+            position = next;
+        }
+        double remaining = this.totalWeight - position;
+        return this.interpolate(this.means[this.centroids - 1], this.max,
+                                remaining == 0 ? 1 : (target - position) / remaining);
+    }
+
+    /**
+     * Interpolates linearly between two values.
+     *
+     * @param from     the value at fraction {@code 0}
+     * @param to       the value at fraction {@code 1}
+     * @param fraction the fraction of the way from the first value to the second
+     * @return the interpolated value
+     */
+    private double interpolate(double from, double to, double fraction) {
+        return from + (to - from) * Math.clamp(fraction, 0, 1);
+    }
+
+    /**
+     * Merges the buffered values into the centroids.
+     */
+    private void flush() {
+        if (this.buffered == 0) {
+            return;
+        }
+        Arrays.sort(this.buffer, 0, this.buffered);
+        double[] ones = new double[this.buffered];
+        Arrays.fill(ones, 1);
+        int count = this.buffered;
+        this.buffered = 0;
+        this.compress(this.buffer, ones, count);
+    }
+
+    /**
+     * Merges sorted centroids into the centroids of the digest, joining neighbours while the scale function allows.
+     *
+     * @param incomingMeans   the means of the incoming centroids, in increasing order
+     * @param incomingWeights the weights of the incoming centroids
+     * @param incoming        the number of incoming centroids
+     */
+    private void compress(double[] incomingMeans, double[] incomingWeights, int incoming) {
+        double total = this.totalWeight;
+        for (int i = 0; i < incoming; i++) {
+            total += incomingWeights[i];
+        }
+
+        double[] mergedMeans = new double[MAX_CENTROIDS];
+        double[] mergedWeights = new double[MAX_CENTROIDS];
+        int merged = -1;
+        double weightBefore = 0;
+        double scaleBefore = TDigest.scale(0);
+
+        // Walk both sorted lists in order of their means, as in the merge step of a merge sort
+        int current = 0;
+        int next = 0;
+        while (current < this.centroids || next < incoming) {
+            boolean fromCurrent = next >= incoming
+                    || current < this.centroids && this.means[current] <= incomingMeans[next];
+            double mean = fromCurrent ? this.means[current] : incomingMeans[next];
+            double weight = fromCurrent ? this.weights[current++] : incomingWeights[next++];
+
+            if (merged >= 0
+                    && TDigest.scale((weightBefore + mergedWeights[merged] + weight) / total) - scaleBefore <= 1) {
+                double joined = mergedWeights[merged] + weight;
+                mergedMeans[merged] += (mean - mergedMeans[merged]) * weight / joined;
+                mergedWeights[merged] = joined;
+            } else {
+                if (merged >= 0) {
+                    weightBefore += mergedWeights[merged];
+                    scaleBefore = TDigest.scale(weightBefore / total);
+                }
+                merged++;
+                mergedMeans[merged] = mean;
+                mergedWeights[merged] = weight;
+            }
+        }
+
+        this.means = mergedMeans;
+        this.weights = mergedWeights;
+        this.centroids = merged + 1;
+        this.totalWeight = total;
+    }
+
+    /**
+     * Maps a quantile to the scale that bounds the size of the centroids, {@code k(q) = δ / 2π · asin(2q - 1)}.
+     *
+     * @param quantile the quantile, between {@code 0} and {@code 1}
+     * @return the scale of the quantile
+     */
+    private static double scale(double quantile) {
+        return COMPRESSION / (2 * Math.PI) * Math.asin(Math.clamp(2 * quantile - 1, -1, 1));
+    }
+}
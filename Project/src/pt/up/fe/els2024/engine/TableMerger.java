@@ -0,0 +1,91 @@
+package pt.up.fe.els2024.engine;
+
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.storage.ColumnType;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code TableMerger} concatenates the rows of several tables into a single table.
+ * <p>
+ * The merge runs column by column: the union of the column names is computed once (in order of first
+ * appearance), each output column is allocated with room for every row, and each source column is copied
+ * into it in bulk. A table that lacks a column, or whose column is shorter than the table, contributes
+ * {@code null} cells, so every output column ends up with the same number of rows.
+ * </p>
+ * <p>
+ * The source tables are never modified and their columns are never shared with the result.
+ * </p>
+ */
+public class TableMerger {
+
+    /**
+     * Merges the rows of the given tables into a new table.
+     *
+     * @param name   the name of the resulting table
+     * @param tables the tables to merge, in the order their rows should appear
+     * @return a new {@link Table} with the union of the columns and the rows of every table
+     */
+    public static Table merge(String name, List<Table> tables) {
+
+        // Union schema, keeping the first appearance order and the layout shared by every source column
+        Map<String, ColumnType> schema = new LinkedHashMap<>();
+        int[] rowCounts = new int[tables.size()];
+        int totalRows = 0;
+
+        for (int i = 0; i < tables.size(); i++) {
+            for (Column column : tables.get(i).getColumns()) {
+                rowCounts[i] = Math.max(rowCounts[i], column.size());
+                if (column.size() == 0) {
+                    // Empty columns only contribute their name
+                    schema.putIfAbsent(column.getName(), null);
+                } else {
+                    schema.compute(column.getName(), (key, current) -> union(current, column.getType()));
+                }
+            }
+            totalRows += rowCounts[i];
+        }
+
+        // One allocation per output column, sized for every row
+        Table merged = new Table(name);
+        for (Map.Entry<String, ColumnType> entry : schema.entrySet()) {
+            ColumnType type = entry.getValue() == null ? ColumnType.OBJECT : entry.getValue();
+            merged.addColumn(new Column(entry.getKey(), type, totalRows));
+        }
+
+        // Bulk copy each source column, padding missing cells
+        for (int i = 0; i < tables.size(); i++) {
+            Table table = tables.get(i);
+            for (Column target : merged.getColumns()) {
+                Column source = table.getColumn(target.getName());
+                int copied = 0;
+                if (source != null) {
+                    target.addRows(source);
+                    copied = source.size();
+                }
+                for (; copied < rowCounts[i]; copied++) {
+                    target.addRow(null);
+                }
+            }
+        }
+
+        return merged;
+    }
+
+    /**
+     * Combines the layouts of two columns merged into the same output column.
+     *
+     * @param current the layout chosen so far, or {@code null} if no source column had rows yet
+     * @param next    the layout of the next source column
+     * @return the shared layout, or {@link ColumnType#OBJECT} if they differ
+     */
+    private static ColumnType union(ColumnType current, ColumnType next) {
+        if (current == null || current == next) {
+            return next;
+        }
+        return ColumnType.OBJECT;
+    }
+}
@@ -0,0 +1,569 @@
+package pt.up.fe.els2024.engine;
+
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.exception.OperationException;
+import pt.up.fe.els2024.storage.ColumnStorage;
+import pt.up.fe.els2024.storage.DictionaryStorage;
+import pt.up.fe.els2024.storage.NumericStorage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * {@code TableSorter} orders the rows of a table by the values of some key columns.
+ * <p>
+ * The rows are never moved while sorting: a stable merge sort orders a permutation of row numbers, comparing the
+ * typed values of the key columns, and every column is then copied once through the permutation. Strings of a
+ * dictionary column are ranked once per distinct string, so rows compare their ranks instead of their text.
+ * </p>
+ * <p>
+ * When the keys of the rows outgrow the memory budget, the rows are sorted in runs that fit in it. Each sorted run
+ * is written to a temporary file with the keys of its rows, and the runs are then merged, reading one record of
+ * each run at a time, into the final permutation.
+ * </p>
+ * <p>
+ * Numbers, and strings that are numbers, are compared by value and come before other strings, which are compared
+ * lexicographically. Missing values come last, in either direction. Rows with equal keys keep their order, and the
+ * summary rows of the table stay at its end.
+ * </p>
+ */
+public class TableSorter {
+
+    /** The default memory budget of the keys being sorted, in bytes. */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+
+    /** The fewest rows of a sorted run, whatever the budget. */
+    private static final int MIN_RUN_ROWS = 1024;
+
+    /** The kind of a numeric value, which comes first. */
+    private static final byte NUMBER = 0;
+
+    /** The kind of a textual value. */
+    private static final byte TEXT = 1;
+
+    /** The kind of a missing value, which comes last. */
+    private static final byte MISSING = 2;
+
+    /**
+     * A column to sort by.
+     *
+     * @param column     the name of the column
+     * @param descending whether larger values come first
+     */
+    public record SortKey(String column, boolean descending) {}
+
+    private final List<SortKey> keys;
+    private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+
+    /** The number of sorted runs written to disk by the last sort. */
+    private int spilledRuns;
+
+    /**
+     * Constructs a sorter by the given columns, the first one deciding first.
+     *
+     * @param keys the columns to sort by
+     */
+    public TableSorter(List<SortKey> keys) {
+        this.keys = List.copyOf(keys);
+    }
+
+    /**
+     * Sets the memory the keys of the rows can take before they are sorted in runs spilled to disk.
+     *
+     * @param memoryBudget the budget, in bytes
+     * @return the current instance of {@code TableSorter}
+     */
+    public TableSorter withMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        return this;
+    }
+
+    /**
+     * Retrieves the number of sorted runs written to disk by the last sort.
+     *
+     * @return the number of runs, or {@code 0} if the last sort fitted in memory
+     */
+    public int getSpilledRuns() {
+        return this.spilledRuns;
+    }
+
+    /**
+     * Sorts the rows of a table, leaving the rows after the given ones in place.
+     *
+     * @param table the table to sort
+     * @param rows  the number of rows to sort, from the first one
+     * @return a new table, named after the given one, with the rows in order
+     * @throws OperationException if a key column is missing or the runs can't be spilled
+     */
+    public Table sort(Table table, int rows) throws OperationException {
+        if (this.keys.isEmpty()) {
+            throw new OperationException("Order by needs at least one column");
+        }
+
+        KeyColumn[] columns = new KeyColumn[this.keys.size()];
+        for (int i = 0; i < columns.length; i++) {
+            SortKey key = this.keys.get(i);
+            Column column = table.getColumn(key.column());
+            if (column == null) {
+                throw new OperationException("Column " + key.column() + " does not exist");
+            }
+            columns[i] = new KeyColumn(column.getStorage(), key.descending());
+        }
+
+        int size = RowFilter.rowCount(table);
+        long bytesPerRow = 2L * Integer.BYTES + (long) columns.length * (1 + Double.BYTES + Integer.BYTES + 8);
+        int runRows = (int) Math.max(MIN_RUN_ROWS, Math.min(Integer.MAX_VALUE, this.memoryBudget / bytesPerRow));
+
+        int[] permutation = new int[size];
+        this.spilledRuns = 0;
+        if (rows <= runRows) {
+            int[] sorted = TableSorter.sortRun(columns, TableSorter.readRun(columns, 0, rows), rows);
+            System.arraycopy(sorted, 0, permutation, 0, rows);
+        } else {
+            this.sortExternally(columns, rows, runRows, permutation);
+        }
+        for (int row = rows; row < size; row++) {
+            permutation[row] = row;
+        }
+
+        Table result = new Table(table.getName());
+        for (Column column : table.getColumns()) {
+            ColumnStorage storage = column.getStorage();
+            result.addColumn(storage == null
+                    ? new Column(column.getName())
+                    : new Column(column.getName(), storage.gather(permutation, size)));
+        }
+        result.addSummaryRows(table.getSummaryRows());
+        return result;
+    }
+
+    /**
+     * Sorts the rows in runs spilled to temporary files, then merges the runs into the permutation.
+     *
+     * @param columns     the key columns
+     * @param rows        the number of rows to sort
+     * @param runRows     the number of rows of each run
+     * @param permutation the array receiving the sorted rows
+     * @throws OperationException if the runs can't be written or read
+     */
+    private void sortExternally(KeyColumn[] columns, int rows, int runRows, int[] permutation)
+            throws OperationException {
+        Path directory = null;
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            directory = Files.createTempDirectory("preql-sort");
+            for (int from = 0; from < rows; from += runRows) {
+                int to = Math.min(rows, from + runRows);
+                Path file = directory.resolve("run-" + this.spilledRuns++);
+                KeyValues[] values = TableSorter.readRun(columns, from, to);
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+                    for (int row : TableSorter.sortRun(columns, values, to - from)) {
+                        TableSorter.writeRecord(out, values, row, from + row);
+                    }
+                }
+            }
+
+            // Runs hold consecutive rows, so ties go to the earlier run to keep the sort stable
+            PriorityQueue<RunReader> queue = new PriorityQueue<>((a, b) -> {
+                int order = TableSorter.compareRecords(columns, a, b);
+                return order != 0 ? order : Integer.compare(a.run, b.run);
+            });
+            for (int run = 0; run < this.spilledRuns; run++) {
+                RunReader reader = new RunReader(directory.resolve("run-" + run), run, columns.length);
+                readers.add(reader);
+                if (reader.next(columns)) {
+                    queue.add(reader);
+                }
+            }
+
+            int position = 0;
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                permutation[position++] = reader.row;
+                if (reader.next(columns)) {
+                    queue.add(reader);
+                }
+            }
+        } catch (IOException e) {
+            throw new OperationException("Order by failed to spill to disk: " + e.getMessage());
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+            if (directory != null) {
+                TableSorter.deleteDirectory(directory);
+            }
+        }
+    }
+
+    /**
+     * Reads the keys of a range of rows.
+     *
+     * @param columns the key columns
+     * @param from    the first row of the range
+     * @param to      the row after the last one of the range
+     * @return the keys of the rows, one per key column
+     */
+    private static KeyValues[] readRun(KeyColumn[] columns, int from, int to) {
+        KeyValues[] values = new KeyValues[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i].read(from, to);
+        }
+        return values;
+    }
+
+    /**
+     * Sorts the rows of a range in memory with a stable merge sort over their positions.
+     *
+     * @param columns the key columns
+     * @param values  the keys of the rows of the range
+     * @param length  the number of rows of the range
+     * @return the positions of the rows in the range, in order
+     */
+    private static int[] sortRun(KeyColumn[] columns, KeyValues[] values, int length) {
+        int[] rows = new int[length];
+        for (int i = 0; i < length; i++) {
+            rows[i] = i;
+        }
+        int[] buffer = new int[length];
+
+        // Bottom-up merge sort, switching between the two arrays at each width
+        for (int width = 1; width < length; width *= 2) {
+            for (int low = 0; low < length; low += 2 * width) {
+                int middle = Math.min(low + width, length);
+                int high = Math.min(low + 2 * width, length);
+                int left = low;
+                int right = middle;
+                for (int i = low; i < high; i++) {
+                    if (left < middle && (right >= high
+                            || TableSorter.compareRows(columns, values, rows[left], rows[right]) <= 0)) {
+                        buffer[i] = rows[left++];
+                    } else {
+                        buffer[i] = rows[right++];
+                    }
+                }
+            }
+            int[] swap = rows;
+            rows = buffer;
+            buffer = swap;
+        }
+        return rows;
+    }
+
+    /**
+     * Compares two rows of a range by the key columns.
+     *
+     * @param columns the key columns
+     * @param values  the keys of the rows of the range
+     * @param a       the position of the first row in the range
+     * @param b       the position of the second row in the range
+     * @return a negative number, zero or a positive number as the first row comes before, with or after the second
+     */
+    private static int compareRows(KeyColumn[] columns, KeyValues[] values, int a, int b) {
+        for (int i = 0; i < columns.length; i++) {
+            KeyValues keys = values[i];
+            int order = TableSorter.compare(columns[i].descending,
+                    keys.kinds()[a], keys.numbers()[a], keys.ranks()[a], keys.text(a),
+                    keys.kinds()[b], keys.numbers()[b], keys.ranks()[b], keys.text(b));
+            if (order != 0) {
+                return order;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Compares the current records of two runs by the key columns.
+     *
+     * @param columns the key columns
+     * @param a       the first run
+     * @param b       the second run
+     * @return a negative number, zero or a positive number as the first record comes before, with or after the second
+     */
+    private static int compareRecords(KeyColumn[] columns, RunReader a, RunReader b) {
+        for (int i = 0; i < columns.length; i++) {
+            int order = TableSorter.compare(columns[i].descending, a.kinds[i], a.numbers[i], a.ranks[i], a.texts[i],
+                                            b.kinds[i], b.numbers[i], b.ranks[i], b.texts[i]);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Compares two key values. Texts are compared by rank when both have one, and by their text otherwise.
+     *
+     * @param descending whether larger values come first
+     * @param kindA      the kind of the first value
+     * @param numberA    the number of the first value, if it is numeric
+     * @param rankA      the rank of the first value in its dictionary, or {@code -1}
+     * @param textA      the text of the first value, if it is textual and has no rank
+     * @param kindB      the kind of the second value
+     * @param numberB    the number of the second value, if it is numeric
+     * @param rankB      the rank of the second value in its dictionary, or {@code -1}
+     * @param textB      the text of the second value, if it is textual and has no rank
+     * @return a negative number, zero or a positive number as the first value comes before, with or after the second
+     */
+    private static int compare(boolean descending, byte kindA, double numberA, int rankA, String textA,
+                               byte kindB, double numberB, int rankB, String textB) {
+        if (kindA != kindB) {
+            // Missing values stay last in either direction
+            if (kindA == MISSING || kindB == MISSING) {
+                return kindA == MISSING ? 1 : -1;
+            }
+            return descending ? Byte.compare(kindB, kindA) : Byte.compare(kindA, kindB);
+        }
+        int order = switch (kindA) {
+            case NUMBER -> Double.compare(numberA, numberB);
+            case TEXT -> rankA >= 0 && rankB >= 0 ? Integer.compare(rankA, rankB) : textA.compareTo(textB);
+            default -> 0;
+        };
+        return descending ? -order : order;
+    }
+
+    /**
+     * Writes the keys of a row to a run, followed by the row.
+     *
+     * @param out      the run to write to
+     * @param values   the keys of the rows of the run
+     * @param position the position of the row in the run
+     * @param row      the row
+     * @throws IOException if the run can't be written
+     */
+    private static void writeRecord(DataOutputStream out, KeyValues[] values, int position, int row)
+            throws IOException {
+        for (KeyValues keys : values) {
+            byte kind = keys.kinds()[position];
+            out.writeByte(kind);
+            if (kind == NUMBER) {
+                out.writeDouble(keys.numbers()[position]);
+            } else if (kind == TEXT) {
+                int rank = keys.ranks()[position];
+                out.writeInt(rank);
+                if (rank < 0) {
+                    byte[] text = keys.text(position).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(text.length);
+                    out.write(text);
+                }
+            }
+        }
+        out.writeInt(row);
+    }
+
+    /**
+     * Deletes a directory of runs, ignoring the files that can't be deleted.
+     *
+     * @param directory the directory to delete
+     */
+    private static void deleteDirectory(Path directory) {
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            // Temporary files are only left behind
+        }
+    }
+
+    /**
+     * The values of a key column, read through its typed storage.
+     */
+    private static final class KeyColumn {
+
+        private final ColumnStorage storage;
+        private final boolean descending;
+
+        /** The rank of each dictionary entry among the textual entries, or {@code null} for other storages. */
+        private final int[] ranks;
+
+        /**
+         * Prepares a key column, ranking the textual entries of its dictionary.
+         *
+         * @param storage    the storage of the column, or {@code null} if it has no rows
+         * @param descending whether larger values come first
+         */
+        KeyColumn(ColumnStorage storage, boolean descending) {
+            this.storage = storage;
+            this.descending = descending;
+
+            if (storage instanceof DictionaryStorage dictionaryStorage) {
+                int entries = dictionaryStorage.getDictionarySize();
+                Integer[] order = new Integer[entries];
+                for (int code = 0; code < entries; code++) {
+                    order[code] = code;
+                }
+                Arrays.sort(order, (a, b) -> dictionaryStorage.decode(a).compareTo(dictionaryStorage.decode(b)));
+                this.ranks = new int[entries];
+                for (int rank = 0; rank < entries; rank++) {
+                    this.ranks[order[rank]] = rank;
+                }
+            } else {
+                this.ranks = null;
+            }
+        }
+
+        /**
+         * Reads the keys of a range of rows.
+         *
+         * @param from the first row of the range
+         * @param to   the row after the last one of the range
+         * @return the keys of the rows
+         */
+        KeyValues read(int from, int to) {
+            int length = to - from;
+            byte[] kinds = new byte[length];
+            double[] numbers = new double[length];
+            int[] ranks = new int[length];
+            String[] texts = this.ranks == null ? new String[length] : null;
+            Arrays.fill(ranks, -1);
+            Arrays.fill(kinds, MISSING);
+            int end = this.storage == null ? from : Math.min(to, this.storage.size());
+
+            for (int row = from; row < end; row++) {
+                int i = row - from;
+                if (this.storage.isNull(row)) {
+                    continue;
+                }
+                switch (this.storage) {
+                    case NumericStorage numericStorage -> {
+                        kinds[i] = NUMBER;
+                        numbers[i] = numericStorage.getDouble(row);
+                    }
+                    case DictionaryStorage dictionaryStorage -> {
+                        int code = dictionaryStorage.getCode(row);
+                        if (dictionaryStorage.isNumberEntry(code)) {
+                            kinds[i] = NUMBER;
+                            numbers[i] = dictionaryStorage.getEntryDouble(code);
+                        } else {
+                            kinds[i] = TEXT;
+                            ranks[i] = this.ranks[code];
+                        }
+                    }
+                    default -> {
+                        Object value = this.storage.get(row);
+                        if (value instanceof Number number) {
+                            kinds[i] = NUMBER;
+                            numbers[i] = number.doubleValue();
+                        } else if (value instanceof String string && DictionaryStorage.isDecimal(string)) {
+                            kinds[i] = NUMBER;
+                            numbers[i] = Double.parseDouble(string);
+                        } else {
+                            kinds[i] = TEXT;
+                            texts[i] = String.valueOf(value);
+                        }
+                    }
+                }
+            }
+            return new KeyValues(kinds, numbers, ranks, texts);
+        }
+    }
+
+    /**
+     * The keys of a range of rows of a key column.
+     *
+     * @param kinds   whether each row is a number, a text or missing
+     * @param numbers the value of each numeric row
+     * @param ranks   the rank of each textual row in its dictionary, or {@code -1}
+     * @param texts   the text of each textual row, or {@code null} if the column has a dictionary
+     */
+    private record KeyValues(byte[] kinds, double[] numbers, int[] ranks, String[] texts) {
+
+        /**
+         * Reads the text of a row without a rank.
+         *
+         * @param position the position of the row in the range
+         * @return the text of the row, or {@code null} if it has none
+         */
+        String text(int position) {
+            return this.texts == null ? null : this.texts[position];
+        }
+    }
+
+    /**
+     * Reads the records of a sorted run one at a time.
+     */
+    private static final class RunReader {
+
+        private final DataInputStream in;
+        private final int run;
+        private final byte[] kinds;
+        private final double[] numbers;
+        private final int[] ranks;
+        private final String[] texts;
+
+        /** The row of the current record. */
+        private int row;
+
+        /**
+         * Opens a run.
+         *
+         * @param file    the file of the run
+         * @param run     the position of the run
+         * @param columns the number of key columns
+         * @throws IOException if the run can't be opened
+         */
+        RunReader(Path file, int run, int columns) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+            this.run = run;
+            this.kinds = new byte[columns];
+            this.numbers = new double[columns];
+            this.ranks = new int[columns];
+            this.texts = new String[columns];
+        }
+
+        /**
+         * Reads the next record of the run.
+         *
+         * @param columns the key columns
+         * @return {@code true} if a record was read, {@code false} at the end of the run
+         * @throws IOException if the run can't be read
+         */
+        boolean next(KeyColumn[] columns) throws IOException {
+            byte first;
+            try {
+                first = this.in.readByte();
+            } catch (EOFException e) {
+                return false;
+            }
+            for (int i = 0; i < columns.length; i++) {
+                byte kind = i == 0 ? first : this.in.readByte();
+                this.kinds[i] = kind;
+                this.numbers[i] = kind == NUMBER ? this.in.readDouble() : 0;
+                this.ranks[i] = kind == TEXT ? this.in.readInt() : -1;
+                this.texts[i] = null;
+                if (kind == TEXT && this.ranks[i] < 0) {
+                    byte[] text = new byte[this.in.readInt()];
+                    this.in.readFully(text);
+                    this.texts[i] = new String(text, StandardCharsets.UTF_8);
+                }
+            }
+            this.row = this.in.readInt();
+            return true;
+        }
+
+        /**
+         * Closes the run, ignoring errors.
+         */
+        void close() {
+            try {
+                this.in.close();
+            } catch (IOException e) {
+                // Nothing left to read
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package pt.up.fe.els2024.engine;
+
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * {@code TopNSelector} keeps the best {@code N} tables of each group, ranked by the value of their first cell.
+ * <p>
+ * Tables are offered one at a time, so the selection can run while tables are still being imported. Each group
+ * keeps a bounded heap of at most {@code N} entries whose head is the worst entry kept, so offering a table costs
+ * {@code O(log N)} and memory stays proportional to {@code N} per group. The ranking key of a table, the first row
+ * of its first column, is read once when the table is offered.
+ * </p>
+ * <p>
+ * Tables whose key is a number are ranked by it, highest first for {@code MAX} and lowest first for {@code MIN}.
+ * Tables whose key is not a number, including tables without columns, rank after every number. Tables with equal
+ * keys keep the order they were offered in. For numeric keys this is the order of a stable sort of every table;
+ * the sort used before the selector treated a non-numeric key as equal to any other key, which left the position
+ * of such tables up to the sort algorithm.
+ * </p>
+ */
+public class TopNSelector {
+
+    /**
+     * A table offered to the selector, with its ranking key.
+     *
+     * @param key      the value of the first cell of the table, if it is a number
+     * @param numeric  whether the first cell of the table is a number
+     * @param sequence the position of the table among the offered tables
+     * @param table    the table
+     */
+    private record Entry(double key, boolean numeric, long sequence, Table table) {}
+
+    private final int n;
+
+    /** Orders entries from the best to the worst. */
+    private final Comparator<Entry> ranking;
+
+    /** The heap of each group, with the worst kept entry at its head. */
+    private final Map<String, PriorityQueue<Entry>> heaps = new HashMap<>();
+
+    /** The number of tables offered to each group. */
+    private final Map<String, Integer> counts = new HashMap<>();
+
+    private long sequence = 0;
+
+    /**
+     * Constructs a selector of the best {@code n} tables of each group.
+     *
+     * @param n       the number of tables to keep per group
+     * @param highest {@code true} to keep the tables with the highest keys, {@code false} for the lowest
+     */
+    public TopNSelector(int n, boolean highest) {
+        this.n = n;
+
+        Comparator<Entry> byKey = (e1, e2) -> highest
+                ? Double.compare(e2.key(), e1.key())
+                : Double.compare(e1.key(), e2.key());
+
+        this.ranking = Comparator.comparing((Entry entry) -> !entry.numeric())
+                                 .thenComparing((e1, e2) -> e1.numeric() && e2.numeric() ? byKey.compare(e1, e2) : 0)
+                                 .thenComparingLong(Entry::sequence);
+    }
+
+    /**
+     * Offers a table to a group, keeping it if it is among the best {@code n} tables of the group so far.
+     *
+     * @param group the group of the table
+     * @param table the table to offer
+     */
+    public void offer(String group, Table table) {
+        Object first = null;
+        if (!table.getColumns().isEmpty()) {
+            Column column = table.getColumns().get(0);
+            first = column.getValueAttribute(0);
+        }
+
+        Entry entry = first instanceof Number number
+                ? new Entry(number.doubleValue(), true, this.sequence++, table)
+                : new Entry(0, false, this.sequence++, table);
+
+        this.counts.merge(group, 1, Integer::sum);
+        PriorityQueue<Entry> heap = this.heaps.computeIfAbsent(group, key -> new PriorityQueue<>(this.ranking.reversed()));
+
+        if (heap.size() < this.n) {
+            heap.add(entry);
+        } else if (this.n > 0 && this.ranking.compare(entry, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(entry);
+        }
+    }
+
+    /**
+     * Retrieves the groups that were offered tables.
+     *
+     * @return the groups, in no particular order
+     */
+    public Set<String> getGroups() {
+        return this.counts.keySet();
+    }
+
+    /**
+     * Retrieves the number of tables offered to a group.
+     *
+     * @param group the group
+     * @return the number of tables offered, including those not kept
+     */
+    public int getCount(String group) {
+        return this.counts.getOrDefault(group, 0);
+    }
+
+    /**
+     * Retrieves the best tables of a group.
+     *
+     * @param group the group
+     * @return the kept tables of the group, from the best to the worst
+     */
+    public List<Table> getTop(String group) {
+        PriorityQueue<Entry> heap = this.heaps.get(group);
+        if (heap == null) {
+            return new ArrayList<>();
+        }
+
+        List<Entry> entries = new ArrayList<>(heap);
+        entries.sort(this.ranking);
+
+        List<Table> tables = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            tables.add(entry.table());
+        }
+        return tables;
+    }
+}
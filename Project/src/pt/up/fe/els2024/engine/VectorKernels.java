@@ -0,0 +1,55 @@
+package pt.up.fe.els2024.engine;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@code VectorKernels} runs the operations of {@link ArithmeticKernels} with the Vector API.
+ * <p>
+ * This class is only compiled with the {@code jdk.incubator.vector} module ({@code gradle -Pvector}) and is loaded
+ * by name when the module is present, so it must not be referenced from anywhere else. The elements that don't fill a whole vector are handled by the scalar loops.
+ * </p>
+ */
+class VectorKernels implements ArithmeticKernels.Kernel {
+
+    /** The widest vector shape supported by the processor. */
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The elements are processed a vector at a time. Each operation has its own loop, since the JIT only compiles
+     * a lane-wise operation to SIMD instructions when the operation is a constant.
+     * </p>
+     */
+    @Override
+    public void apply(ArithmeticKernels.Operation operation, double[] left, double[] right, double[] result, int length) {
+        int bound = SPECIES.loopBound(length);
+        int step = SPECIES.length();
+
+        switch (operation) {
+            case SUM -> {
+                for (int i = 0; i < bound; i += step) {
+                    DoubleVector.fromArray(SPECIES, left, i).add(DoubleVector.fromArray(SPECIES, right, i)).intoArray(result, i);
+                }
+            }
+            case SUB -> {
+                for (int i = 0; i < bound; i += step) {
+                    DoubleVector.fromArray(SPECIES, left, i).sub(DoubleVector.fromArray(SPECIES, right, i)).intoArray(result, i);
+                }
+            }
+            case MUL -> {
+                for (int i = 0; i < bound; i += step) {
+                    DoubleVector.fromArray(SPECIES, left, i).mul(DoubleVector.fromArray(SPECIES, right, i)).intoArray(result, i);
+                }
+            }
+            case DIV -> {
+                for (int i = 0; i < bound; i += step) {
+                    DoubleVector.fromArray(SPECIES, left, i).div(DoubleVector.fromArray(SPECIES, right, i)).intoArray(result, i);
+                }
+            }
+        }
+
+        ArithmeticKernels.applyScalar(operation, left, right, result, bound, length);
+    }
+}
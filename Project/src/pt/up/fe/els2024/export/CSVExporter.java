@@ -1,6 +1,8 @@
 package pt.up.fe.els2024.export;
 
 import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
 
 import pt.up.fe.els2024.Column;
 import pt.up.fe.els2024.Table;
@@ -27,32 +29,68 @@ public class CSVExporter extends Exporter {
      * @throws ExportException if an error specific to export occurs
      */
     public static void export(Table table, String tableName, String filePath) throws IOException, ExportException {
-        StringBuilder stringBuilder = new StringBuilder();
-        
-        // Writing the header
-        for (Column column : table.getColumns()) {
+        try (Writer writer = Exporter.openFile(filePath)) {
+            CSVExporter.writeHeader(writer, table.getColumns());
+            CSVExporter.writeRows(writer, table, tableName, filePath);
+        }
+    }
+
+    /**
+     * Writes the header line of a CSV file, with the names of the given columns.
+     *
+     * @param writer the writer to the CSV file
+     * @param columns the columns of the exported table
+     * @throws IOException if an I/O error occurs during file writing
+     */
+    static void writeHeader(Writer writer, List<Column> columns) throws IOException {
+        boolean first = true;
+        for (Column column : columns) {
             String columnName = column.getName();
             if (columnName != null) {
-                stringBuilder.append(columnName).append(SEPARATOR);
+                if (!first) {
+                    writer.write(SEPARATOR);
+                }
+                writer.write(columnName);
+                first = false;
             }
         }
-        stringBuilder.setLength(stringBuilder.length() - 1);
-        stringBuilder.append("\n");
+        writer.write("\n");
+    }
+
+    /**
+     * Writes the rows of a table to a CSV file, one line per row, exporting the cells that are tables
+     * to files of their own next to it.
+     *
+     * @param writer the writer to the CSV file
+     * @param table the {@link Table} instance whose rows are written
+     * @param tableName the name of the table, used in naming subtables
+     * @param filePath the file path of the CSV file, used in naming the files of the subtables
+     * @throws IOException if an I/O error occurs during file writing
+     * @throws ExportException if an error specific to export occurs
+     */
+    static void writeRows(Writer writer, Table table, String tableName, String filePath)
+            throws IOException, ExportException {
+        List<Column> columns = table.getColumns();
 
         // Find the maximum number of rows
         int maxRows = getMaxRows(table);
 
-        // Write data row by row
+        // Write data row by row, straight to the file
         for (int rowIndex = 0; rowIndex < maxRows; rowIndex++) {
 
             // For each column in this row
-            for (Column column : table.getColumns()) {
-                if (rowIndex < column.getRows().size()) {
-                    Object row = column.getRows().get(rowIndex);
+            for (int columnIndex = 0; columnIndex < columns.size(); columnIndex++) {
+                Column column = columns.get(columnIndex);
+                if (columnIndex > 0) {
+                    writer.write(SEPARATOR);
+                }
+
+                if (rowIndex < column.size()) {
+                    Object row = column.getValueAttribute(rowIndex);
 
                     // The cell is another table
                     if (row instanceof Table) {
-                        
+
                         String columnName = column.getName();
                         String newTableName = tableName + "-" + columnName;
                         String newFileName = Utils.extractFileName(filePath) + "-" + columnName + ".csv";
@@ -62,19 +100,15 @@ public class CSVExporter extends Exporter {
                         CSVExporter.export((Table) row, newTableName, newTablePath);
 
                         // ... and creates a link to it
-                        stringBuilder.append(newFileName);
+                        writer.write(newFileName);
 
                     // The cell is a primitive or list (String, Integer, List<T>)
                     } else {
-                        stringBuilder.append(column.getRows().get(rowIndex));
+                        writer.write(String.valueOf(row));
                     }
                 }
-                stringBuilder.append(SEPARATOR);
             }
-            stringBuilder.setLength(stringBuilder.length() - 1);
-            stringBuilder.append("\n");
+            writer.write("\n");
         }
-
-        Exporter.writeToFile(stringBuilder.toString(), filePath);
     }
 }
@@ -0,0 +1,105 @@
+package pt.up.fe.els2024.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.exception.ExportException;
+
+/**
+ * The {@code CSVStreamExporter} class exports a table to a CSV file in chunks of rows, so that the whole table
+ * never has to be in memory. Every chunk must have the same columns, in the same order; the header is written
+ * with the first one, and the cells are written like {@link CSVExporter} does.
+ * <p>
+ * The chunks are written to a temporary file next to the exported one, which replaces it once the export is
+ * committed. Closing the exporter before then deletes the temporary file, leaving the exported file untouched.
+ * </p>
+ */
+public class CSVStreamExporter implements Closeable {
+
+    private final String tableName;
+
+    private final String filePath;
+
+    private final Path temporaryPath;
+
+    private final Writer writer;
+
+    /** The names of the columns of the chunks, or {@code null} before the first one. */
+    private List<String> columnNames;
+
+    private boolean committed;
+
+    /**
+     * Opens a streaming export to a CSV file.
+     *
+     * @param tableName the name of the table, used in naming subtables
+     * @param filePath the file path where the CSV file will be written
+     * @throws IOException if the temporary file can't be opened for writing
+     */
+    public CSVStreamExporter(String tableName, String filePath) throws IOException {
+        this.tableName = tableName;
+        this.filePath = filePath;
+        this.temporaryPath = Path.of(filePath + ".part");
+        this.writer = Exporter.openFile(this.temporaryPath.toString());
+    }
+
+    /**
+     * Appends the rows of a chunk of the table to the export.
+     *
+     * @param chunk the {@link Table} instance holding the rows
+     * @throws IOException if an I/O error occurs during file writing
+     * @throws ExportException if the columns of the chunk differ from those of the first one
+     */
+    public void write(Table chunk) throws IOException, ExportException {
+        List<String> chunkNames = chunk.getColumns().stream().map(Column::getName).toList();
+        if (this.columnNames == null) {
+            this.columnNames = chunkNames;
+            CSVExporter.writeHeader(this.writer, chunk.getColumns());
+        } else if (!this.columnNames.equals(chunkNames)) {
+            throw new ExportException("Chunk columns " + chunkNames + " differ from " + this.columnNames);
+        }
+        CSVExporter.writeRows(this.writer, chunk, this.tableName, this.filePath);
+    }
+
+    /**
+     * Finishes the export, replacing the exported file with the rows written so far.
+     *
+     * @throws IOException if the exported file can't be replaced
+     * @throws ExportException if no chunk was written
+     */
+    public void commit() throws IOException, ExportException {
+        if (this.columnNames == null) {
+            throw new ExportException("No rows were exported to " + this.filePath);
+        }
+        this.writer.close();
+        Path target = Path.of(this.filePath);
+        try {
+            Files.move(this.temporaryPath, target, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException exception) {
+            Files.move(this.temporaryPath, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        this.committed = true;
+    }
+
+    /**
+     * Abandons the export unless it was committed, deleting the temporary file.
+     *
+     * @throws IOException if the temporary file can't be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (!this.committed) {
+            this.writer.close();
+            Files.deleteIfExists(this.temporaryPath);
+        }
+    }
+}
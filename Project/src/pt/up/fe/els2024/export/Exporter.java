@@ -4,17 +4,26 @@ import pt.up.fe.els2024.Column;
 import pt.up.fe.els2024.Table;
 import pt.up.fe.els2024.exception.ExportException;
 
+import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * The {@code Exporter} class provides base functionality for exporting {@link Table} data.
  * It includes utilities for writing content to files and finding the maximum number of rows
  * in a table, which is useful when formatting tabular data consistently across different file formats.
+ * Exporters stream their output through the buffered writer of {@link #openFile(String)}, so that
+ * exporting a table doesn't need a copy of the whole output in memory.
  * 
  * This class is intended to be extended by format-specific exporters (e.g., {@code CSVExporter}).
  */
 public class Exporter {
+
+    /** The size of the buffer of the writers to the exported files, in characters. */
+    private static final int BUFFER_SIZE = 64 * 1024;
     
     /**
      * Placeholder method for export functionality. Throws an {@link ExportException} 
@@ -49,8 +58,39 @@ public class Exporter {
      * @throws IOException if an I/O error occurs during file writing
      */
     public static void writeToFile(String content, String fileName) throws ExportException, IOException {
-        FileWriter fileWriter = new FileWriter(fileName);
-        fileWriter.write(content);
-        fileWriter.close();
+        try (Writer writer = Exporter.openFile(fileName)) {
+            writer.write(content);
+        }
+    }
+
+    /**
+     * Opens a buffered writer to the file with the given name, replacing its content.
+     * The caller is responsible for closing the writer, which flushes the remaining output.
+     *
+     * @param fileName the name (or path) of the file to write
+     * @return a buffered writer to the file
+     * @throws IOException if the file can't be opened for writing
+     */
+    public static Writer openFile(String fileName) throws IOException {
+        return new BufferedWriter(new FileWriter(fileName), BUFFER_SIZE);
+    }
+
+    /**
+     * Maps the names of the columns of a table to the columns, in the iteration order of a {@link HashMap}.
+     * <p>
+     * The JSON and XML exports write the columns of a table in this order, which is the order they had when
+     * tables were first converted to a {@code HashMap} before being written. The map is filled the same way,
+     * so that a later column replaces an earlier one with the same name.
+     * </p>
+     *
+     * @param table the table whose columns are mapped
+     * @return a map from each column name to its column
+     */
+    static Map<String, Column> columnsByName(Table table) {
+        Map<String, Column> columns = new HashMap<>();
+        for (Column column : table.getColumns()) {
+            columns.put(column.getName(), column);
+        }
+        return columns;
     }
 }
@@ -6,6 +6,7 @@ import pt.up.fe.els2024.exception.ExportException;
 import pt.up.fe.els2024.utils.Utils;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -102,75 +103,77 @@ public class HTMLExporter extends Exporter {
      */
     public static void export(Table table, String tableName, String filePath) throws IOException, ExportException {
 
-        StringBuilder stringBuilder = new StringBuilder();
-
-        stringBuilder.append(createHTMLHeader(tableName));
-
-        // Writing table header
-        stringBuilder.append("        <tr>\n");
-        for (Column column : table.getColumns()) {
-            stringBuilder.append("            <th>").append(column.getName()).append("</th>\n");
-        }
-        stringBuilder.append("        </tr>\n");
-
-        // Find the maximum number of rows
-        int maxRows = getMaxRows(table);
+        try (Writer writer = Exporter.openFile(filePath)) {
 
-        // Write data row by row
-        for (int rowIndex = 0; rowIndex < maxRows; rowIndex++) {
-            stringBuilder.append("        </tr>\n");
+            writer.write(createHTMLHeader(tableName));
 
-            // For each column in this row
+            // Writing table header
+            writer.write("        <tr>\n");
             for (Column column : table.getColumns()) {
-                stringBuilder.append("            <td>");
-                if (rowIndex < column.getRows().size()) {
-                    Object row = column.getRows().get(rowIndex);
-
-                    // The cell is another table
-                    if (row instanceof Table) {
-
-                        String columnName = column.getName();
-                        String rowID = column.getRows().size() > 1 ? ( "-" + rowIndex ) : "";
-                        String newTableName = tableName + "-" + columnName + rowID;
-                        String newTablePath = Utils.removeExtension(filePath) + "-" + columnName + rowID + ".html";
-                        String newFilePath = Utils.extractFileName(filePath) + "-" + columnName + rowID + ".html";
-
-                        // Creates a separate file for this table...
-                        HTMLExporter.export((Table) row, newTableName, newTablePath);
-
-                        // ... and creates a link to it
-                        stringBuilder.append("<a href='");
-                        stringBuilder.append(newFilePath);
-                        stringBuilder.append("'>");
-                        stringBuilder.append(newTableName);
-                        stringBuilder.append("</a>");
-
-                    // The cell is a primitive or list (String, Integer, List<T>)
-                    } else {
-
-                        // If it is a List, we need to ensure the correct output
-                        if (row instanceof List) {
-
-                            // Escape `<` and `>` in each element of the list
-                            row = ((List<Object>) row)
-                                    .stream()
-                                    .map(Object::toString)
-                                    .map(item -> item.replace("<", "&lt;")
-                                                     .replace(">", "&gt;")
-                                    ).collect(Collectors.joining(", "));
+                writer.write("            <th>");
+                writer.write(String.valueOf(column.getName()));
+                writer.write("</th>\n");
+            }
+            writer.write("        </tr>\n");
+
+            // Find the maximum number of rows
+            int maxRows = getMaxRows(table);
+
+            // Write data row by row, straight to the file
+            for (int rowIndex = 0; rowIndex < maxRows; rowIndex++) {
+                writer.write("        </tr>\n");
+
+                // For each column in this row
+                for (Column column : table.getColumns()) {
+                    writer.write("            <td>");
+                    if (rowIndex < column.size()) {
+                        Object row = column.getValueAttribute(rowIndex);
+
+                        // The cell is another table
+                        if (row instanceof Table) {
+
+                            String columnName = column.getName();
+                            String rowID = column.size() > 1 ? ( "-" + rowIndex ) : "";
+                            String newTableName = tableName + "-" + columnName + rowID;
+                            String newTablePath = Utils.removeExtension(filePath) + "-" + columnName + rowID + ".html";
+                            String newFilePath = Utils.extractFileName(filePath) + "-" + columnName + rowID + ".html";
+
+                            // Creates a separate file for this table...
+                            HTMLExporter.export((Table) row, newTableName, newTablePath);
+
+                            // ... and creates a link to it
+                            writer.write("<a href='");
+                            writer.write(newFilePath);
+                            writer.write("'>");
+                            writer.write(newTableName);
+                            writer.write("</a>");
+
+                        // The cell is a primitive or list (String, Integer, List<T>)
+                        } else {
+
+                            // If it is a List, we need to ensure the correct output
+                            if (row instanceof List) {
+
+                                // Escape `<` and `>` in each element of the list
+                                row = ((List<Object>) row)
+                                        .stream()
+                                        .map(Object::toString)
+                                        .map(item -> item.replace("<", "&lt;")
+                                                         .replace(">", "&gt;")
+                                        ).collect(Collectors.joining(", "));
+                            }
+
+                            writer.write(String.valueOf(row));
                         }
-
-                        stringBuilder.append(row);
                     }
+
+                    writer.write("</td>\n");
                 }
 
-                stringBuilder.append("</td>\n");
+                writer.write("        </tr>\n");
             }
 
-            stringBuilder.append("        </tr>\n");
+            writer.write(createHTMLFooter());
         }
-
-        stringBuilder.append(createHTMLFooter());
-        Exporter.writeToFile(stringBuilder.toString(), filePath);
     }
 }
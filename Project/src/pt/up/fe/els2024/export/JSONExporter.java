@@ -1,12 +1,11 @@
 package pt.up.fe.els2024.export;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.io.Writer;
 import java.util.Map;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 
 import pt.up.fe.els2024.Column;
 import pt.up.fe.els2024.Table;
@@ -14,51 +13,69 @@ import pt.up.fe.els2024.exception.ExportException;
 
 /**
  * The {@code JSONExporter} class provides functionality for exporting a {@link Table} to a JSON format.
- * The class converts the table's columns and their associated rows into a map structure and then
- * serializes that map into a well-formatted JSON string using the Gson library.
+ * The class streams the table's columns and their associated rows to the file with a Gson {@link JsonWriter},
+ * producing well-formatted JSON without building the whole document in memory first.
  */
 public class JSONExporter extends Exporter {
 
     /**
-     * Converts the columns and rows of a given table into a nested map structure suitable for JSON serialization.
+     * Writes the columns and rows of a given table as a JSON object.
      * 
-     * <p>This method recursively converts each column's rows into a list of elements, handling nested tables as well.</p>
+     * <p>Each column becomes a field named after it. A column with a single row is written as a simple value,
+     * and any other column as an array of its rows. Nested tables are written recursively as objects.</p>
      * 
-     * @param table the {@link Table} to convert to a map
-     * @return a map representing the table in a JSON-like structure, with column names as keys
+     * @param gson the {@link Gson} instance used to write the values of the rows
+     * @param writer the {@link JsonWriter} to write the object to
+     * @param table the {@link Table} to write
+     * @throws IOException if an error occurs while writing
      */
-    public static Map<String, Object> mapCreator(Table table) {
-        Map<String, Object> jsonMap = new HashMap<>();
+    public static void writeTable(Gson gson, JsonWriter writer, Table table) throws IOException {
+        writer.beginObject();
 
         // Iterate over each column of the table
-        for (Column column : table.getColumns()) {
+        for (Map.Entry<String, Column> entry : Exporter.columnsByName(table).entrySet()) {
+            Column column = entry.getValue();
+            writer.name(String.valueOf(entry.getKey()));
 
-            List<Object> rows = column.getRows();
-            List<Object> elements = new ArrayList<>();
-
-            // Iterate over each row in the column
-            for (Object row : rows) {
-                // If the row is a nested table, recursively convert it
-                if (row instanceof Table) {
-                    row = JSONExporter.mapCreator((Table) row);
+            // If the column has only one element, write it as a simple value
+            // Otherwise, write it as a list of elements
+            if (column.size() == 1) {
+                JSONExporter.writeValue(gson, writer, column.getValueAttribute(0));
+            } else {
+                writer.beginArray();
+                for (int rowIndex = 0; rowIndex < column.size(); rowIndex++) {
+                    JSONExporter.writeValue(gson, writer, column.getValueAttribute(rowIndex));
                 }
-                elements.add(row);
+                writer.endArray();
             }
-
-            // If the column has only one element, store it as a simple value
-            // Otherwise, store it as a list of elements
-            Object value = elements.size() == 1 ? elements.get(0) : elements;
-            jsonMap.put(column.getName(), value);
         }
 
-        return jsonMap;
+        writer.endObject();
+    }
+
+    /**
+     * Writes the value of a row, recursively writing nested tables.
+     *
+     * @param gson the {@link Gson} instance used to write the value
+     * @param writer the {@link JsonWriter} to write the value to
+     * @param row the value of the row
+     * @throws IOException if an error occurs while writing
+     */
+    private static void writeValue(Gson gson, JsonWriter writer, Object row) throws IOException {
+        if (row instanceof Table) {
+            JSONExporter.writeTable(gson, writer, (Table) row);
+        } else if (row == null) {
+            writer.nullValue();
+        } else {
+            gson.toJson(row, row.getClass(), writer);
+        }
     }
 
     /**
      * Exports a {@link Table} to a JSON file at the specified file path.
      * 
-     * <p>This method converts the table to a JSON representation by first mapping the table to a 
-     * {@link Map} structure and then serializing it using the Gson library. The output is pretty-printed.</p>
+     * <p>This method streams the table to the file with a {@link JsonWriter}, one row at a time.
+     * The output is pretty-printed.</p>
      *
      * @param table the {@link Table} to export
      * @param filePath the path where the JSON file will be saved
@@ -67,14 +84,13 @@ public class JSONExporter extends Exporter {
      */
     public static void export(Table table, String filePath) throws IOException, ExportException {
 
-        // Convert the table into a JSON-compatible map
-        Map<String, Object> jsonMap = JSONExporter.mapCreator(table);
-
         // Create a Gson instance to pretty-print the JSON output
         Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        String jsonString = gson.toJson(jsonMap);
 
-        // Write the JSON string to the specified file
-        Exporter.writeToFile(jsonString, filePath);
+        // Write the table straight to the specified file
+        try (Writer fileWriter = Exporter.openFile(filePath);
+             JsonWriter writer = gson.newJsonWriter(fileWriter)) {
+            JSONExporter.writeTable(gson, writer, table);
+        }
     }
 }
@@ -0,0 +1,175 @@
+package pt.up.fe.els2024.export;
+
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.cache.TableCodec;
+import pt.up.fe.els2024.exception.ExportException;
+import pt.up.fe.els2024.storage.ColumnStorage;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * The {@code PTBLExporter} class provides functionality for exporting a {@link Table} to the native binary
+ * columnar format ({@code .ptbl}), which can be imported back without any conversion.
+ * <p>
+ * A file starts with a header, followed by the values of each column split in chunks of at most
+ * {@link #CHUNK_ROWS} rows, written in the layout of the column with {@link TableCodec#writeValues}. Nested tables
+ * are stored inline in the chunks of their column. Each chunk is compressed on its own when that makes it smaller.
+ * The file ends with a footer holding the schema of the table and the position of every chunk, followed by
+ * the position of the footer, so that a reader can map the file and decode only the columns it needs.
+ * </p>
+ */
+public class PTBLExporter extends Exporter {
+
+    /** The first and last bytes of every file. */
+    public static final int MAGIC = 0x5054424C; // "PTBL"
+
+    /** The version of the layout of the files. */
+    public static final int VERSION = 2;
+
+    /** The maximum number of rows of a chunk. */
+    public static final int CHUNK_ROWS = 64 * 1024;
+
+    /** The size of the trailer: the position of the footer and the magic number. */
+    public static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+
+    /** Marks a column that has no storage yet. */
+    public static final int NO_STORAGE = -1;
+
+    /**
+     * The position and size of a chunk in the file.
+     *
+     * @param offset     the position of the chunk in the file
+     * @param length     the size of the chunk as stored
+     * @param rawLength  the size of the chunk once decompressed
+     * @param rows       the number of rows of the chunk
+     * @param compressed whether the chunk is compressed
+     */
+    private record Chunk(long offset, int length, int rawLength, int rows, boolean compressed) {}
+
+    /**
+     * Exports a {@link Table} to a PTBL file at the specified file path, compressing its chunks.
+     *
+     * @param table the {@link Table} to export
+     * @param filePath the path where the PTBL file will be saved
+     * @throws IOException if an error occurs while writing the file
+     * @throws ExportException if an error occurs during the export process
+     */
+    public static void export(Table table, String filePath) throws IOException, ExportException {
+        PTBLExporter.export(table, filePath, true);
+    }
+
+    /**
+     * Exports a {@link Table} to a PTBL file at the specified file path.
+     *
+     * @param table the {@link Table} to export
+     * @param filePath the path where the PTBL file will be saved
+     * @param compress whether to compress the chunks that get smaller when compressed
+     * @throws IOException if the table holds a value that can't be stored, or if an error occurs while writing the file
+     * @throws ExportException if an error occurs during the export process
+     */
+    public static void export(Table table, String filePath, boolean compress) throws IOException, ExportException {
+        Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            long position = 2 * Integer.BYTES;
+
+            // Write the chunks of every column, remembering where they are for the footer
+            List<List<Chunk>> chunks = new ArrayList<>();
+            for (Column column : table.getColumns()) {
+                List<Chunk> columnChunks = new ArrayList<>();
+                ColumnStorage storage = column.getStorage();
+                int size = storage == null ? 0 : storage.size();
+
+                for (int from = 0; from < size; from += CHUNK_ROWS) {
+                    int to = Math.min(size, from + CHUNK_ROWS);
+                    byte[] raw = PTBLExporter.encodeChunk(storage, from, to);
+                    byte[] stored = deflater == null ? raw : PTBLExporter.compress(deflater, raw);
+                    boolean compressed = stored.length < raw.length;
+                    if (!compressed) {
+                        stored = raw;
+                    }
+
+                    out.write(stored);
+                    columnChunks.add(new Chunk(position, stored.length, raw.length, to - from, compressed));
+                    position += stored.length;
+                }
+                chunks.add(columnChunks);
+            }
+
+            // Write the footer with the schema and the chunk positions
+            long footer = position;
+            TableCodec.writeString(out, table.getName());
+            out.writeInt(table.getColumns().size());
+            for (int i = 0; i < table.getColumns().size(); i++) {
+                Column column = table.getColumns().get(i);
+                ColumnStorage storage = column.getStorage();
+
+                TableCodec.writeString(out, column.getName());
+                out.writeInt(storage == null ? NO_STORAGE : storage.getType().ordinal());
+                out.writeInt(storage == null ? 0 : storage.size());
+                out.writeInt(chunks.get(i).size());
+                for (Chunk chunk : chunks.get(i)) {
+                    out.writeLong(chunk.offset());
+                    out.writeInt(chunk.length());
+                    out.writeInt(chunk.rawLength());
+                    out.writeInt(chunk.rows());
+                    out.writeBoolean(chunk.compressed());
+                }
+            }
+
+            out.writeLong(footer);
+            out.writeInt(MAGIC);
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Encodes a range of rows of a column.
+     *
+     * @param storage the storage of the column
+     * @param from    the first row of the chunk
+     * @param to      the row after the last one of the chunk
+     * @return the encoded rows
+     * @throws IOException if the column holds a value that can't be encoded
+     */
+    private static byte[] encodeChunk(ColumnStorage storage, int from, int to) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            TableCodec.writeValues(out, storage, from, to);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Compresses an encoded chunk.
+     *
+     * @param deflater the compressor, reset before use
+     * @param raw      the encoded chunk
+     * @return the compressed chunk
+     */
+    private static byte[] compress(Deflater deflater, byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(raw.length / 2 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            bytes.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return bytes.toByteArray();
+    }
+}
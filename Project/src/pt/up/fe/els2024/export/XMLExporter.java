@@ -6,56 +6,39 @@ import pt.up.fe.els2024.Table;
 import pt.up.fe.els2024.exception.ExportException;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.Writer;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.HashMap;
-import java.util.List;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * The {@code XMLExporter} class provides functionality for exporting a {@link Table} to an XML format.
- * It converts the table's columns and their associated rows into a map structure and then serializes that map into an XML string using the Jackson XML library.
+ * It presents the table's columns and their associated rows as a read-only map view and streams that view to the file using the Jackson XML library, so the rows are never copied into an intermediate structure.
  */
 public class XMLExporter extends Exporter {
 
     /**
-     * Converts the columns and rows of a given table into a nested map structure suitable for XML serialization.
+     * Creates a read-only view of the columns and rows of a given table as a nested map structure suitable for XML serialization.
      * 
-     * <p>This method recursively converts each column's rows into a list of elements, handling nested tables as well.</p>
+     * <p>The view reads the table as it is iterated: columns with a single row are seen as a simple value, other columns
+     * as a list of elements, and nested tables as nested views.</p>
      * 
-     * @param table the {@link Table} to convert to a map
+     * @param table the {@link Table} to view as a map
      * @return a map representing the table in an XML-like structure, with column names as keys
      */
     public static Map<String, Object> mapCreator(Table table) {
-        Map<String, Object> xmlMap = new HashMap<>();
-
-        // Iterate over each column of the table
-        for (Column column : table.getColumns()) {
-            List<Object> rows = column.getRows();
-            List<Object> elements = new ArrayList<>();
-
-            // Iterate over each row in the column
-            for (Object row : rows) {
-                // If the row is a nested table, recursively convert it
-                if (row instanceof Table) {
-                    row = XMLExporter.mapCreator((Table) row);
-                }
-                elements.add(row);
-            }
-
-            // If the column has only one element, store it as a simple value
-            // Otherwise, store it as a list of elements
-            Object value = elements.size() == 1 ? elements.get(0) : elements;
-            xmlMap.put(column.getName(), value);
-        }
-
-        return xmlMap;
+        return new TableView(table);
     }
 
     /**
      * Exports a {@link Table} to an XML file at the specified file path.
      * 
-     * <p>This method converts the table to an XML representation by first mapping the table to a 
-     * {@link Map} structure and then serializing it using the Jackson XML library. The output is pretty-printed.</p>
+     * <p>This method streams a {@link Map} view of the table to the file with the Jackson XML library.
+     * The output is pretty-printed.</p>
      *
      * @param table the {@link Table} to export
      * @param filePath the path where the XML file will be saved
@@ -64,16 +47,92 @@ public class XMLExporter extends Exporter {
      */
     public static void export(Table table, String filePath) throws IOException, ExportException {
 
-        // Create a map to store the table data, with the table name as the root element
+        // Create a map to hold the table data, with the table name as the root element
         Map<String, Object> xmlMap = new HashMap<>();
-        Map<String, Object> tableData = XMLExporter.mapCreator(table);
-        xmlMap.put(table.getName(), tableData);
+        xmlMap.put(table.getName(), XMLExporter.mapCreator(table));
 
-        // Create an XmlMapper to convert the map to XML format
+        // Create an XmlMapper and stream the map to the specified file in XML format
         XmlMapper xmlMapper = new XmlMapper();
-        String xmlString = xmlMapper.writerWithDefaultPrettyPrinter().writeValueAsString(xmlMap);
+        try (Writer writer = Exporter.openFile(filePath)) {
+            xmlMapper.writerWithDefaultPrettyPrinter().writeValue(writer, xmlMap);
+        }
+    }
+
+    /**
+     * A read-only {@link Map} view of a table, with its columns in the order of {@link Exporter#columnsByName(Table)}.
+     */
+    private static class TableView extends AbstractMap<String, Object> {
+
+        private final Map<String, Column> columns;
+
+        /**
+         * Constructs a view of the given table.
+         *
+         * @param table the table to view
+         */
+        TableView(Table table) {
+            this.columns = Exporter.columnsByName(table);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    Iterator<Entry<String, Column>> iterator = TableView.this.columns.entrySet().iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            Entry<String, Column> entry = iterator.next();
+                            return new SimpleImmutableEntry<>(entry.getKey(), TableView.valueOf(entry.getValue()));
+                        }
+                    };
+                }
 
-        // Write the XML string to the specified file
-        Exporter.writeToFile(xmlString, filePath);
+                @Override
+                public int size() {
+                    return TableView.this.columns.size();
+                }
+            };
+        }
+
+        /**
+         * Views a column as a simple value if it has only one row, or as a list of its rows otherwise.
+         *
+         * @param column the column to view
+         * @return the view of the column
+         */
+        private static Object valueOf(Column column) {
+            if (column.size() == 1) {
+                return TableView.rowOf(column.getValueAttribute(0));
+            }
+
+            return new AbstractList<>() {
+                @Override
+                public Object get(int index) {
+                    return TableView.rowOf(column.getValueAttribute(index));
+                }
+
+                @Override
+                public int size() {
+                    return column.size();
+                }
+            };
+        }
+
+        /**
+         * Views a row, wrapping nested tables in their own view.
+         *
+         * @param row the value of the row
+         * @return the view of the row
+         */
+        private static Object rowOf(Object row) {
+            return row instanceof Table ? new TableView((Table) row) : row;
+        }
     }
 }
@@ -0,0 +1,177 @@
+package pt.up.fe.els2024.parser;
+
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.engine.RowFilter;
+import pt.up.fe.els2024.exception.ParserException;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * {@code BatchParser} parses a batch of files, possibly in parallel, using a {@link Parser}.
+ * <p>
+ * Files are parsed by a fixed number of virtual threads, given by the degree of parallelism. The resulting
+ * tables are always returned in the order of the input files, regardless of the order in which the parsing
+ * finishes. A file that fails to parse does not stop the batch: its error is recorded and can be retrieved
+ * with {@link #getFailures()} once the batch is done.
+ * </p>
+ */
+public class BatchParser {
+
+    /** The parser used for each file. */
+    private final Parser parser;
+
+    /** The maximum number of files parsed at the same time. */
+    private final int parallelism;
+
+    /** The errors of the last batch, by file, in the order of the input files. */
+    private final Map<File, Exception> failures = new LinkedHashMap<>();
+
+    /**
+     * Constructs a {@code BatchParser} with the given parser and degree of parallelism.
+     *
+     * @param parser      the parser used for each file
+     * @param parallelism the maximum number of files parsed at the same time; {@code 1} parses on the calling thread
+     */
+    public BatchParser(Parser parser, int parallelism) {
+        this.parser = parser;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Parses every given file.
+     *
+     * @param files the files to parse
+     * @return the tables of the files that were parsed, in the order of the input files
+     */
+    public List<Table> parseAll(List<File> files) {
+        return this.parseAll(files, List.of());
+    }
+
+    /**
+     * Parses every given file along a selection path, as done by {@link Parser#parseFile(File, List)}.
+     *
+     * @param files the files to parse
+     * @param path  the keys to follow from the root of each file, or an empty list to parse everything
+     * @return the tables of the files that were parsed, in the order of the input files
+     */
+    public List<Table> parseAll(List<File> files, List<String> path) {
+        return this.parseAll(files, path, null);
+    }
+
+    /**
+     * Parses every given file along a selection path, keeping only the rows of the selected tables that satisfy
+     * a filter, as done by {@link Parser#parseFile(File, List, RowFilter)}.
+     *
+     * @param files  the files to parse
+     * @param path   the keys to follow from the root of each file, or an empty list to parse everything
+     * @param filter the filter applied to the tables along the path, or {@code null} to keep every row
+     * @return the tables of the files that were parsed, in the order of the input files
+     */
+    public List<Table> parseAll(List<File> files, List<String> path, RowFilter filter) {
+        return this.mapAll(files, path, filter, Function.identity());
+    }
+
+    /**
+     * Parses every given file like {@link #parseAll(List, List, RowFilter)}, and reduces the table of each file
+     * to a result on the thread that parsed it. The tables themselves are not kept, so only the tables being
+     * parsed at the same time are in memory.
+     *
+     * @param files  the files to parse
+     * @param path   the keys to follow from the root of each file, or an empty list to parse everything
+     * @param filter the filter applied to the tables along the path, or {@code null} to keep every row
+     * @param mapper the function reducing the table of a file to its result; it may run on several threads at once
+     * @param <T>    the type of the results
+     * @return the results of the files that were parsed, in the order of the input files
+     */
+    public <T> List<T> mapAll(List<File> files, List<String> path, RowFilter filter, Function<Table, T> mapper) {
+        Object[] results = new Object[files.size()];
+        Exception[] errors = new Exception[files.size()];
+
+        if (this.parallelism == 1 || files.size() <= 1) {
+            for (int i = 0; i < files.size(); i++) {
+                this.parseInto(files, path, filter, mapper, i, results, errors);
+            }
+        } else {
+            int threads = Math.min(this.parallelism, files.size());
+            try (ExecutorService executor = Executors.newFixedThreadPool(threads, Thread.ofVirtual().name("parser-", 0).factory())) {
+                for (int i = 0; i < files.size(); i++) {
+                    final int index = i;
+                    executor.execute(() -> this.parseInto(files, path, filter, mapper, index, results, errors));
+                }
+            } // Closing the executor waits for every file
+        }
+
+        this.failures.clear();
+        List<T> result = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            if (errors[i] != null) {
+                this.failures.put(files.get(i), errors[i]);
+            } else {
+                @SuppressWarnings("unchecked")
+                T mapped = (T) results[i];
+                result.add(mapped);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves the errors of the files that failed to parse in the last batch.
+     *
+     * @return an unmodifiable map from each failed file to its error, in the order of the input files
+     */
+    public Map<File, Exception> getFailures() {
+        return Collections.unmodifiableMap(this.failures);
+    }
+
+    /**
+     * Builds a single {@link ParserException} describing every failure of the last batch.
+     *
+     * @return the exception, or {@code null} if every file was parsed
+     */
+    public ParserException failuresAsException() {
+        if (this.failures.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder message = new StringBuilder("Failed to parse ")
+                .append(this.failures.size())
+                .append(this.failures.size() == 1 ? " file:" : " files:");
+        for (Map.Entry<File, Exception> entry : this.failures.entrySet()) {
+            message.append(System.lineSeparator())
+                   .append("  ")
+                   .append(entry.getKey().getPath())
+                   .append(": ")
+                   .append(entry.getValue().getMessage());
+        }
+        return new ParserException(message.toString());
+    }
+
+    /**
+     * Parses the file at the given position, storing either the result of its table or its error.
+     *
+     * @param files   the files of the batch
+     * @param path    the keys to follow from the root of the file
+     * @param filter  the filter applied to the tables along the path, or {@code null} to keep every row
+     * @param mapper  the function reducing the table of the file to its result
+     * @param index   the position of the file to parse
+     * @param results the results of the batch, by position
+     * @param errors  the errors of the batch, by position
+     */
+    private void parseInto(List<File> files, List<String> path, RowFilter filter, Function<Table, ?> mapper,
+                           int index, Object[] results, Exception[] errors) {
+        try {
+            results[index] = mapper.apply(this.parser.parseFile(files.get(index), path, filter));
+        } catch (Exception e) {
+            errors[index] = e;
+        }
+    }
+}
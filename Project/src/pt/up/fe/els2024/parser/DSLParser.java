@@ -6,7 +6,7 @@ import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
-import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.xtext.resource.XtextResourceSet;
 import org.xtext.example.mydsl.PreqlStandaloneSetup;
 import org.xtext.example.mydsl.preql.*;
 import org.xtext.example.mydsl.preql.impl.*;
@@ -15,12 +15,28 @@ import pt.up.fe.els2024.builders.ImportBuilder;
 import pt.up.fe.els2024.builders.OperationBuilder;
 import pt.up.fe.els2024.builders.SelectBuilder;
 import pt.up.fe.els2024.builders.TableBuilder;
+import pt.up.fe.els2024.cache.ParseCache;
+import pt.up.fe.els2024.engine.Aggregator;
+import pt.up.fe.els2024.engine.ArithmeticKernels;
+import pt.up.fe.els2024.engine.ColumnSketch;
+import pt.up.fe.els2024.engine.Expression;
+import pt.up.fe.els2024.engine.HashJoin;
+import pt.up.fe.els2024.engine.RowFilter;
+import pt.up.fe.els2024.engine.TableSorter;
 import pt.up.fe.els2024.exception.DSLException;
+import pt.up.fe.els2024.plan.LogicalPlan;
+import pt.up.fe.els2024.plan.Optimizer;
+import pt.up.fe.els2024.plan.PlanExecutor;
+import pt.up.fe.els2024.plan.PlanNode;
 import pt.up.fe.els2024.utils.Utils;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -28,29 +44,108 @@ import java.util.stream.Collectors;
  * the parsed structure into a series of builder operations to process data tables.
  * The parser is designed to handle various DSL constructs such as table creation, 
  * data import, column and row operations, and output configurations.
+ * The statements are first translated into a {@link LogicalPlan}, which is rewritten by an {@link Optimizer}
+ * before it is executed.
+ * Scripts are read by the hand-written {@link PreqlReader} by default, and by the Xtext parser on request, which
+ * validates them against the generated grammar at the cost of a much slower start.
  */
 public class DSLParser {
 
+    /**
+     * The front-ends that read scripts into their model.
+     */
+    public enum Frontend {
+        /** The hand-written {@link PreqlReader}, which needs no Xtext injector. */
+        READER,
+        /** The Xtext parser, which also reports the validation errors of the generated grammar. */
+        XTEXT
+    }
+
+    /**
+     * Holds the Xtext injector, which is only created, and registers the Preql resources with EMF, the first time
+     * a script is read by Xtext.
+     */
+    private static final class XtextSetup {
+        private static final Injector INJECTOR = new PreqlStandaloneSetup().createInjectorAndDoEMFRegistration();
+    }
+
     /** 
      * Counter used to generate unique names for operations during the parsing process. 
      */
-    private int operationCounter;
+    private final AtomicInteger operationCounter = new AtomicInteger();
+
+    /**
+     * The cache of parsed tables used by the imports, or {@code null} if every file is parsed.
+     */
+    private final ParseCache cache;
+
+    /**
+     * The optimizer that rewrites the plan of each script before it is executed.
+     */
+    private final Optimizer optimizer;
+
+    /**
+     * The executor of the plans, which runs independent imports at the same time.
+     */
+    private final PlanExecutor executor;
 
     /**
-     * A flag indicating whether the parser is in "extension mode," which determines 
-     * if additional extension-specific operations are being processed.
+     * The front-end that reads the scripts.
      */
-    private boolean whenExtensionMode;
+    private final Frontend frontend;
 
     /**
-     * Initializes the DSLParser and configures the EMF environment with dependency injection.
+     * Initializes the DSLParser, which reads the scripts with the {@link PreqlReader}.
      */
     public DSLParser() {
-        Injector injector = new PreqlStandaloneSetup().createInjectorAndDoEMFRegistration();
-        injector.injectMembers(this);
+        this(null);
+    }
 
-        this.operationCounter = 0;
-        this.whenExtensionMode = false;
+    /**
+     * Initializes the DSLParser with a cache of parsed tables, which reads the scripts with the {@link PreqlReader}.
+     *
+     * @param cache The cache used to reuse the tables of unchanged input files, or {@code null} to parse every file.
+     */
+    public DSLParser(ParseCache cache) {
+        this(cache, new Optimizer());
+    }
+
+    /**
+     * Initializes the DSLParser with a cache of parsed tables and an optimizer, which reads the scripts with the
+     * {@link PreqlReader}.
+     *
+     * @param cache The cache used to reuse the tables of unchanged input files, or {@code null} to parse every file.
+     * @param optimizer The optimizer that rewrites the plan of each script before it is executed.
+     */
+    public DSLParser(ParseCache cache, Optimizer optimizer) {
+        this(cache, optimizer, Frontend.READER);
+    }
+
+    /**
+     * Initializes the DSLParser with a cache of parsed tables, an optimizer and the front-end that reads the scripts.
+     *
+     * @param cache The cache used to reuse the tables of unchanged input files, or {@code null} to parse every file.
+     * @param optimizer The optimizer that rewrites the plan of each script before it is executed.
+     * @param frontend The front-end that reads the scripts.
+     */
+    public DSLParser(ParseCache cache, Optimizer optimizer, Frontend frontend) {
+        this(cache, optimizer, frontend, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Initializes the DSLParser with a cache of parsed tables, an optimizer, the front-end that reads the scripts
+     * and the number of imports run at the same time.
+     *
+     * @param cache The cache used to reuse the tables of unchanged input files, or {@code null} to parse every file.
+     * @param optimizer The optimizer that rewrites the plan of each script before it is executed.
+     * @param frontend The front-end that reads the scripts.
+     * @param parallelism The maximum number of imports run at the same time; {@code 1} runs the statements in order.
+     */
+    public DSLParser(ParseCache cache, Optimizer optimizer, Frontend frontend, int parallelism) {
+        this.cache = cache;
+        this.optimizer = optimizer;
+        this.frontend = frontend;
+        this.executor = new PlanExecutor(parallelism);
     }
 
     /**
@@ -130,8 +225,7 @@ public class DSLParser {
      * @return A string representing the operation name.
      */
     private String getOperationName() {
-        this.operationCounter += 1;
-        return "operation" + this.operationCounter;
+        return "operation" + this.operationCounter.incrementAndGet();
     }
 
     /**
@@ -176,9 +270,11 @@ public class DSLParser {
         String source = Utils.stripQuotes(importDataFolder.getSourcePath());
         String extension = this.getExtension(importDataFolder.getExtType());
         String operationName = this.getOperationName();
-        return ((TableBuilder) builder).performOperation(operationName)
-                                       .withImport()
-                                       .fromFolder(source, extension);
+        ImportBuilder importBuilder = ((TableBuilder) builder).performOperation(operationName)
+                                                              .withImport()
+                                                              .withCache(this.cache)
+                                                              .fromFolder(source, extension);
+        return this.joinParser(importDataFolder.getJoinColumn(), importDataFolder.isOuter(), importBuilder);
     }
 
     /**
@@ -195,6 +291,7 @@ public class DSLParser {
         String operationName = this.getOperationName();
         return ((TableBuilder) builder).performOperation(operationName)
                                        .withImport()
+                                       .withCache(this.cache)
                                        .fromFolders(source);
     }
 
@@ -211,9 +308,11 @@ public class DSLParser {
         builder = this.reset(builder, TableBuilder.class);
         String source = Utils.stripQuotes(importDataFromFile.getSourcePath());
         String operationName = this.getOperationName();
-        return ((TableBuilder) builder).performOperation(operationName)
-                                       .withImport()
-                                       .fromFile(source);
+        ImportBuilder importBuilder = ((TableBuilder) builder).performOperation(operationName)
+                                                              .withImport()
+                                                              .withCache(this.cache)
+                                                              .fromFile(source);
+        return this.joinParser(importDataFromFile.getJoinColumn(), importDataFromFile.isOuter(), importBuilder);
     }
 
     /**
@@ -229,7 +328,8 @@ public class DSLParser {
         String columnName = Utils.stripQuotes(selectionColumn.getColumnName());
         String constraint = this.getConstraint(selectionColumn.getColumnFilter());
         List<String> filters = constraint == null ? null : List.of(constraint);
-        return ((ImportBuilder) builder).selectByColumn(columnName, filters);
+        RowFilter where = this.whereParser(selectionColumn.getWhere());
+        return ((ImportBuilder) builder).selectByColumn(columnName, filters, where);
     }
 
     /**
@@ -274,12 +374,10 @@ public class DSLParser {
      * @throws Exception If the parsing fails.
      */
     private Builder extensionParser(ExtensionImpl extension, Builder builder) throws Exception {
-
-        builder = (this.whenExtensionMode && (builder instanceof SelectBuilder))
-                    ? ((ImportBuilder) builder.end()).endWhen()
-                    : this.reset(builder, ImportBuilder.class);
-
-        this.whenExtensionMode = true;
+        // The state of the extensions is kept by the import builder, so the blocks of a script can run at once
+        boolean selected = builder instanceof SelectBuilder;
+        ImportBuilder importBuilder = (ImportBuilder) this.reset(builder, ImportBuilder.class);
+        builder = selected && importBuilder.isFilteringByExtension() ? importBuilder.endWhen() : importBuilder;
 
         String extensionName = Utils.stripQuotes(this.getExtension(extension.getType()));
         return ((ImportBuilder) builder).whenExtension(extensionName);
@@ -299,7 +397,8 @@ public class DSLParser {
         String tableName = table.equals("*") ? null : table;
         String constraint = this.getConstraint(selectionTable.getColumnFilter());
         List<String> filters = constraint == null ? null : List.of(constraint);
-        return ((ImportBuilder) builder).selectByTable(tableName, filters);
+        RowFilter where = this.whereParser(selectionTable.getWhere());
+        return ((ImportBuilder) builder).selectByTable(tableName, filters, where);
     }
 
     /**
@@ -371,6 +470,211 @@ public class DSLParser {
                 : ((OperationBuilder) builder).average();
     }
 
+    /**
+     * Parses an AggregateImpl node and updates the builder with the statistics to append as summary rows.
+     *
+     * @param aggregate The AggregateImpl object to parse.
+     * @param builder The current builder in the chain.
+     * @return The updated builder with the summary rows appended.
+     * @throws Exception If the parsing fails.
+     */
+    private Builder aggregateParser(AggregateImpl aggregate, Builder builder) throws Exception {
+        builder = this.reset(builder, OperationBuilder.class);
+
+        List<Aggregator.Statistic> statistics = new ArrayList<>();
+        for (STATISTIC statistic : aggregate.getStatistics()) {
+            statistics.add(Aggregator.Statistic.valueOf(statistic.getName()));
+        }
+
+        return ((OperationBuilder) builder).aggregate(statistics);
+    }
+
+    /**
+     * Parses an ApproximateAggregate node and updates the builder with the estimates to append as summary rows.
+     *
+     * @param aggregate The ApproximateAggregate node to parse.
+     * @param builder The current builder in the chain.
+     * @return The updated builder with the summary rows appended.
+     * @throws Exception If the parsing fails.
+     */
+    private Builder approximateAggregateParser(ApproximateAggregateImpl aggregate, Builder builder) throws Exception {
+        builder = this.reset(builder, OperationBuilder.class);
+
+        List<ColumnSketch.Approximation> approximations = new ArrayList<>();
+        for (Approximation approximation : aggregate.getApproximations()) {
+            approximations.add(switch (approximation) {
+                case ApproximateDistinctImpl distinct -> ColumnSketch.Approximation.distinct();
+                case ApproximatePercentileImpl percentile -> ColumnSketch.Approximation.percentile(
+                        Double.parseDouble(percentile.getPercentile()));
+                default -> throw new DSLException("Approximation not implemented: " + approximation);
+            });
+        }
+
+        return ((OperationBuilder) builder).approximate(approximations);
+    }
+
+    /**
+     * Parses a GroupByImpl node and replaces the table of the builder with one row per group.
+     *
+     * @param groupBy The GroupByImpl object to parse.
+     * @param builder The current builder in the chain.
+     * @return The updated builder with the grouped table.
+     * @throws Exception If the parsing fails.
+     */
+    private Builder groupByParser(GroupByImpl groupBy, Builder builder) throws Exception {
+        builder = this.reset(builder, OperationBuilder.class);
+
+        List<String> keyColumns = groupBy.getColumns().stream().map(Utils::stripQuotes).toList();
+        List<String> valueColumns = groupBy.getValues().isEmpty()
+                ? null
+                : groupBy.getValues().stream().map(Utils::stripQuotes).toList();
+
+        List<Aggregator.Statistic> statistics = new ArrayList<>();
+        for (STATISTIC statistic : groupBy.getStatistics()) {
+            statistics.add(Aggregator.Statistic.valueOf(statistic.getName()));
+        }
+
+        return ((OperationBuilder) builder).groupBy(keyColumns, valueColumns, statistics);
+    }
+
+    /**
+     * Parses an OrderBy node and sorts the rows of the table of the builder.
+     *
+     * @param orderBy The OrderBy node to parse.
+     * @param builder The current builder in the chain.
+     * @return The updated builder with the sorted table.
+     * @throws Exception If the parsing fails.
+     */
+    private Builder orderByParser(OrderByImpl orderBy, Builder builder) throws Exception {
+        builder = this.reset(builder, OperationBuilder.class);
+
+        List<TableSorter.SortKey> keys = new ArrayList<>();
+        for (SortKey sortKey : orderBy.getKeys()) {
+            keys.add(new TableSorter.SortKey(Utils.stripQuotes(sortKey.getColumn()), sortKey.isDescending()));
+        }
+
+        return ((OperationBuilder) builder).orderBy(keys);
+    }
+
+    /**
+     * Parses an ExpressionColumn node and adds a column with the values of its expression.
+     *
+     * @param expressionColumn The ExpressionColumn node to parse.
+     * @param builder The current builder in the chain.
+     * @return The updated builder with the new column.
+     * @throws Exception If the parsing fails.
+     */
+    private Builder expressionColumnParser(ExpressionColumnImpl expressionColumn, Builder builder) throws Exception {
+        builder = this.reset(builder, OperationBuilder.class);
+        String columnName = Utils.stripQuotes(expressionColumn.getColumnName());
+        Expression expression = this.expressionParser(expressionColumn.getExpression());
+        return ((OperationBuilder) builder).addExpressionColumn(columnName, expression);
+    }
+
+    /**
+     * Parses an Expression node into the expression it computes.
+     *
+     * @param expression The Expression node to parse.
+     * @return The parsed expression.
+     * @throws Exception If the parsing fails or the expression is not implemented.
+     */
+    private Expression expressionParser(org.xtext.example.mydsl.preql.Expression expression) throws Exception {
+        return switch (expression) {
+            case BinaryImpl binary -> new Expression.Binary(
+                    switch (binary.getOperator()) {
+                        case "+" -> ArithmeticKernels.Operation.SUM;
+                        case "-" -> ArithmeticKernels.Operation.SUB;
+                        case "*" -> ArithmeticKernels.Operation.MUL;
+                        case "/" -> ArithmeticKernels.Operation.DIV;
+                        default -> throw new DSLException("Operator not implemented: " + binary.getOperator());
+                    },
+                    this.expressionParser(binary.getLeft()),
+                    this.expressionParser(binary.getRight()));
+            case NegationImpl negation -> new Expression.Negation(this.expressionParser(negation.getOperand()));
+            case NumberConstantImpl constant -> new Expression.Constant(Double.parseDouble(constant.getValue()));
+            case ColumnReferenceImpl column -> new Expression.ColumnReference(Utils.stripQuotes(column.getColumn()));
+            default -> throw new DSLException("Expression not implemented: " + expression);
+        };
+    }
+
+    /**
+     * Parses the optional JOIN clause of an import, making the import join its table on the given column.
+     *
+     * @param joinColumn The column of the JOIN clause, or null if the import has none.
+     * @param outer Whether the clause is a LEFT JOIN.
+     * @param builder The import builder of the node.
+     * @return The import builder, joining on the column of the clause if the import has one.
+     */
+    private ImportBuilder joinParser(String joinColumn, boolean outer, ImportBuilder builder) {
+        if (joinColumn == null) {
+            return builder;
+        }
+        HashJoin.Type type = outer ? HashJoin.Type.LEFT : HashJoin.Type.INNER;
+        return builder.joinOn(Utils.stripQuotes(joinColumn), type);
+    }
+
+    /**
+     * Parses the optional WHERE clause of a selection into the filter of its rows.
+     *
+     * @param where The condition of the WHERE clause, or null if the selection has none.
+     * @return The filter of the clause, or null if the selection has no WHERE clause.
+     * @throws Exception If the parsing fails.
+     */
+    private RowFilter whereParser(Condition where) throws Exception {
+        return where == null ? null : this.conditionParser(where);
+    }
+
+    /**
+     * Parses a Condition node of a WHERE clause.
+     *
+     * @param condition The Condition node to parse.
+     * @return The filter of the condition.
+     * @throws Exception If the parsing fails or the condition is not implemented.
+     */
+    private RowFilter conditionParser(Condition condition) throws Exception {
+        return switch (condition) {
+            case OrImpl or -> new RowFilter.Or(this.conditionParser(or.getLeft()), this.conditionParser(or.getRight()));
+            case AndImpl and -> new RowFilter.And(this.conditionParser(and.getLeft()), this.conditionParser(and.getRight()));
+            case ComparisonImpl comparison -> {
+                String column = Utils.stripQuotes(comparison.getColumn());
+                if (comparison.getOperator() == COMPARISON_OPERATOR.NULL) {
+                    throw new DSLException("Missing comparison operator on column " + column);
+                }
+                RowFilter.Operator operator = RowFilter.Operator.valueOf(comparison.getOperator().getName());
+                Object value = this.literalParser(comparison.getValue(), operator.isTextual());
+                yield new RowFilter.Comparison(column, operator, value);
+            }
+            case MembershipImpl membership -> {
+                String column = Utils.stripQuotes(membership.getColumn());
+                List<Object> values = new ArrayList<>();
+                for (Literal literal : membership.getValues()) {
+                    values.add(this.literalParser(literal, false));
+                }
+                yield new RowFilter.Membership(column, values);
+            }
+            default -> throw new DSLException("Condition not implemented: " + condition);
+        };
+    }
+
+    /**
+     * Parses a Literal node of a WHERE clause.
+     *
+     * @param literal The Literal node to parse.
+     * @param asText Whether numbers are kept as written, for the operators that compare text.
+     * @return The string of a text literal, or the value of a number literal.
+     * @throws Exception If the parsing fails or the literal is not implemented.
+     */
+    private Object literalParser(Literal literal, boolean asText) throws Exception {
+        return switch (literal) {
+            case TextLiteralImpl text -> Utils.stripQuotes(text.getText());
+            case NumberLiteralImpl number -> {
+                String digits = number.getNumber().replaceAll("\\s+", "");
+                yield asText ? digits : (Object) Double.parseDouble(digits);
+            }
+            default -> throw new DSLException("Literal not implemented: " + literal);
+        };
+    }
+
     /**
      * Parses a RemoveColumnImpl node and updates the builder to remove a column.
      *
@@ -424,14 +728,145 @@ public class DSLParser {
     }
 
     /**
-     * Parses the given DSL file and applies the instructions to the builder chain.
+     * Plans a statement of the DSL, describing the columns it uses so that the optimizer can rewrite the plan.
+     *
+     * @param element The node of the statement.
+     * @return The plan node that executes the statement.
+     * @throws Exception If the parsing fails or the node is not implemented.
+     */
+    private PlanNode planner(EObject element) throws Exception {
+        String name = element.eClass().getName();
+
+        return switch (element) {
+            case CreateTableImpl createTable -> PlanNode.Operation.of(PlanNode.Kind.CREATE, name,
+                    builder -> this.createTableParser(createTable, builder));
+            case ImportDataFolderImpl importDataFolder -> PlanNode.Operation.of(this.importKind(importDataFolder.getJoinColumn()), name,
+                    builder -> this.importDataFolderParser(importDataFolder, builder));
+            case ImportDataFoldersImpl importDataFolders -> PlanNode.Operation.of(PlanNode.Kind.IMPORT, name,
+                    builder -> this.importDataFoldersParser(importDataFolders, builder));
+            case ImportDataFileImpl importDataFile -> PlanNode.Operation.of(this.importKind(importDataFile.getJoinColumn()), name,
+                    builder -> this.importDataFileParser(importDataFile, builder));
+            case ExtensionImpl extension -> PlanNode.Operation.of(PlanNode.Kind.SELECT, name,
+                    builder -> this.extensionParser(extension, builder));
+            case OutputTableImpl outputTable -> new PlanNode.Export(Utils.stripQuotes(outputTable.getOutputPath()),
+                    builder -> this.outputTableParser(outputTable, builder));
+            case SelectionColumnImpl selectionColumn -> PlanNode.Operation.of(PlanNode.Kind.SELECT, name,
+                    builder -> this.selectionColumnParser(selectionColumn, builder));
+            case AddColumnGlobalImpl addColumnGlobal -> new PlanNode.Operation(PlanNode.Kind.COMPUTE, name, Set.of(),
+                    Set.of(Utils.stripQuotes(addColumnGlobal.getColumnName())),
+                    builder -> this.addGlobalColumnParser(addColumnGlobal, builder));
+            case AddColumnNestedImpl addColumnNested -> PlanNode.Operation.of(PlanNode.Kind.SELECT, name,
+                    builder -> this.addNestedColumnParser(addColumnNested, builder));
+            case SelectionTableImpl selectionTable -> PlanNode.Operation.of(PlanNode.Kind.SELECT, name,
+                    builder -> this.selectionTableParser(selectionTable, builder));
+            case FilterImpl filter -> PlanNode.Operation.of(PlanNode.Kind.SELECT, name,
+                    builder -> this.filterParser(filter, builder));
+            case DefineSuffixImpl suffix -> {
+                String columnName = Utils.stripQuotes(suffix.getAppliesTo());
+                yield new PlanNode.Rename(columnName, columnName + " " + Utils.stripQuotes(suffix.getSuffix()),
+                                          builder -> this.suffixParser(suffix, builder));
+            }
+            case DefinePrefixImpl prefix -> {
+                String columnName = Utils.stripQuotes(prefix.getAppliesTo());
+                yield new PlanNode.Rename(columnName, Utils.stripQuotes(prefix.getPrefix()) + " " + columnName,
+                                          builder -> this.prefixParser(prefix, builder));
+            }
+            case RowOperationImpl rowOperation -> PlanNode.Operation.of(PlanNode.Kind.AGGREGATE, name,
+                    builder -> this.rowOperationParser(rowOperation, builder));
+            case AggregateImpl aggregate -> PlanNode.Operation.of(PlanNode.Kind.AGGREGATE, name,
+                    builder -> this.aggregateParser(aggregate, builder));
+            case ApproximateAggregateImpl aggregate -> PlanNode.Operation.of(PlanNode.Kind.AGGREGATE, name,
+                    builder -> this.approximateAggregateParser(aggregate, builder));
+            case GroupByImpl groupBy -> PlanNode.Operation.of(PlanNode.Kind.RESHAPE, name,
+                    builder -> this.groupByParser(groupBy, builder));
+            case OrderByImpl orderBy -> PlanNode.Operation.of(PlanNode.Kind.RESHAPE, name,
+                    builder -> this.orderByParser(orderBy, builder));
+            case ExpressionColumnImpl expressionColumn -> {
+                Set<String> columns = this.expressionParser(expressionColumn.getExpression()).getColumns();
+                // Expressions without columns read the number of rows of the table
+                yield new PlanNode.Operation(PlanNode.Kind.COMPUTE, name, columns.isEmpty() ? null : columns,
+                                             Set.of(Utils.stripQuotes(expressionColumn.getColumnName())),
+                                             builder -> this.expressionColumnParser(expressionColumn, builder));
+            }
+            case RemoveColumnImpl removeColumn -> new PlanNode.Remove(removeColumn.getColumnName(),
+                    builder -> this.removeColumnOperationParser(removeColumn, builder));
+            case RenameColumnImpl renameColumn -> new PlanNode.Rename(
+                    renameColumn.getColumnName(), renameColumn.getNewColumnName(),
+                    builder -> this.renameColumnOperationParser(renameColumn, builder));
+            case OperationAtRowsImpl operation -> new PlanNode.Operation(PlanNode.Kind.COMPUTE, name,
+                    new LinkedHashSet<>(List.of(operation.getColumn1(), operation.getColumn2())),
+                    Set.of(operation.getColumnFinal()), builder -> this.operationAtRowsParser(operation, builder));
+            default -> throw new DSLException("Node not implemented: " + element);
+        };
+    }
+
+    /**
+     * Determines whether an import appends its columns to the result table or joins its table with it, in which
+     * case it depends on the result table.
+     *
+     * @param joinColumn The column of the JOIN clause of the import, or null if it has none.
+     * @return The kind of the plan node of the import.
+     */
+    private PlanNode.Kind importKind(String joinColumn) {
+        return joinColumn != null ? PlanNode.Kind.JOIN : PlanNode.Kind.IMPORT;
+    }
+
+    /**
+     * Checks whether a node holds statements of its own, which are planned after it, rather than parts of itself.
+     *
+     * @param element The node.
+     * @return True if the children of the node are statements.
+     */
+    private boolean holdsStatements(EObject element) {
+        return element instanceof ModelImpl
+                || element instanceof ImportDataFileImpl
+                || element instanceof ImportDataFolderImpl
+                || element instanceof ImportDataFoldersImpl
+                || element instanceof ExtensionImpl;
+    }
+
+    /**
+     * Parses the given DSL file into the plan of its statements, without executing any of them.
      *
      * @param filePath The path to the DSL file to parse.
-     * @throws Exception If parsing fails due to syntax errors, invalid builder operations, or unimplemented nodes.
+     * @return The plan of the statements, in order.
+     * @throws Exception If parsing fails due to syntax errors or unimplemented nodes.
      */
-    public void parse(String filePath) throws Exception {
+    public LogicalPlan plan(String filePath) throws Exception {
+        EObject model = this.frontend == Frontend.XTEXT ? this.loadXtext(filePath) : PreqlReader.readFile(filePath);
+        List<PlanNode> nodes = new ArrayList<>();
+        if (model == null) {
+            return new LogicalPlan(nodes);
+        }
+
+        var treeIterator = model.eAllContents();
+        while (treeIterator.hasNext()) {
+
+            EObject element = treeIterator.next();
+
+            try {
+                nodes.add(this.planner(element));
+            } catch (Exception exception) {
+                throw new DSLException(exception.getMessage());
+            }
+
+            // The parts of a statement, such as its conditions or expressions, were parsed with it
+            if (!this.holdsStatements(element)) {
+                treeIterator.prune();
+            }
+        }
 
-        ResourceSet resourceSet = new ResourceSetImpl();
+        return new LogicalPlan(nodes);
+    }
+
+    /**
+     * Reads the given DSL file with the Xtext parser, creating its injector the first time.
+     *
+     * @param filePath The path to the DSL file to read.
+     * @return The model of the file, or {@code null} if the file is empty.
+     */
+    private EObject loadXtext(String filePath) {
+        ResourceSet resourceSet = XtextSetup.INJECTOR.getInstance(XtextResourceSet.class);
         Resource resource = resourceSet.createResource(URI.createFileURI(filePath));
         try {
             resource.load(Collections.emptyMap());
@@ -446,41 +881,18 @@ public class DSLParser {
                     .collect(Collectors.joining("\n- ", "- ", "\n"));
             throw new RuntimeException(message);
         }
+        return resource.getContents().isEmpty() ? null : resource.getContents().get(0);
+    }
 
-        var treeIterator = resource.getAllContents();
-        Builder builder = new TableBuilder();
-
-        while (treeIterator.hasNext()) {
-
-            EObject element = treeIterator.next();
-            
-            try {
-
-                builder = switch (element) {
-                    case ModelImpl ignored -> builder;
-                    case CreateTableImpl createTable -> this.createTableParser(createTable, builder);
-                    case ImportDataFolderImpl importDataFolder -> this.importDataFolderParser(importDataFolder, builder);
-                    case ImportDataFoldersImpl importDataFolders -> this.importDataFoldersParser(importDataFolders, builder);
-                    case ImportDataFileImpl importDataFile -> this.importDataFileParser(importDataFile, builder);
-                    case ExtensionImpl extension -> this.extensionParser(extension, builder);
-                    case OutputTableImpl outputTable -> this.outputTableParser(outputTable, builder);
-                    case SelectionColumnImpl selectionColumn -> this.selectionColumnParser(selectionColumn, builder);
-                    case AddColumnGlobalImpl addColumnGlobal -> this.addGlobalColumnParser(addColumnGlobal, builder);
-                    case AddColumnNestedImpl addColumnNested -> this.addNestedColumnParser(addColumnNested, builder);
-                    case SelectionTableImpl selectionTable -> this.selectionTableParser(selectionTable, builder);
-                    case FilterImpl filter -> this.filterParser(filter, builder);
-                    case DefineSuffixImpl suffix -> this.suffixParser(suffix, builder);
-                    case DefinePrefixImpl prefix -> this.prefixParser(prefix, builder);
-                    case RowOperationImpl rowOperation -> this.rowOperationParser(rowOperation, builder);
-                    case RemoveColumnImpl removeColumn -> this.removeColumnOperationParser(removeColumn, builder);
-                    case RenameColumnImpl renameColumn -> this.renameColumnOperationParser(renameColumn, builder);
-                    case OperationAtRowsImpl operation -> this.operationAtRowsParser(operation, builder);
-                    default -> throw new DSLException("Node not implemented: " + element);
-                };
-
-            } catch (Exception exception) {
-                throw new DSLException(exception.getMessage());
-            }
-        }
+    /**
+     * Parses the given DSL file and applies the instructions to the builder chain, after optimizing their plan.
+     * Independent imports run at the same time, and their columns are merged in the order of the script.
+     *
+     * @param filePath The path to the DSL file to parse.
+     * @throws Exception If parsing fails due to syntax errors, invalid builder operations, or unimplemented nodes.
+     */
+    public void parse(String filePath) throws Exception {
+        LogicalPlan plan = this.optimizer.optimize(this.plan(filePath));
+        this.executor.execute(plan, new TableBuilder());
     }
 }
@@ -2,7 +2,10 @@ package pt.up.fe.els2024.parser;
 
 import pt.up.fe.els2024.Column;
 import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.engine.RowFilter;
 import pt.up.fe.els2024.exception.ParserException;
+import pt.up.fe.els2024.storage.ColumnType;
+import pt.up.fe.els2024.utils.PathExpression;
 
 import java.io.File;
 import java.io.IOException;
@@ -32,6 +35,22 @@ public abstract class FileParser {
      */
     public abstract Map<String, Object> readData(File file) throws IOException, ParserException;
 
+    /**
+     * Reads the raw data from a file, restricted to the branches along a selection path.
+     * 
+     * <p>Parsers that can read their files incrementally override this method to skip the parts of the file
+     * outside the path. By default, the whole file is read with {@link #readData(File)}.</p>
+     * 
+     * @param file the file to read the data from
+     * @param path the keys to follow from the root of the file, or an empty list to read everything
+     * @return a map representing the data in the file, containing at least every branch along the path
+     * @throws IOException if there is an issue reading the file
+     * @throws ParserException if there is a problem parsing the file's contents
+     */
+    public Map<String, Object> readData(File file, List<String> path) throws IOException, ParserException {
+        return readData(file);
+    }
+
     /**
      * Parses the data from a file and returns it as a {@link Table}.
      * 
@@ -49,6 +68,48 @@ public abstract class FileParser {
         return parse(data, fileName);
     }
 
+    /**
+     * Parses the data from a file along a selection path and returns it as a {@link Table}.
+     * 
+     * <p>Only the branches along the path are guaranteed to be in the resulting table, so selecting the path
+     * from it gives the same result as selecting it from the table of the whole file.</p>
+     * 
+     * @param file the file to parse
+     * @param fileName the name of the file, used for the table's identification
+     * @param path the keys to follow from the root of the file, or an empty list to parse everything
+     * @return a {@link Table} object representing the parsed data
+     * @throws IOException if there is an issue reading the file
+     * @throws ParserException if there is a problem parsing the file's contents
+     */
+    public Table parseFile(File file, String fileName, List<String> path) throws IOException, ParserException {
+        Map<String, Object> data = path.isEmpty() ? readData(file) : readData(file, path);
+        return parse(data, fileName);
+    }
+
+    /**
+     * Parses the data from a file along a selection path, keeping only the rows of the selected tables that satisfy
+     * a filter.
+     * 
+     * <p>The filter is applied to the tables the path leads to. By default, the file is parsed with
+     * {@link #parseFile(File, String, List)} and the filter is applied to the parsed tables before they are returned,
+     * so that the rejected rows don't outlive the parsing. Parsers that can evaluate the filter while reading
+     * override this method to skip the rejected rows altogether.</p>
+     * 
+     * @param file the file to parse
+     * @param fileName the name of the file, used for the table's identification
+     * @param path the keys to follow from the root of the file, or an empty list to parse everything
+     * @param filter the filter applied to the tables along the path
+     * @return a {@link Table} object representing the parsed data, with the rejected rows removed
+     * @throws IOException if there is an issue reading the file
+     * @throws ParserException if there is a problem parsing the file's contents
+     */
+    public Table parseFile(File file, String fileName, List<String> path, RowFilter filter)
+            throws IOException, ParserException {
+        Table table = this.parseFile(file, fileName, path);
+        filter.filter(table, PathExpression.of(path));
+        return table;
+    }
+
     /**
      * Extracts key-value pairs from an object, assuming it is a {@link LinkedHashMap}.
      * 
@@ -95,7 +156,7 @@ public abstract class FileParser {
         for (String key : data.keySet()) {
 
             Object value = data.get(key);
-            Column column = new Column(key);
+            Column column;
 
             // If the value is a nested table (LinkedHashMap), recursively parse it
             if (value instanceof LinkedHashMap) {
@@ -112,16 +173,19 @@ public abstract class FileParser {
 
                 // If the list contains nested tables, recursively parse each item
                 if (isLinkedHashMap) {
+                    column = new Column(key, ColumnType.TABLE, list.size());
                     for (Object object : (List<Object>) value) {
                         column.addRow(this.parse(this.extractPairs(object), key));
                     }
                 
                 // Otherwise, add the list as-is (assuming simple types like integers, strings, etc.)
                 } else {
+                    column = new Column(key, ColumnType.OBJECT, 1);
                     column.addRow(list);
                 }
             } else {
-                // If the value is a single item, add it directly to the column
+                // If the value is a single item, store it in the layout matching its type
+                column = new Column(key, ColumnType.of(value), 1);
                 column.addRow(value);
             }
 
@@ -1,10 +1,12 @@
 package pt.up.fe.els2024.parser;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import pt.up.fe.els2024.exception.ParserException;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -12,7 +14,9 @@ import java.util.Map;
  * This parser uses the Jackson {@link ObjectMapper} to read and convert JSON data into a {@link Map} of key-value pairs,
  * which can then be processed into a Table object.
  * 
- * <p>It implements the {@link FileParser#readData(File)} method to handle JSON-specific file reading and parsing.</p>
+ * <p>It implements the {@link FileParser#readData(File)} method to handle JSON-specific file reading and parsing.
+ * When a selection path is given, the file is read token by token with a {@link PathReader}, so that only
+ * the selected branches are deserialized.</p>
  */
 public class JSONParser extends FileParser {
 
@@ -41,4 +45,32 @@ public class JSONParser extends FileParser {
             throw new ParserException("Error reading or parsing JSON file: " + file.getName());
         }
     }
+
+    /**
+     * Reads the data from a JSON file, restricted to the branches along a selection path.
+     * 
+     * <p>The file is streamed through a Jackson {@link JsonParser}: fields outside the path are skipped
+     * at the token level, and only the value at the end of the path is deserialized whole.</p>
+     * 
+     * @param file the JSON file to read
+     * @param path the keys to follow from the root of the document
+     * @return a map with the branches of the JSON data along the path
+     * @throws IOException if there is an issue reading the file
+     * @throws ParserException if the file cannot be parsed into the expected structure
+     */
+    @Override
+    public Map<String, Object> readData(File file, List<String> path) throws IOException, ParserException {
+        Map<String, Object> data;
+        try (JsonParser parser = this.jsonMapper.createParser(file)) {
+            data = new PathReader(this.jsonMapper).read(parser, path);
+        } catch (IOException e) {
+            // Throw a custom ParserException if the JSON is malformed or unreadable
+            throw new ParserException("Error reading or parsing JSON file: " + file.getName());
+        }
+
+        if (data == null) {
+            throw new ParserException("Error reading or parsing JSON file: " + file.getName());
+        }
+        return data;
+    }
 }
@@ -0,0 +1,385 @@
+package pt.up.fe.els2024.parser;
+
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.cache.TableCodec;
+import pt.up.fe.els2024.engine.RowFilter;
+import pt.up.fe.els2024.exception.ParserException;
+import pt.up.fe.els2024.export.PTBLExporter;
+import pt.up.fe.els2024.storage.ColumnStorage;
+import pt.up.fe.els2024.storage.ColumnType;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * {@code PTBLParser} is a subclass of {@link FileParser} that reads tables stored in the native binary columnar
+ * format written by {@link PTBLExporter}.
+ *
+ * <p>The file is memory-mapped and its footer is read first, so that the columns are decoded straight from their
+ * chunks into storages of the layout they were written with, without building an intermediate {@link Map}.
+ * When a selection path is given, only the column named by its first key is decoded. When a filter is given for
+ * the whole table, the columns it reads are decoded first, and only the chunks of the other columns holding
+ * selected rows are decoded.</p>
+ */
+public class PTBLParser extends FileParser {
+
+    /**
+     * The position and size of a chunk in the file, as described in the footer.
+     *
+     * @param offset     the position of the chunk in the file
+     * @param length     the size of the chunk as stored
+     * @param rawLength  the size of the chunk once decompressed
+     * @param rows       the number of rows of the chunk
+     * @param compressed whether the chunk is compressed
+     */
+    private record Chunk(long offset, int length, int rawLength, int rows, boolean compressed) {}
+
+    /**
+     * A column as described in the footer.
+     *
+     * @param name        the name of the column
+     * @param typeOrdinal the ordinal of the layout of the column, or {@link PTBLExporter#NO_STORAGE}
+     * @param size        the number of rows of the column
+     * @param chunks      the chunks of the column, in row order
+     */
+    private record ColumnChunks(String name, int typeOrdinal, int size, List<Chunk> chunks) {}
+
+    /**
+     * PTBL files hold tables rather than documents, so they are never read as a map.
+     *
+     * @param file the PTBL file
+     * @return never returns normally
+     * @throws ParserException always, since the file must be read with {@link #parseFile(File, String)}
+     */
+    @Override
+    public Map<String, Object> readData(File file) throws IOException, ParserException {
+        throw new ParserException("PTBL files can only be read as tables: " + file.getName());
+    }
+
+    /**
+     * Reads the table stored in a PTBL file.
+     *
+     * @param file the PTBL file to read
+     * @param fileName the name of the file, used for the table's identification
+     * @return the stored table, named after the file
+     * @throws IOException if there is an issue reading the file
+     * @throws ParserException if the file is not a valid PTBL file
+     */
+    @Override
+    public Table parseFile(File file, String fileName) throws IOException, ParserException {
+        return this.read(file, fileName, null);
+    }
+
+    /**
+     * Reads the table stored in a PTBL file, decoding only the column named by the first key of the path.
+     *
+     * @param file the PTBL file to read
+     * @param fileName the name of the file, used for the table's identification
+     * @param path the keys to follow from the root of the table, or an empty list to read every column
+     * @return the stored table, named after the file, with at least the column along the path
+     * @throws IOException if there is an issue reading the file
+     * @throws ParserException if the file is not a valid PTBL file
+     */
+    @Override
+    public Table parseFile(File file, String fileName, List<String> path) throws IOException, ParserException {
+        return this.read(file, fileName, path.isEmpty() ? null : path.get(0));
+    }
+
+    /**
+     * Reads the table stored in a PTBL file, keeping only the rows selected by a filter.
+     * <p>
+     * When the whole table is read, the filter is evaluated over the columns it reads, which are decoded first.
+     * The other columns are then decoded chunk by chunk, and the chunks without any selected row are skipped
+     * without being decompressed. Along a path, the filter applies to nested tables, which are stored inline in
+     * the column they belong to, so the table is read along the path and filtered afterwards.
+     * </p>
+     *
+     * @param file the PTBL file to read
+     * @param fileName the name of the file, used for the table's identification
+     * @param path the keys to follow from the root of the table, or an empty list to read every column
+     * @param filter the filter applied to the tables along the path
+     * @return the stored table, named after the file, with the rejected rows removed
+     * @throws IOException if there is an issue reading the file
+     * @throws ParserException if the file is not a valid PTBL file
+     */
+    @Override
+    public Table parseFile(File file, String fileName, List<String> path, RowFilter filter)
+            throws IOException, ParserException {
+        if (!path.isEmpty()) {
+            return super.parseFile(file, fileName, path, filter);
+        }
+        return this.read(file, fileName, null, filter);
+    }
+
+    /**
+     * Maps a PTBL file and decodes its columns.
+     *
+     * @param file the PTBL file to read
+     * @param fileName the name of the file, used for the table's identification
+     * @param only the name of the only column to decode, or {@code null} to decode every column
+     * @return the stored table
+     * @throws IOException if there is an issue reading the file
+     * @throws ParserException if the file is not a valid PTBL file
+     */
+    private Table read(File file, String fileName, String only) throws IOException, ParserException {
+        return this.read(file, fileName, only, null);
+    }
+
+    /**
+     * Maps a PTBL file and decodes its columns, keeping only the rows selected by a filter.
+     *
+     * @param file the PTBL file to read
+     * @param fileName the name of the file, used for the table's identification
+     * @param only the name of the only column to decode, or {@code null} to decode every column
+     * @param filter the filter selecting the rows to keep, or {@code null} to keep every row
+     * @return the stored table
+     * @throws IOException if there is an issue reading the file
+     * @throws ParserException if the file is not a valid PTBL file
+     */
+    private Table read(File file, String fileName, String only, RowFilter filter) throws IOException, ParserException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 2 * Integer.BYTES + PTBLExporter.TRAILER_SIZE) {
+                throw new ParserException("Error reading or parsing PTBL file: " + file.getName());
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            long footer = buffer.getLong((int) (size - PTBLExporter.TRAILER_SIZE));
+            if (buffer.getInt(0) != PTBLExporter.MAGIC
+                    || buffer.getInt(Integer.BYTES) != PTBLExporter.VERSION
+                    || buffer.getInt((int) (size - Integer.BYTES)) != PTBLExporter.MAGIC
+                    || footer < 2 * Integer.BYTES || footer > size - PTBLExporter.TRAILER_SIZE) {
+                throw new ParserException("Error reading or parsing PTBL file: " + file.getName());
+            }
+
+            DataInput in = new DataInputStream(new BufferInputStream(
+                    buffer.slice((int) footer, (int) (size - PTBLExporter.TRAILER_SIZE - footer))));
+
+            // The stored name is kept in the footer, but tables are named after the file they are read from
+            TableCodec.readString(in);
+            List<ColumnChunks> columns = new ArrayList<>();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                ColumnChunks column = this.readColumnChunks(in);
+                if (only == null || only.equals(column.name())) {
+                    columns.add(column);
+                }
+            }
+
+            Inflater inflater = new Inflater();
+            try {
+                return filter == null
+                        ? this.decode(fileName, columns, buffer, inflater)
+                        : this.decode(fileName, columns, buffer, inflater, filter);
+            } finally {
+                inflater.end();
+            }
+        } catch (IOException | DataFormatException | RuntimeException e) {
+            throw new ParserException("Error reading or parsing PTBL file: " + file.getName());
+        }
+    }
+
+    /**
+     * Decodes every row of the given columns.
+     *
+     * @param fileName the name of the table
+     * @param columns the columns to decode
+     * @param buffer the mapped file
+     * @param inflater the decompressor of the chunks
+     * @return the table with the decoded columns
+     * @throws IOException if a column or its chunks are not valid
+     * @throws DataFormatException if a compressed chunk is not valid
+     */
+    private Table decode(String fileName, List<ColumnChunks> columns, ByteBuffer buffer, Inflater inflater)
+            throws IOException, DataFormatException {
+        Table table = new Table(fileName);
+        for (ColumnChunks column : columns) {
+            table.addColumn(this.decodeColumn(column, buffer, inflater, null));
+        }
+        return table;
+    }
+
+    /**
+     * Decodes the rows of the given columns that satisfy a filter.
+     * The columns read by the filter are decoded in full to evaluate it, and the other columns only in the chunks
+     * holding selected rows.
+     *
+     * @param fileName the name of the table
+     * @param columns the columns to decode
+     * @param buffer the mapped file
+     * @param inflater the decompressor of the chunks
+     * @param filter the filter selecting the rows to keep
+     * @return the table with the selected rows of the decoded columns
+     * @throws IOException if a column or its chunks are not valid
+     * @throws DataFormatException if a compressed chunk is not valid
+     */
+    private Table decode(String fileName, List<ColumnChunks> columns, ByteBuffer buffer, Inflater inflater,
+                         RowFilter filter) throws IOException, DataFormatException {
+        Set<String> filterColumns = filter.getColumns();
+        Column[] decoded = new Column[columns.size()];
+        Table probe = new Table(fileName);
+        for (int i = 0; i < columns.size(); i++) {
+            if (filterColumns.contains(columns.get(i).name())) {
+                decoded[i] = this.decodeColumn(columns.get(i), buffer, inflater, null);
+                probe.addColumn(decoded[i]);
+            }
+        }
+
+        BitSet rows = filter.evaluate(probe);
+
+        Table table = new Table(fileName);
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = decoded[i];
+            if (column == null) {
+                column = this.decodeColumn(columns.get(i), buffer, inflater, rows);
+            } else if (column.getStorage() != null && rows.nextClearBit(0) < column.size()) {
+                column = new Column(column.getName(), column.getStorage().select(rows));
+            }
+            table.addColumn(column);
+        }
+        return table;
+    }
+
+    /**
+     * Reads the description of a column and of its chunks from the footer.
+     *
+     * @param in the footer, positioned at the column
+     * @return the description of the column
+     * @throws IOException if the description is not valid
+     */
+    private ColumnChunks readColumnChunks(DataInput in) throws IOException {
+        String name = TableCodec.readString(in);
+        int typeOrdinal = in.readInt();
+        int size = in.readInt();
+        int chunks = in.readInt();
+
+        List<Chunk> chunkList = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            chunkList.add(new Chunk(in.readLong(), in.readInt(), in.readInt(), in.readInt(), in.readBoolean()));
+        }
+        return new ColumnChunks(name, typeOrdinal, size, chunkList);
+    }
+
+    /**
+     * Decodes the chunks of a column, keeping only the selected rows.
+     *
+     * @param column the description of the column
+     * @param buffer the mapped file
+     * @param inflater the decompressor of the chunks
+     * @param rows the rows to keep, or {@code null} to keep every row
+     * @return the decoded column
+     * @throws IOException if the chunks are not valid
+     * @throws DataFormatException if a compressed chunk is not valid
+     */
+    private Column decodeColumn(ColumnChunks column, ByteBuffer buffer, Inflater inflater, BitSet rows)
+            throws IOException, DataFormatException {
+        if (column.typeOrdinal() == PTBLExporter.NO_STORAGE) {
+            return new Column(column.name());
+        }
+
+        ColumnType type = TableCodec.typeOf(column.typeOrdinal());
+        ColumnStorage storage = type.create(rows == null ? column.size() : Math.min(column.size(), rows.cardinality()));
+
+        int start = 0;
+        for (Chunk chunk : column.chunks()) {
+            int end = start + chunk.rows();
+
+            // Chunks without any selected row are not even decompressed
+            int first = rows == null ? start : rows.nextSetBit(start);
+            if (first < 0 || first >= end) {
+                start = end;
+                continue;
+            }
+
+            ByteBuffer bytes = buffer.slice((int) chunk.offset(), chunk.length());
+            DataInput in = this.chunkInput(bytes, chunk.compressed(), chunk.rawLength(), inflater);
+            if (rows == null || rows.nextClearBit(start) >= end) {
+                TableCodec.readValues(in, storage, chunk.rows());
+            } else {
+                ColumnStorage values = type.create(chunk.rows());
+                TableCodec.readValues(in, values, chunk.rows());
+                storage.addAll(values.select(rows.get(start, end)));
+            }
+            start = end;
+        }
+        return new Column(column.name(), storage);
+    }
+
+    /**
+     * Opens the content of a chunk, decompressing it if needed.
+     *
+     * @param chunk the chunk as stored in the file
+     * @param compressed whether the chunk is compressed
+     * @param rawLength the size of the chunk once decompressed
+     * @param inflater the decompressor, reset before use
+     * @return the content of the chunk
+     * @throws DataFormatException if the compressed chunk is not valid
+     */
+    private DataInput chunkInput(ByteBuffer chunk, boolean compressed, int rawLength, Inflater inflater)
+            throws DataFormatException {
+        if (!compressed) {
+            return new DataInputStream(new BufferInputStream(chunk));
+        }
+
+        inflater.reset();
+        inflater.setInput(chunk);
+        byte[] raw = new byte[rawLength];
+        int read = 0;
+        while (read < rawLength && !inflater.finished()) {
+            int inflated = inflater.inflate(raw, read, rawLength - read);
+            if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                throw new DataFormatException("Truncated chunk");
+            }
+            read += inflated;
+        }
+        return new DataInputStream(new ByteArrayInputStream(raw, 0, read));
+    }
+
+    /**
+     * An {@link InputStream} over the remaining bytes of a buffer, used to decode mapped regions of the file.
+     */
+    private static class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        /**
+         * Constructs a stream over the remaining bytes of the given buffer.
+         *
+         * @param buffer the buffer to read
+         */
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, this.buffer.remaining());
+            this.buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
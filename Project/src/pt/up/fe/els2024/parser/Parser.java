@@ -1,34 +1,55 @@
 package pt.up.fe.els2024.parser;
 
 import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.cache.ParseCache;
+import pt.up.fe.els2024.engine.RowFilter;
 import pt.up.fe.els2024.exception.ParserException;
+import pt.up.fe.els2024.utils.PathExpression;
 import pt.up.fe.els2024.utils.Utils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 /**
  * {@code Parser} is a utility class responsible for parsing files based on their extension.
- * It determines the file type (e.g., JSON, YAML, XML) and delegates the parsing task to the corresponding
+ * It determines the file type (e.g., JSON, YAML, XML, PTBL) and delegates the parsing task to the corresponding
  * parser class that handles that specific file type.
  * <p>
  * The primary method in this class is {@link #parseFile(File)}, which identifies the file extension
  * and uses the appropriate parser to process the file and convert its content into a {@link Table}.
  * </p>
+ * <p>
+ * A {@link ParseCache} can be given to reuse the tables of files that were already parsed and haven't changed since.
+ * </p>
  */
 public class Parser {
 
+    /** The cache of parsed tables, or {@code null} if every file is parsed. */
+    private final ParseCache cache;
+
     /**
      * Constructs a new {@code Parser} instance.
      * This constructor doesn't require any arguments as no initialization is necessary.
      */
-    public Parser() {}
+    public Parser() {
+        this(null);
+    }
+
+    /**
+     * Constructs a new {@code Parser} instance that reuses the tables stored in the given cache.
+     *
+     * @param cache the cache of parsed tables, or {@code null} to parse every file
+     */
+    public Parser(ParseCache cache) {
+        this.cache = cache;
+    }
 
     /**
      * Parses the given file and converts it into a {@link Table} object.
      * <p>
      * The method determines the file type by its extension, and uses the appropriate {@link FileParser}
-     * to parse the file. Supported file types are JSON, YAML, and XML. If the file extension is not recognized,
+     * to parse the file. Supported file types are JSON, YAML, XML and PTBL. If the file extension is not recognized,
      * a {@link ParserException} is thrown.
      * </p>
      *
@@ -38,14 +59,67 @@ public class Parser {
      * @throws ParserException if the file's extension is unsupported or the parsing fails
      */
     public Table parseFile(File file) throws IOException, ParserException {
+        return this.parseFile(file, List.of());
+    }
+
+    /**
+     * Parses the given file along a selection path and converts it into a {@link Table} object.
+     * <p>
+     * Only the branches of the file along the path are guaranteed to be in the resulting table, which is enough
+     * to select that path from it. Parsers that support it skip the rest of the file while reading it.
+     * </p>
+     *
+     * @param file the file to parse
+     * @param path the keys to follow from the root of the file, or an empty list to parse everything
+     * @return a {@link Table} object that represents the parsed content of the file along the path
+     * @throws IOException if an error occurs while reading the file
+     * @throws ParserException if the file's extension is unsupported or the parsing fails
+     */
+    public Table parseFile(File file, List<String> path) throws IOException, ParserException {
+        return this.parseFile(file, path, null);
+    }
+
+    /**
+     * Parses the given file along a selection path, keeping only the rows of the selected tables that satisfy
+     * a filter.
+     * <p>
+     * The filter is applied to the tables the path leads to, as it would be after selecting them. It is pushed down
+     * to the file parser, so that parsers able to evaluate it while reading skip the rows it rejects. When a cache
+     * is used, the file is parsed in full along the path so that the cached table can serve other filters, and the
+     * filter is applied afterwards.
+     * </p>
+     *
+     * @param file the file to parse
+     * @param path the keys to follow from the root of the file, or an empty list to parse everything
+     * @param filter the filter applied to the tables along the path, or {@code null} to keep every row
+     * @return a {@link Table} object that represents the parsed content of the file along the path
+     * @throws IOException if an error occurs while reading the file
+     * @throws ParserException if the file's extension is unsupported or the parsing fails
+     */
+    public Table parseFile(File file, List<String> path, RowFilter filter) throws IOException, ParserException {
         // Get the file extension using the utility method
         String extension = Utils.getFileExtension(file);
-        
+
         // Get the appropriate parser for the file based on its extension
         FileParser fileParser = getFileParser(extension);
-        
-        // Use the chosen file parser to parse the file and return the resulting Table
-        return fileParser.parseFile(file, file.getName());
+
+        if (this.cache == null) {
+            return filter == null
+                    ? fileParser.parseFile(file, file.getName(), path)
+                    : fileParser.parseFile(file, file.getName(), path, filter);
+        }
+
+        // Reuse the table of the last parse if the file hasn't changed since
+        ParseCache.Fingerprint fingerprint = this.cache.fingerprint(file);
+        Table table = this.cache.get(fingerprint, path);
+        if (table == null) {
+            table = fileParser.parseFile(file, file.getName(), path);
+            this.cache.put(fingerprint, path, table);
+        }
+        if (filter != null) {
+            filter.filter(table, PathExpression.of(path));
+        }
+        return table;
     }
 
     /**
@@ -56,11 +130,12 @@ public class Parser {
      *   <li>"json" - for JSON files</li>
      *   <li>"yaml" - for YAML files</li>
      *   <li>"xml" - for XML files</li>
+     *   <li>"ptbl" - for tables exported in the native binary format</li>
      * </ul>
      * If the file extension is not supported, a {@link ParserException} is thrown.
      * </p>
      *
-     * @param extension the file extension (e.g., "json", "yaml", "xml")
+     * @param extension the file extension (e.g., "json", "yaml", "xml", "ptbl")
      * @return the corresponding {@link FileParser} instance
      * @throws ParserException if the extension is not recognized
      */
@@ -71,6 +146,7 @@ public class Parser {
             case "json" -> new JSONParser();
             case "yaml" -> new YAMLParser();
             case "xml" -> new XMLParser();
+            case "ptbl" -> new PTBLParser();
             default -> throw new ParserException("Unknown input extension: " + extension);
         };
     }
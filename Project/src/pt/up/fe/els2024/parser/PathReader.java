@@ -0,0 +1,107 @@
+package pt.up.fe.els2024.parser;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code PathReader} reads a document token by token, keeping only the parts reachable through a selection path.
+ * <p>
+ * The path is a list of keys, as given to a {@code SELECT TABLE} or {@code SELECT COLUMN} statement. Along the
+ * path, only the fields whose key is the next element of the path are kept, and every other field is skipped
+ * without being deserialized. Once the last element of the path is reached, its whole value is read.
+ * </p>
+ * <p>
+ * The result has the same shape as the map produced by {@link ObjectMapper#readValue(JsonParser, Class)},
+ * restricted to the selected branches, so it can be turned into tables by {@link FileParser} in the same way.
+ * It works with any Jackson format that produces JSON tokens, such as JSON and YAML.
+ * </p>
+ */
+public class PathReader {
+
+    /** The mapper used to read the values that are kept whole. */
+    private final ObjectMapper mapper;
+
+    /**
+     * Constructs a {@code PathReader} that reads whole values with the given mapper.
+     *
+     * @param mapper the mapper used to read the selected values
+     */
+    public PathReader(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * Reads the document of the given parser, restricted to the given path.
+     *
+     * @param parser the parser, positioned before the start of the document
+     * @param path   the keys to follow from the root of the document
+     * @return a map with the branches of the document along the path, or {@code null} if the document is not an object
+     * @throws IOException if the document cannot be read
+     */
+    public Map<String, Object> read(JsonParser parser, List<String> path) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+        return this.readObject(parser, path, 0);
+    }
+
+    /**
+     * Reads the object the parser is positioned at, keeping only the field named by the path.
+     *
+     * @param parser the parser, positioned at the start of the object
+     * @param path   the keys to follow
+     * @param depth  the position in the path of the key to keep
+     * @return the object, restricted to the field along the path
+     * @throws IOException if the object cannot be read
+     */
+    private LinkedHashMap<String, Object> readObject(JsonParser parser, List<String> path, int depth) throws IOException {
+        LinkedHashMap<String, Object> object = new LinkedHashMap<>();
+        String key = path.get(depth);
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            parser.nextToken();
+
+            if (!fieldName.equals(key)) {
+                parser.skipChildren();
+            } else if (depth == path.size() - 1) {
+                object.put(fieldName, this.mapper.readValue(parser, Object.class));
+            } else {
+                object.put(fieldName, this.readBranch(parser, path, depth + 1));
+            }
+        }
+
+        return object;
+    }
+
+    /**
+     * Reads a value along the path, descending into objects and into the objects of arrays.
+     *
+     * @param parser the parser, positioned at the first token of the value
+     * @param path   the keys to follow
+     * @param depth  the position in the path of the key to keep inside the value
+     * @return the value, restricted to the branches along the path
+     * @throws IOException if the value cannot be read
+     */
+    private Object readBranch(JsonParser parser, List<String> path, int depth) throws IOException {
+        return switch (parser.currentToken()) {
+            case START_OBJECT -> this.readObject(parser, path, depth);
+            case START_ARRAY -> {
+                List<Object> array = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    array.add(this.readBranch(parser, path, depth));
+                }
+                yield array;
+            }
+            // Scalars can't be descended into, so they are kept as they are
+            default -> this.mapper.readValue(parser, Object.class);
+        };
+    }
+}
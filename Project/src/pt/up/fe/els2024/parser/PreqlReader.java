@@ -0,0 +1,1006 @@
+package pt.up.fe.els2024.parser;
+
+import org.eclipse.emf.common.util.Enumerator;
+import org.xtext.example.mydsl.preql.*;
+import pt.up.fe.els2024.exception.DSLException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * {@code PreqlReader} is a hand-written recursive-descent parser for the grammar in
+ * {@code resources/preql/Preql.xtext}, which reads a Preql script into the same model objects as the Xtext parser.
+ * <p>
+ * The model objects are created with the generated {@link PreqlFactory} and filled in through their accessors, so
+ * the planner of {@link DSLParser} handles them like the ones read by Xtext. Unlike Xtext, the reader needs neither
+ * an injector nor a resource set, which take most of the time of running a short script.
+ * </p>
+ * <p>
+ * The tokens are those of the Xtext lexer: keywords may contain spaces and are matched as a whole, the longest
+ * token wins, and whitespace and comments are skipped. The values of the features follow the Xtext conversions:
+ * strings lose their quotes and escapes, while datatype rules such as {@code TableName} keep the text of their
+ * tokens, separated by a space where the script had whitespace or comments between them.
+ * </p>
+ */
+public class PreqlReader {
+
+    /** The keywords of the grammar, including the literals of its enumerations, longest first. */
+    private static final List<String> KEYWORDS = Stream.of(
+            "CREATE TABLE", "IMPORT DATA FROM FILE", "IMPORT DATA FROM FOLDER", "IMPORT DATA FROM FOLDERS",
+            "WITH EXTENSIONS", "EXTENSION", "ONLY", "LEFT", "JOIN ON", "FILTER BY", "SELECT TABLE", "SELECT COLUMN",
+            "BY", "WHERE", "OR", "AND", "IN", "ADD COLUMN", "ADD GLOBAL COLUMN", "AS", "EXPR", "AT", "TO",
+            "RENAME COLUMN", "REMOVE COLUMN", "ADD *;", "AVERAGE *;", "AGGREGATE", "APPROX_DISTINCT",
+            "APPROX_PERCENTILE", "ORDER BY", "ASC", "DESC", "GROUP BY", "OF", "ADD SUFFIX", "ADD PREFIX", "EXPORT TO",
+            "{", "};", "(", ")", "[", "]", ",", ";", "*", "+", "-", "/", ".",
+            "NULL", "COMPOSITE", "NON-COMPOSITE", "FIRST", "LAST", "SUM", "MUL", "DIV", "SUB", "AVG", "MIN", "MAX",
+            "COUNT", "STDDEV", "=", "!=", "<", "<=", ">", ">=", "CONTAINS", "STARTS WITH", "ENDS WITH",
+            "YAML", "XML", "JSON")
+            .sorted(Comparator.comparingInt(String::length).reversed())
+            .toList();
+
+    /** The keywords that start an operation of an import. */
+    private static final Set<String> OPERATIONS = Set.of("SELECT TABLE", "SELECT COLUMN", "ADD COLUMN",
+                                                         "SUM", "MUL", "DIV", "SUB");
+
+    /** The factory of the generated model. */
+    private static final PreqlFactory FACTORY = PreqlFactory.eINSTANCE;
+
+    /** The kinds of tokens. */
+    private enum TokenType {
+        KEYWORD, STRING, INT, ID, EOF
+    }
+
+    /**
+     * A token of the script.
+     *
+     * @param type   the kind of the token
+     * @param text   the text of the token, as written in the script
+     * @param offset the position of the token in the script
+     * @param spaced {@code true} if whitespace or comments come right before the token
+     */
+    private record Token(TokenType type, String text, int offset, boolean spaced) {}
+
+    private final String source;
+
+    private final String sourceName;
+
+    private final List<Token> tokens = new ArrayList<>();
+
+    /** The position of the next token to read. */
+    private int position;
+
+    /**
+     * Constructs a reader of a script.
+     *
+     * @param source     the text of the script
+     * @param sourceName the name of the script, used in the error messages
+     */
+    public PreqlReader(String source, String sourceName) {
+        this.source = source;
+        this.sourceName = sourceName;
+    }
+
+    /**
+     * Reads the script in a file into its model.
+     *
+     * @param filePath the path to the script
+     * @return the {@code Model} object of the script
+     * @throws IOException  if the file can't be read
+     * @throws DSLException if the script is not valid
+     */
+    public static Model readFile(String filePath) throws IOException, DSLException {
+        return new PreqlReader(Files.readString(Path.of(filePath)), filePath).read();
+    }
+
+    /**
+     * Reads the script into its model.
+     *
+     * @return the {@code Model} object of the script
+     * @throws DSLException if the script is not valid
+     */
+    public Model read() throws DSLException {
+        this.tokenize();
+        this.position = 0;
+
+        Model model = FACTORY.createModel();
+        while (this.peek().type() != TokenType.EOF) {
+            model.getStatements().add(this.statement());
+        }
+        return model;
+    }
+
+    /**
+     * Splits the script into tokens, ending with an end-of-file token.
+     *
+     * @throws DSLException if the script has text that is not a token
+     */
+    private void tokenize() throws DSLException {
+        this.tokens.clear();
+        int length = this.source.length();
+        int offset = 0;
+        boolean spaced = false;
+
+        while (offset < length) {
+            char character = this.source.charAt(offset);
+            if (character == ' ' || character == '\t' || character == '\r' || character == '\n') {
+                offset++;
+                spaced = true;
+                continue;
+            }
+            if (this.source.startsWith("/*", offset)) {
+                int end = this.source.indexOf("*/", offset + 2);
+                if (end < 0) {
+                    throw this.error(offset, "unterminated comment");
+                }
+                offset = end + 2;
+                spaced = true;
+                continue;
+            }
+            if (this.source.startsWith("//", offset)) {
+                int end = this.source.indexOf('\n', offset);
+                offset = end < 0 ? length : end + 1;
+                spaced = true;
+                continue;
+            }
+
+            Token token = this.token(offset, spaced);
+            this.tokens.add(token);
+            offset += token.text().length();
+            spaced = false;
+        }
+        this.tokens.add(new Token(TokenType.EOF, "<EOF>", length, spaced));
+    }
+
+    /**
+     * Reads the longest token at a position of the script, preferring keywords to identifiers of the same length.
+     *
+     * @param offset the position of the token
+     * @param spaced {@code true} if whitespace or comments come right before the token
+     * @return the token
+     * @throws DSLException if no token starts at the position
+     */
+    private Token token(int offset, boolean spaced) throws DSLException {
+        if (this.source.charAt(offset) == '"') {
+            int end = offset + 1;
+            while (end < this.source.length() && this.source.charAt(end) != '"') {
+                end += this.source.charAt(end) == '\\' ? 2 : 1;
+            }
+            if (end >= this.source.length()) {
+                throw this.error(offset, "unterminated string");
+            }
+            return new Token(TokenType.STRING, this.source.substring(offset, end + 1), offset, spaced);
+        }
+
+        String keyword = KEYWORDS.stream().filter(candidate -> this.source.startsWith(candidate, offset))
+                                          .findFirst().orElse("");
+        int identifier = this.identifierLength(offset);
+        int digits = 0;
+        while (offset + digits < this.source.length() && PreqlReader.isDigit(this.source.charAt(offset + digits))) {
+            digits++;
+        }
+
+        if (!keyword.isEmpty() && keyword.length() >= identifier && keyword.length() >= digits) {
+            return new Token(TokenType.KEYWORD, keyword, offset, spaced);
+        }
+        if (identifier > 0 && identifier >= digits) {
+            return new Token(TokenType.ID, this.source.substring(offset, offset + identifier), offset, spaced);
+        }
+        if (digits > 0) {
+            return new Token(TokenType.INT, this.source.substring(offset, offset + digits), offset, spaced);
+        }
+        throw this.error(offset, "unexpected character '" + this.source.charAt(offset) + "'");
+    }
+
+    /**
+     * Measures the identifier at a position of the script, as in the {@code ID} terminal of Xtext.
+     *
+     * @param offset the position of the identifier
+     * @return the length of the identifier, or {@code 0} if there is none
+     */
+    private int identifierLength(int offset) {
+        int end = offset < this.source.length() && this.source.charAt(offset) == '^' ? offset + 1 : offset;
+        if (end >= this.source.length()) {
+            return 0;
+        }
+        char first = this.source.charAt(end);
+        if (!PreqlReader.isLetter(first)) {
+            return 0;
+        }
+        end++;
+        while (end < this.source.length()) {
+            char next = this.source.charAt(end);
+            if (!(PreqlReader.isLetter(next) || PreqlReader.isDigit(next))) {
+                break;
+            }
+            end++;
+        }
+        return end - offset;
+    }
+
+    private static boolean isLetter(char character) {
+        return character == '_' || character >= 'a' && character <= 'z' || character >= 'A' && character <= 'Z';
+    }
+
+    private static boolean isDigit(char character) {
+        return character >= '0' && character <= '9';
+    }
+
+    /**
+     * Reads a statement of the script.
+     *
+     * @return the statement
+     * @throws DSLException if the script is not valid
+     */
+    private Statement statement() throws DSLException {
+        Token token = this.peek();
+        String keyword = token.type() == TokenType.KEYWORD ? token.text() : "";
+
+        return switch (keyword) {
+            case "CREATE TABLE" -> {
+                CreateTable createTable = FACTORY.createCreateTable();
+                createTable.setName(this.single());
+                yield createTable;
+            }
+            case "IMPORT DATA FROM FILE" -> this.importDataFile();
+            case "IMPORT DATA FROM FOLDER" -> this.importDataFolder();
+            case "IMPORT DATA FROM FOLDERS" -> this.importDataFolders();
+            case "ADD SUFFIX" -> {
+                DefineSuffix defineSuffix = FACTORY.createDefineSuffix();
+                this.next();
+                defineSuffix.setSuffix(this.string());
+                defineSuffix.setAppliesTo(this.appliesTo());
+                yield defineSuffix;
+            }
+            case "ADD PREFIX" -> {
+                DefinePrefix definePrefix = FACTORY.createDefinePrefix();
+                this.next();
+                definePrefix.setPrefix(this.string());
+                definePrefix.setAppliesTo(this.appliesTo());
+                yield definePrefix;
+            }
+            case "EXPORT TO" -> {
+                OutputTable outputTable = FACTORY.createOutputTable();
+                outputTable.setOutputPath(this.single());
+                yield outputTable;
+            }
+            case "ADD GLOBAL COLUMN" -> this.addColumnGlobal();
+            case "RENAME COLUMN" -> this.renameColumn();
+            case "REMOVE COLUMN" -> {
+                RemoveColumn removeColumn = FACTORY.createRemoveColumn();
+                removeColumn.setColumnName(this.single());
+                yield removeColumn;
+            }
+            case "ADD *;", "AVERAGE *;" -> {
+                RowOperation rowOperation = FACTORY.createRowOperation();
+                rowOperation.setRowOperation(this.next().text());
+                yield rowOperation;
+            }
+            case "AGGREGATE" -> this.aggregate();
+            case "GROUP BY" -> this.groupBy();
+            case "ORDER BY" -> this.orderBy();
+            default -> throw this.mismatch("a statement");
+        };
+    }
+
+    /**
+     * Reads the rest of a statement made of its keyword, a string and a semicolon.
+     *
+     * @return the value of the string
+     * @throws DSLException if the script is not valid
+     */
+    private String single() throws DSLException {
+        this.next();
+        String value = this.string();
+        this.expect(";");
+        return value;
+    }
+
+    /**
+     * Reads the column a suffix or prefix applies to, ending its statement.
+     *
+     * @return the name of the column
+     * @throws DSLException if the script is not valid
+     */
+    private String appliesTo() throws DSLException {
+        this.expect("TO");
+        String appliesTo = this.string();
+        this.expect(";");
+        return appliesTo;
+    }
+
+    /**
+     * Reads the import of a file, with its operations and filter.
+     *
+     * @return the import
+     * @throws DSLException if the script is not valid
+     */
+    private ImportDataFile importDataFile() throws DSLException {
+        ImportDataFile importData = FACTORY.createImportDataFile();
+        this.next();
+        importData.setSourcePath(this.string());
+        if (this.atJoin()) {
+            importData.setOuter(this.accept("LEFT"));
+            importData.setJoinColumn(this.joinColumn());
+        }
+        importData.setFilter(this.importBody(importData.getOperations()));
+        return importData;
+    }
+
+    /**
+     * Reads the import of a folder, with its operations and filter.
+     *
+     * @return the import
+     * @throws DSLException if the script is not valid
+     */
+    private ImportDataFolder importDataFolder() throws DSLException {
+        ImportDataFolder importData = FACTORY.createImportDataFolder();
+        this.next();
+        importData.setSourcePath(this.string());
+        if (this.accept("ONLY")) {
+            importData.setExtType(this.enumLiteral(EXT_TYPE.VALUES));
+        }
+        if (this.atJoin()) {
+            importData.setOuter(this.accept("LEFT"));
+            importData.setJoinColumn(this.joinColumn());
+        }
+        importData.setFilter(this.importBody(importData.getOperations()));
+        return importData;
+    }
+
+    /**
+     * Checks whether the next token starts the JOIN clause of an import.
+     *
+     * @return {@code true} if a JOIN clause follows
+     */
+    private boolean atJoin() {
+        return this.at("LEFT") || this.at("JOIN ON");
+    }
+
+    /**
+     * Reads the rest of the JOIN clause of an import, once its {@code LEFT} keyword is read.
+     *
+     * @return the column to join on
+     * @throws DSLException if the script is not valid
+     */
+    private String joinColumn() throws DSLException {
+        this.expect("JOIN ON");
+        return this.string();
+    }
+
+    /**
+     * Reads the block of an import of a file or folder.
+     *
+     * @param operations the operations of the import, which the operations of the block are added to
+     * @return the filter of the block, or {@code null} if it has none
+     * @throws DSLException if the script is not valid
+     */
+    private Filter importBody(List<Operation> operations) throws DSLException {
+        this.expect("{");
+        while (this.atOperation()) {
+            operations.add(this.operation());
+        }
+        Filter filter = this.accept("FILTER BY") ? this.filter() : null;
+        this.expect("};");
+        return filter;
+    }
+
+    /**
+     * Reads the import of the subfolders of a folder, with an extension block for each kind of file.
+     *
+     * @return the import
+     * @throws DSLException if the script is not valid
+     */
+    private ImportDataFolders importDataFolders() throws DSLException {
+        ImportDataFolders importData = FACTORY.createImportDataFolders();
+        this.next();
+        importData.setSourcePath(this.string());
+        this.expect("{");
+        this.expect("WITH EXTENSIONS");
+        this.expect("{");
+        while (this.at("EXTENSION")) {
+            Extension extension = FACTORY.createExtension();
+            this.next();
+            extension.setType(this.enumLiteral(EXT_TYPE.VALUES));
+            this.expect("{");
+            if (this.accept("FILTER BY")) {
+                extension.setFilter(this.filter());
+            }
+            while (this.atOperation()) {
+                extension.getOperations().add(this.operation());
+            }
+            this.expect("};");
+            importData.getExtensions().add(extension);
+        }
+        this.expect("};");
+        this.expect("};");
+        return importData;
+    }
+
+    /**
+     * Reads the renaming of a column.
+     *
+     * @return the statement
+     * @throws DSLException if the script is not valid
+     */
+    private RenameColumn renameColumn() throws DSLException {
+        RenameColumn renameColumn = FACTORY.createRenameColumn();
+        this.next();
+        renameColumn.setColumnName(this.string());
+        this.expect("TO");
+        renameColumn.setNewColumnName(this.string());
+        this.expect(";");
+        return renameColumn;
+    }
+
+    /**
+     * Reads the addition of a column with a given value to the result table.
+     *
+     * @return the statement
+     * @throws DSLException if the script is not valid
+     */
+    private AddColumnGlobal addColumnGlobal() throws DSLException {
+        AddColumnGlobal addColumn = FACTORY.createAddColumnGlobal();
+        this.next();
+        addColumn.setColumnName(this.string());
+        this.expect("AS");
+        addColumn.setColumnType(this.string());
+        if (this.accept("AT")) {
+            addColumn.setColumnPosition(this.enumLiteral(COLUMN_POSITION.VALUES));
+        }
+        this.expect(";");
+        return addColumn;
+    }
+
+    /**
+     * Reads the rest of the addition of a column with a given value to the imported tables, once its keyword, name
+     * and {@code AS} are read.
+     *
+     * @param columnName the name of the column
+     * @return the operation
+     * @throws DSLException if the script is not valid
+     */
+    private AddColumnNested addColumnNested(String columnName) throws DSLException {
+        AddColumnNested addColumn = FACTORY.createAddColumnNested();
+        addColumn.setColumnName(columnName);
+        addColumn.setColumnType(this.string());
+        if (this.accept("AT")) {
+            addColumn.setColumnPosition(this.enumLiteral(COLUMN_POSITION.VALUES));
+        }
+        this.expect(";");
+        return addColumn;
+    }
+
+    /**
+     * Reads a summary of every column, either exact statistics or approximations.
+     *
+     * @return the statement
+     * @throws DSLException if the script is not valid
+     */
+    private Statement aggregate() throws DSLException {
+        this.next();
+        if (this.at("APPROX_DISTINCT") || this.at("APPROX_PERCENTILE")) {
+            ApproximateAggregate aggregate = FACTORY.createApproximateAggregate();
+            do {
+                aggregate.getApproximations().add(this.approximation());
+            } while (this.accept(","));
+            this.expect("*");
+            this.expect(";");
+            return aggregate;
+        }
+
+        Aggregate aggregate = FACTORY.createAggregate();
+        do {
+            aggregate.getStatistics().add(this.enumLiteral(STATISTIC.VALUES));
+        } while (this.accept(","));
+        this.expect("*");
+        this.expect(";");
+        return aggregate;
+    }
+
+    /**
+     * Reads an approximation of an aggregate.
+     *
+     * @return the approximation
+     * @throws DSLException if the script is not valid
+     */
+    private Approximation approximation() throws DSLException {
+        if (this.accept("APPROX_DISTINCT")) {
+            return FACTORY.createApproximateDistinct();
+        }
+        this.expect("APPROX_PERCENTILE");
+        ApproximatePercentile approximation = FACTORY.createApproximatePercentile();
+        this.expect("(");
+        approximation.setPercentile(this.unsigned());
+        this.expect(")");
+        return approximation;
+    }
+
+    /**
+     * Reads the grouping of the rows by some columns.
+     *
+     * @return the statement
+     * @throws DSLException if the script is not valid
+     */
+    private GroupBy groupBy() throws DSLException {
+        GroupBy groupBy = FACTORY.createGroupBy();
+        this.next();
+        do {
+            groupBy.getColumns().add(this.string());
+        } while (this.accept(","));
+        this.expect("AGGREGATE");
+        do {
+            groupBy.getStatistics().add(this.enumLiteral(STATISTIC.VALUES));
+        } while (this.accept(","));
+
+        if (this.accept("OF")) {
+            do {
+                groupBy.getValues().add(this.string());
+            } while (this.accept(","));
+        } else {
+            this.expect("*");
+        }
+        this.expect(";");
+        return groupBy;
+    }
+
+    /**
+     * Reads the sorting of the rows by some columns.
+     *
+     * @return the statement
+     * @throws DSLException if the script is not valid
+     */
+    private OrderBy orderBy() throws DSLException {
+        OrderBy orderBy = FACTORY.createOrderBy();
+        this.next();
+        do {
+            SortKey sortKey = FACTORY.createSortKey();
+            sortKey.setColumn(this.string());
+            if (this.accept("DESC")) {
+                sortKey.setDescending(true);
+            } else {
+                this.accept("ASC");
+            }
+            orderBy.getKeys().add(sortKey);
+        } while (this.accept(","));
+        this.expect(";");
+        return orderBy;
+    }
+
+    /**
+     * Checks whether the next token starts an operation of an import.
+     *
+     * @return {@code true} if an operation follows
+     */
+    private boolean atOperation() {
+        Token token = this.peek();
+        return token.type() == TokenType.KEYWORD && OPERATIONS.contains(token.text());
+    }
+
+    /**
+     * Reads an operation of an import.
+     *
+     * @return the operation
+     * @throws DSLException if the script is not valid
+     */
+    private Operation operation() throws DSLException {
+        if (this.at("SELECT TABLE")) {
+            SelectionTable selection = FACTORY.createSelectionTable();
+            this.next();
+            selection.setTableName(this.tableName());
+            if (this.accept("BY")) {
+                selection.setColumnFilter(this.enumLiteral(COLUMN_FILTER.VALUES));
+            }
+            selection.setWhere(this.where());
+            return selection;
+        }
+        if (this.at("SELECT COLUMN")) {
+            SelectionColumn selection = FACTORY.createSelectionColumn();
+            this.next();
+            selection.setColumnName(this.tableName());
+            if (this.accept("BY")) {
+                selection.setColumnFilter(this.enumLiteral(COLUMN_FILTER.VALUES));
+            }
+            selection.setWhere(this.where());
+            return selection;
+        }
+        if (this.accept("ADD COLUMN")) {
+            Token name = this.expect(TokenType.STRING, "a string");
+            this.expect("AS");
+            if (!this.accept("EXPR")) {
+                return this.addColumnNested(this.value(name));
+            }
+            ExpressionColumn expressionColumn = FACTORY.createExpressionColumn();
+            expressionColumn.setColumnName(this.value(name));
+            expressionColumn.setExpression(this.expression());
+            this.expect(";");
+            return expressionColumn;
+        }
+
+        OperationAtRows operation = FACTORY.createOperationAtRows();
+        operation.setOperationType(this.enumLiteral(OPERATION_TYPE.VALUES));
+        operation.setColumn1(this.string());
+        this.expect("AND");
+        operation.setColumn2(this.string());
+        this.expect("TO");
+        operation.setColumnFinal(this.string());
+        this.expect(";");
+        return operation;
+    }
+
+    /**
+     * Reads the path selected by a selection, as the text of its tokens.
+     *
+     * @return {@code *} or the selected path, with its quotes
+     * @throws DSLException if the script is not valid
+     */
+    private String tableName() throws DSLException {
+        int start = this.position;
+        if (!this.accept("*")) {
+            this.expect(TokenType.STRING, "'*' or a string");
+        }
+        return this.text(start);
+    }
+
+    /**
+     * Reads the optional WHERE clause of a selection, ending the selection.
+     *
+     * @return the condition of the clause, or {@code null} if the selection has none
+     * @throws DSLException if the script is not valid
+     */
+    private Condition where() throws DSLException {
+        Condition where = this.accept("WHERE") ? this.condition() : null;
+        this.expect(";");
+        return where;
+    }
+
+    /**
+     * Reads the arguments of the filter of an import.
+     *
+     * @return the filter
+     * @throws DSLException if the script is not valid
+     */
+    private Filter filter() throws DSLException {
+        Filter filter = FACTORY.createFilter();
+        this.expect("(");
+        filter.setTargetPath(this.string());
+        this.expect(",");
+        filter.setFunction(this.enumLiteral(FUNCTION.VALUES));
+        this.expect(",");
+
+        int start = this.position;
+        this.expect("[");
+        do {
+            this.expect(TokenType.STRING, "a string");
+        } while (this.accept(","));
+        this.expect("]");
+        filter.getColumns().add(this.text(start));
+
+        this.expect(",");
+        filter.setTargetN(Integer.parseInt(this.expect(TokenType.INT, "an integer").text()));
+        this.expect(")");
+        this.expect(";");
+        return filter;
+    }
+
+    /**
+     * Reads a condition, where {@code AND} binds tighter than {@code OR}.
+     *
+     * @return the condition
+     * @throws DSLException if the script is not valid
+     */
+    private Condition condition() throws DSLException {
+        Condition left = this.conjunction();
+        while (this.accept("OR")) {
+            Or or = FACTORY.createOr();
+            or.setLeft(left);
+            or.setRight(this.conjunction());
+            left = or;
+        }
+        return left;
+    }
+
+    /**
+     * Reads the conjunction of predicates.
+     *
+     * @return the condition
+     * @throws DSLException if the script is not valid
+     */
+    private Condition conjunction() throws DSLException {
+        Condition left = this.predicate();
+        while (this.accept("AND")) {
+            And and = FACTORY.createAnd();
+            and.setLeft(left);
+            and.setRight(this.predicate());
+            left = and;
+        }
+        return left;
+    }
+
+    /**
+     * Reads a comparison, a membership test or a condition between parentheses.
+     *
+     * @return the condition
+     * @throws DSLException if the script is not valid
+     */
+    private Condition predicate() throws DSLException {
+        if (this.accept("(")) {
+            Condition condition = this.condition();
+            this.expect(")");
+            return condition;
+        }
+
+        String column = this.string();
+        if (this.accept("IN")) {
+            Membership membership = FACTORY.createMembership();
+            membership.setColumn(column);
+            this.expect("(");
+            do {
+                membership.getValues().add(this.literal());
+            } while (this.accept(","));
+            this.expect(")");
+            return membership;
+        }
+
+        Comparison comparison = FACTORY.createComparison();
+        comparison.setColumn(column);
+        comparison.setOperator(this.enumLiteral(COMPARISON_OPERATOR.VALUES));
+        comparison.setValue(this.literal());
+        return comparison;
+    }
+
+    /**
+     * Reads a text or number literal of a condition.
+     *
+     * @return the literal
+     * @throws DSLException if the script is not valid
+     */
+    private Literal literal() throws DSLException {
+        if (this.peek().type() == TokenType.STRING) {
+            TextLiteral literal = FACTORY.createTextLiteral();
+            literal.setText(this.string());
+            return literal;
+        }
+
+        NumberLiteral literal = FACTORY.createNumberLiteral();
+        int start = this.position;
+        this.accept("-");
+        this.expect(TokenType.INT, "a string or a number");
+        if (this.accept(".")) {
+            this.expect(TokenType.INT, "an integer");
+        }
+        literal.setNumber(this.text(start));
+        return literal;
+    }
+
+    /**
+     * Reads an arithmetic expression, where {@code *} and {@code /} bind tighter than {@code +} and {@code -}.
+     *
+     * @return the expression
+     * @throws DSLException if the script is not valid
+     */
+    private Expression expression() throws DSLException {
+        Expression left = this.multiplication();
+        while (this.at("+") || this.at("-")) {
+            left = this.binary(left, this.next().text(), this.multiplication());
+        }
+        return left;
+    }
+
+    /**
+     * Reads the products and quotients of an expression.
+     *
+     * @return the expression
+     * @throws DSLException if the script is not valid
+     */
+    private Expression multiplication() throws DSLException {
+        Expression left = this.unary();
+        while (this.at("*") || this.at("/")) {
+            left = this.binary(left, this.next().text(), this.unary());
+        }
+        return left;
+    }
+
+    private Binary binary(Expression left, String operator, Expression right) {
+        Binary binary = FACTORY.createBinary();
+        binary.setLeft(left);
+        binary.setOperator(operator);
+        binary.setRight(right);
+        return binary;
+    }
+
+    /**
+     * Reads a negation, a number, a column or an expression between parentheses.
+     *
+     * @return the expression
+     * @throws DSLException if the script is not valid
+     */
+    private Expression unary() throws DSLException {
+        if (this.accept("-")) {
+            Negation negation = FACTORY.createNegation();
+            negation.setOperand(this.unary());
+            return negation;
+        }
+        if (this.accept("(")) {
+            Expression expression = this.expression();
+            this.expect(")");
+            return expression;
+        }
+
+        Token token = this.peek();
+        if (token.type() == TokenType.INT) {
+            NumberConstant constant = FACTORY.createNumberConstant();
+            constant.setValue(this.unsigned());
+            return constant;
+        }
+        if (token.type() == TokenType.ID || token.type() == TokenType.STRING) {
+            ColumnReference reference = FACTORY.createColumnReference();
+            reference.setColumn(this.value(this.next()));
+            return reference;
+        }
+        throw this.mismatch("a number, a column or '('");
+    }
+
+    /**
+     * Reads an unsigned number, as the text of its tokens.
+     *
+     * @return the number
+     * @throws DSLException if the script is not valid
+     */
+    private String unsigned() throws DSLException {
+        int start = this.position;
+        this.expect(TokenType.INT, "an integer");
+        if (this.accept(".")) {
+            this.expect(TokenType.INT, "an integer");
+        }
+        return this.text(start);
+    }
+
+    private Token peek() {
+        return this.tokens.get(this.position);
+    }
+
+    private Token next() {
+        Token token = this.peek();
+        if (token.type() != TokenType.EOF) {
+            this.position++;
+        }
+        return token;
+    }
+
+    private boolean at(String keyword) {
+        Token token = this.peek();
+        return token.type() == TokenType.KEYWORD && token.text().equals(keyword);
+    }
+
+    private boolean accept(String keyword) {
+        if (this.at(keyword)) {
+            this.position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String keyword) throws DSLException {
+        if (!this.accept(keyword)) {
+            throw this.mismatch("'" + keyword + "'");
+        }
+    }
+
+    private Token expect(TokenType type, String expected) throws DSLException {
+        if (this.peek().type() != type) {
+            throw this.mismatch(expected);
+        }
+        return this.next();
+    }
+
+    /**
+     * Reads a string and converts it to its value.
+     *
+     * @return the value of the string
+     * @throws DSLException if the next token is not a string
+     */
+    private String string() throws DSLException {
+        return this.value(this.expect(TokenType.STRING, "a string"));
+    }
+
+    /**
+     * Converts a string or identifier to its value, like the value converters of Xtext.
+     *
+     * @param token the token
+     * @return the value of the token
+     * @throws DSLException if a string has an invalid escape sequence
+     */
+    private String value(Token token) throws DSLException {
+        String text = token.text();
+        if (token.type() == TokenType.ID) {
+            return text.startsWith("^") ? text.substring(1) : text;
+        }
+
+        StringBuilder value = new StringBuilder(text.length());
+        for (int index = 1; index < text.length() - 1; index++) {
+            char character = text.charAt(index);
+            if (character != '\\') {
+                value.append(character);
+                continue;
+            }
+            char escaped = text.charAt(++index);
+            switch (escaped) {
+                case 'b' -> value.append('\b');
+                case 't' -> value.append('\t');
+                case 'n' -> value.append('\n');
+                case 'f' -> value.append('\f');
+                case 'r' -> value.append('\r');
+                case '"', '\'', '\\' -> value.append(escaped);
+                default -> throw this.error(token.offset() + index, "illegal escape character '" + escaped + "'");
+            }
+        }
+        return value.toString();
+    }
+
+    /**
+     * Joins the text of the tokens read since a position, as the value of a datatype rule.
+     *
+     * @param start the position of the first token
+     * @return the text of the tokens, separated by a space where the script had whitespace or comments
+     */
+    private String text(int start) {
+        StringBuilder text = new StringBuilder();
+        for (Token token : this.tokens.subList(start, this.position)) {
+            if (token.spaced() && !text.isEmpty()) {
+                text.append(' ');
+            }
+            text.append(token.text());
+        }
+        return text.toString();
+    }
+
+    /**
+     * Reads a literal of an enumeration of the model.
+     *
+     * @param literals the literals of the enumeration
+     * @return the literal
+     * @throws DSLException if the next token is not a literal of the enumeration
+     */
+    private <E extends Enumerator> E enumLiteral(List<E> literals) throws DSLException {
+        Token token = this.peek();
+        if (token.type() == TokenType.KEYWORD) {
+            for (E literal : literals) {
+                if (literal.getLiteral().equals(token.text())) {
+                    this.next();
+                    return literal;
+                }
+            }
+        }
+        throw this.mismatch("one of " + literals.stream().map(Enumerator::getLiteral).toList());
+    }
+
+    private DSLException mismatch(String expected) {
+        Token token = this.peek();
+        return this.error(token.offset(), "mismatched input '" + token.text() + "' expecting " + expected);
+    }
+
+    /**
+     * Creates the error of a position of the script.
+     *
+     * @param offset  the position
+     * @param message the description of the error
+     * @return the error, prefixed with the name of the script and the line and column of the position
+     */
+    private DSLException error(int offset, String message) {
+        int line = 1;
+        int lineStart = 0;
+        for (int index = 0; index < offset && index < this.source.length(); index++) {
+            if (this.source.charAt(index) == '\n') {
+                line++;
+                lineStart = index + 1;
+            }
+        }
+        return new DSLException(this.sourceName + ":" + line + ":" + (offset - lineStart + 1) + ": " + message);
+    }
+}
@@ -1,33 +1,37 @@
 package pt.up.fe.els2024.parser;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import pt.up.fe.els2024.exception.ParserException;
 
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
 
 /**
  * {@code XMLParser} is a subclass of {@link FileParser} responsible for parsing XML files.
  * <p>
- * This class uses the Jackson library's {@link XmlMapper} to read and convert XML data into a {@link Map}.
- * It provides the implementation for the {@link FileParser#readData(File)} method specific to XML files.
+ * This class reads XML files with a StAX {@link XMLPathReader}, which converts XML data into a {@link Map}
+ * the same way Jackson's {@code XmlMapper} does. It provides the implementation for the
+ * {@link FileParser#readData(File)} method specific to XML files. When a selection path is given, the
+ * elements outside the path are skipped while streaming, so that only the selected branches are built.
  * </p>
  */
 public class XMLParser extends FileParser {
 
     /**
-     * The Jackson {@link ObjectMapper} instance configured to read XML files.
-     * It is used to deserialize XML content into a {@link Map} structure.
+     * The StAX reader used to convert XML files into a {@link Map} structure.
      */
-    private final ObjectMapper xmlMapper = new XmlMapper();
+    private final XMLPathReader xmlReader = new XMLPathReader();
 
     /**
      * Reads data from the provided XML file and converts it into a {@link Map}.
      * <p>
-     * This method uses the Jackson {@link XmlMapper} to read the XML file and convert its contents
-     * into a {@link Map}. The resulting map represents the hierarchical structure of the XML data.
+     * This method streams the XML file and converts its contents into a {@link Map}.
+     * The resulting map represents the hierarchical structure of the XML data.
      * </p>
      *
      * @param file the XML file to read
@@ -37,7 +41,28 @@ public class XMLParser extends FileParser {
      */
     @Override
     public Map<String, Object> readData(File file) throws IOException, ParserException {
-        // Use the xmlMapper to read and convert XML file to a Map
-        return xmlMapper.readValue(file, Map.class);
+        return this.readData(file, List.of());
+    }
+
+    /**
+     * Reads data from the provided XML file, restricted to the branches along a selection path.
+     * <p>
+     * Elements and attributes outside the path are skipped while streaming the file, and only
+     * the element at the end of the path is read whole.
+     * </p>
+     *
+     * @param file the XML file to read
+     * @param path the keys to follow from the root element
+     * @return a {@link Map} with the branches of the XML content along the path
+     * @throws IOException if an error occurs during reading the file
+     * @throws ParserException if the XML file cannot be parsed correctly
+     */
+    @Override
+    public Map<String, Object> readData(File file, List<String> path) throws IOException, ParserException {
+        try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+            return this.xmlReader.read(input, path);
+        } catch (XMLStreamException e) {
+            throw new ParserException("Error reading or parsing XML file: " + file.getName());
+        }
     }
 }
@@ -0,0 +1,208 @@
+package pt.up.fe.els2024.parser;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code XMLPathReader} reads an XML document with a StAX {@link XMLStreamReader}, keeping only the parts
+ * reachable through a selection path.
+ * <p>
+ * The document is mapped the same way Jackson's {@code XmlMapper} maps it to a {@link Map}: the root element
+ * becomes the map, attributes and child elements become entries named by their local name, repeated elements
+ * are gathered into a list, elements with only text become strings, and text mixed with attributes or child
+ * elements is stored under the empty key. Elements marked with {@code xsi:nil} become {@code null}.
+ * </p>
+ * <p>
+ * Along the path, only the attributes and elements named by the next element of the path are kept, and every
+ * other element is skipped without being built. Once the last element of the path is reached, its whole
+ * content is read. An empty path reads the whole document.
+ * </p>
+ */
+public class XMLPathReader {
+
+    /** The factory of the StAX readers, configured once since it is safe to share between threads. */
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    /** The key under which text mixed with attributes or child elements is stored. */
+    private static final String TEXT_KEY = "";
+
+    /**
+     * The values of a field repeated in an element, told apart from the other values of the element by its type.
+     */
+    private static class RepeatedValues extends ArrayList<Object> {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Reads the document of the given stream, restricted to the given path.
+     *
+     * @param input the stream with the XML document
+     * @param path  the keys to follow from the root element, or an empty list to read everything
+     * @return a map with the branches of the document along the path
+     * @throws XMLStreamException if the document is not well-formed
+     */
+    public Map<String, Object> read(InputStream input, List<String> path) throws XMLStreamException {
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(input);
+        try {
+            // The root element is always read as a map
+            reader.nextTag();
+            Map<String, Object> root = new LinkedHashMap<>();
+            return this.readValue(reader, path, 0, root) == null ? null : root;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads the value of the element the reader is positioned at, up to and including its end tag.
+     *
+     * @param reader the reader, positioned at the start tag of the element
+     * @param path   the keys to follow
+     * @param depth  the position in the path of the keys to keep inside the element
+     * @param object the map the element is read into, or {@code null} to create one only if the element has
+     *               attributes or child elements
+     * @return the element as a map, as a string if it only has text, or {@code null} if it is nil
+     * @throws XMLStreamException if the element is not well-formed
+     */
+    private Object readValue(XMLStreamReader reader, List<String> path, int depth, Map<String, Object> object)
+            throws XMLStreamException {
+        boolean whole = depth >= path.size();
+        String key = whole ? null : path.get(depth);
+
+        boolean nil = false;
+
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String name = reader.getAttributeLocalName(i);
+            if (XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI.equals(reader.getAttributeNamespace(i)) && name.equals("nil")) {
+                nil = reader.getAttributeValue(i).trim().equals("true");
+                continue;
+            }
+            if (object == null) {
+                object = new LinkedHashMap<>();
+            }
+            if (whole || name.equals(key)) {
+                this.put(object, name, reader.getAttributeValue(i));
+            }
+        }
+
+        // Text is only known to be a field once the element turns out to have attributes or child elements
+        StringBuilder text = null;
+
+        while (true) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT -> {
+                    if (object == null) {
+                        object = new LinkedHashMap<>();
+                    }
+                    this.putText(object, text, whole, key);
+                    text = null;
+
+                    String name = reader.getLocalName();
+                    if (whole) {
+                        this.put(object, name, this.readValue(reader, path, depth, null));
+                    } else if (name.equals(key)) {
+                        this.put(object, name, this.readValue(reader, path, depth + 1, null));
+                    } else {
+                        this.skipElement(reader);
+                    }
+                }
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+                    if (text == null) {
+                        text = new StringBuilder();
+                    }
+                    text.append(reader.getText());
+                }
+                case XMLStreamConstants.END_ELEMENT -> {
+                    if (nil) {
+                        return null;
+                    }
+                    if (object == null) {
+                        return text == null ? "" : text.toString();
+                    }
+                    this.putText(object, text, whole, key);
+                    return object;
+                }
+                default -> {
+                    // Comments and processing instructions carry no data
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores a run of text of an element that has attributes or child elements, unless it is only whitespace.
+     *
+     * @param object the element being read
+     * @param text   the text, or {@code null} if there is none
+     * @param whole  whether the whole element is being read
+     * @param key    the key to keep, if only part of the element is being read
+     */
+    private void putText(Map<String, Object> object, StringBuilder text, boolean whole, String key) {
+        if (text == null || text.toString().isBlank()) {
+            return;
+        }
+        if (whole || TEXT_KEY.equals(key)) {
+            this.put(object, TEXT_KEY, text.toString());
+        }
+    }
+
+    /**
+     * Stores a field of an element, gathering repeated fields into a list.
+     *
+     * @param object the element being read
+     * @param name   the name of the field
+     * @param value  the value of the field
+     */
+    private void put(Map<String, Object> object, String name, Object value) {
+        if (!object.containsKey(name)) {
+            object.put(name, value);
+        } else if (object.get(name) instanceof RepeatedValues values) {
+            values.add(value);
+        } else {
+            RepeatedValues values = new RepeatedValues();
+            values.add(object.get(name));
+            values.add(value);
+            object.put(name, values);
+        }
+    }
+
+    /**
+     * Skips the element the reader is positioned at, up to and including its end tag.
+     *
+     * @param reader the reader, positioned at the start tag of the element
+     * @throws XMLStreamException if the element is not well-formed
+     */
+    private void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int level = 1;
+        while (level > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                level++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                level--;
+            }
+        }
+    }
+
+    /**
+     * Creates the factory of the StAX readers, with external entities and DTDs disabled.
+     *
+     * @return the configured factory
+     */
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        return factory;
+    }
+}
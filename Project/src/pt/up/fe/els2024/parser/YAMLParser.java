@@ -1,17 +1,21 @@
 package pt.up.fe.els2024.parser;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import pt.up.fe.els2024.exception.ParserException;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 /**
  * {@code YAMLParser} is a subclass of {@link FileParser} responsible for parsing YAML files.
  * <p>
  * This class uses the Jackson library's {@link ObjectMapper} configured with {@link YAMLFactory}
- * to read and convert YAML data into a {@link Map}.
+ * to read and convert YAML data into a {@link Map}. When a selection path is given, the YAML tokens are
+ * streamed through a {@link PathReader}, so that only the selected branches are deserialized.
  * </p>
  */
 public class YAMLParser extends FileParser {
@@ -39,4 +43,30 @@ public class YAMLParser extends FileParser {
         // Use the yamlMapper to read and convert YAML file to a Map
         return yamlMapper.readValue(file, Map.class);
     }
+
+    /**
+     * Reads data from the provided YAML file, restricted to the branches along a selection path.
+     * <p>
+     * The file is streamed through a Jackson {@link JsonParser}: fields outside the path are skipped
+     * at the token level, and only the value at the end of the path is deserialized whole.
+     * </p>
+     *
+     * @param file the YAML file to read
+     * @param path the keys to follow from the root of the document
+     * @return a {@link Map} with the branches of the YAML content along the path
+     * @throws IOException if an error occurs during reading the file
+     * @throws ParserException if the root of the document is not a mapping
+     */
+    @Override
+    public Map<String, Object> readData(File file, List<String> path) throws IOException, ParserException {
+        Map<String, Object> data;
+        try (JsonParser parser = yamlMapper.createParser(file)) {
+            data = new PathReader(yamlMapper).read(parser, path);
+        }
+
+        if (data == null) {
+            throw new ParserException("Error reading or parsing YAML file: " + file.getName());
+        }
+        return data;
+    }
 }
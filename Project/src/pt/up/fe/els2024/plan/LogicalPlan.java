@@ -0,0 +1,58 @@
+package pt.up.fe.els2024.plan;
+
+import pt.up.fe.els2024.builders.Builder;
+import pt.up.fe.els2024.exception.DSLException;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * {@code LogicalPlan} is the sequence of steps of a Preql script, built from its statements before any of them is
+ * executed, so that the {@link Optimizer} can rewrite it first. Executing the plan executes its nodes in order
+ * against a chain of builders, which perform the work.
+ */
+public class LogicalPlan {
+
+    private final List<PlanNode> nodes;
+
+    /**
+     * Constructs a plan from its nodes.
+     *
+     * @param nodes the nodes of the plan, in execution order
+     */
+    public LogicalPlan(List<PlanNode> nodes) {
+        this.nodes = List.copyOf(nodes);
+    }
+
+    /**
+     * Retrieves the nodes of the plan.
+     *
+     * @return the nodes, in execution order
+     */
+    public List<PlanNode> getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Executes the nodes of the plan in order.
+     *
+     * @param builder the first builder of the chain
+     * @return the builder left by the last node
+     * @throws DSLException if a node fails
+     */
+    public Builder execute(Builder builder) throws DSLException {
+        for (PlanNode node : this.nodes) {
+            try {
+                builder = node.apply(builder);
+            } catch (Exception exception) {
+                throw new DSLException(exception.getMessage());
+            }
+        }
+        return builder;
+    }
+
+    @Override
+    public String toString() {
+        return this.nodes.stream().map(PlanNode::toString).collect(Collectors.joining("\n"));
+    }
+}
@@ -0,0 +1,225 @@
+package pt.up.fe.els2024.plan;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@code Optimizer} rewrites a {@link LogicalPlan} with rules that avoid work whose results are discarded later in
+ * the script, without changing the table it exports. The rules run in the order of {@link Rule}:
+ * <ol>
+ *   <li>{@link Rule#PUSH_DOWN_REMOVALS} moves the removal of a column up to the last node that uses it, so the
+ *       aggregates and other operations in between no longer compute anything for it.</li>
+ *   <li>{@link Rule#FUSE_RENAMES} fuses the renames of a column into one, and a rename followed by the removal of
+ *       the renamed column into the removal of the original one.</li>
+ *   <li>{@link Rule#ELIMINATE_DEAD_COLUMNS} drops the computation of a column that is removed without being read,
+ *       along with its removal. The columns the computation reads are still checked, so it fails as it would have
+ *       if they are missing, of different sizes or not numeric.</li>
+ * </ol>
+ * <p>
+ * The result table may have several columns with the same name, and operations on a name use the first one, so
+ * some rewrites are only equivalent if a name is not already taken. Those are kept as {@link PlanNode.Guarded}
+ * nodes, which check the names when executed and fall back to the original nodes otherwise.
+ * </p>
+ */
+public class Optimizer {
+
+    /** The rules of the optimizer. */
+    public enum Rule {
+        PUSH_DOWN_REMOVALS, FUSE_RENAMES, ELIMINATE_DEAD_COLUMNS
+    }
+
+    private final Set<Rule> rules;
+
+    /**
+     * Constructs an optimizer that applies every rule.
+     */
+    public Optimizer() {
+        this(EnumSet.allOf(Rule.class));
+    }
+
+    /**
+     * Constructs an optimizer that applies some rules.
+     *
+     * @param rules the rules to apply, which run in the order they are declared in
+     */
+    public Optimizer(Set<Rule> rules) {
+        this.rules = rules.isEmpty() ? EnumSet.noneOf(Rule.class) : EnumSet.copyOf(rules);
+    }
+
+    /**
+     * Rewrites a plan with the rules of the optimizer.
+     *
+     * @param plan the plan to rewrite
+     * @return the rewritten plan
+     */
+    public LogicalPlan optimize(LogicalPlan plan) {
+        List<PlanNode> nodes = new ArrayList<>(plan.getNodes());
+        for (Rule rule : this.rules) {
+            switch (rule) {
+                case PUSH_DOWN_REMOVALS -> Optimizer.pushDownRemovals(nodes);
+                case FUSE_RENAMES -> Optimizer.fuseRenames(nodes);
+                case ELIMINATE_DEAD_COLUMNS -> Optimizer.eliminateDeadColumns(nodes);
+            }
+        }
+        return new LogicalPlan(nodes);
+    }
+
+    /**
+     * Fuses each rename with the next node that uses either of its names, if that node renames or removes the
+     * renamed column. The fused node takes the place of the second one, where it may be fused again.
+     *
+     * @param nodes the nodes of the plan, rewritten in place
+     */
+    private static void fuseRenames(List<PlanNode> nodes) {
+        for (int i = 0; i < nodes.size(); i++) {
+            PlanNode node = nodes.get(i);
+            Set<String> absent = new LinkedHashSet<>();
+            PlanNode.Rename rename;
+            if (node instanceof PlanNode.Rename plain) {
+                rename = plain;
+            } else if (node instanceof PlanNode.Guarded guarded && guarded.node() instanceof PlanNode.Rename fused) {
+                rename = fused;
+                absent.addAll(guarded.absent());
+            } else {
+                continue;
+            }
+
+            int next = i + 1;
+            while (next < nodes.size()
+                    && !nodes.get(next).touches(rename.from()) && !nodes.get(next).touches(rename.to())) {
+                next++;
+            }
+            if (next == nodes.size()) {
+                continue;
+            }
+
+            PlanNode fused = switch (nodes.get(next)) {
+                case PlanNode.Rename other when other.from().equals(rename.to()) ->
+                        new PlanNode.Rename(rename.from(), other.to());
+                case PlanNode.Remove other when other.column().equals(rename.to()) ->
+                        new PlanNode.Remove(rename.from());
+                default -> null;
+            };
+            if (fused == null) {
+                continue;
+            }
+
+            // The renamed column is only the one used next if its new name was not taken
+            absent.add(rename.to());
+            nodes.set(next, new PlanNode.Guarded(absent, fused, List.of(node, nodes.get(next))));
+            nodes.remove(i);
+            i--;
+        }
+    }
+
+    /**
+     * Moves each removal up to the node after the last one that uses the removed column. Removals move across
+     * aggregates, which compute each column on its own, but not across nodes that may depend on every column.
+     *
+     * @param nodes the nodes of the plan, rewritten in place
+     */
+    private static void pushDownRemovals(List<PlanNode> nodes) {
+        for (int i = 0; i < nodes.size(); i++) {
+            PlanNode node = nodes.get(i);
+            if (!Optimizer.isRemoval(node)) {
+                continue;
+            }
+
+            Set<String> columns = node.getColumns();
+            int target = i;
+            while (target > 0 && Optimizer.canMoveAcross(nodes.get(target - 1), columns)) {
+                target--;
+            }
+            if (target < i) {
+                nodes.remove(i);
+                nodes.add(target, node);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a node removes a column, possibly after renaming it.
+     *
+     * @param node the node
+     * @return {@code true} if the node is a removal
+     */
+    private static boolean isRemoval(PlanNode node) {
+        return node instanceof PlanNode.Remove
+                || node instanceof PlanNode.Guarded guarded && guarded.node() instanceof PlanNode.Remove;
+    }
+
+    /**
+     * Checks whether a removal can move across a node.
+     *
+     * @param node    the node to move across
+     * @param columns the columns the removal uses
+     * @return {@code true} if the order of the removal and the node does not matter
+     */
+    private static boolean canMoveAcross(PlanNode node, Set<String> columns) {
+        if (node.kind() == PlanNode.Kind.AGGREGATE) {
+            return true;
+        }
+        return columns.stream().noneMatch(node::touches);
+    }
+
+    /**
+     * Drops each computed column that is removed right after it is computed, possibly after renaming it, which is
+     * where {@link Rule#PUSH_DOWN_REMOVALS} and {@link Rule#FUSE_RENAMES} leave the removals of unread columns.
+     * The computation is replaced by a check of the columns it reads, and the removal by a node that does nothing.
+     *
+     * @param nodes the nodes of the plan, rewritten in place
+     */
+    private static void eliminateDeadColumns(List<PlanNode> nodes) {
+        for (int i = 1; i < nodes.size(); i++) {
+            PlanNode removal = nodes.get(i);
+            Set<String> absent = new LinkedHashSet<>();
+            PlanNode.Remove remove;
+            if (removal instanceof PlanNode.Remove plain) {
+                remove = plain;
+            } else if (removal instanceof PlanNode.Guarded guarded && guarded.node() instanceof PlanNode.Remove fused) {
+                remove = fused;
+                absent.addAll(guarded.absent());
+            } else {
+                continue;
+            }
+
+            String column = remove.column();
+            if (!(nodes.get(i - 1) instanceof PlanNode.Operation operation)
+                    || operation.kind() != PlanNode.Kind.COMPUTE || operation.reads() == null
+                    || operation.reads().contains(column) || !operation.writes().equals(Set.of(column))) {
+                continue;
+            }
+
+            // If a name was taken, the computed column is not the one removed, so both nodes are kept
+            absent.add(column);
+            nodes.set(i - 1, new PlanNode.Guarded(absent, Optimizer.check(operation), List.of(operation)));
+            nodes.set(i, new PlanNode.Guarded(absent, Optimizer.skip(removal.kind()), List.of(removal)));
+        }
+    }
+
+    /**
+     * Creates a node that checks the columns a computation reads, as the computation would, without computing it.
+     *
+     * @param operation the computation
+     * @return the node
+     */
+    private static PlanNode check(PlanNode.Operation operation) {
+        Set<String> reads = operation.reads();
+        return new PlanNode.Operation(operation.kind(), "check " + operation.name(), reads, Set.of(),
+                                      builder -> PlanNode.operations(builder).checkOperands(reads));
+    }
+
+    /**
+     * Creates a node that does nothing but end the builders of the chain until the result table, like the node it
+     * replaces would.
+     *
+     * @param kind the kind of the replaced node
+     * @return the node
+     */
+    private static PlanNode skip(PlanNode.Kind kind) {
+        return new PlanNode.Operation(kind, "skip", Set.of(), Set.of(), PlanNode::operations);
+    }
+}
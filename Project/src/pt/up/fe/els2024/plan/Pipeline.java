@@ -0,0 +1,296 @@
+package pt.up.fe.els2024.plan;
+
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.builders.Builder;
+import pt.up.fe.els2024.builders.ImportBuilder;
+import pt.up.fe.els2024.builders.OperationBuilder;
+import pt.up.fe.els2024.builders.TableBuilder;
+import pt.up.fe.els2024.exception.DSLException;
+import pt.up.fe.els2024.exception.ExportException;
+import pt.up.fe.els2024.export.CSVStreamExporter;
+import pt.up.fe.els2024.utils.Utils;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * {@code Pipeline} executes a {@link LogicalPlan} that imports a folder and exports it to CSV one file at a time,
+ * without building the whole result table.
+ * <p>
+ * Each file is imported into a table of its own, which goes through the selections and the operations of the
+ * script and is then appended to the exported file, so only the files being processed are in memory. This is only
+ * equivalent to importing every file at once if nothing depends on the rows of other files: the plan must consist
+ * of the creation of the table, a single import with selections of tables or columns, renames, removals and
+ * computations on the values of each row, and a CSV export at the end. See {@link #isStreamable(LogicalPlan)}.
+ * </p>
+ * <p>
+ * The files must also give tables with the same columns, in the same order, and no missing cells, so that
+ * appending their rows gives the merged table; their types may differ, since the exported cells are the same.
+ * If a file breaks this, the partial export is discarded and the plan is executed as usual from the import on.
+ * Any other error discards the partial export and is reported as the error of the plan.
+ * </p>
+ */
+public class Pipeline {
+
+    /** The selections that select from each imported table on its own. */
+    private static final Set<String> ROW_SELECTIONS = Set.of("SelectionTable", "SelectionColumn", "AddColumnNested");
+
+    /** The maximum number of files processed at the same time. */
+    private final int parallelism;
+
+    /**
+     * The columns of a file once imported, and its table once processed.
+     *
+     * @param names the names of the imported columns, in order
+     * @param table the processed table, or {@code null} if the file imported no columns
+     */
+    private record Chunk(List<String> names, Table table) {}
+
+    /**
+     * Signals that the table of a file can't be appended to those of the other files, so the plan must be executed
+     * as usual instead.
+     */
+    private static final class SchemaMismatchException extends ExportException {
+        private static final long serialVersionUID = 1L;
+
+        SchemaMismatchException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Constructs a pipeline with the given degree of parallelism.
+     *
+     * @param parallelism the maximum number of files processed at the same time; {@code 1} processes them one
+     *                    after another on the calling thread
+     */
+    public Pipeline(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Checks whether the nodes of a plan can be executed one file at a time.
+     *
+     * @param plan the plan
+     * @return {@code true} if the plan creates a table, imports into it, operates on each row and exports it to CSV
+     */
+    public static boolean isStreamable(LogicalPlan plan) {
+        List<PlanNode> nodes = plan.getNodes();
+        int position = 0;
+        while (position < nodes.size() && nodes.get(position).kind() == PlanNode.Kind.CREATE) {
+            position++;
+        }
+        if (position == nodes.size() || nodes.get(position).kind() != PlanNode.Kind.IMPORT) {
+            return false;
+        }
+        position++;
+        while (position < nodes.size() && Pipeline.isRowSelection(nodes.get(position))) {
+            position++;
+        }
+        while (position < nodes.size() && Pipeline.isRowLocal(nodes.get(position))) {
+            position++;
+        }
+        return position == nodes.size() - 1
+                && nodes.get(position) instanceof PlanNode.Export export
+                && Utils.getExtension(export.path()).equals("csv");
+    }
+
+    /**
+     * Checks whether a node selects from each imported table on its own.
+     *
+     * @param node the node
+     * @return {@code true} if the node selects the same rows from a table whatever the other tables are
+     */
+    private static boolean isRowSelection(PlanNode node) {
+        return node instanceof PlanNode.Operation operation && operation.kind() == PlanNode.Kind.SELECT
+                && ROW_SELECTIONS.contains(operation.name());
+    }
+
+    /**
+     * Checks whether a node operates on each row of the result table on its own.
+     *
+     * @param node the node
+     * @return {@code true} if the node gives the same rows for a table whatever the other rows are
+     */
+    private static boolean isRowLocal(PlanNode node) {
+        return switch (node) {
+            case PlanNode.Rename rename -> true;
+            case PlanNode.Remove remove -> true;
+            // Computations without columns add a single value for the whole table
+            case PlanNode.Operation operation -> operation.kind() == PlanNode.Kind.COMPUTE
+                    && operation.reads() != null && !operation.reads().isEmpty();
+            case PlanNode.Guarded guarded -> guarded.fallback().stream().allMatch(Pipeline::isRowLocal);
+            default -> false;
+        };
+    }
+
+    /**
+     * Executes a plan accepted by {@link #isStreamable(LogicalPlan)}, one file at a time if possible. The result
+     * table is then left empty, since its rows are only written to the exported file.
+     *
+     * @param plan    the plan to execute
+     * @param builder the first builder of the chain
+     * @return the builder left by the last node
+     * @throws DSLException if a node fails
+     */
+    public Builder execute(LogicalPlan plan, Builder builder) throws DSLException {
+        List<PlanNode> nodes = plan.getNodes();
+        int importPosition = 0;
+        while (nodes.get(importPosition).kind() == PlanNode.Kind.CREATE) {
+            importPosition++;
+        }
+        int rowPosition = importPosition + 1;
+        while (Pipeline.isRowSelection(nodes.get(rowPosition))) {
+            rowPosition++;
+        }
+        List<PlanNode> selections = nodes.subList(importPosition + 1, rowPosition);
+        List<PlanNode> operations = nodes.subList(rowPosition, nodes.size() - 1);
+        PlanNode.Export export = (PlanNode.Export) nodes.getLast();
+
+        try {
+            for (PlanNode node : nodes.subList(0, importPosition)) {
+                builder = node.apply(builder);
+            }
+            Builder created = builder;
+            builder = nodes.get(importPosition).apply(builder);
+
+            // Only an import into an empty table gives the rows of its files and nothing else
+            if (created instanceof TableBuilder tableBuilder && tableBuilder.getTable().getColumns().isEmpty()
+                    && builder instanceof ImportBuilder importBuilder && importBuilder.getPendingFiles().size() > 1
+                    && this.stream(importBuilder, selections, operations, export, tableBuilder.getTable().getName())) {
+                return tableBuilder;
+            }
+
+            // The import builder has not parsed anything yet, so the plan goes on as if nothing was streamed
+            for (PlanNode node : nodes.subList(importPosition + 1, nodes.size())) {
+                builder = node.apply(builder);
+            }
+        } catch (Exception exception) {
+            throw new DSLException(exception.getMessage());
+        }
+        return builder;
+    }
+
+    /**
+     * Streams the files of an import to the exported file, processing up to {@link #parallelism} files at the same
+     * time and appending their rows in import order.
+     *
+     * @param importBuilder the import of the files
+     * @param selections    the selections from the imported tables
+     * @param operations    the operations on the result table
+     * @param export        the export of the result table
+     * @param tableName     the name of the result table
+     * @return {@code true} if the export was written, or {@code false} if it was discarded because the tables of
+     *         the files can't be appended to each other
+     * @throws Exception if a file or a node fails, or the export can't be written
+     */
+    private boolean stream(ImportBuilder importBuilder, List<PlanNode> selections, List<PlanNode> operations,
+                           PlanNode.Export export, String tableName) throws Exception {
+        List<File> files = importBuilder.getPendingFiles();
+        ExecutorService executor = this.parallelism == 1 ? null : Executors.newFixedThreadPool(
+                this.parallelism, Thread.ofVirtual().name("stream-", 0).factory());
+
+        try (CSVStreamExporter exporter = new CSVStreamExporter(tableName, export.path())) {
+            Queue<Future<Chunk>> running = new ArrayDeque<>();
+            int submitted = 0;
+            Chunk first = null;
+
+            for (File file : files) {
+                Chunk chunk;
+                if (executor == null) {
+                    chunk = Pipeline.process(importBuilder, file, selections, operations);
+                } else {
+                    while (submitted < files.size() && running.size() < this.parallelism) {
+                        File next = files.get(submitted++);
+                        running.add(executor.submit(() -> Pipeline.process(importBuilder, next, selections,
+                                                                           operations)));
+                    }
+                    chunk = Pipeline.await(running.remove());
+                }
+
+                if (chunk.table() == null) {
+                    continue;
+                }
+                if (first == null) {
+                    first = chunk;
+                } else if (!first.names().equals(chunk.names())) {
+                    throw new SchemaMismatchException("The columns of " + file
+                                                      + " differ from those of the other files");
+                }
+                exporter.write(chunk.table());
+            }
+            if (first == null) {
+                // No file imported any column, which the usual execution reports
+                return false;
+            }
+            exporter.commit();
+            return true;
+        } catch (SchemaMismatchException exception) {
+            return false;
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor.close();
+            }
+        }
+    }
+
+    /**
+     * Imports a file into a table of its own, and runs the selections and the operations on it.
+     *
+     * @param importBuilder the import of every file
+     * @param file          the file to import
+     * @param selections    the selections from the imported tables
+     * @param operations    the operations on the result table
+     * @return the columns of the imported file and the processed table
+     * @throws Exception if a node fails, or the file gives a table that can't be appended to the others
+     */
+    private static Chunk process(ImportBuilder importBuilder, File file, List<PlanNode> selections,
+                                 List<PlanNode> operations) throws Exception {
+        Builder builder = importBuilder.forFile(file, new TableBuilder().performOperation("Import"));
+        for (PlanNode node : selections) {
+            builder = node.apply(builder);
+        }
+        OperationBuilder operationBuilder = PlanNode.operations(builder);
+        List<Column> columns = operationBuilder.getTable().getColumns();
+        if (columns.isEmpty()) {
+            return new Chunk(List.of(), null);
+        }
+
+        List<String> names = columns.stream().map(Column::getName).toList();
+        int rows = columns.getFirst().size();
+        if (new HashSet<>(names).size() < names.size() || columns.stream().anyMatch(c -> c.size() != rows)) {
+            throw new SchemaMismatchException("The table of " + file + " has repeated columns or missing cells");
+        }
+
+        builder = operationBuilder;
+        for (PlanNode node : operations) {
+            builder = node.apply(builder);
+        }
+        return new Chunk(names, PlanNode.operations(builder).getTable());
+    }
+
+    /**
+     * Waits for a file to be processed.
+     *
+     * @param chunk the file being processed
+     * @return the columns of the imported file and the processed table
+     * @throws Exception the error of the processing, if it failed
+     */
+    private static Chunk await(Future<Chunk> chunk) throws Exception {
+        try {
+            return chunk.get();
+        } catch (ExecutionException exception) {
+            throw exception.getCause() instanceof Exception cause ? cause : exception;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package pt.up.fe.els2024.plan;
+
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.builders.Builder;
+import pt.up.fe.els2024.builders.OperationBuilder;
+import pt.up.fe.els2024.builders.TableBuilder;
+import pt.up.fe.els2024.exception.DSLException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * {@code PlanExecutor} executes a {@link LogicalPlan}, running its independent imports at the same time.
+ * <p>
+ * An import node and the selections after it form an import block, which reads nothing but its files and only
+ * appends columns to the result table. A block therefore depends on no other node of the plan, except for the
+ * exports before it, which may write the files it reads. Joins are not blocks, since they read the result table.
+ * </p>
+ * <p>
+ * The executor starts every block as soon as the exports before it are done, each on a virtual thread of its own
+ * and into a table of its own, so a script with many imports takes about as long as its slowest one. The other
+ * nodes run in order on the calling thread, and the columns of each block are appended to the result table when
+ * its turn comes in the script, so the result is the same as running the nodes one after the other. If several
+ * nodes fail, the error reported is the one of the first in the script.
+ * </p>
+ * <p>
+ * A script that only imports a folder, operates on each row and exports to CSV is executed by a {@link Pipeline}
+ * instead, which streams the files to the exported file one at a time rather than building the whole table.
+ * </p>
+ */
+public class PlanExecutor {
+
+    /** The maximum number of import blocks run at the same time. */
+    private final int parallelism;
+
+    /**
+     * Constructs an executor that runs as many import blocks at the same time as there are processors.
+     */
+    public PlanExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs an executor with the given degree of parallelism.
+     *
+     * @param parallelism the maximum number of import blocks, or files streamed, processed at the same time;
+     *                    {@code 1} runs every node in order on the calling thread
+     */
+    public PlanExecutor(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Executes the nodes of a plan.
+     *
+     * @param plan    the plan to execute
+     * @param builder the first builder of the chain
+     * @return the builder left by the last node
+     * @throws DSLException if a node fails
+     */
+    public Builder execute(LogicalPlan plan, Builder builder) throws DSLException {
+        if (Pipeline.isStreamable(plan)) {
+            return new Pipeline(this.parallelism).execute(plan, builder);
+        }
+
+        List<PlanNode> nodes = plan.getNodes();
+        Map<Integer, Integer> blocks = PlanExecutor.findBlocks(nodes);
+        if (this.parallelism == 1 || blocks.size() <= 1) {
+            return plan.execute(builder);
+        }
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(
+                this.parallelism, Thread.ofVirtual().name("import-", 0).factory())) {
+            Map<Integer, Future<Table>> started = new HashMap<>();
+            int startedUntil = 0;
+
+            try {
+                for (int i = 0; i < nodes.size(); i++) {
+                    // Start the blocks up to the next export, which may write the files read by the blocks after it
+                    if (i >= startedUntil) {
+                        startedUntil = PlanExecutor.nextExport(nodes, i) + 1;
+                        for (Map.Entry<Integer, Integer> block : blocks.entrySet()) {
+                            int start = block.getKey();
+                            if (start >= i && start < startedUntil) {
+                                List<PlanNode> blockNodes = nodes.subList(start, block.getValue());
+                                started.put(start, executor.submit(() -> PlanExecutor.runBlock(blockNodes)));
+                            }
+                        }
+                    }
+
+                    Integer end = blocks.get(i);
+                    if (end == null) {
+                        builder = nodes.get(i).apply(builder);
+                        continue;
+                    }
+                    builder = PlanExecutor.appendBlock(builder, PlanExecutor.await(started.get(i)));
+                    i = end - 1;
+                }
+            } catch (Exception exception) {
+                executor.shutdownNow();
+                throw new DSLException(exception.getMessage());
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Finds the import blocks of a plan: each import node and the selections that follow it.
+     *
+     * @param nodes the nodes of the plan
+     * @return the position after the last node of each block, by the position of its import node
+     */
+    private static Map<Integer, Integer> findBlocks(List<PlanNode> nodes) {
+        Map<Integer, Integer> blocks = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            if (nodes.get(i).kind() != PlanNode.Kind.IMPORT) {
+                continue;
+            }
+            int end = i + 1;
+            while (end < nodes.size() && nodes.get(end).kind() == PlanNode.Kind.SELECT) {
+                end++;
+            }
+            blocks.put(i, end);
+        }
+        return blocks;
+    }
+
+    /**
+     * Finds the next export of a plan.
+     *
+     * @param nodes the nodes of the plan
+     * @param from  the position to search from
+     * @return the position of the next export, or the number of nodes if there is none
+     */
+    private static int nextExport(List<PlanNode> nodes, int from) {
+        int position = from;
+        while (position < nodes.size() && nodes.get(position).kind() != PlanNode.Kind.EXPORT) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Runs an import block on a chain of builders of its own.
+     *
+     * @param blockNodes the nodes of the block
+     * @return the table of the columns the block appends
+     * @throws Exception if a node of the block fails
+     */
+    private static Table runBlock(List<PlanNode> blockNodes) throws Exception {
+        TableBuilder tableBuilder = new TableBuilder();
+        Builder builder = tableBuilder;
+        for (PlanNode node : blockNodes) {
+            builder = node.apply(builder);
+        }
+        PlanNode.operations(builder).end();
+        return tableBuilder.getTable();
+    }
+
+    /**
+     * Waits for an import block to finish.
+     *
+     * @param block the running block
+     * @return the table of the columns the block appends
+     * @throws Exception the error of the block, if it failed
+     */
+    private static Table await(Future<Table> block) throws Exception {
+        try {
+            return block.get();
+        } catch (ExecutionException exception) {
+            throw exception.getCause() instanceof Exception cause ? cause : exception;
+        }
+    }
+
+    /**
+     * Appends the columns of an import block to the result table, as the import would have.
+     *
+     * @param builder the current builder in the chain
+     * @param table   the table of the columns the block appends
+     * @return the operation builder of the result table
+     * @throws Exception if a builder of the chain fails to end
+     */
+    private static Builder appendBlock(Builder builder, Table table) throws Exception {
+        while (!(builder instanceof TableBuilder)) {
+            builder = builder.end();
+        }
+        OperationBuilder operationBuilder = ((TableBuilder) builder).performOperation("Import");
+        operationBuilder.mergeTables(table);
+        return operationBuilder;
+    }
+}
@@ -0,0 +1,320 @@
+package pt.up.fe.els2024.plan;
+
+import pt.up.fe.els2024.builders.Builder;
+import pt.up.fe.els2024.builders.OperationBuilder;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * {@code PlanNode} is a step of a {@link LogicalPlan}, usually one statement of a Preql script.
+ * <p>
+ * Each node declares the columns of the result table it reads or writes by name, which lets the {@link Optimizer}
+ * move, fuse or drop it, and is executed against the chain of builders like the statement it stands for. Nodes
+ * that import, select, reshape or export rows, and nodes that read every column, may depend on any column of the
+ * table, so nothing is moved across them.
+ * </p>
+ */
+public sealed interface PlanNode
+        permits PlanNode.Operation, PlanNode.Rename, PlanNode.Remove, PlanNode.Guarded, PlanNode.Export {
+
+    /** The kinds of nodes. */
+    enum Kind {
+        /** Names the result table. */
+        CREATE,
+        /** Imports files into the result table. */
+        IMPORT,
+        /** Imports files and joins them with the result table on a column. */
+        JOIN,
+        /** Selects the tables or columns of an import. */
+        SELECT,
+        /** Renames or removes a column of the result table. */
+        PROJECT,
+        /** Adds a column computed from other columns of the result table. */
+        COMPUTE,
+        /** Appends summary rows computed from each column on its own. */
+        AGGREGATE,
+        /** Rebuilds the rows of the result table, such as grouping or sorting them. */
+        RESHAPE,
+        /** Exports the result table. */
+        EXPORT;
+
+        /**
+         * Checks whether nodes of this kind may depend on every column of the result table.
+         *
+         * @return {@code true} if no node may be moved across nodes of this kind
+         */
+        public boolean isBarrier() {
+            return this != PROJECT && this != COMPUTE && this != AGGREGATE;
+        }
+    }
+
+    /**
+     * Executes a node against the chain of builders.
+     */
+    @FunctionalInterface
+    interface Step {
+
+        /**
+         * Executes the node.
+         *
+         * @param builder the current builder in the chain
+         * @return the updated builder
+         * @throws Exception if the execution fails
+         */
+        Builder apply(Builder builder) throws Exception;
+    }
+
+    /**
+     * Retrieves the kind of the node.
+     *
+     * @return the kind
+     */
+    Kind kind();
+
+    /**
+     * Retrieves the columns of the result table the node reads or writes by name.
+     *
+     * @return the names of the columns, or {@code null} if the node may read every column
+     */
+    Set<String> getColumns();
+
+    /**
+     * Executes the node against the chain of builders.
+     *
+     * @param builder the current builder in the chain
+     * @return the updated builder
+     * @throws Exception if the execution fails
+     */
+    Builder apply(Builder builder) throws Exception;
+
+    /**
+     * Checks whether the node may depend on a column, so that no node using the column can be moved across it.
+     *
+     * @param column the name of the column
+     * @return {@code true} if the node reads or writes the column, or may depend on every column
+     */
+    default boolean touches(String column) {
+        Set<String> columns = this.getColumns();
+        return this.kind().isBarrier() || columns == null || columns.contains(column);
+    }
+
+    /**
+     * Ends the builders of the chain until the one that operates on the result table.
+     *
+     * @param builder the current builder in the chain
+     * @return the operation builder of the result table
+     * @throws Exception if a builder of the chain fails to end
+     */
+    static OperationBuilder operations(Builder builder) throws Exception {
+        while (!(builder instanceof OperationBuilder)) {
+            builder = builder.end();
+        }
+        return (OperationBuilder) builder;
+    }
+
+    /**
+     * A statement executed by its own step.
+     *
+     * @param kind   the kind of the statement
+     * @param name   the name of the statement, for display
+     * @param reads  the columns the statement reads, or {@code null} if it may read every column
+     * @param writes the columns the statement adds
+     * @param step   the execution of the statement
+     */
+    record Operation(Kind kind, String name, Set<String> reads, Set<String> writes, Step step) implements PlanNode {
+
+        /**
+         * Creates a statement that may read every column.
+         *
+         * @param kind the kind of the statement
+         * @param name the name of the statement, for display
+         * @param step the execution of the statement
+         * @return the node of the statement
+         */
+        public static Operation of(Kind kind, String name, Step step) {
+            return new Operation(kind, name, null, Set.of(), step);
+        }
+
+        @Override
+        public Set<String> getColumns() {
+            if (this.reads == null) {
+                return null;
+            }
+            Set<String> columns = new LinkedHashSet<>(this.reads);
+            columns.addAll(this.writes);
+            return columns;
+        }
+
+        @Override
+        public Builder apply(Builder builder) throws Exception {
+            return this.step.apply(builder);
+        }
+
+        @Override
+        public String toString() {
+            return this.kind + " " + this.name + (this.reads == null ? "" : " " + this.getColumns());
+        }
+    }
+
+    /**
+     * The renaming of a column, including the addition of a prefix or suffix.
+     *
+     * @param from the current name of the column
+     * @param to   the new name of the column
+     * @param step the execution of the renaming
+     */
+    record Rename(String from, String to, Step step) implements PlanNode {
+
+        /**
+         * Creates the renaming of a column by the operation builder.
+         *
+         * @param from the current name of the column
+         * @param to   the new name of the column
+         */
+        public Rename(String from, String to) {
+            this(from, to, builder -> PlanNode.operations(builder).rename(from, to));
+        }
+
+        @Override
+        public Kind kind() {
+            return Kind.PROJECT;
+        }
+
+        @Override
+        public Set<String> getColumns() {
+            return new LinkedHashSet<>(List.of(this.from, this.to));
+        }
+
+        @Override
+        public Builder apply(Builder builder) throws Exception {
+            return this.step.apply(builder);
+        }
+
+        @Override
+        public String toString() {
+            return "PROJECT rename \"" + this.from + "\" to \"" + this.to + "\"";
+        }
+    }
+
+    /**
+     * The removal of a column.
+     *
+     * @param column the name of the column
+     * @param step   the execution of the removal
+     */
+    record Remove(String column, Step step) implements PlanNode {
+
+        /**
+         * Creates the removal of a column by the operation builder.
+         *
+         * @param column the name of the column
+         */
+        public Remove(String column) {
+            this(column, builder -> PlanNode.operations(builder).remove(column));
+        }
+
+        @Override
+        public Kind kind() {
+            return Kind.PROJECT;
+        }
+
+        @Override
+        public Set<String> getColumns() {
+            return Set.of(this.column);
+        }
+
+        @Override
+        public Builder apply(Builder builder) throws Exception {
+            return this.step.apply(builder);
+        }
+
+        @Override
+        public String toString() {
+            return "PROJECT remove \"" + this.column + "\"";
+        }
+    }
+
+    /**
+     * The export of the result table to a file, which reads every column.
+     *
+     * @param path the path of the exported file
+     * @param step the execution of the export
+     */
+    record Export(String path, Step step) implements PlanNode {
+
+        @Override
+        public Kind kind() {
+            return Kind.EXPORT;
+        }
+
+        @Override
+        public Set<String> getColumns() {
+            return null;
+        }
+
+        @Override
+        public Builder apply(Builder builder) throws Exception {
+            return this.step.apply(builder);
+        }
+
+        @Override
+        public String toString() {
+            return "EXPORT \"" + this.path + "\"";
+        }
+    }
+
+    /**
+     * A node rewritten by the {@link Optimizer}, which is only equivalent to the nodes it replaces if some columns
+     * are not in the result table, such as when a column is renamed twice and its intermediate name is not taken.
+     * The columns are checked when the node is executed, and the original nodes are executed if any is there.
+     *
+     * @param absent   the columns that must not be in the result table
+     * @param node     the rewritten node
+     * @param fallback the original nodes, in order
+     */
+    record Guarded(Set<String> absent, PlanNode node, List<PlanNode> fallback) implements PlanNode {
+
+        @Override
+        public Kind kind() {
+            return this.node.kind();
+        }
+
+        @Override
+        public Set<String> getColumns() {
+            Set<String> columns = new LinkedHashSet<>(this.absent);
+            for (PlanNode original : this.fallback) {
+                Set<String> originalColumns = original.getColumns();
+                if (originalColumns == null) {
+                    return null;
+                }
+                columns.addAll(originalColumns);
+            }
+            return columns;
+        }
+
+        @Override
+        public Builder apply(Builder builder) throws Exception {
+            OperationBuilder operationBuilder = PlanNode.operations(builder);
+            boolean taken = this.absent.stream().anyMatch(column -> operationBuilder.getTable().indexOf(column) >= 0);
+            if (!taken) {
+                return this.node.apply(operationBuilder);
+            }
+
+            Builder current = operationBuilder;
+            for (PlanNode original : this.fallback) {
+                current = original.apply(current);
+            }
+            return current;
+        }
+
+        @Override
+        public String toString() {
+            return this.node + " unless " + this.absent.stream().map(column -> "\"" + column + "\"")
+                                                              .collect(Collectors.joining(", "))
+                   + " exists";
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package pt.up.fe.els2024.storage;
+
+import java.util.BitSet;
+
+/**
+ * {@code BooleanStorage} keeps boolean rows as bits of a {@link BitSet}.
+ */
+public class BooleanStorage extends ColumnStorage {
+
+    private final BitSet values;
+
+    /**
+     * Creates an empty storage.
+     *
+     * @param capacity the initial number of rows the storage can hold without growing
+     */
+    public BooleanStorage(int capacity) {
+        this.values = new BitSet(capacity);
+    }
+
+    @Override
+    public ColumnType getType() {
+        return ColumnType.BOOLEAN;
+    }
+
+    @Override
+    public boolean accepts(Object value) {
+        return value instanceof Boolean;
+    }
+
+    @Override
+    protected Object getValue(int index) {
+        return this.values.get(index);
+    }
+
+    @Override
+    protected void setValue(int index, Object value) {
+        this.values.set(index, (Boolean) value);
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        // A BitSet grows on demand
+    }
+
+    /**
+     * Reads the value of a row as a primitive {@code boolean}.
+     *
+     * @param index the row to read
+     * @return the value of the row
+     */
+    public boolean getBoolean(int index) {
+        return this.values.get(index);
+    }
+}
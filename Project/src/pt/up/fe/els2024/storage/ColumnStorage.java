@@ -0,0 +1,212 @@
+package pt.up.fe.els2024.storage;
+
+import java.util.BitSet;
+
+/**
+ * {@code ColumnStorage} is the physical container behind a {@link pt.up.fe.els2024.Column}.
+ * <p>
+ * Implementations keep the rows in a layout specialized for one {@link ColumnType}, avoiding a boxed object
+ * per cell. Missing values are tracked in a validity bitmap that is only allocated once the first {@code null}
+ * is stored, so dense columns pay nothing for it.
+ * </p>
+ */
+public abstract class ColumnStorage {
+
+    /** The number of rows currently stored. */
+    protected int size;
+
+    /** Rows that hold {@code null}, or {@code null} if no such row exists. */
+    protected BitSet nulls;
+
+    /**
+     * Retrieves the layout of this storage.
+     *
+     * @return the {@link ColumnType} of this storage
+     */
+    public abstract ColumnType getType();
+
+    /**
+     * Checks if a non-null value can be stored without changing the layout.
+     *
+     * @param value the value to check
+     * @return {@code true} if the value fits this storage, {@code false} otherwise
+     */
+    public abstract boolean accepts(Object value);
+
+    /**
+     * Reads the (non-null) value stored at the given row.
+     *
+     * @param index the row to read
+     * @return the boxed value of the row
+     */
+    protected abstract Object getValue(int index);
+
+    /**
+     * Writes a non-null value, already checked by {@link #accepts(Object)}, at the given row.
+     *
+     * @param index the row to write
+     * @param value the value to write
+     */
+    protected abstract void setValue(int index, Object value);
+
+    /**
+     * Grows the underlying arrays so that at least {@code capacity} rows fit.
+     *
+     * @param capacity the minimum number of rows
+     */
+    protected abstract void ensureCapacity(int capacity);
+
+    /**
+     * Computes the next capacity when the storage must grow.
+     *
+     * @param current the current capacity
+     * @param required the minimum capacity required
+     * @return the new capacity
+     */
+    protected static int grow(int current, int required) {
+        return Math.max(required, current + (current >> 1) + 1);
+    }
+
+    /**
+     * Retrieves the number of rows in this storage.
+     *
+     * @return the number of rows
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Checks if the given row holds {@code null}.
+     *
+     * @param index the row to check
+     * @return {@code true} if the row is {@code null}
+     */
+    public boolean isNull(int index) {
+        return this.nulls != null && this.nulls.get(index);
+    }
+
+    /**
+     * Checks if any row of this storage holds {@code null}.
+     *
+     * @return {@code true} if at least one row is {@code null}
+     */
+    public boolean hasNulls() {
+        return this.nulls != null && !this.nulls.isEmpty();
+    }
+
+    /**
+     * Retrieves the value of a row, boxing it if the storage is primitive.
+     *
+     * @param index the row to read
+     * @return the value of the row, or {@code null} if the row is missing
+     */
+    public Object get(int index) {
+        return this.isNull(index) ? null : this.getValue(index);
+    }
+
+    /**
+     * Appends a value to the storage. The value must be {@code null} or accepted by {@link #accepts(Object)}.
+     *
+     * @param value the value to append
+     */
+    public void add(Object value) {
+        this.ensureCapacity(this.size + 1);
+        this.size += 1;
+        this.set(this.size - 1, value);
+    }
+
+    /**
+     * Replaces the value of a row. The value must be {@code null} or accepted by {@link #accepts(Object)}.
+     *
+     * @param index the row to replace
+     * @param value the new value
+     */
+    public void set(int index, Object value) {
+        if (value == null) {
+            if (this.nulls == null) {
+                this.nulls = new BitSet();
+            }
+            this.nulls.set(index);
+        } else {
+            if (this.nulls != null) {
+                this.nulls.clear(index);
+            }
+            this.setValue(index, value);
+        }
+    }
+
+    /**
+     * Appends every row of another storage. Storages of the same type override this to copy their arrays in bulk.
+     *
+     * @param other the storage whose rows are appended; its values must be accepted by this storage
+     */
+    public void addAll(ColumnStorage other) {
+        this.ensureCapacity(this.size + other.size());
+        for (int i = 0; i < other.size(); i++) {
+            this.add(other.get(i));
+        }
+    }
+
+    /**
+     * Copies the selected rows into a new storage of the same layout, keeping their order.
+     * Storages of primitive types override this to copy their arrays without boxing.
+     *
+     * @param rows the rows to keep; rows past the end of this storage are ignored
+     * @return a new storage holding only the selected rows
+     */
+    public ColumnStorage select(BitSet rows) {
+        ColumnStorage selected = this.getType().create(rows.cardinality());
+        for (int i = rows.nextSetBit(0); i >= 0 && i < this.size; i = rows.nextSetBit(i + 1)) {
+            selected.add(this.get(i));
+        }
+        return selected;
+    }
+
+    /**
+     * Copies the given rows into a new storage of the same layout, in the given order and possibly repeated.
+     * Storages of primitive types override this to copy their arrays without boxing.
+     *
+     * @param rows  the rows to copy; a negative row, or one past the end of this storage, produces a {@code null} row
+     * @param count the number of entries of {@code rows} to copy
+     * @return a new storage holding the copied rows
+     */
+    public ColumnStorage gather(int[] rows, int count) {
+        ColumnStorage gathered = this.getType().create(count);
+        for (int i = 0; i < count; i++) {
+            gathered.add(rows[i] < 0 || rows[i] >= this.size ? null : this.get(rows[i]));
+        }
+        return gathered;
+    }
+
+    /**
+     * Copies the validity bitmap of {@code other} to the rows starting at {@code offset}.
+     *
+     * @param other the storage whose nulls are copied
+     * @param offset the first row of this storage that receives the copy
+     */
+    protected void copyNulls(ColumnStorage other, int offset) {
+        if (!other.hasNulls()) {
+            return;
+        }
+        if (this.nulls == null) {
+            this.nulls = new BitSet();
+        }
+        for (int i = other.nulls.nextSetBit(0); i >= 0 && i < other.size(); i = other.nulls.nextSetBit(i + 1)) {
+            this.nulls.set(offset + i);
+        }
+    }
+
+    /**
+     * Converts this storage into a generic one holding boxed values, which accepts any value.
+     *
+     * @return an {@link ObjectStorage} with the same rows
+     */
+    public ObjectStorage toObjectStorage() {
+        ObjectStorage objectStorage = new ObjectStorage(this.size);
+        for (int i = 0; i < this.size; i++) {
+            objectStorage.add(this.get(i));
+        }
+        return objectStorage;
+    }
+}
@@ -0,0 +1,80 @@
+package pt.up.fe.els2024.storage;
+
+import pt.up.fe.els2024.Table;
+
+import java.util.List;
+
+/**
+ * {@code ColumnType} enumerates the physical layouts a {@link pt.up.fe.els2024.Column} can use to store its rows.
+ * <p>
+ * Each type maps to a {@link ColumnStorage} implementation: numbers and booleans are kept in primitive arrays,
+ * strings are dictionary-encoded, nested tables are kept in a typed array and everything else (lists, mixed
+ * values) falls back to a generic list of objects.
+ * </p>
+ */
+public enum ColumnType {
+    DOUBLE,
+    LONG,
+    BOOLEAN,
+    STRING,
+    TABLE,
+    OBJECT;
+
+    /**
+     * Determines the column type that best stores the given value.
+     *
+     * @param value the value to inspect
+     * @return the matching {@code ColumnType}, or {@link #OBJECT} if no specialized layout applies
+     */
+    public static ColumnType of(Object value) {
+        return switch (value) {
+            case Double ignored -> DOUBLE;
+            case Integer ignored -> LONG;
+            case Long ignored -> LONG;
+            case Boolean ignored -> BOOLEAN;
+            case String ignored -> STRING;
+            case Table ignored -> TABLE;
+            case null, default -> OBJECT;
+        };
+    }
+
+    /**
+     * Determines the column type able to store every non-null value of the given list.
+     * If the values do not share a single specialized type, {@link #OBJECT} is returned.
+     *
+     * @param values the values to inspect
+     * @return the common {@code ColumnType} of the values
+     */
+    public static ColumnType of(List<?> values) {
+        ColumnType type = null;
+        for (Object value : values) {
+            if (value == null) {
+                continue;
+            }
+            ColumnType valueType = ColumnType.of(value);
+            if (type == null) {
+                type = valueType;
+            } else if (type != valueType) {
+                return OBJECT;
+            }
+        }
+        return type == null ? OBJECT : type;
+    }
+
+    /**
+     * Creates an empty storage of this type.
+     *
+     * @param capacity the initial number of rows the storage can hold without growing
+     * @return a new {@link ColumnStorage} instance
+     */
+    public ColumnStorage create(int capacity) {
+        return switch (this) {
+            case DOUBLE -> new DoubleStorage(capacity);
+            case LONG -> new LongStorage(capacity);
+            case BOOLEAN -> new BooleanStorage(capacity);
+            case STRING -> new DictionaryStorage(capacity);
+            case TABLE -> new TableStorage(capacity);
+            case OBJECT -> new ObjectStorage(capacity);
+        };
+    }
+}
@@ -0,0 +1,360 @@
+package pt.up.fe.els2024.storage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code DictionaryStorage} keeps string rows dictionary-encoded: each distinct string is stored once and
+ * every row holds the {@code int} code of its string.
+ * <p>
+ * Most imported columns hold a handful of rows, so the hash index over the dictionary is only built once the
+ * dictionary outgrows a linear scan.
+ * </p>
+ * <p>
+ * Inputs often deliver numbers as strings. On the first numeric access, each dictionary entry is parsed once
+ * and its value is cached next to it, so that later aggregates and operations read the rows as numbers
+ * without parsing them again, while the rows themselves keep their original text.
+ * </p>
+ * <p>
+ * Only plain decimal numbers, as checked by {@link #isDecimal(String)}, count as numbers. The other forms accepted
+ * by {@link Double#parseDouble(String)}, such as {@code NaN}, {@code Infinity}, {@code 0x1p3} or {@code 1d}, are
+ * kept as text, so they never reach arithmetic or aggregates.
+ * </p>
+ */
+public class DictionaryStorage extends ColumnStorage {
+
+    /** The dictionary size above which lookups go through {@link #index}. */
+    private static final int INDEX_THRESHOLD = 16;
+
+    private int[] codes;
+    private String[] dictionary;
+    private int dictionarySize;
+    private Map<String, Integer> index;
+
+    /** The numeric value of each parsed dictionary entry. */
+    private double[] numbers;
+
+    /** Whether each parsed dictionary entry is a number. */
+    private boolean[] numeric;
+
+    /** The number of dictionary entries parsed so far; entries are never changed, so they are parsed only once. */
+    private int parsedEntries;
+
+    /** The number of parsed dictionary entries that are not numbers. */
+    private int nonNumericEntries;
+
+    /**
+     * Creates an empty storage.
+     *
+     * @param capacity the initial number of rows the storage can hold without growing
+     */
+    public DictionaryStorage(int capacity) {
+        this.codes = new int[Math.max(capacity, 1)];
+        this.dictionary = new String[Math.min(Math.max(capacity, 1), INDEX_THRESHOLD)];
+    }
+
+    @Override
+    public ColumnType getType() {
+        return ColumnType.STRING;
+    }
+
+    @Override
+    public boolean accepts(Object value) {
+        return value instanceof String;
+    }
+
+    @Override
+    protected Object getValue(int index) {
+        return this.dictionary[this.codes[index]];
+    }
+
+    @Override
+    protected void setValue(int index, Object value) {
+        this.codes[index] = this.encode((String) value);
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > this.codes.length) {
+            this.codes = Arrays.copyOf(this.codes, grow(this.codes.length, capacity));
+        }
+    }
+
+    /**
+     * Finds the code of a string, adding it to the dictionary if it is new.
+     *
+     * @param value the string to encode
+     * @return the code of the string
+     */
+    private int encode(String value) {
+        if (this.index != null) {
+            Integer code = this.index.get(value);
+            return code != null ? code : this.addToDictionary(value);
+        }
+        for (int code = 0; code < this.dictionarySize; code++) {
+            if (this.dictionary[code].equals(value)) {
+                return code;
+            }
+        }
+        return this.addToDictionary(value);
+    }
+
+    /**
+     * Appends a new string to the dictionary, building the hash index when the dictionary becomes large.
+     *
+     * @param value the string to add
+     * @return the code assigned to the string
+     */
+    private int addToDictionary(String value) {
+        if (this.dictionarySize == this.dictionary.length) {
+            this.dictionary = Arrays.copyOf(this.dictionary, grow(this.dictionary.length, this.dictionarySize + 1));
+        }
+        int code = this.dictionarySize++;
+        this.dictionary[code] = value;
+
+        if (this.index != null) {
+            this.index.put(value, code);
+        } else if (this.dictionarySize > INDEX_THRESHOLD) {
+            this.index = new HashMap<>();
+            for (int i = 0; i < this.dictionarySize; i++) {
+                this.index.put(this.dictionary[i], i);
+            }
+        }
+        return code;
+    }
+
+    /**
+     * Reads the dictionary code of a row.
+     *
+     * @param index the row to read
+     * @return the code of the row's string
+     */
+    public int getCode(int index) {
+        return this.codes[index];
+    }
+
+    /**
+     * Retrieves the string associated with a dictionary code.
+     *
+     * @param code the code to decode
+     * @return the string of the code
+     */
+    public String decode(int code) {
+        return this.dictionary[code];
+    }
+
+    /**
+     * Retrieves the number of distinct strings stored.
+     *
+     * @return the size of the dictionary
+     */
+    public int getDictionarySize() {
+        return this.dictionarySize;
+    }
+
+    /**
+     * Checks whether a row holds a string that is a number.
+     *
+     * @param index the row to check
+     * @return {@code true} if the row is not missing and its string is a number
+     */
+    public boolean isNumber(int index) {
+        if (this.isNull(index)) {
+            return false;
+        }
+        this.parseDictionary();
+        return this.numeric[this.codes[index]];
+    }
+
+    /**
+     * Reads the numeric value of a row holding a number.
+     *
+     * @param index the row to read
+     * @return the value of the row's string, as parsed by {@link Double#parseDouble(String)}
+     */
+    public double getDouble(int index) {
+        this.parseDictionary();
+        return this.numbers[this.codes[index]];
+    }
+
+    /**
+     * Checks whether a dictionary entry is a number.
+     *
+     * @param code the code of the entry
+     * @return {@code true} if the string of the code is a number
+     */
+    public boolean isNumberEntry(int code) {
+        this.parseDictionary();
+        return this.numeric[code];
+    }
+
+    /**
+     * Reads the numeric value of a dictionary entry that is a number.
+     *
+     * @param code the code of the entry
+     * @return the value of the string of the code, as parsed by {@link Double#parseDouble(String)}
+     */
+    public double getEntryDouble(int code) {
+        this.parseDictionary();
+        return this.numbers[code];
+    }
+
+    /**
+     * Checks whether the first rows of the storage all hold strings that are numbers.
+     *
+     * @param rows the number of rows to check
+     * @return {@code true} if none of the rows is missing or holds a string that is not a number
+     */
+    public boolean isNumeric(int rows) {
+        this.parseDictionary();
+        if (this.nonNumericEntries == 0 && !this.hasNulls()) {
+            return true;
+        }
+        for (int i = 0; i < rows; i++) {
+            if (!this.isNumber(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the first rows of the storage as numbers, if they all hold strings that are numbers.
+     *
+     * @param rows the number of rows to read
+     * @return an array with the value of each row, or {@code null} if some row is not a number
+     */
+    public double[] toDoubleArray(int rows) {
+        if (!this.isNumeric(rows)) {
+            return null;
+        }
+        double[] values = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            values[i] = this.numbers[this.codes[i]];
+        }
+        return values;
+    }
+
+    /**
+     * Parses the dictionary entries added since the last numeric access.
+     */
+    private void parseDictionary() {
+        if (this.parsedEntries == this.dictionarySize) {
+            return;
+        }
+        if (this.numbers == null || this.numbers.length < this.dictionarySize) {
+            int length = this.dictionary.length;
+            this.numbers = this.numbers == null ? new double[length] : Arrays.copyOf(this.numbers, length);
+            this.numeric = this.numeric == null ? new boolean[length] : Arrays.copyOf(this.numeric, length);
+        }
+
+        for (int code = this.parsedEntries; code < this.dictionarySize; code++) {
+            String entry = this.dictionary[code];
+            if (isDecimal(entry)) {
+                this.numbers[code] = Double.parseDouble(entry);
+                this.numeric[code] = true;
+            } else {
+                this.numeric[code] = false;
+                this.nonNumericEntries++;
+            }
+        }
+        this.parsedEntries = this.dictionarySize;
+    }
+
+    /**
+     * Checks whether a string is a plain decimal number, such as {@code -12}, {@code 3.5} or {@code 1e-3},
+     * optionally surrounded by whitespace. Such strings are always accepted by {@link Double#parseDouble(String)}.
+     *
+     * @param string the string to check
+     * @return {@code true} if the string is a plain decimal number
+     */
+    public static boolean isDecimal(String string) {
+        int end = string.length();
+        int i = 0;
+        while (i < end && string.charAt(i) <= ' ') {
+            i++;
+        }
+        while (end > i && string.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        if (i < end && (string.charAt(i) == '+' || string.charAt(i) == '-')) {
+            i++;
+        }
+
+        int digits = 0;
+        while (i < end && string.charAt(i) >= '0' && string.charAt(i) <= '9') {
+            i++;
+            digits++;
+        }
+        if (i < end && string.charAt(i) == '.') {
+            i++;
+            while (i < end && string.charAt(i) >= '0' && string.charAt(i) <= '9') {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+
+        if (i < end && (string.charAt(i) == 'e' || string.charAt(i) == 'E')) {
+            i++;
+            if (i < end && (string.charAt(i) == '+' || string.charAt(i) == '-')) {
+                i++;
+            }
+            int exponentDigits = 0;
+            while (i < end && string.charAt(i) >= '0' && string.charAt(i) <= '9') {
+                i++;
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return false;
+            }
+        }
+        return i == end;
+    }
+
+    @Override
+    public void addAll(ColumnStorage other) {
+        if (!(other instanceof DictionaryStorage dictionaryStorage)) {
+            super.addAll(other);
+            return;
+        }
+
+        // Translate the other dictionary once, then remap its codes
+        int[] translation = new int[dictionaryStorage.dictionarySize];
+        for (int code = 0; code < dictionaryStorage.dictionarySize; code++) {
+            translation[code] = this.encode(dictionaryStorage.dictionary[code]);
+        }
+
+        this.ensureCapacity(this.size + other.size());
+        for (int i = 0; i < other.size(); i++) {
+            this.codes[this.size + i] = other.isNull(i) ? 0 : translation[dictionaryStorage.codes[i]];
+        }
+        this.copyNulls(other, this.size);
+        this.size += other.size();
+    }
+
+    @Override
+    public ColumnStorage gather(int[] rows, int count) {
+        // Each dictionary entry is encoded into the new storage once, the first time a row refers to it
+        DictionaryStorage gathered = new DictionaryStorage(count);
+        int[] translation = new int[this.dictionarySize];
+        Arrays.fill(translation, -1);
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            if (row < 0 || row >= this.size || this.isNull(row)) {
+                gathered.add(null);
+                continue;
+            }
+            int code = this.codes[row];
+            if (translation[code] < 0) {
+                translation[code] = gathered.encode(this.dictionary[code]);
+            }
+            gathered.codes[gathered.size++] = translation[code];
+        }
+        return gathered;
+    }
+}
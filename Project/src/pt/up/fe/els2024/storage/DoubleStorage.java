@@ -0,0 +1,108 @@
+package pt.up.fe.els2024.storage;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * {@code DoubleStorage} keeps floating-point rows in a primitive {@code double} array.
+ */
+public class DoubleStorage extends NumericStorage {
+
+    private double[] values;
+
+    /**
+     * Creates an empty storage.
+     *
+     * @param capacity the initial number of rows the storage can hold without growing
+     */
+    public DoubleStorage(int capacity) {
+        this.values = new double[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Creates a storage that takes ownership of an existing array.
+     *
+     * @param values the array holding the rows
+     * @param size the number of rows of {@code values} in use
+     */
+    public DoubleStorage(double[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    @Override
+    public ColumnType getType() {
+        return ColumnType.DOUBLE;
+    }
+
+    @Override
+    public boolean accepts(Object value) {
+        return value instanceof Double;
+    }
+
+    @Override
+    protected Object getValue(int index) {
+        return this.values[index];
+    }
+
+    @Override
+    protected void setValue(int index, Object value) {
+        this.values[index] = (Double) value;
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > this.values.length) {
+            this.values = Arrays.copyOf(this.values, grow(this.values.length, capacity));
+        }
+    }
+
+    @Override
+    public double getDouble(int index) {
+        return this.values[index];
+    }
+
+    @Override
+    public double[] toDoubleArray() {
+        return Arrays.copyOf(this.values, this.size);
+    }
+
+    @Override
+    public void addAll(ColumnStorage other) {
+        if (!(other instanceof DoubleStorage doubleStorage)) {
+            super.addAll(other);
+            return;
+        }
+        this.ensureCapacity(this.size + other.size());
+        System.arraycopy(doubleStorage.values, 0, this.values, this.size, other.size());
+        this.copyNulls(other, this.size);
+        this.size += other.size();
+    }
+
+    @Override
+    public ColumnStorage select(BitSet rows) {
+        DoubleStorage selected = new DoubleStorage(rows.cardinality());
+        for (int i = rows.nextSetBit(0); i >= 0 && i < this.size; i = rows.nextSetBit(i + 1)) {
+            if (this.isNull(i)) {
+                selected.add(null);
+            } else {
+                selected.values[selected.size++] = this.values[i];
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public ColumnStorage gather(int[] rows, int count) {
+        DoubleStorage gathered = new DoubleStorage(count);
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            if (row < 0 || row >= this.size || this.isNull(row)) {
+                gathered.add(null);
+            } else {
+                gathered.values[gathered.size++] = this.values[row];
+            }
+        }
+        return gathered;
+    }
+}
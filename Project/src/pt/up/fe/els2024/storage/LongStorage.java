@@ -0,0 +1,156 @@
+package pt.up.fe.els2024.storage;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * {@code LongStorage} keeps integral rows in a primitive {@code long} array.
+ * <p>
+ * Parsers hand small integers over as {@link Integer} and large ones as {@link Long}, so every row is read back
+ * with the boxed type it was stored with, keeping the boxed view identical to the parsed data. The rows holding a
+ * {@code Long} are tracked in a bitmap that is only allocated once the first {@code Long} is stored.
+ * </p>
+ */
+public class LongStorage extends NumericStorage {
+
+    private long[] values;
+
+    /** Rows that hold a {@link Long} rather than an {@link Integer}, or {@code null} if no such row exists. */
+    private BitSet longs;
+
+    /**
+     * Creates an empty storage.
+     *
+     * @param capacity the initial number of rows the storage can hold without growing
+     */
+    public LongStorage(int capacity) {
+        this.values = new long[Math.max(capacity, 1)];
+    }
+
+    @Override
+    public ColumnType getType() {
+        return ColumnType.LONG;
+    }
+
+    @Override
+    public boolean accepts(Object value) {
+        return value instanceof Integer || value instanceof Long;
+    }
+
+    @Override
+    protected Object getValue(int index) {
+        return this.holdsLong(index) ? (Object) this.values[index] : (Object) (int) this.values[index];
+    }
+
+    @Override
+    protected void setValue(int index, Object value) {
+        if (value instanceof Long) {
+            this.markLong(index);
+        } else if (this.longs != null) {
+            this.longs.clear(index);
+        }
+        this.values[index] = ((Number) value).longValue();
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > this.values.length) {
+            this.values = Arrays.copyOf(this.values, grow(this.values.length, capacity));
+        }
+    }
+
+    /**
+     * Checks if the given row holds a {@link Long} rather than an {@link Integer}.
+     *
+     * @param index the row to check
+     * @return {@code true} if the row was stored as a {@code Long}
+     */
+    public boolean holdsLong(int index) {
+        return this.longs != null && this.longs.get(index);
+    }
+
+    /**
+     * Reads the value of a row as a primitive {@code long}.
+     *
+     * @param index the row to read
+     * @return the value of the row
+     */
+    public long getLong(int index) {
+        return this.values[index];
+    }
+
+    @Override
+    public double getDouble(int index) {
+        return this.values[index];
+    }
+
+    @Override
+    public void addAll(ColumnStorage other) {
+        if (!(other instanceof LongStorage longStorage)) {
+            super.addAll(other);
+            return;
+        }
+        this.ensureCapacity(this.size + other.size());
+        System.arraycopy(longStorage.values, 0, this.values, this.size, other.size());
+        this.copyNulls(other, this.size);
+        BitSet otherLongs = longStorage.longs;
+        if (otherLongs != null) {
+            for (int i = otherLongs.nextSetBit(0); i >= 0 && i < other.size(); i = otherLongs.nextSetBit(i + 1)) {
+                this.markLong(this.size + i);
+            }
+        }
+        this.size += other.size();
+    }
+
+    @Override
+    public ColumnStorage select(BitSet rows) {
+        LongStorage selected = new LongStorage(rows.cardinality());
+        for (int i = rows.nextSetBit(0); i >= 0 && i < this.size; i = rows.nextSetBit(i + 1)) {
+            if (this.isNull(i)) {
+                selected.add(null);
+            } else {
+                selected.copyRow(this, i);
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public ColumnStorage gather(int[] rows, int count) {
+        LongStorage gathered = new LongStorage(count);
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            if (row < 0 || row >= this.size || this.isNull(row)) {
+                gathered.add(null);
+            } else {
+                gathered.copyRow(this, row);
+            }
+        }
+        return gathered;
+    }
+
+    /**
+     * Appends a non-null row of another storage, keeping its boxed type. The capacity must already fit the row.
+     *
+     * @param source the storage holding the row
+     * @param index  the row to copy
+     */
+    private void copyRow(LongStorage source, int index) {
+        if (source.holdsLong(index)) {
+            this.markLong(this.size);
+        }
+        this.values[this.size++] = source.values[index];
+    }
+
+    /**
+     * Records that the given row holds a {@link Long}.
+     *
+     * @param index the row
+     */
+    private void markLong(int index) {
+        if (this.longs == null) {
+            this.longs = new BitSet();
+        }
+        this.longs.set(index);
+    }
+}
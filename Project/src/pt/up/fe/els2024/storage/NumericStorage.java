@@ -0,0 +1,30 @@
+package pt.up.fe.els2024.storage;
+
+/**
+ * {@code NumericStorage} is the common base of the storages that keep numbers in primitive arrays.
+ * It gives arithmetic and aggregate operations direct access to the values without boxing.
+ */
+public abstract class NumericStorage extends ColumnStorage {
+
+    /**
+     * Reads the value of a row as a primitive {@code double}.
+     * The result is meaningless for rows where {@link #isNull(int)} is {@code true}.
+     *
+     * @param index the row to read
+     * @return the value of the row
+     */
+    public abstract double getDouble(int index);
+
+    /**
+     * Copies the values of this storage into a new primitive array.
+     *
+     * @return an array with one {@code double} per row
+     */
+    public double[] toDoubleArray() {
+        double[] values = new double[this.size];
+        for (int i = 0; i < this.size; i++) {
+            values[i] = this.getDouble(i);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,99 @@
+package pt.up.fe.els2024.storage;
+
+import java.util.ArrayList;
+
+/**
+ * {@code ObjectStorage} is the generic fallback layout, keeping each row as a boxed object.
+ * It accepts any value, including lists and {@code null}, and is used for mixed-type columns.
+ */
+public class ObjectStorage extends ColumnStorage {
+
+    private final ArrayList<Object> values;
+
+    /**
+     * Creates an empty storage.
+     *
+     * @param capacity the initial number of rows the storage can hold without growing
+     */
+    public ObjectStorage(int capacity) {
+        this.values = new ArrayList<>(capacity);
+    }
+
+    @Override
+    public ColumnType getType() {
+        return ColumnType.OBJECT;
+    }
+
+    @Override
+    public boolean accepts(Object value) {
+        return true;
+    }
+
+    @Override
+    public boolean isNull(int index) {
+        return this.values.get(index) == null;
+    }
+
+    @Override
+    public boolean hasNulls() {
+        return this.values.contains(null);
+    }
+
+    @Override
+    public Object get(int index) {
+        return this.values.get(index);
+    }
+
+    @Override
+    protected Object getValue(int index) {
+        return this.values.get(index);
+    }
+
+    @Override
+    protected void setValue(int index, Object value) {
+        this.values.set(index, value);
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        this.values.ensureCapacity(capacity);
+    }
+
+    @Override
+    public void add(Object value) {
+        this.values.add(value);
+        this.size += 1;
+    }
+
+    @Override
+    public void set(int index, Object value) {
+        this.values.set(index, value);
+    }
+
+    /**
+     * Inserts a value at the given row, shifting the following rows.
+     *
+     * @param index the row where the value is inserted
+     * @param value the value to insert
+     */
+    public void insert(int index, Object value) {
+        this.values.add(index, value);
+        this.size += 1;
+    }
+
+    /**
+     * Removes a row, shifting the following rows.
+     *
+     * @param index the row to remove
+     * @return the value of the removed row
+     */
+    public Object remove(int index) {
+        this.size -= 1;
+        return this.values.remove(index);
+    }
+
+    @Override
+    public ObjectStorage toObjectStorage() {
+        return this;
+    }
+}
@@ -0,0 +1,71 @@
+package pt.up.fe.els2024.storage;
+
+import pt.up.fe.els2024.Table;
+
+import java.util.Arrays;
+
+/**
+ * {@code TableStorage} keeps rows that are nested {@link Table}s in a typed array.
+ */
+public class TableStorage extends ColumnStorage {
+
+    private Table[] values;
+
+    /**
+     * Creates an empty storage.
+     *
+     * @param capacity the initial number of rows the storage can hold without growing
+     */
+    public TableStorage(int capacity) {
+        this.values = new Table[Math.max(capacity, 1)];
+    }
+
+    @Override
+    public ColumnType getType() {
+        return ColumnType.TABLE;
+    }
+
+    @Override
+    public boolean accepts(Object value) {
+        return value instanceof Table;
+    }
+
+    @Override
+    protected Object getValue(int index) {
+        return this.values[index];
+    }
+
+    @Override
+    protected void setValue(int index, Object value) {
+        this.values[index] = (Table) value;
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > this.values.length) {
+            this.values = Arrays.copyOf(this.values, grow(this.values.length, capacity));
+        }
+    }
+
+    /**
+     * Reads the nested table of a row.
+     *
+     * @param index the row to read
+     * @return the nested table, or {@code null} if the row is missing
+     */
+    public Table getTable(int index) {
+        return this.values[index];
+    }
+
+    @Override
+    public void addAll(ColumnStorage other) {
+        if (!(other instanceof TableStorage tableStorage)) {
+            super.addAll(other);
+            return;
+        }
+        this.ensureCapacity(this.size + other.size());
+        System.arraycopy(tableStorage.values, 0, this.values, this.size, other.size());
+        this.copyNulls(other, this.size);
+        this.size += other.size();
+    }
+}
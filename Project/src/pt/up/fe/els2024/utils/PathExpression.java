@@ -0,0 +1,219 @@
+package pt.up.fe.els2024.utils;
+
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@code PathExpression} is a selection path, such as {@code "a/b/c"}, split into its segments once.
+ * <p>
+ * Paths are compiled with {@link #compile(String)}, which keeps the compiled path of each distinct string,
+ * so that a selection applied to thousands of tables tokenises its path a single time. A compiled path resolves
+ * the tables it leads to by walking the table tree directly, looking each segment up in the name index of the
+ * tables, without building intermediate lists or sub-paths.
+ * </p>
+ * <p>
+ * Compiled paths are immutable and safe to share between threads.
+ * </p>
+ */
+public class PathExpression {
+
+    /** The maximum number of distinct paths kept by {@link #compile(String)}. */
+    private static final int MAX_CACHED = 1024;
+
+    /** The compiled paths, by path string. */
+    private static final Map<String, PathExpression> CACHE = new ConcurrentHashMap<>();
+
+    /** The path without segments, which selects the table itself. */
+    public static final PathExpression EMPTY = new PathExpression(new String[0]);
+
+    private final String[] segments;
+    private final List<String> segmentList;
+
+    /** The path without its last segment, compiled on first use. */
+    private PathExpression parent;
+
+    /**
+     * Constructs a path with the given segments.
+     *
+     * @param segments the segments of the path
+     */
+    private PathExpression(String[] segments) {
+        this.segments = segments;
+        this.segmentList = Collections.unmodifiableList(Arrays.asList(segments));
+    }
+
+    /**
+     * Compiles a path string, reusing the compiled path of an equal string.
+     *
+     * @param path the path, with segments separated by {@code /}
+     * @return the compiled path; {@link #EMPTY} for {@code null}, blank strings or strings made only of slashes
+     */
+    public static PathExpression compile(String path) {
+        if (path == null) {
+            return EMPTY;
+        }
+
+        PathExpression expression = CACHE.get(path);
+        if (expression == null) {
+            String[] segments = PathExpression.tokenize(path);
+            expression = segments.length == 0 ? EMPTY : new PathExpression(segments);
+            if (CACHE.size() < MAX_CACHED) {
+                CACHE.putIfAbsent(path, expression);
+            }
+        }
+        return expression;
+    }
+
+    /**
+     * Creates a path from its segments, without going through the cache.
+     *
+     * @param segments the segments of the path
+     * @return the path
+     */
+    public static PathExpression of(List<String> segments) {
+        return segments.isEmpty() ? EMPTY : new PathExpression(segments.toArray(new String[0]));
+    }
+
+    /**
+     * Splits a path string into its segments.
+     * <p>
+     * Leading and trailing slashes are ignored, and {@code null}, blank strings or strings made only of slashes
+     * have no segments. Consecutive slashes in the middle of the path delimit empty segments.
+     * </p>
+     *
+     * @param path the path to split
+     * @return the segments of the path
+     */
+    public static String[] tokenize(String path) {
+        if (path == null || path.trim().isEmpty()) {
+            return new String[0];
+        }
+
+        int start = 0;
+        int end = path.length();
+        while (start < end && path.charAt(start) == '/') {
+            start++;
+        }
+        while (end > start && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        if (start == end) {
+            return new String[0];
+        }
+
+        List<String> segments = new ArrayList<>();
+        int segmentStart = start;
+        for (int i = start; i < end; i++) {
+            if (path.charAt(i) == '/') {
+                segments.add(path.substring(segmentStart, i));
+                segmentStart = i + 1;
+            }
+        }
+        segments.add(path.substring(segmentStart, end));
+        return segments.toArray(new String[0]);
+    }
+
+    /**
+     * Retrieves the segments of the path.
+     *
+     * @return an unmodifiable list of the segments
+     */
+    public List<String> getSegments() {
+        return this.segmentList;
+    }
+
+    /**
+     * Checks whether the path has no segments.
+     *
+     * @return {@code true} if the path selects the table itself
+     */
+    public boolean isEmpty() {
+        return this.segments.length == 0;
+    }
+
+    /**
+     * Retrieves the last segment of the path.
+     *
+     * @return the last segment
+     * @throws java.util.NoSuchElementException if the path is empty
+     */
+    public String getLast() {
+        return this.segmentList.getLast();
+    }
+
+    /**
+     * Retrieves the path without its last segment, as it would be compiled from its string.
+     *
+     * @return the parent path, or {@link #EMPTY} if the path has at most one segment
+     */
+    public PathExpression getParent() {
+        if (this.parent == null) {
+            this.parent = this.segments.length <= 1
+                    ? EMPTY
+                    : PathExpression.compile(String.join("/", this.segmentList.subList(0, this.segments.length - 1)));
+        }
+        return this.parent;
+    }
+
+    /**
+     * Finds the tables the path leads to from a table.
+     * <p>
+     * Each segment names a column of the current tables, and the nested tables in the rows of that column become
+     * the current tables of the next segment. Branches where a nested table lacks the column are skipped.
+     * </p>
+     *
+     * @param table the table to start from
+     * @return the tables at the end of the path, in order; the table itself if the path is empty;
+     *         or {@code null} if the table has no column named by the first segment
+     */
+    public List<Table> resolve(Table table) {
+        List<Table> tables = new ArrayList<>();
+        if (this.segments.length == 0) {
+            tables.add(table);
+            return tables;
+        }
+
+        if (table.getColumn(this.segments[0]) == null) {
+            return null;
+        }
+        this.collect(table, 0, tables);
+        return tables;
+    }
+
+    /**
+     * Collects the tables reached from a table by the segments from the given depth.
+     *
+     * @param table  the current table
+     * @param depth  the position of the segment to follow
+     * @param tables the list receiving the tables at the end of the path
+     */
+    private void collect(Table table, int depth, List<Table> tables) {
+        if (depth == this.segments.length) {
+            tables.add(table);
+            return;
+        }
+
+        Column column = table.getColumn(this.segments[depth]);
+        if (column == null) {
+            return;
+        }
+
+        for (int i = 0; i < column.size(); i++) {
+            if (column.getValueAttribute(i) instanceof Table subTable) {
+                this.collect(subTable, depth + 1, tables);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.join("/", this.segmentList);
+    }
+}
@@ -3,7 +3,6 @@ package pt.up.fe.els2024.utils;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -96,34 +95,22 @@ public class Utils {
      * @return a list of directories representing the directory path of the file, excluding the file name
      */
     public static List<String> getDirectoryPath(String path) {
-
-        path = String.join("/", Utils.getDirectory(path).subList(0, Utils.getDirectory(path).size() - 1));
-        return getDirectory(path);
+        return new ArrayList<>(PathExpression.compile(path).getParent().getSegments());
     }
 
     /**
      * Splits the given file path into its individual directories.
      * <p>
-     * This method normalizes the given path by removing any leading or trailing slashes and then splits
-     * it into a list of directories. If the path is empty or consists only of slashes, it returns an empty list.
+     * This method ignores any leading or trailing slashes and splits the path into a list of directories,
+     * as done by {@link PathExpression#tokenize(String)}. If the path is empty or consists only of slashes,
+     * it returns an empty list.
      * </p>
      *
      * @param path the file path to split into directories
      * @return a list of directories extracted from the file path
      */
     public static List<String> getDirectory(String path) {
-
-        // null, "" or "/"
-        if (path == null || path.trim().isEmpty() || path.matches("^/*$")) {
-            return Collections.emptyList();
-        }
-
-        // Remove initial and end /, if available
-        String normalizedPath = path.replaceAll("^/+", "").replaceAll("/+$", "");
-
-        // Return the normalized directory path list
-        String[] directories = normalizedPath.split("/");
-        return new ArrayList<>(Arrays.asList(directories));
+        return new ArrayList<>(Arrays.asList(PathExpression.tokenize(path)));
     }
 
     /**
@@ -0,0 +1,65 @@
+package pt.up.fe.els2024;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Test;
+import pt.up.fe.els2024.storage.ColumnStorage;
+import pt.up.fe.els2024.storage.ColumnType;
+
+public class ColumnTest {
+
+    @Test
+    public void integralRowsKeepTheirBoxedType() {
+        Column column = new Column("value");
+        column.addRow(1);
+        column.addRow(2L);
+        column.addRow(null);
+        column.addRow(3);
+
+        assertEquals(ColumnType.LONG, column.getType());
+        assertEquals(Arrays.asList(1, 2L, null, 3), column.getRows());
+        assertEquals(Integer.class, column.getRows().get(0).getClass());
+        assertEquals(Long.class, column.getRows().get(1).getClass());
+        assertEquals(Integer.class, column.getRows().get(3).getClass());
+    }
+
+    @Test
+    public void copiedRowsKeepTheirBoxedType() {
+        List<Object> rows = Arrays.asList(1, 2L, null, 3, 4L);
+        Column column = new Column("value", rows);
+
+        Column appended = new Column("value", List.of(0));
+        appended.addRows(column);
+        assertEquals(Arrays.asList(0, 1, 2L, null, 3, 4L), appended.getRows());
+
+        BitSet selected = new BitSet();
+        selected.set(1, 5);
+        ColumnStorage selection = column.getStorage().select(selected);
+        assertEquals(Arrays.asList(2L, null, 3, 4L), new Column("value", selection).getRows());
+
+        ColumnStorage gathered = column.getStorage().gather(new int[] {4, 0, 9, 1}, 4);
+        assertEquals(Arrays.asList(4L, 1, null, 2L), new Column("value", gathered).getRows());
+    }
+
+    @Test
+    public void replacingAnIntegerWithALongKeepsTheOtherRows() {
+        Column column = new Column("value", List.of(1, 2, 3));
+        column.getRows().set(1, 20L);
+        column.getRows().set(1, 21);
+
+        assertEquals(List.of(1, 21, 3), column.getRows());
+        assertEquals(Integer.class, column.getRows().get(1).getClass());
+    }
+
+    @Test
+    public void otherIntegralTypesAreStoredAsObjects() {
+        Column column = new Column("value", List.of((short) 1, (short) 2));
+
+        assertEquals(ColumnType.OBJECT, column.getType());
+        assertEquals(Short.class, column.getRows().get(0).getClass());
+    }
+}
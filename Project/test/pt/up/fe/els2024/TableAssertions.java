@@ -0,0 +1,134 @@
+package pt.up.fe.els2024;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import pt.up.fe.els2024.storage.ColumnType;
+
+/**
+ * Helpers shared by the tests that compare tables, since {@link Table} has no value equality of its own.
+ */
+public final class TableAssertions {
+
+    private TableAssertions() {
+    }
+
+    /**
+     * Asserts that two tables have the same name, columns, column layouts and rows, comparing nested tables
+     * recursively and the other values with their boxed types.
+     *
+     * @param expected the expected table
+     * @param actual   the actual table
+     */
+    public static void assertTablesEqual(Table expected, Table actual) {
+        assertEquals(expected.getName(), actual.getName());
+        TableAssertions.assertColumnsEqual(expected, actual);
+    }
+
+    /**
+     * Asserts that two tables have the same columns, column layouts and rows, whatever their names.
+     *
+     * @param expected the expected table
+     * @param actual   the actual table
+     */
+    public static void assertColumnsEqual(Table expected, Table actual) {
+        assertEquals("columns of " + expected.getName(), TableAssertions.columnNames(expected),
+                     TableAssertions.columnNames(actual));
+        for (int i = 0; i < expected.getColumns().size(); i++) {
+            Column expectedColumn = expected.getColumns().get(i);
+            Column actualColumn = actual.getColumns().get(i);
+            String name = expectedColumn.getName();
+
+            assertEquals("layout of " + name, expectedColumn.getType(), actualColumn.getType());
+            assertEquals("rows of " + name, expectedColumn.size(), actualColumn.size());
+            for (int row = 0; row < expectedColumn.size(); row++) {
+                TableAssertions.assertValuesEqual(name + "[" + row + "]", expectedColumn.getRows().get(row),
+                                                  actualColumn.getRows().get(row));
+            }
+        }
+    }
+
+    private static void assertValuesEqual(String message, Object expected, Object actual) {
+        if (expected instanceof Table expectedTable && actual instanceof Table actualTable) {
+            TableAssertions.assertTablesEqual(expectedTable, actualTable);
+            return;
+        }
+        assertEquals(message, expected, actual);
+        // Lists and maps only have to hold the same values, but numbers must keep their boxed type
+        if (expected instanceof Number || expected instanceof String || expected instanceof Boolean) {
+            assertEquals(message, expected.getClass(), actual.getClass());
+        }
+    }
+
+    /**
+     * Lists the names of the columns of a table, in order.
+     *
+     * @param table the table
+     * @return the names of its columns
+     */
+    public static List<String> columnNames(Table table) {
+        return table.getColumns().stream().map(Column::getName).toList();
+    }
+
+    /**
+     * Builds a table with a column of every layout, including missing values, repeated strings, integers stored
+     * next to longs, nested tables and generic values.
+     *
+     * @param name the name of the table
+     * @param rows the number of rows
+     * @return the table
+     */
+    public static Table sampleTable(String name, int rows) {
+        Column doubles = new Column("double", ColumnType.DOUBLE);
+        Column longs = new Column("long", ColumnType.LONG);
+        Column booleans = new Column("boolean", ColumnType.BOOLEAN);
+        Column strings = new Column("string", ColumnType.STRING);
+        Column tables = new Column("table", ColumnType.TABLE);
+        Column objects = new Column("object", ColumnType.OBJECT);
+
+        for (int i = 0; i < rows; i++) {
+            doubles.addRow(i % 7 == 0 ? null : i * 0.5);
+            longs.addRow(i % 11 == 0 ? null : i % 3 == 0 ? (Object) ((1L << 40) + i) : (Object) i);
+            booleans.addRow(i % 5 == 0 ? null : i % 2 == 0);
+            strings.addRow(i % 13 == 0 ? null : "value " + (i % 17));
+            tables.addRow(i % 4 == 0 ? null : TableAssertions.nestedTable(i));
+            objects.addRow(TableAssertions.genericValue(i));
+        }
+
+        Table table = new Table(name);
+        for (Column column : List.of(doubles, longs, booleans, strings, tables, objects)) {
+            table.addColumn(column);
+        }
+        table.addColumn(new Column("empty"));
+        return table;
+    }
+
+    private static Table nestedTable(int seed) {
+        Table nested = new Table("nested" + seed);
+        nested.addColumn(new Column("id", new ArrayList<>(List.of(seed, seed + 1))));
+        nested.addColumn(new Column("label", new ArrayList<>(Arrays.asList("n" + seed, null))));
+        return nested;
+    }
+
+    private static Object genericValue(int seed) {
+        return switch (seed % 6) {
+            case 0 -> null;
+            case 1 -> "text " + seed;
+            case 2 -> seed;
+            case 3 -> List.of(seed, "item", 2.5);
+            case 4 -> {
+                Map<String, Object> map = new LinkedHashMap<>();
+                map.put("key", seed);
+                map.put("missing", null);
+                yield map;
+            }
+            default -> new BigDecimal(seed + ".25");
+        };
+    }
+}
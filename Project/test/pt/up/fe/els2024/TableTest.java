@@ -0,0 +1,83 @@
+package pt.up.fe.els2024;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+import pt.up.fe.els2024.exception.OperationException;
+
+public class TableTest {
+
+    private static Table table(String... names) {
+        Table table = new Table("table");
+        for (String name : names) {
+            table.addColumn(new Column(name, List.of(1)));
+        }
+        return table;
+    }
+
+    @Test
+    public void findsTheFirstColumnWithAName() {
+        Table table = TableTest.table("a", "b", "a");
+
+        assertEquals(0, table.indexOf("a"));
+        assertEquals(1, table.indexOf("b"));
+        assertEquals(-1, table.indexOf("c"));
+    }
+
+    @Test
+    public void renamingKeepsTheIndexOfTheTable() throws Exception {
+        Table table = TableTest.table("a", "b");
+        assertEquals(0, table.indexOf("a"));
+
+        table.renameColumn("a", "c");
+
+        assertEquals(0, table.indexOf("c"));
+        assertEquals(-1, table.indexOf("a"));
+        assertSame(table.getColumns().get(0), table.getColumn("c"));
+    }
+
+    @Test
+    public void renamingFindsTheFirstColumnOfEachName() throws Exception {
+        Table table = TableTest.table("a", "b", "a", "b");
+        assertEquals(1, table.indexOf("b"));
+
+        table.renameColumn("a", "b");
+
+        assertEquals(0, table.indexOf("b"));
+        assertEquals(2, table.indexOf("a"));
+
+        table.renameColumn("b", "c");
+
+        assertEquals(0, table.indexOf("c"));
+        assertEquals(1, table.indexOf("b"));
+        assertThrows(OperationException.class, () -> table.renameColumn("d", "e"));
+    }
+
+    @Test
+    public void renamingLeavesTheIndexesOfOtherTables() throws Exception {
+        Table renamed = TableTest.table("a", "b");
+        Table other = TableTest.table("a", "b");
+        assertEquals(1, other.indexOf("b"));
+
+        renamed.renameColumn("b", "c");
+
+        assertEquals(1, other.indexOf("b"));
+        assertEquals(1, renamed.indexOf("c"));
+    }
+
+    @Test
+    public void followsTheMethodsOfTheTable() throws Exception {
+        Table table = TableTest.table("a", "b");
+        assertEquals(1, table.indexOf("b"));
+
+        table.renameColumn("b", "c");
+        table.addColumn(new Column("d", List.of(1)), true);
+        table.remove("a");
+
+        assertEquals(0, table.indexOf("d"));
+        assertEquals(1, table.indexOf("c"));
+        assertEquals(-1, table.indexOf("a"));
+    }
+}
@@ -0,0 +1,165 @@
+package pt.up.fe.els2024.cache;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.els2024.TableAssertions.assertTablesEqual;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.TableAssertions;
+import pt.up.fe.els2024.storage.ColumnStorage;
+
+public class ParseCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File source() throws IOException {
+        File file = this.folder.newFile("source.json");
+        Files.writeString(file.toPath(), "{\"a\": 1}", StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    public void codecRestoresEveryLayout() throws IOException {
+        Table table = TableAssertions.sampleTable("sample", 200);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TableCodec.write(new DataOutputStream(bytes), table);
+        Table read = TableCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertTablesEqual(table, read);
+    }
+
+    @Test
+    public void codecRestoresARangeOfRows() throws IOException {
+        Table table = TableAssertions.sampleTable("sample", 200);
+
+        for (Column column : table.getColumns()) {
+            ColumnStorage storage = column.getStorage();
+            if (storage == null) {
+                continue;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            TableCodec.writeValues(new DataOutputStream(bytes), storage, 50, 130);
+
+            ColumnStorage read = storage.getType().create(80);
+            TableCodec.readValues(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), read, 80);
+
+            Table expected = new Table("range");
+            expected.addColumn(new Column(column.getName(), column.getRows().subList(50, 130)));
+            Table actual = new Table("range");
+            actual.addColumn(new Column(column.getName(), read));
+            assertTablesEqual(expected, actual);
+        }
+    }
+
+    @Test
+    public void cacheReturnsTheStoredTable() throws IOException {
+        ParseCache cache = new ParseCache(this.folder.newFolder("cache"));
+        ParseCache.Fingerprint fingerprint = cache.fingerprint(this.source());
+        Table table = TableAssertions.sampleTable("source", 100);
+
+        assertNull(cache.get(fingerprint, List.of()));
+        cache.put(fingerprint, List.of(), table);
+
+        assertTablesEqual(table, cache.get(fingerprint, List.of()));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void entriesAreKeptPerSelectionPath() throws IOException {
+        ParseCache cache = new ParseCache(this.folder.newFolder("cache"));
+        ParseCache.Fingerprint fingerprint = cache.fingerprint(this.source());
+        cache.put(fingerprint, List.of("a"), TableAssertions.sampleTable("source", 10));
+
+        assertNull(cache.get(fingerprint, List.of()));
+        assertNull(cache.get(fingerprint, List.of("b")));
+        assertNotNull(cache.get(fingerprint, List.of("a")));
+    }
+
+    @Test
+    public void entryIsInvalidWhenTheModificationTimeChanges() throws IOException {
+        ParseCache cache = new ParseCache(this.folder.newFolder("cache"));
+        File source = this.source();
+        cache.put(cache.fingerprint(source), List.of(), TableAssertions.sampleTable("source", 10));
+
+        assertTrue(source.setLastModified(source.lastModified() + 60_000));
+
+        assertNull(cache.get(cache.fingerprint(source), List.of()));
+    }
+
+    @Test
+    public void entryIsInvalidWhenTheSizeChanges() throws IOException {
+        ParseCache cache = new ParseCache(this.folder.newFolder("cache"));
+        File source = this.source();
+        long modified = source.lastModified();
+        cache.put(cache.fingerprint(source), List.of(), TableAssertions.sampleTable("source", 10));
+
+        Files.writeString(source.toPath(), "{\"a\": 10}", StandardCharsets.UTF_8);
+        assertTrue(source.setLastModified(modified));
+
+        ParseCache.Fingerprint changed = cache.fingerprint(source);
+        assertEquals(modified, changed.modified());
+        assertNull(cache.get(changed, List.of()));
+    }
+
+    @Test
+    public void entryIsInvalidWhenTheContentChangesInPlace() throws IOException {
+        ParseCache cache = new ParseCache(this.folder.newFolder("cache"));
+        File source = this.source();
+        long modified = source.lastModified();
+        cache.put(cache.fingerprint(source), List.of(), TableAssertions.sampleTable("source", 10));
+
+        try (RandomAccessFile file = new RandomAccessFile(source, "rw")) {
+            file.seek(6);
+            file.write('2');
+        }
+        assertTrue(source.setLastModified(modified));
+
+        assertNull(cache.get(cache.fingerprint(source), List.of()));
+    }
+
+    @Test
+    public void corruptedEntryIsAMiss() throws IOException {
+        File directory = this.folder.newFolder("cache");
+        ParseCache cache = new ParseCache(directory);
+        ParseCache.Fingerprint fingerprint = cache.fingerprint(this.source());
+        cache.put(fingerprint, List.of(), TableAssertions.sampleTable("source", 10));
+
+        File[] entries = directory.listFiles();
+        assertNotNull(entries);
+        assertEquals(1, entries.length);
+        byte[] content = Files.readAllBytes(entries[0].toPath());
+        Files.write(entries[0].toPath(), Arrays.copyOf(content, content.length / 2));
+
+        assertNull(cache.get(fingerprint, List.of()));
+        assertFalse(entries[0].exists());
+    }
+
+    @Test
+    public void oldEntriesAreEvictedOverTheSizeCap() throws IOException {
+        ParseCache cache = new ParseCache(this.folder.newFolder("cache"), 1);
+        ParseCache.Fingerprint fingerprint = cache.fingerprint(this.source());
+
+        cache.put(fingerprint, List.of(), TableAssertions.sampleTable("source", 10));
+
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get(fingerprint, List.of()));
+    }
+}
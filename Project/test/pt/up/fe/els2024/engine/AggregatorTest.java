@@ -0,0 +1,96 @@
+package pt.up.fe.els2024.engine;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import pt.up.fe.els2024.Column;
+
+public class AggregatorTest {
+
+    private static final List<Aggregator.Statistic> STATISTICS = List.of(Aggregator.Statistic.SUM,
+            Aggregator.Statistic.AVG, Aggregator.Statistic.MIN, Aggregator.Statistic.MAX, Aggregator.Statistic.COUNT,
+            Aggregator.Statistic.STDDEV);
+
+    /** The pool sizes the columns are reduced with, which must all give the same results. */
+    private static final int[] POOL_SIZES = {1, 2, 3, 8};
+
+    /**
+     * The number of rows of the long columns, which span several chunks, the last one partial, and end with a whole
+     * pattern of the cancelling column.
+     */
+    private static final int ROWS = Aggregator.CHUNK_ROWS * 4 + 3002;
+
+    /**
+     * Builds a column that repeats 1e16, 1 and -1e16. Each 1 is lost when summed naively, so its sum is only
+     * exact with compensated summation.
+     */
+    private static Column cancellingColumn(boolean asStrings) {
+        double[] pattern = {1e16, 1, -1e16};
+        List<Object> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            double value = pattern[i % pattern.length];
+            rows.add(asStrings ? (Object) String.valueOf(value) : (Object) value);
+        }
+        return new Column("values", rows);
+    }
+
+    private static List<Object> aggregate(Column column, int poolSize) {
+        ForkJoinPool pool = new ForkJoinPool(poolSize);
+        try {
+            return Aggregator.aggregate(column, ROWS, STATISTICS, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void compensatedSumsKeepTheSmallValues() {
+        int ones = ROWS / 3;
+
+        for (boolean asStrings : new boolean[] {false, true}) {
+            Column column = AggregatorTest.cancellingColumn(asStrings);
+
+            for (int poolSize : POOL_SIZES) {
+                List<Object> results = AggregatorTest.aggregate(column, poolSize);
+
+                String message = (asStrings ? "strings" : "doubles") + " on " + poolSize + " threads";
+                assertEquals(message, (double) ones, (Double) results.get(0), 0.0);
+                assertEquals(message, Math.round(100.0 * ones / ROWS) / 100.0, (Double) results.get(1), 0.0);
+                assertEquals(message, -1e16, (Double) results.get(2), 0.0);
+                assertEquals(message, 1e16, (Double) results.get(3), 0.0);
+                assertEquals(message, ROWS, ((Number) results.get(4)).intValue());
+            }
+        }
+    }
+
+    @Test
+    public void resultsDoNotDependOnThePoolSize() {
+        Random random = new Random(11);
+        List<Object> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(30) - 10));
+        }
+        Column column = new Column("values", rows);
+
+        List<Object> expected = Aggregator.aggregate(column, ROWS, STATISTICS);
+        for (int poolSize : POOL_SIZES) {
+            for (int run = 0; run < 3; run++) {
+                assertEquals("on " + poolSize + " threads", expected, AggregatorTest.aggregate(column, poolSize));
+            }
+        }
+    }
+
+    @Test
+    public void shortColumnsAreAggregatedLikeLongOnes() {
+        Column column = AggregatorTest.cancellingColumn(false);
+
+        List<Object> results = Aggregator.aggregate(column, Aggregator.CHUNK_ROWS - 1, STATISTICS);
+
+        assertEquals((Aggregator.CHUNK_ROWS - 1) / 3, (Double) results.get(0), 0.0);
+    }
+}
@@ -0,0 +1,102 @@
+package pt.up.fe.els2024.engine;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the arithmetic kernels against the scalar loops. The Vector API kernels are only checked when the tests
+ * run with {@code gradle test -Pvector}; otherwise both sides run the scalar loops.
+ */
+public class ArithmeticKernelsTest {
+
+    /** Values that every path must handle alike, including the ones IEEE 754 treats specially. */
+    private static final double[] SPECIAL = {0.0, -0.0, 1.0, -1.0, 0.1, Double.MIN_VALUE, Double.MAX_VALUE,
+            -Double.MAX_VALUE, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN, 1e-300, 3e300};
+
+    /** Lengths below, at and above the usual vector widths, so that the tails are handled by the scalar loops. */
+    private static final int[] LENGTHS = {0, 1, 2, 3, 4, 5, 7, 8, 9, 15, 16, 17, 33, 1000};
+
+    private static double[] values(Random random, int length) {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextInt(4) == 0
+                        ? SPECIAL[random.nextInt(SPECIAL.length)]
+                        : (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12) - 4);
+        }
+        return values;
+    }
+
+    private static double[] scalar(ArithmeticKernels.Operation operation, double[] left, double[] right) {
+        double[] result = new double[left.length];
+        ArithmeticKernels.applyScalar(operation, left, right, result, 0, left.length);
+        return result;
+    }
+
+    @Test
+    public void kernelsMatchTheScalarLoops() {
+        Random random = new Random(7);
+
+        for (ArithmeticKernels.Operation operation : ArithmeticKernels.Operation.values()) {
+            for (int length : LENGTHS) {
+                double[] left = ArithmeticKernelsTest.values(random, length);
+                double[] right = ArithmeticKernelsTest.values(random, length);
+                double[] result = new double[length];
+
+                ArithmeticKernels.apply(operation, left, right, result);
+
+                double[] expected = ArithmeticKernelsTest.scalar(operation, left, right);
+                for (int i = 0; i < length; i++) {
+                    assertEquals(operation + " " + left[i] + ", " + right[i],
+                                 Double.doubleToLongBits(expected[i]), Double.doubleToLongBits(result[i]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void resultsCanOverwriteEitherOperand() {
+        double[] left = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+        double[] right = {9, 8, 7, 6, 5, 4, 3, 2, 1};
+        double[] expected = ArithmeticKernelsTest.scalar(ArithmeticKernels.Operation.SUB, left, right);
+        double[] leftCopy = left.clone();
+
+        ArithmeticKernels.apply(ArithmeticKernels.Operation.SUB, left, right, left);
+        ArithmeticKernels.apply(ArithmeticKernels.Operation.SUB, leftCopy, right, right);
+
+        assertArrayEquals(expected, left, 0.0);
+        assertArrayEquals(expected, right, 0.0);
+    }
+
+    @Test
+    public void operationsFollowIEEE754() {
+        double[] left = {1, -1, 0, 6, 0.1};
+        double[] right = {0, 0, 0, -3, 0.2};
+
+        assertArrayEquals(new double[] {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN, -2, 0.5},
+                          ArithmeticKernelsTest.scalar(ArithmeticKernels.Operation.DIV, left, right), 0.0);
+        assertArrayEquals(new double[] {1, -1, 0, 3, 0.30000000000000004},
+                          ArithmeticKernelsTest.scalar(ArithmeticKernels.Operation.SUM, left, right), 0.0);
+    }
+
+    @Test
+    public void roundingKeepsTwoDecimalPlaces() {
+        double[] values = {1.234, 1.236, -1.236, 2.0, 0.004, -0.006, 123456.789};
+
+        ArithmeticKernels.round(values);
+
+        assertArrayEquals(new double[] {1.23, 1.24, -1.24, 2.0, 0.0, -0.01, 123456.79}, values, 0.0);
+    }
+
+    @Test
+    public void roundingKeepsInfinitiesAndNaN() {
+        double[] values = {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN, 0.125};
+
+        ArithmeticKernels.round(values);
+
+        assertArrayEquals(new double[] {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN, 0.13},
+                          values, 0.0);
+    }
+}
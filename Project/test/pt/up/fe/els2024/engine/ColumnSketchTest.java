@@ -0,0 +1,121 @@
+package pt.up.fe.els2024.engine;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import pt.up.fe.els2024.Column;
+
+public class ColumnSketchTest {
+
+    private static Column column(List<Object> rows) {
+        return new Column("column", new ArrayList<>(rows));
+    }
+
+    /**
+     * A column of several chunks, with blocks of the numbers up to 20000, of the same numbers as strings, of texts
+     * and missing values, and of the halves between the numbers.
+     */
+    private static List<Object> largeRows() {
+        int rows = 80_000;
+        List<Object> values = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            int value = i % 20_000;
+            values.add(switch (i / 20_000) {
+                case 0 -> value;
+                case 1 -> String.valueOf(value);
+                case 2 -> value % 2 == 0 ? null : "text " + (value % 100);
+                default -> value + 0.5;
+            });
+        }
+        return values;
+    }
+
+    @Test
+    public void numbersAndStringsThatAreNumbersAreTheSameValue() {
+        ColumnSketch sketch = ColumnSketch.of(ColumnSketchTest.column(Arrays.asList(1, "1", 1.0, "1.00", -0.0, "0",
+                                                                                    "x", null, "x")), 9);
+
+        assertEquals(3, sketch.getDistinct());
+    }
+
+    @Test
+    public void everyLayoutOfAColumnGivesTheSameSketch() {
+        List<Object> strings = List.of("3", "1", "2", "2", "a");
+        List<Object> numbers = List.of(3L, 1L, 2L, 2L);
+
+        ColumnSketch dictionary = ColumnSketch.of(ColumnSketchTest.column(strings), strings.size());
+        ColumnSketch numeric = ColumnSketch.of(ColumnSketchTest.column(numbers), numbers.size());
+        ColumnSketch added = new ColumnSketch();
+        strings.forEach(added::add);
+
+        assertEquals(4, dictionary.getDistinct());
+        assertEquals(3, numeric.getDistinct());
+        assertEquals(4, added.getDistinct());
+        for (double percentile : new double[] {0, 50, 100}) {
+            assertEquals(numeric.getPercentile(percentile), dictionary.getPercentile(percentile), 0.0);
+            assertEquals(numeric.getPercentile(percentile), added.getPercentile(percentile), 0.0);
+        }
+    }
+
+    @Test
+    public void onlyTheGivenRowsAreSketched() {
+        ColumnSketch sketch = ColumnSketch.of(ColumnSketchTest.column(List.of(1, 2, 3, 100)), 3);
+
+        assertEquals(3, sketch.getDistinct());
+        assertEquals(3, sketch.getPercentile(100), 0.0);
+    }
+
+    @Test
+    public void chunkedSketchMatchesAddingEveryValue() {
+        List<Object> rows = ColumnSketchTest.largeRows();
+
+        ColumnSketch chunked = ColumnSketch.of(ColumnSketchTest.column(rows), rows.size());
+        ColumnSketch single = new ColumnSketch();
+        rows.forEach(single::add);
+
+        // 20000 numbers, 20000 halves and 50 texts
+        assertTrue(rows.size() > Aggregator.CHUNK_ROWS * 4);
+        assertEquals(single.getDistinct(), chunked.getDistinct());
+        assertEquals(40_050, chunked.getDistinct(), 40_050 * 0.033);
+        assertEquals(0, chunked.getPercentile(0), 0.0);
+        assertEquals(19_999.5, chunked.getPercentile(100), 0.0);
+        for (double percentile : new double[] {1, 25, 50, 75, 99}) {
+            assertEquals(single.getPercentile(percentile), chunked.getPercentile(percentile), 20_000 * 0.01);
+            assertEquals(percentile * 200, chunked.getPercentile(percentile), 20_000 * 0.01);
+        }
+    }
+
+    @Test
+    public void mergedSketchesMatchASingleSketch() {
+        List<Object> rows = ColumnSketchTest.largeRows();
+        int half = rows.size() / 2;
+
+        ColumnSketch single = ColumnSketch.of(ColumnSketchTest.column(rows), rows.size());
+        ColumnSketch first = ColumnSketch.of(ColumnSketchTest.column(rows.subList(0, half)), half);
+        ColumnSketch second = ColumnSketch.of(ColumnSketchTest.column(rows.subList(half, rows.size())), half);
+        ColumnSketch merged = first.merge(second);
+
+        assertEquals(single.getDistinct(), merged.getDistinct());
+        for (double percentile : new double[] {0, 1, 50, 99, 100}) {
+            assertEquals(single.getPercentile(percentile), merged.getPercentile(percentile), 20_000 * 0.01);
+        }
+    }
+
+    @Test
+    public void approximationsAreRoundedAndNamed() {
+        ColumnSketch numbers = ColumnSketch.of(ColumnSketchTest.column(List.of(1, 2)), 2);
+        ColumnSketch texts = ColumnSketch.of(ColumnSketchTest.column(List.of("a", "b")), 2);
+        ColumnSketch.Approximation median = ColumnSketch.Approximation.percentile(50);
+
+        assertEquals(2L, ColumnSketch.Approximation.distinct().estimate(texts));
+        assertEquals(Aggregator.NOT_AVAILABLE, median.estimate(texts));
+        assertEquals(1.5, (double) median.estimate(numbers), 0.0);
+        assertEquals("APPROX_DISTINCT", ColumnSketch.Approximation.distinct().toString());
+        assertEquals("APPROX_PERCENTILE(50)", median.toString());
+        assertEquals("APPROX_PERCENTILE(99.9)", ColumnSketch.Approximation.percentile(99.9).toString());
+    }
+}
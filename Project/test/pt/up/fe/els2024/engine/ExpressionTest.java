@@ -0,0 +1,107 @@
+package pt.up.fe.els2024.engine;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.exception.OperationException;
+
+public class ExpressionTest {
+
+    private static final Expression A = new Expression.ColumnReference("a");
+    private static final Expression B = new Expression.ColumnReference("b");
+
+    private static Table table(List<Object> a, List<Object> b) {
+        Table table = new Table("table");
+        table.addColumn(new Column("a", new ArrayList<>(a)));
+        table.addColumn(new Column("b", new ArrayList<>(b)));
+        return table;
+    }
+
+    private static Expression binary(ArithmeticKernels.Operation operation, Expression left, Expression right) {
+        return new Expression.Binary(operation, left, right);
+    }
+
+    private static Expression constant(double value) {
+        return new Expression.Constant(value);
+    }
+
+    @Test
+    public void operationsFollowTheShapeOfTheTree() throws OperationException {
+        Table table = ExpressionTest.table(List.of(1, 2, 3), List.of(4.0, 5.0, 6.0));
+        // a + b * 2 and (a + b) * 2
+        Expression product = ExpressionTest.binary(ArithmeticKernels.Operation.SUM, A,
+                ExpressionTest.binary(ArithmeticKernels.Operation.MUL, B, ExpressionTest.constant(2)));
+        Expression sum = ExpressionTest.binary(ArithmeticKernels.Operation.MUL,
+                ExpressionTest.binary(ArithmeticKernels.Operation.SUM, A, B), ExpressionTest.constant(2));
+
+        assertArrayEquals(new double[] {9, 12, 15}, product.evaluate(table), 0.0);
+        assertArrayEquals(new double[] {10, 14, 18}, sum.evaluate(table), 0.0);
+    }
+
+    @Test
+    public void everyShapeOfOperandsComputesTheSameValues() throws OperationException {
+        Table table = ExpressionTest.table(List.of(6, 8), List.of(3, 2));
+        Expression negated = new Expression.Negation(new Expression.Negation(A));
+
+        for (ArithmeticKernels.Operation operation : ArithmeticKernels.Operation.values()) {
+            double[] expected = ExpressionTest.binary(operation, A, B).evaluate(table);
+            assertArrayEquals(operation.name(), expected,
+                              ExpressionTest.binary(operation, negated, B).evaluate(table), 0.0);
+            assertArrayEquals(operation.name(), expected,
+                              ExpressionTest.binary(operation, A, new Expression.Negation(new Expression.Negation(B)))
+                                            .evaluate(table), 0.0);
+        }
+        assertArrayEquals(new double[] {-1, -1},
+                          ExpressionTest.binary(ArithmeticKernels.Operation.SUB, ExpressionTest.constant(2),
+                                                ExpressionTest.constant(3)).evaluate(table), 0.0);
+    }
+
+    @Test
+    public void divisionByZeroGivesInfinitiesAndNaN() throws OperationException {
+        Table table = ExpressionTest.table(List.of(1, -1, 0), List.of(0, 0, 0));
+
+        double[] columns = ExpressionTest.binary(ArithmeticKernels.Operation.DIV, A, B).evaluate(table);
+        double[] constant = ExpressionTest.binary(ArithmeticKernels.Operation.DIV, A, ExpressionTest.constant(0))
+                                          .evaluate(table);
+        ArithmeticKernels.round(columns);
+
+        assertArrayEquals(new double[] {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN}, columns, 0.0);
+        assertArrayEquals(columns, constant, 0.0);
+    }
+
+    @Test
+    public void stringsThatAreNumbersAreReadAsNumbers() throws OperationException {
+        Table table = ExpressionTest.table(List.of("1.5", "2"), List.of(1, 1));
+
+        assertArrayEquals(new double[] {2.5, 3}, ExpressionTest.binary(ArithmeticKernels.Operation.SUM, A, B)
+                                                               .evaluate(table), 0.0);
+    }
+
+    @Test
+    public void nonNumericColumnsAreRejected() {
+        Table text = ExpressionTest.table(List.of(1, 2), List.of(1, "x"));
+        Table missing = ExpressionTest.table(List.of(1, 2), Arrays.asList(1, null));
+
+        assertThrows(OperationException.class,
+                     () -> ExpressionTest.binary(ArithmeticKernels.Operation.SUM, A, B).evaluate(text));
+        assertThrows(OperationException.class,
+                     () -> ExpressionTest.binary(ArithmeticKernels.Operation.SUM, A, B).evaluate(missing));
+        assertThrows(OperationException.class, () -> new Expression.ColumnReference("c").evaluate(text));
+    }
+
+    @Test
+    public void expressionsWithoutColumnsHaveOneValuePerRow() throws OperationException {
+        Table table = ExpressionTest.table(List.of(1, 2, 3), List.of(1, 2, 3));
+        Expression expression = new Expression.Negation(ExpressionTest.constant(2));
+
+        assertEquals(Set.of(), expression.getColumns());
+        assertArrayEquals(new double[] {-2, -2, -2}, expression.evaluate(table), 0.0);
+    }
+}
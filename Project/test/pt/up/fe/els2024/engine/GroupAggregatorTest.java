@@ -0,0 +1,138 @@
+package pt.up.fe.els2024.engine;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.els2024.TableAssertions.assertTablesEqual;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.TableAssertions;
+import pt.up.fe.els2024.exception.OperationException;
+
+public class GroupAggregatorTest {
+
+    private static final List<Aggregator.Statistic> SUM_COUNT =
+            List.of(Aggregator.Statistic.SUM, Aggregator.Statistic.COUNT);
+
+    private static Table table(String keyName, List<Object> keys, List<Object> values) {
+        Table table = new Table("table");
+        table.addColumn(new Column(keyName, new ArrayList<>(keys)));
+        table.addColumn(new Column("value", new ArrayList<>(values)));
+        return table;
+    }
+
+    private static List<Double> doubles(Column column) {
+        List<Double> doubles = new ArrayList<>();
+        for (Object value : column.getRows()) {
+            doubles.add(((Number) value).doubleValue());
+        }
+        return doubles;
+    }
+
+    private static Table largeTable() {
+        int rows = GroupAggregator.MORSEL_ROWS * 3 + 123;
+        List<Object> keys = new ArrayList<>(rows);
+        List<Object> values = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            keys.add(i % 97 == 0 ? null : "key " + (i * 7919 % 1000));
+            values.add(i % 5 == 0 ? (Object) String.valueOf(i) : (Object) i);
+        }
+        return GroupAggregatorTest.table("key", keys, values);
+    }
+
+    @Test
+    public void groupsAreListedInTheOrderOfTheirFirstRow() throws OperationException {
+        Table table = GroupAggregatorTest.table("key", List.of("b", "a", "b", "c", "a"), List.of(1, 2, 3, 4, 5));
+
+        Table result = new GroupAggregator(List.of("key"), null, SUM_COUNT).aggregate(table, 5);
+
+        assertEquals(List.of("key", "value SUM", "value COUNT"), TableAssertions.columnNames(result));
+        assertEquals(List.of("b", "a", "c"), result.getColumn("key").getRows());
+        assertEquals(List.of(4.0, 7.0, 4.0), GroupAggregatorTest.doubles(result.getColumn("value SUM")));
+        assertEquals(List.of(2.0, 2.0, 1.0), GroupAggregatorTest.doubles(result.getColumn("value COUNT")));
+    }
+
+    @Test
+    public void numbersAndStringsThatAreNumbersAreTheSameKey() throws OperationException {
+        Table mixed = GroupAggregatorTest.table("key", List.of(1, "1", 1.0, "x", "1.00", 2L, "x"),
+                                                List.of(1, 1, 1, 1, 1, 1, 1));
+        Table strings = GroupAggregatorTest.table("key", List.of("1", "a", "1.0", "-0", "0"), List.of(1, 1, 1, 1, 1));
+
+        Table mixedResult = new GroupAggregator(List.of("key"), null, SUM_COUNT).aggregate(mixed, 7);
+        Table stringsResult = new GroupAggregator(List.of("key"), null, SUM_COUNT).aggregate(strings, 5);
+
+        assertEquals(List.of(1, "x", 2L), mixedResult.getColumn("key").getRows());
+        assertEquals(List.of(4.0, 2.0, 1.0), GroupAggregatorTest.doubles(mixedResult.getColumn("value COUNT")));
+        assertEquals(List.of("1", "a", "-0"), stringsResult.getColumn("key").getRows());
+        assertEquals(List.of(2.0, 1.0, 2.0), GroupAggregatorTest.doubles(stringsResult.getColumn("value COUNT")));
+    }
+
+    @Test
+    public void missingKeysFormTheirOwnGroup() throws OperationException {
+        Table table = new Table("table");
+        table.addColumn(new Column("first", new ArrayList<>(List.of("a", "a", "a", "a"))));
+        table.addColumn(new Column("second", new ArrayList<>(Arrays.asList(null, "b", null, "null"))));
+        table.addColumn(new Column("value", new ArrayList<>(List.of(1, 2, 3, 4))));
+
+        Table result = new GroupAggregator(List.of("first", "second"), List.of("value"), SUM_COUNT)
+                .aggregate(table, 4);
+
+        assertEquals(Arrays.asList(null, "b", "null"), result.getColumn("second").getRows());
+        assertEquals(List.of(4.0, 2.0, 4.0), GroupAggregatorTest.doubles(result.getColumn("value SUM")));
+    }
+
+    @Test
+    public void groupsOfNonNumericValuesHaveNoStatistics() throws OperationException {
+        Table table = GroupAggregatorTest.table("key", List.of("a", "a", "b"), List.of(1, "text", 2));
+
+        Table result = new GroupAggregator(List.of("key"), null, SUM_COUNT).aggregate(table, 3);
+
+        assertEquals(List.of(Aggregator.NOT_AVAILABLE, 2.0),
+                     List.of(result.getColumn("value SUM").getRows().get(0),
+                             ((Number) result.getColumn("value SUM").getRows().get(1)).doubleValue()));
+    }
+
+    @Test
+    public void parallelAggregationMatchesTheSerialOne() throws OperationException {
+        Table table = GroupAggregatorTest.largeTable();
+        int rows = table.getColumn("key").size();
+        List<Aggregator.Statistic> statistics = List.of(Aggregator.Statistic.values());
+
+        Table serial = new GroupAggregator(List.of("key"), null, statistics).withParallelism(1)
+                                                                           .aggregate(table, rows);
+        Table parallel = new GroupAggregator(List.of("key"), null, statistics).withParallelism(4)
+                                                                             .aggregate(table, rows);
+
+        assertEquals(1001, serial.getColumn("key").size());
+        assertTablesEqual(serial, parallel);
+    }
+
+    @Test
+    public void spilledAggregationMatchesTheInMemoryOne() throws OperationException {
+        Table table = GroupAggregatorTest.largeTable();
+        int rows = table.getColumn("key").size();
+        List<Aggregator.Statistic> statistics = List.of(Aggregator.Statistic.SUM, Aggregator.Statistic.COUNT,
+                                                        Aggregator.Statistic.MIN, Aggregator.Statistic.MAX);
+
+        GroupAggregator inMemory = new GroupAggregator(List.of("key"), null, statistics);
+        GroupAggregator spilled = new GroupAggregator(List.of("key"), null, statistics).withMemoryBudget(1);
+        Table expected = inMemory.aggregate(table, rows);
+        Table actual = spilled.aggregate(table, rows);
+
+        assertEquals(0, inMemory.getSpilledPartitions());
+        assertTrue(spilled.getSpilledPartitions() > 0);
+        assertTablesEqual(expected, actual);
+    }
+
+    @Test
+    public void missingColumnIsRejected() {
+        Table table = GroupAggregatorTest.table("key", List.of("a"), List.of(1));
+
+        assertThrows(OperationException.class,
+                     () -> new GroupAggregator(List.of("other"), null, SUM_COUNT).aggregate(table, 1));
+    }
+}
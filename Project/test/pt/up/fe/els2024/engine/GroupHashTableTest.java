@@ -0,0 +1,108 @@
+package pt.up.fe.els2024.engine;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class GroupHashTableTest {
+
+    private static int findOrAdd(GroupHashTable table, long nullMask, int row, long... key) {
+        return table.findOrAdd(key, nullMask, GroupHashTable.hash(key, nullMask), row);
+    }
+
+    private static double result(GroupHashTable table, int group, Aggregator.Statistic statistic) {
+        return ((Number) table.result(group, 0, statistic)).doubleValue();
+    }
+
+    @Test
+    public void equalKeysFindTheSameGroup() {
+        GroupHashTable table = new GroupHashTable(2, 1);
+
+        assertEquals(0, GroupHashTableTest.findOrAdd(table, 0, 0, 1, 2));
+        assertEquals(1, GroupHashTableTest.findOrAdd(table, 0, 1, 1, 3));
+        assertEquals(0, GroupHashTableTest.findOrAdd(table, 0, 2, 1, 2));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    public void missingKeysDifferFromEveryCode() {
+        GroupHashTable table = new GroupHashTable(2, 1);
+
+        int present = GroupHashTableTest.findOrAdd(table, 0, 0, 1, 0);
+        int missing = GroupHashTableTest.findOrAdd(table, 0b10, 1, 1, 0);
+
+        assertNotEquals(present, missing);
+        assertEquals(missing, GroupHashTableTest.findOrAdd(table, 0b10, 2, 1, 0));
+    }
+
+    @Test
+    public void groupsSurviveTheGrowthOfTheTable() {
+        GroupHashTable table = new GroupHashTable(1, 1);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, GroupHashTableTest.findOrAdd(table, 0, i, i * 31L));
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, GroupHashTableTest.findOrAdd(table, 0, 2000 + i, i * 31L));
+            assertEquals(i, table.firstRow(i));
+        }
+        assertEquals(1000, table.size());
+    }
+
+    @Test
+    public void mergingCombinesTheAccumulatorsOfEqualKeys() {
+        GroupHashTable left = new GroupHashTable(1, 1);
+        int a = GroupHashTableTest.findOrAdd(left, 0, 4, 7);
+        left.add(a, 0, 1);
+        left.add(a, 0, 2);
+
+        GroupHashTable right = new GroupHashTable(1, 1);
+        int b = GroupHashTableTest.findOrAdd(right, 0, 1, 8);
+        right.add(b, 0, 10);
+        int c = GroupHashTableTest.findOrAdd(right, 0, 2, 7);
+        right.add(c, 0, 6);
+
+        left.merge(right);
+
+        assertEquals(2, left.size());
+        assertEquals(2, left.firstRow(a));
+        assertEquals(9.0, GroupHashTableTest.result(left, a, Aggregator.Statistic.SUM), 0.0);
+        assertEquals(3.0, GroupHashTableTest.result(left, a, Aggregator.Statistic.COUNT), 0.0);
+        assertEquals(1.0, GroupHashTableTest.result(left, a, Aggregator.Statistic.MIN), 0.0);
+        assertEquals(6.0, GroupHashTableTest.result(left, a, Aggregator.Statistic.MAX), 0.0);
+        assertEquals(2.65, GroupHashTableTest.result(left, a, Aggregator.Statistic.STDDEV), 1e-9);
+        assertEquals(10.0, GroupHashTableTest.result(left, 1, Aggregator.Statistic.SUM), 0.0);
+    }
+
+    @Test
+    public void writtenTableMergesBackLikeTheTable() throws IOException {
+        GroupHashTable table = new GroupHashTable(1, 1);
+        for (int i = 0; i < 100; i++) {
+            int group = GroupHashTableTest.findOrAdd(table, i % 10 == 0 ? 1 : 0, i, i % 20);
+            table.add(group, 0, i * 0.5);
+        }
+        table.invalidate(GroupHashTableTest.findOrAdd(table, 0, 100, 3), 0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        table.write(new DataOutputStream(bytes));
+        GroupHashTable read = new GroupHashTable(1, 1);
+        read.merge(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        GroupHashTable merged = new GroupHashTable(1, 1);
+        merged.merge(table);
+
+        assertEquals(table.size(), read.size());
+        for (int group = 0; group < table.size(); group++) {
+            assertEquals(merged.firstRow(group), read.firstRow(group));
+            for (Aggregator.Statistic statistic : Aggregator.Statistic.values()) {
+                assertEquals(merged.result(group, 0, statistic), read.result(group, 0, statistic));
+            }
+        }
+        assertEquals(Aggregator.NOT_AVAILABLE, read.result(3, 0, Aggregator.Statistic.SUM));
+    }
+}
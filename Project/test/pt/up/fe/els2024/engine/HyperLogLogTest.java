@@ -0,0 +1,71 @@
+package pt.up.fe.els2024.engine;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class HyperLogLogTest {
+
+    private static HyperLogLog sketch(long from, long to) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long value = from; value < to; value++) {
+            sketch.add(HyperLogLog.hash(value));
+        }
+        return sketch;
+    }
+
+    private static void assertWithin(long expected, long actual, double relativeError) {
+        assertTrue(actual + " is not within " + relativeError + " of " + expected,
+                   Math.abs(actual - expected) <= expected * relativeError);
+    }
+
+    @Test
+    public void emptySketchEstimatesZero() {
+        assertEquals(0, new HyperLogLog().estimate());
+    }
+
+    @Test
+    public void smallCardinalitiesAreCountedAlmostExactly() {
+        assertEquals(1, HyperLogLogTest.sketch(0, 1).estimate());
+        HyperLogLogTest.assertWithin(1_000, HyperLogLogTest.sketch(0, 1_000).estimate(), 0.01);
+    }
+
+    @Test
+    public void largeCardinalitiesAreWithinTheStandardError() {
+        // Four times the standard error of about 0.8%
+        for (long distinct : new long[] {100_000, 1_000_000}) {
+            HyperLogLogTest.assertWithin(distinct, HyperLogLogTest.sketch(0, distinct).estimate(), 0.033);
+        }
+    }
+
+    @Test
+    public void repeatedValuesAreCountedOnce() {
+        HyperLogLog sketch = HyperLogLogTest.sketch(0, 50_000);
+        long estimate = sketch.estimate();
+        for (long value = 0; value < 50_000; value += 3) {
+            sketch.add(HyperLogLog.hash(value));
+        }
+
+        assertEquals(estimate, sketch.estimate());
+    }
+
+    @Test
+    public void mergedSketchesMatchASingleSketch() {
+        HyperLogLog single = HyperLogLogTest.sketch(0, 300_000);
+        HyperLogLog merged = HyperLogLogTest.sketch(0, 150_000);
+        merged.merge(HyperLogLogTest.sketch(100_000, 250_000));
+        merged.merge(HyperLogLogTest.sketch(200_000, 300_000));
+        HyperLogLog reversed = HyperLogLogTest.sketch(200_000, 300_000);
+        reversed.merge(HyperLogLogTest.sketch(0, 150_000));
+        reversed.merge(HyperLogLogTest.sketch(100_000, 250_000));
+
+        assertEquals(single.estimate(), merged.estimate());
+        assertEquals(single.estimate(), reversed.estimate());
+    }
+
+    @Test
+    public void textsAreHashedByTheirCharacters() {
+        assertEquals(HyperLogLog.hash("value"), HyperLogLog.hash(new StringBuilder("val").append("ue")));
+        assertNotEquals(HyperLogLog.hash("ab"), HyperLogLog.hash("ba"));
+    }
+}
@@ -0,0 +1,80 @@
+package pt.up.fe.els2024.engine;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.storage.ColumnType;
+
+public class KeyEncoderTest {
+
+    private static Column column(Object... rows) {
+        return new Column("key", new ArrayList<>(Arrays.asList(rows)));
+    }
+
+    @Test
+    public void numbersAreTheSameKeyInEveryLayout() {
+        Column longs = KeyEncoderTest.column(1L, 2L, 0L);
+        Column doubles = KeyEncoderTest.column(1.0, 2.0, -0.0);
+        Column strings = KeyEncoderTest.column("1", " 2 ", "0e0");
+        Column mixed = KeyEncoderTest.column("1", 2, 0.0);
+        assertEquals(ColumnType.LONG, longs.getType());
+        assertEquals(ColumnType.DOUBLE, doubles.getType());
+        assertEquals(ColumnType.STRING, strings.getType());
+        assertEquals(ColumnType.OBJECT, mixed.getType());
+
+        KeyEncoder encoder = new KeyEncoder();
+        long[] expected = encoder.encode(longs, 3).codes();
+        for (Column column : List.of(doubles, strings, mixed)) {
+            assertArrayEquals(column.getType().toString(), expected, encoder.encode(column, 3).codes());
+        }
+    }
+
+    @Test
+    public void otherValuesAreTheSameKeyAcrossColumns() {
+        KeyEncoder encoder = new KeyEncoder();
+        long[] strings = encoder.encode(KeyEncoderTest.column("x", "y", "x"), 3).codes();
+        long[] mixed = encoder.encode(KeyEncoderTest.column("y", 1, "x", true), 4).codes();
+        long[] booleans = encoder.encode(KeyEncoderTest.column(true, false), 2).codes();
+
+        assertEquals(strings[0], strings[2]);
+        assertNotEquals(strings[0], strings[1]);
+        assertEquals(strings[1], mixed[0]);
+        assertEquals(strings[0], mixed[2]);
+        assertEquals(mixed[3], booleans[0]);
+        assertNotEquals(booleans[0], booleans[1]);
+    }
+
+    @Test
+    public void otherValuesNeverCollideWithNumbers() {
+        KeyEncoder encoder = new KeyEncoder();
+        long[] others = encoder.encode(KeyEncoderTest.column("x", "y", true, false), 4).codes();
+        double[] numbers = {0, 1, -1, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.MAX_VALUE, -Double.MIN_VALUE, Long.MAX_VALUE};
+
+        for (double number : numbers) {
+            for (long code : others) {
+                assertNotEquals(String.valueOf(number), KeyEncoder.numberCode(number), code);
+            }
+        }
+    }
+
+    @Test
+    public void nullsAndRowsPastTheEndAreMissing() {
+        KeyEncoder encoder = new KeyEncoder();
+
+        for (Column column : List.of(KeyEncoderTest.column(1L, null), KeyEncoderTest.column("a", null),
+                                     KeyEncoderTest.column(1, "a", null))) {
+            KeyEncoder.Keys keys = encoder.encode(column, column.size() + 2);
+
+            boolean[] expected = new boolean[column.size() + 2];
+            Arrays.fill(expected, column.size() - 1, expected.length, true);
+            assertArrayEquals(column.getType().toString(), expected, keys.nulls());
+        }
+        assertArrayEquals(new boolean[] {true, true}, encoder.encode(new Column("empty"), 2).nulls());
+    }
+}
@@ -0,0 +1,106 @@
+package pt.up.fe.els2024.engine;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TDigestTest {
+
+    private static final int VALUES = 100_000;
+
+    /** The numbers from {@code 0} to {@link #VALUES}, exclusive, in a fixed shuffled order. */
+    private static List<Double> shuffled() {
+        List<Double> values = new ArrayList<>(VALUES);
+        for (int i = 0; i < VALUES; i++) {
+            values.add((double) i);
+        }
+        Collections.shuffle(values, new Random(42));
+        return values;
+    }
+
+    private static TDigest digest(List<Double> values) {
+        TDigest digest = new TDigest();
+        for (double value : values) {
+            digest.add(value);
+        }
+        return digest;
+    }
+
+    /**
+     * Asserts that the percentiles of a digest of the shuffled numbers are within a fraction of their range of the
+     * exact ones, tighter at the tails than at the median.
+     */
+    private static void assertAccurate(TDigest digest) {
+        assertEquals(0, digest.percentile(0), 0.0);
+        assertEquals(VALUES - 1, digest.percentile(100), 0.0);
+        assertEquals(VALUES * 0.5, digest.percentile(50), VALUES * 0.01);
+        assertEquals(VALUES * 0.25, digest.percentile(25), VALUES * 0.01);
+        assertEquals(VALUES * 0.01, digest.percentile(1), VALUES * 0.002);
+        assertEquals(VALUES * 0.99, digest.percentile(99), VALUES * 0.002);
+        assertEquals(VALUES * 0.999, digest.percentile(99.9), VALUES * 0.0005);
+    }
+
+    @Test
+    public void emptyDigestHasNoPercentiles() {
+        TDigest digest = new TDigest();
+        digest.add(Double.NaN);
+        digest.add(Double.POSITIVE_INFINITY);
+
+        assertEquals(0, digest.size());
+        assertTrue(Double.isNaN(digest.percentile(50)));
+    }
+
+    @Test
+    public void singleValueIsEveryPercentile() {
+        TDigest digest = new TDigest();
+        digest.add(7.5);
+
+        assertEquals(7.5, digest.percentile(0), 0.0);
+        assertEquals(7.5, digest.percentile(50), 0.0);
+        assertEquals(7.5, digest.percentile(100), 0.0);
+    }
+
+    @Test
+    public void percentilesAreAccurateAndTighterAtTheTails() {
+        TDigest digest = TDigestTest.digest(TDigestTest.shuffled());
+
+        assertEquals(VALUES, digest.size());
+        TDigestTest.assertAccurate(digest);
+    }
+
+    @Test
+    public void mergedDigestsMatchASingleDigest() {
+        List<Double> values = TDigestTest.shuffled();
+        TDigest single = TDigestTest.digest(values);
+        TDigest merged = new TDigest();
+        for (int from = 0; from < VALUES; from += VALUES / 10) {
+            merged.merge(TDigestTest.digest(values.subList(from, from + VALUES / 10)));
+        }
+
+        assertEquals(single.size(), merged.size());
+        TDigestTest.assertAccurate(merged);
+        for (double percentile : new double[] {1, 10, 50, 90, 99}) {
+            assertEquals(single.percentile(percentile), merged.percentile(percentile), VALUES * 0.01);
+        }
+    }
+
+    @Test
+    public void mergingInTheSameOrderGivesTheSameEstimates() {
+        List<Double> values = TDigestTest.shuffled();
+        TDigest first = new TDigest();
+        TDigest second = new TDigest();
+        for (int from = 0; from < VALUES; from += VALUES / 4) {
+            first.merge(TDigestTest.digest(values.subList(from, from + VALUES / 4)));
+            second.merge(TDigestTest.digest(values.subList(from, from + VALUES / 4)));
+        }
+
+        for (double percentile : new double[] {0, 5, 50, 95, 100}) {
+            assertEquals(first.percentile(percentile), second.percentile(percentile), 0.0);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package pt.up.fe.els2024.engine;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.els2024.TableAssertions.assertTablesEqual;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.TableAssertions;
+import pt.up.fe.els2024.storage.ColumnType;
+
+public class TableMergerTest {
+
+    private static Table table(String name, Column... columns) {
+        Table table = new Table(name);
+        for (Column column : columns) {
+            table.addColumn(column);
+        }
+        return table;
+    }
+
+    private static Column column(String name, Object... rows) {
+        return new Column(name, new ArrayList<>(Arrays.asList(rows)));
+    }
+
+    @Test
+    public void schemaIsTheUnionOfTheColumnsInOrderOfFirstAppearance() {
+        Table first = TableMergerTest.table("first", TableMergerTest.column("b", 1), TableMergerTest.column("a", 2));
+        Table second = TableMergerTest.table("second", TableMergerTest.column("c", 3), TableMergerTest.column("a", 4),
+                                             TableMergerTest.column("d", 5));
+
+        Table merged = TableMerger.merge("merged", List.of(first, second));
+
+        assertEquals(List.of("b", "a", "c", "d"), TableAssertions.columnNames(merged));
+        assertEquals("merged", merged.getName());
+    }
+
+    @Test
+    public void missingCellsArePaddedWithNull() {
+        Table first = TableMergerTest.table("first", TableMergerTest.column("a", 1L, 2L),
+                                            TableMergerTest.column("b", "x"));
+        Table second = TableMergerTest.table("second", TableMergerTest.column("b", "y", "z", "w"));
+        Table third = TableMergerTest.table("third", TableMergerTest.column("a", 3L), new Column("c"));
+
+        Table merged = TableMerger.merge("merged", List.of(first, second, third));
+
+        Table expected = TableMergerTest.table("merged",
+                                               TableMergerTest.column("a", 1L, 2L, null, null, null, 3L),
+                                               TableMergerTest.column("b", "x", null, "y", "z", "w", null),
+                                               new Column("c", ColumnType.OBJECT));
+        for (int i = 0; i < 6; i++) {
+            expected.getColumn("c").addRow(null);
+        }
+        assertTablesEqual(expected, merged);
+    }
+
+    @Test
+    public void columnsKeepTheirLayoutOnlyWhenEverySourceSharesIt() {
+        Table first = TableMergerTest.table("first", TableMergerTest.column("same", 1.5),
+                                            TableMergerTest.column("mixed", 1L));
+        Table second = TableMergerTest.table("second", TableMergerTest.column("same", 2.5),
+                                             TableMergerTest.column("mixed", "x"));
+
+        Table merged = TableMerger.merge("merged", List.of(first, second));
+
+        assertEquals(ColumnType.DOUBLE, merged.getColumn("same").getType());
+        assertEquals(ColumnType.OBJECT, merged.getColumn("mixed").getType());
+        assertEquals(List.of(1L, "x"), merged.getColumn("mixed").getRows());
+    }
+
+    @Test
+    public void resultDoesNotShareColumnsWithTheSources() {
+        Column source = TableMergerTest.column("a", 1L, 2L);
+        Table first = TableMergerTest.table("first", source);
+        Table second = TableMergerTest.table("second", TableMergerTest.column("a", 3L));
+
+        Table single = TableMerger.merge("single", List.of(first));
+        Table merged = TableMerger.merge("merged", List.of(first, second));
+        merged.getColumn("a").addRow(4L);
+        merged.getColumn("a").getRows().set(0, 10L);
+        single.getColumn("a").addRow(5L);
+        source.addRow(6L);
+
+        assertNotSame(source, single.getColumn("a"));
+        assertNotSame(source, merged.getColumn("a"));
+        assertEquals(List.of(1L, 2L, 6L), source.getRows());
+        assertEquals(List.of(1L, 2L, 5L), single.getColumn("a").getRows());
+        assertEquals(List.of(10L, 2L, 3L, 4L), merged.getColumn("a").getRows());
+        assertEquals(List.of(3L), second.getColumn("a").getRows());
+    }
+}
@@ -0,0 +1,117 @@
+package pt.up.fe.els2024.engine;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.els2024.TableAssertions.assertTablesEqual;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.exception.OperationException;
+
+public class TableSorterTest {
+
+    private static final List<TableSorter.SortKey> KEYS = List.of(new TableSorter.SortKey("key", true),
+                                                                 new TableSorter.SortKey("other", false));
+
+    private static Table table(List<Object> keys, List<Object> others) {
+        Table table = new Table("table");
+        table.addColumn(new Column("key", new ArrayList<>(keys)));
+        table.addColumn(new Column("other", new ArrayList<>(others)));
+        List<Object> rows = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            rows.add(i);
+        }
+        table.addColumn(new Column("row", rows));
+        return table;
+    }
+
+    /** A table with several runs of rows, mixing numbers, strings that are numbers, text and missing values. */
+    private static Table largeTable() {
+        int rows = 10_000;
+        List<Object> keys = new ArrayList<>(rows);
+        List<Object> others = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            int value = i * 7919 % 500;
+            keys.add(switch (i % 7) {
+                case 0 -> null;
+                case 1 -> String.valueOf(value);
+                case 2 -> "text " + value;
+                case 3 -> value + 0.5;
+                default -> value;
+            });
+            others.add(i % 11 == 0 ? null : (Object) (i * 31 % 13));
+        }
+        return TableSorterTest.table(keys, others);
+    }
+
+    @Test
+    public void rowsAreOrderedByEachKeyInTurn() throws OperationException {
+        Table table = TableSorterTest.table(Arrays.asList("b", 2, null, "10", 2, "a", 2.5),
+                                            Arrays.asList(1, 3, 0, 0, 1, 0, 0));
+
+        Table sorted = new TableSorter(KEYS).sort(table, 7);
+
+        assertEquals(Arrays.asList("b", "a", "10", 2.5, 2, 2, null), sorted.getColumn("key").getRows());
+        assertEquals(List.of(0, 5, 3, 6, 4, 1, 2), sorted.getColumn("row").getRows());
+    }
+
+    @Test
+    public void equalKeysKeepTheirOrder() throws OperationException {
+        Table table = TableSorterTest.table(List.of(1, "1", 1.0, 0), List.of(0, 0, 0, 0));
+
+        Table sorted = new TableSorter(List.of(new TableSorter.SortKey("key", false))).sort(table, 4);
+
+        assertEquals(List.of(3, 0, 1, 2), sorted.getColumn("row").getRows());
+    }
+
+    @Test
+    public void summaryRowsStayAtTheEnd() throws OperationException {
+        Table table = TableSorterTest.table(List.of(3, 1, 2, 0), List.of(0, 0, 0, 0));
+        table.addSummaryRows(1);
+
+        Table sorted = new TableSorter(List.of(new TableSorter.SortKey("key", false))).sort(table, 3);
+
+        assertEquals(List.of(1, 2, 3, 0), sorted.getColumn("key").getRows());
+    }
+
+    @Test
+    public void spilledSortMatchesTheInMemoryOne() throws OperationException {
+        Table table = TableSorterTest.largeTable();
+        int rows = table.getColumn("key").size();
+
+        TableSorter inMemory = new TableSorter(KEYS);
+        TableSorter spilled = new TableSorter(KEYS).withMemoryBudget(1);
+        Table expected = inMemory.sort(table, rows);
+        Table actual = spilled.sort(table, rows);
+
+        assertEquals(0, inMemory.getSpilledRuns());
+        assertTrue(spilled.getSpilledRuns() > 1);
+        assertTablesEqual(expected, actual);
+    }
+
+    @Test
+    public void spilledSortLeavesTheRowsAfterTheSortedOnesInPlace() throws OperationException {
+        Table table = TableSorterTest.largeTable();
+        int rows = table.getColumn("key").size() - 5;
+
+        Table expected = new TableSorter(KEYS).sort(table, rows);
+        Table actual = new TableSorter(KEYS).withMemoryBudget(1).sort(table, rows);
+
+        assertTablesEqual(expected, actual);
+        assertEquals(List.of(rows, rows + 1, rows + 2, rows + 3, rows + 4),
+                     actual.getColumn("row").getRows().subList(rows, rows + 5));
+    }
+
+    @Test
+    public void missingColumnIsRejected() {
+        Table table = TableSorterTest.table(List.of(1), List.of(1));
+
+        assertThrows(OperationException.class,
+                     () -> new TableSorter(List.of(new TableSorter.SortKey("missing", false))).sort(table, 1));
+        assertThrows(OperationException.class, () -> new TableSorter(List.of()).sort(table, 1));
+    }
+}
@@ -0,0 +1,117 @@
+package pt.up.fe.els2024.engine;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+
+public class TopNSelectorTest {
+
+    /** Builds a table named {@code name} whose first cell is {@code key}. */
+    private static Table table(String name, Object key) {
+        Table table = new Table(name);
+        table.addColumn(new Column("key", new ArrayList<>(Arrays.asList(key))));
+        return table;
+    }
+
+    private static List<String> names(List<Table> tables) {
+        return tables.stream().map(Table::getName).toList();
+    }
+
+    private static TopNSelector offer(int n, boolean highest, Table... tables) {
+        TopNSelector selector = new TopNSelector(n, highest);
+        for (Table table : tables) {
+            selector.offer("group", table);
+        }
+        return selector;
+    }
+
+    @Test
+    public void maxKeepsTheHighestAndMinTheLowest() {
+        Table[] tables = {TopNSelectorTest.table("a", 3), TopNSelectorTest.table("b", -1.5),
+                TopNSelectorTest.table("c", 7L), TopNSelectorTest.table("d", 0), TopNSelectorTest.table("e", 5.25)};
+
+        List<Table> max = TopNSelectorTest.offer(3, true, tables).getTop("group");
+        List<Table> min = TopNSelectorTest.offer(3, false, tables).getTop("group");
+
+        assertEquals(List.of("c", "e", "a"), TopNSelectorTest.names(max));
+        assertEquals(List.of("b", "d", "a"), TopNSelectorTest.names(min));
+    }
+
+    @Test
+    public void tiesKeepTheOrderTheTablesWereOfferedIn() {
+        Table[] tables = {TopNSelectorTest.table("a", 1), TopNSelectorTest.table("b", 2),
+                TopNSelectorTest.table("c", 2), TopNSelectorTest.table("d", 1.0), TopNSelectorTest.table("e", 2L)};
+
+        assertEquals(List.of("b", "c"), TopNSelectorTest.names(TopNSelectorTest.offer(2, true, tables).getTop("group")));
+        assertEquals(List.of("b", "c", "e", "a"),
+                     TopNSelectorTest.names(TopNSelectorTest.offer(4, true, tables).getTop("group")));
+        assertEquals(List.of("a", "d", "b"),
+                     TopNSelectorTest.names(TopNSelectorTest.offer(3, false, tables).getTop("group")));
+    }
+
+    @Test
+    public void tablesWithoutANumberRankLast() {
+        Table empty = new Table("empty");
+        Table[] tables = {TopNSelectorTest.table("text", "x"), TopNSelectorTest.table("a", 1), empty,
+                TopNSelectorTest.table("missing", null), TopNSelectorTest.table("numeric text", "9"),
+                TopNSelectorTest.table("b", 2)};
+
+        List<String> expected = List.of("b", "a", "text", "empty", "missing", "numeric text");
+        assertEquals(expected, TopNSelectorTest.names(TopNSelectorTest.offer(6, true, tables).getTop("group")));
+        assertEquals(List.of("a", "b", "text"),
+                     TopNSelectorTest.names(TopNSelectorTest.offer(3, false, tables).getTop("group")));
+    }
+
+    @Test
+    public void fewerTablesThanNAreAllKept() {
+        TopNSelector selector = TopNSelectorTest.offer(5, true, TopNSelectorTest.table("a", 1),
+                                                       TopNSelectorTest.table("b", 2));
+
+        assertEquals(List.of("b", "a"), TopNSelectorTest.names(selector.getTop("group")));
+        assertEquals(2, selector.getCount("group"));
+        assertEquals(List.of(), TopNSelectorTest.offer(0, true, TopNSelectorTest.table("a", 1)).getTop("group"));
+    }
+
+    @Test
+    public void groupsAreRankedOnTheirOwn() {
+        TopNSelector selector = new TopNSelector(1, false);
+        selector.offer("x", TopNSelectorTest.table("a", 5));
+        selector.offer("y", TopNSelectorTest.table("b", 9));
+        selector.offer("x", TopNSelectorTest.table("c", 4));
+
+        assertEquals(Set.of("x", "y"), selector.getGroups());
+        assertEquals(List.of("c"), TopNSelectorTest.names(selector.getTop("x")));
+        assertEquals(List.of("b"), TopNSelectorTest.names(selector.getTop("y")));
+        assertEquals(2, selector.getCount("x"));
+        assertEquals(List.of(), selector.getTop("z"));
+    }
+
+    @Test
+    public void numericKeysAreRankedLikeAStableSort() {
+        Random random = new Random(3);
+        List<Table> tables = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            tables.add(TopNSelectorTest.table("t" + i, random.nextInt(50)));
+        }
+
+        for (boolean highest : new boolean[] {true, false}) {
+            Comparator<Table> byKey = Comparator.comparingDouble(
+                    table -> ((Number) table.getColumns().get(0).getRows().get(0)).doubleValue());
+            List<Table> sorted = new ArrayList<>(tables);
+            sorted.sort(highest ? byKey.reversed() : byKey);
+
+            TopNSelector selector = TopNSelectorTest.offer(40, highest, tables.toArray(Table[]::new));
+
+            assertEquals(TopNSelectorTest.names(sorted.subList(0, 40)), TopNSelectorTest.names(selector.getTop("group")));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package pt.up.fe.els2024.parser;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.engine.RowFilter;
+import pt.up.fe.els2024.exception.ParserException;
+
+public class BatchParserTest {
+
+    /**
+     * A parser that reads nothing, returning a table named after each file. The files listed first take the
+     * longest, so that a parallel batch finishes them last, and files named "bad" fail.
+     */
+    private static class NamingParser extends Parser {
+
+        private final List<String> finished = new ArrayList<>();
+
+        @Override
+        public Table parseFile(File file, List<String> path, RowFilter filter) throws ParserException {
+            int index = Integer.parseInt(file.getName().replaceAll("\\D", ""));
+            try {
+                Thread.sleep((10 - index) * 5L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this.finished) {
+                this.finished.add(file.getName());
+            }
+            if (file.getName().startsWith("bad")) {
+                throw new ParserException("cannot read " + file.getName());
+            }
+            return new Table(file.getName());
+        }
+    }
+
+    private static List<File> files(String... names) {
+        return List.of(names).stream().map(File::new).toList();
+    }
+
+    private static List<String> names(List<Table> tables) {
+        return tables.stream().map(Table::getName).toList();
+    }
+
+    @Test
+    public void tablesAreInTheOrderOfTheFilesAtAnyParallelism() {
+        List<File> files = BatchParserTest.files("f0", "f1", "f2", "f3", "f4", "f5", "f6", "f7");
+        List<String> expected = List.of("f0", "f1", "f2", "f3", "f4", "f5", "f6", "f7");
+
+        for (int parallelism : new int[] {1, 4, 8}) {
+            NamingParser parser = new NamingParser();
+            List<Table> tables = new BatchParser(parser, parallelism).parseAll(files);
+
+            assertEquals("parallelism " + parallelism, expected, BatchParserTest.names(tables));
+            if (parallelism > 1) {
+                assertNotEquals(expected, parser.finished);
+            }
+        }
+    }
+
+    @Test
+    public void failuresAreRecordedPerFileWithoutStoppingTheBatch() {
+        List<File> files = BatchParserTest.files("f0", "bad1", "f2", "bad3", "f4");
+
+        for (int parallelism : new int[] {1, 3}) {
+            BatchParser batchParser = new BatchParser(new NamingParser(), parallelism);
+            List<Table> tables = batchParser.parseAll(files);
+            Map<File, Exception> failures = batchParser.getFailures();
+
+            assertEquals(List.of("f0", "f2", "f4"), BatchParserTest.names(tables));
+            assertEquals(BatchParserTest.files("bad1", "bad3"), List.copyOf(failures.keySet()));
+            assertTrue(failures.get(new File("bad1")).getMessage().endsWith("cannot read bad1"));
+            assertTrue(failures.get(new File("bad3")).getMessage().endsWith("cannot read bad3"));
+
+            String message = batchParser.failuresAsException().getMessage();
+            assertTrue(message, message.contains("Failed to parse 2 files:"));
+            assertTrue(message, message.contains("bad1: ") && message.contains("bad3: "));
+            assertTrue(message, message.indexOf("bad1: ") < message.indexOf("bad3: "));
+        }
+    }
+
+    @Test
+    public void failuresOnlyDescribeTheLastBatch() {
+        BatchParser batchParser = new BatchParser(new NamingParser(), 2);
+        batchParser.parseAll(BatchParserTest.files("bad0", "f1"));
+
+        batchParser.parseAll(BatchParserTest.files("f2", "f3"));
+
+        assertTrue(batchParser.getFailures().isEmpty());
+        assertNull(batchParser.failuresAsException());
+    }
+
+    @Test
+    public void mappedResultsAreInTheOrderOfTheFiles() {
+        List<File> files = BatchParserTest.files("f0", "f1", "bad2", "f3", "f4");
+
+        List<String> results = new BatchParser(new NamingParser(), 4)
+                .mapAll(files, List.of(), null, table -> table.getName().toUpperCase());
+
+        assertEquals(List.of("F0", "F1", "F3", "F4"), results);
+    }
+}
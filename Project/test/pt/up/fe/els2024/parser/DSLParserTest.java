@@ -0,0 +1,405 @@
+package pt.up.fe.els2024.parser;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.TableAssertions;
+import pt.up.fe.els2024.exception.DSLException;
+import pt.up.fe.els2024.plan.Optimizer;
+
+/**
+ * Runs scripts through both front-ends of {@link DSLParser}, exporting their result table to a {@code .ptbl} file
+ * that is read back, so that every value keeps its type.
+ */
+@RunWith(Parameterized.class)
+public class DSLParserTest {
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Object[] frontends() {
+        return DSLParser.Frontend.values();
+    }
+
+    @Parameterized.Parameter
+    public DSLParser.Frontend frontend;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Writes a folder with one JSON file per row, to be imported by a script.
+     *
+     * @param name the name of the folder
+     * @param rows the JSON object of each row
+     * @return the path of the folder, ending with a separator
+     */
+    private String input(String name, String... rows) throws IOException {
+        File directory = this.folder.newFolder(name);
+        for (int i = 0; i < rows.length; i++) {
+            Files.writeString(new File(directory, "row" + i + ".json").toPath(), rows[i], StandardCharsets.UTF_8);
+        }
+        return directory.getPath() + File.separator;
+    }
+
+    /**
+     * Runs the statements of a script between the creation of its table and its export.
+     *
+     * @param statements the statements
+     * @return the exported table
+     */
+    private Table run(String statements) throws Exception {
+        File output = new File(this.folder.getRoot(), "result.ptbl");
+        this.run(statements, output);
+        return new PTBLParser().parseFile(output, "result");
+    }
+
+    /**
+     * Runs the statements of a script between the creation of its table and its export to a file.
+     *
+     * @param statements the statements
+     * @param output     the exported file
+     */
+    private void run(String statements, File output) throws Exception {
+        this.run(statements, output, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Runs the statements of a script between the creation of its table and its export to a file, with a given
+     * number of imports run at the same time.
+     *
+     * @param statements  the statements
+     * @param output      the exported file
+     * @param parallelism the maximum number of imports run at the same time
+     */
+    private void run(String statements, File output, int parallelism) throws Exception {
+        File script = new File(this.folder.getRoot(), "script.preql");
+        Files.writeString(script.toPath(), "CREATE TABLE \"result\";\n" + statements
+                                           + "\nEXPORT TO \"" + output.getPath() + "\";\n", StandardCharsets.UTF_8);
+
+        new DSLParser(null, new Optimizer(), this.frontend, parallelism).parse(script.getPath());
+    }
+
+    /**
+     * Runs the statements of a script with a given number of imports run at the same time.
+     *
+     * @param statements  the statements
+     * @param parallelism the maximum number of imports run at the same time
+     * @return the exported table
+     */
+    private Table run(String statements, int parallelism) throws Exception {
+        File output = new File(this.folder.getRoot(), "result.ptbl");
+        this.run(statements, output, parallelism);
+        return new PTBLParser().parseFile(output, "result");
+    }
+
+    /**
+     * Writes a folder of subfolders, each with a JSON and a YAML file, to be imported by extension.
+     *
+     * @param name  the name of the folder, which prefixes the keys of the files
+     * @param count the number of subfolders
+     * @return the path of the folder, ending with a separator
+     */
+    private String folders(String name, int count) throws IOException {
+        File directory = this.folder.newFolder(name);
+        for (int i = 0; i < count; i++) {
+            File subfolder = new File(directory, String.format("%03d", i));
+            assertTrue(subfolder.mkdir());
+            Files.writeString(new File(subfolder, "data.json").toPath(), "{\"" + name + " json\": " + i + "}",
+                              StandardCharsets.UTF_8);
+            Files.writeString(new File(subfolder, "data.yaml").toPath(), name + " yaml: " + i * 10 + "\n",
+                              StandardCharsets.UTF_8);
+        }
+        return directory.getPath() + File.separator;
+    }
+
+    /** The import of the JSON and YAML files of the subfolders of a folder, one extension at a time. */
+    private static String importByExtension(String folders) {
+        return "IMPORT DATA FROM FOLDERS \"" + folders + "\" {\n"
+               + "    WITH EXTENSIONS {\n"
+               + "        EXTENSION YAML {\n"
+               + "            SELECT TABLE *;\n"
+               + "        };\n"
+               + "        EXTENSION JSON {\n"
+               + "            SELECT TABLE *;\n"
+               + "        };\n"
+               + "    };\n"
+               + "};\n";
+    }
+
+    /** Sorts the values of a column, whose rows come in the order the files of a folder are listed. */
+    private static List<String> sorted(List<Object> values) {
+        return values.stream().map(String::valueOf).sorted().toList();
+    }
+
+    private static List<Double> doubles(List<Object> values) {
+        List<Double> doubles = new ArrayList<>();
+        for (Object value : values) {
+            doubles.add(value == null ? null : ((Number) value).doubleValue());
+        }
+        return doubles;
+    }
+
+    @Test
+    public void aggregateAppendsTheStatisticsOfEveryColumn() throws Exception {
+        String input = this.input("input", "{\"name\": \"a\", \"value\": 4}", "{\"name\": \"b\", \"value\": 2.5}",
+                                  "{\"name\": \"c\", \"value\": 10}");
+
+        Table table = this.run("IMPORT DATA FROM FOLDER \"" + input + "\" ONLY JSON {\n"
+                               + "    SELECT TABLE *;\n"
+                               + "};\n"
+                               + "AGGREGATE MIN, MAX, COUNT *;");
+
+        List<Object> values = table.getColumn("value").getRows();
+        assertEquals(6, values.size());
+        assertEquals(List.of(2.5, 10.0, 3.0), DSLParserTest.doubles(values.subList(3, 6)));
+    }
+
+    @Test
+    public void selectingAColumnOfAMissingTableFails() throws Exception {
+        String input = this.input("input", "{\"name\": \"a\", \"value\": 4}");
+
+        DSLException exception = assertThrows(DSLException.class, () -> this.run(
+                "IMPORT DATA FROM FOLDER \"" + input + "\" ONLY JSON {\n"
+                + "    SELECT COLUMN \"missing/value\";\n"
+                + "};"));
+
+        assertTrue(exception.getMessage(), exception.getMessage().contains("Subtable missing not found"));
+    }
+
+    @Test
+    public void whereKeepsTheRowsSatisfyingTheCondition() throws Exception {
+        String input = this.input("input", "{\"name\": \"a\", \"value\": 4}", "{\"name\": \"b\", \"value\": 2.5}",
+                                  "{\"name\": \"c\", \"value\": 10}", "{\"name\": \"d\", \"value\": \"12\"}");
+
+        Table table = this.run("IMPORT DATA FROM FOLDER \"" + input + "\" ONLY JSON {\n"
+                               + "    SELECT TABLE * WHERE (\"value\" >= 4 AND \"name\" != \"c\") OR \"name\" IN (\"b\", 7);\n"
+                               + "};");
+
+        assertEquals(List.of("a", "b", "d"), DSLParserTest.sorted(table.getColumn("name").getRows()));
+    }
+
+    @Test
+    public void whereOnASelectedColumnReadsItsSiblings() throws Exception {
+        String input = this.input("input", "{\"name\": \"a\", \"value\": 4}", "{\"name\": \"b\", \"value\": -2.5}");
+
+        Table table = this.run("IMPORT DATA FROM FOLDER \"" + input + "\" ONLY JSON {\n"
+                               + "    SELECT COLUMN \"name\" WHERE \"value\" < -1 OR \"name\" STARTS WITH \"z\";\n"
+                               + "};");
+
+        assertEquals(List.of("name"), TableAssertions.columnNames(table));
+        assertEquals(List.of("b"), table.getColumn("name").getRows());
+    }
+
+    @Test
+    public void groupByComputesTheStatisticsOfEachGroup() throws Exception {
+        String input = this.input("input", "{\"group\": \"x\", \"value\": 4, \"other\": 1}",
+                                  "{\"group\": \"y\", \"value\": 2.5, \"other\": 1}",
+                                  "{\"group\": \"x\", \"value\": 10, \"other\": 1}");
+
+        Table table = this.run("IMPORT DATA FROM FOLDER \"" + input + "\" ONLY JSON {\n"
+                               + "    SELECT TABLE *;\n"
+                               + "};\n"
+                               + "GROUP BY \"group\" AGGREGATE SUM, MAX OF \"value\";");
+
+        assertEquals(List.of("group", "value SUM", "value MAX"), TableAssertions.columnNames(table));
+        List<Object> groups = table.getColumn("group").getRows();
+        int x = groups.indexOf("x");
+        int y = groups.indexOf("y");
+        assertEquals(2, groups.size());
+        assertEquals(List.of(14.0, 2.5), DSLParserTest.doubles(List.of(table.getColumn("value SUM").getRows().get(x),
+                                                                       table.getColumn("value SUM").getRows().get(y))));
+        assertEquals(10.0, ((Number) table.getColumn("value MAX").getRows().get(x)).doubleValue(), 0.0);
+    }
+
+    @Test
+    public void joinCombinesTheRowsWithEqualKeys() throws Exception {
+        String people = this.input("people", "{\"id\": 1, \"name\": \"a\"}", "{\"id\": 2, \"name\": \"b\"}",
+                                   "{\"id\": 3, \"name\": \"c\"}");
+        String scores = this.input("scores", "{\"id\": \"1\", \"score\": 10}", "{\"id\": 3, \"score\": 30}",
+                                   "{\"id\": 4, \"score\": 40}");
+        String statements = "IMPORT DATA FROM FOLDER \"" + people + "\" ONLY JSON {\n"
+                            + "    SELECT TABLE *;\n"
+                            + "};\n"
+                            + "IMPORT DATA FROM FOLDER \"" + scores + "\" ONLY JSON %s JOIN ON \"id\" {\n"
+                            + "    SELECT TABLE *;\n"
+                            + "};";
+
+        Table inner = this.run(statements.formatted(""));
+        Table left = this.run(statements.formatted("LEFT"));
+
+        assertEquals(List.of("id", "name", "score"), TableAssertions.columnNames(inner));
+        assertEquals(List.of("a", "c"), DSLParserTest.sorted(inner.getColumn("name").getRows()));
+        assertEquals(List.of("10", "30"), DSLParserTest.sorted(inner.getColumn("score").getRows()));
+        assertEquals(List.of("a", "b", "c"), DSLParserTest.sorted(left.getColumn("name").getRows()));
+        assertEquals(List.of("10", "30", "null"), DSLParserTest.sorted(left.getColumn("score").getRows()));
+    }
+
+    @Test
+    public void orderBySortsTheRowsByEachKeyInTurn() throws Exception {
+        String input = this.input("input", "{\"name\": \"a\", \"value\": 4}", "{\"name\": \"b\", \"value\": \"12\"}",
+                                  "{\"name\": \"c\", \"value\": 4}", "{\"name\": \"d\"}",
+                                  "{\"name\": \"e\", \"value\": 2.5}");
+
+        Table table = this.run("IMPORT DATA FROM FOLDER \"" + input + "\" ONLY JSON {\n"
+                               + "    SELECT TABLE *;\n"
+                               + "};\n"
+                               + "ORDER BY \"value\" DESC, \"name\" ASC;");
+
+        assertEquals(List.of("b", "a", "c", "e", "d"), table.getColumn("name").getRows());
+    }
+
+    @Test
+    public void expressionsFollowTheUsualPrecedence() throws Exception {
+        String input = this.input("input", "{\"a\": 1, \"b\": 4}", "{\"a\": 2, \"b\": 0}");
+
+        Table table = this.run("IMPORT DATA FROM FOLDER \"" + input + "\" ONLY JSON {\n"
+                               + "    SELECT TABLE *;\n"
+                               + "    ADD COLUMN \"sum\" AS EXPR a + \"b\" * 2 - -(1 + 1) / 4;\n"
+                               + "    ADD COLUMN \"ratio\" AS EXPR a / b;\n"
+                               + "};");
+
+        assertEquals(List.of(2.5, 9.5), table.getColumn("sum").getRows().stream()
+                                             .map(value -> ((Number) value).doubleValue()).sorted().toList());
+        assertEquals(List.of(0.25, Double.POSITIVE_INFINITY), table.getColumn("ratio").getRows().stream()
+                                             .map(value -> ((Number) value).doubleValue()).sorted().toList());
+    }
+
+    @Test
+    public void expressionsOverTextFail() throws Exception {
+        String input = this.input("input", "{\"a\": 1, \"b\": \"x\"}");
+
+        assertThrows(DSLException.class, () -> this.run("IMPORT DATA FROM FOLDER \"" + input + "\" ONLY JSON {\n"
+                                                        + "    SELECT TABLE *;\n"
+                                                        + "    ADD COLUMN \"sum\" AS EXPR a + b;\n"
+                                                        + "};"));
+    }
+
+    @Test
+    public void removedComputationsStillCheckTheirColumns() throws Exception {
+        String input = this.input("input", "{\"a\": 1, \"b\": \"x\"}");
+
+        for (String column : List.of("nope", "b")) {
+            DSLException exception = assertThrows(DSLException.class, () -> this.run(
+                    "IMPORT DATA FROM FOLDER \"" + input + "\" ONLY JSON {\n"
+                    + "    SELECT TABLE *;\n"
+                    + "    SUM \"" + column + "\" AND \"a\" TO \"z\";\n"
+                    + "};\n"
+                    + "REMOVE COLUMN \"z\";"));
+
+            assertTrue(exception.getMessage(), exception.getMessage().contains(
+                    column.equals("nope") ? "Column nope doesn't exist" : "Cannot operate on columns with non-numbers"));
+        }
+    }
+
+    @Test
+    public void parallelImportsGiveTheSameTableAsSequentialOnes() throws Exception {
+        String script = DSLParserTest.importByExtension(this.folders("a", 3))
+                        + "IMPORT DATA FROM FOLDER \"" + this.input("input", "{\"c\": 1}", "{\"c\": 2}")
+                        + "\" ONLY JSON {\n"
+                        + "    SELECT TABLE *;\n"
+                        + "};\n"
+                        + DSLParserTest.importByExtension(this.folders("b", 4));
+
+        Table sequential = this.run(script, 1);
+
+        assertEquals(List.of("a yaml", "a json", "c", "b yaml", "b json"), TableAssertions.columnNames(sequential));
+        assertEquals(List.of(0.0, 10.0, 20.0, 30.0), DSLParserTest.doubles(sequential.getColumn("b yaml").getRows()));
+        for (int run = 0; run < 5; run++) {
+            TableAssertions.assertTablesEqual(sequential, this.run(script, 4));
+        }
+    }
+
+    @Test
+    public void importsAfterAnExportReadTheExportedFile() throws Exception {
+        String first = this.input("first", "{\"a\": 1}", "{\"a\": 2}");
+        String second = this.input("second", "{\"b\": 3}");
+        String script = "IMPORT DATA FROM FOLDER \"" + first + "\" ONLY JSON {\n"
+                        + "    SELECT TABLE *;\n"
+                        + "};\n"
+                        + "EXPORT TO \"" + second + "exported.json\";\n"
+                        + "IMPORT DATA FROM FOLDER \"" + second + "\" ONLY JSON {\n"
+                        + "    SELECT TABLE *;\n"
+                        + "};\n";
+
+        Table sequential = this.run(script, 1);
+
+        // The second import only sees the exported file if it waits for the export, whose column a it then reads
+        assertEquals(List.of("a", "a", "b"), TableAssertions.columnNames(sequential));
+        for (int run = 0; run < 5; run++) {
+            assertTrue(new File(second, "exported.json").delete());
+            TableAssertions.assertTablesEqual(sequential, this.run(script, 4));
+        }
+    }
+
+    @Test
+    public void approximateAggregateAppendsTheEstimatesOfEveryColumn() throws Exception {
+        String input = this.input("input", "{\"name\": \"a\", \"value\": 4}", "{\"name\": \"b\", \"value\": \"2\"}",
+                                  "{\"name\": \"a\", \"value\": 10}", "{\"name\": \"c\", \"value\": 4.0}");
+
+        Table table = this.run("IMPORT DATA FROM FOLDER \"" + input + "\" ONLY JSON {\n"
+                               + "    SELECT TABLE *;\n"
+                               + "};\n"
+                               + "AGGREGATE APPROX_DISTINCT, APPROX_PERCENTILE(0), APPROX_PERCENTILE(100) *;");
+
+        List<Object> names = table.getColumn("name").getRows();
+        List<Object> values = table.getColumn("value").getRows();
+        assertEquals(7, values.size());
+        assertEquals(List.of(3L, "N/A", "N/A"), names.subList(4, 7));
+        assertEquals(List.of(3.0, 2.0, 10.0), DSLParserTest.doubles(values.subList(4, 7)));
+    }
+
+    @Test
+    public void streamedExportFallsBackWhenTheColumnsOfTheFilesDiffer() throws Exception {
+        String input = this.input("input", "{\"a\": 1, \"b\": 2}", "{\"a\": 3, \"c\": 4}");
+        File output = new File(this.folder.getRoot(), "result.csv");
+
+        this.run("IMPORT DATA FROM FOLDER \"" + input + "\" ONLY JSON {\n"
+                 + "    SELECT TABLE *;\n"
+                 + "};", output);
+
+        // The columns and rows come in the order the files are listed
+        List<String> lines = Files.readAllLines(output.toPath());
+        List<String> header = List.of(lines.getFirst().split(","));
+        Set<Map<String, String>> rows = new HashSet<>();
+        for (String line : lines.subList(1, lines.size())) {
+            Map<String, String> row = new HashMap<>();
+            String[] cells = line.split(",");
+            for (int i = 0; i < cells.length; i++) {
+                row.put(header.get(i), cells[i]);
+            }
+            rows.add(row);
+        }
+
+        assertEquals(Set.of("a", "b", "c"), Set.copyOf(header));
+        assertEquals(Set.of(Map.of("a", "1", "b", "2", "c", "null"), Map.of("a", "3", "b", "null", "c", "4")), rows);
+    }
+
+    @Test
+    public void streamedExportReportsTheFilesThatFail() throws Exception {
+        String input = this.input("input", "{\"a\": 1}", "{\"a\": ", "{\"a\": 3}");
+        File output = new File(this.folder.getRoot(), "result.csv");
+
+        DSLException exception = assertThrows(DSLException.class, () -> this.run(
+                "IMPORT DATA FROM FOLDER \"" + input + "\" ONLY JSON {\n"
+                + "    SELECT TABLE *;\n"
+                + "};", output));
+
+        assertTrue(exception.getMessage(), exception.getMessage().contains("row1.json"));
+        assertFalse(output.exists());
+    }
+}
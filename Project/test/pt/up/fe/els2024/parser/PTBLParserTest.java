@@ -0,0 +1,125 @@
+package pt.up.fe.els2024.parser;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.els2024.TableAssertions.assertColumnsEqual;
+import static pt.up.fe.els2024.TableAssertions.assertTablesEqual;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.TableAssertions;
+import pt.up.fe.els2024.engine.RowFilter;
+import pt.up.fe.els2024.exception.ParserException;
+import pt.up.fe.els2024.export.PTBLExporter;
+
+public class PTBLParserTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File export(Table table, boolean compress) throws Exception {
+        File file = new File(this.folder.getRoot(), table.getName() + ".ptbl");
+        PTBLExporter.export(table, file.getPath(), compress);
+        return file;
+    }
+
+    @Test
+    public void compressedFileRestoresEveryLayout() throws Exception {
+        Table table = TableAssertions.sampleTable("sample", 500);
+
+        Table read = new PTBLParser().parseFile(this.export(table, true), "sample");
+
+        assertTablesEqual(table, read);
+    }
+
+    @Test
+    public void uncompressedFileRestoresEveryLayout() throws Exception {
+        Table table = TableAssertions.sampleTable("sample", 500);
+
+        Table read = new PTBLParser().parseFile(this.export(table, false), "sample");
+
+        assertTablesEqual(table, read);
+    }
+
+    @Test
+    public void columnsSpanningSeveralChunksAreRestored() throws Exception {
+        Table table = TableAssertions.sampleTable("large", PTBLExporter.CHUNK_ROWS * 2 + 17);
+
+        Table read = new PTBLParser().parseFile(this.export(table, true), "large");
+
+        assertTablesEqual(table, read);
+    }
+
+    @Test
+    public void tablesAreNamedAfterTheFile() throws Exception {
+        Table table = TableAssertions.sampleTable("sample", 10);
+
+        Table read = new PTBLParser().parseFile(this.export(table, true), "renamed");
+
+        assertEquals("renamed", read.getName());
+        assertColumnsEqual(table, read);
+    }
+
+    @Test
+    public void pathDecodesOnlyItsColumn() throws Exception {
+        Table table = TableAssertions.sampleTable("sample", 100);
+
+        Table read = new PTBLParser().parseFile(this.export(table, true), "sample", List.of("string"));
+
+        assertEquals(List.of("string"), TableAssertions.columnNames(read));
+        assertEquals(table.getColumn("string").getRows(), read.getColumn("string").getRows());
+    }
+
+    @Test
+    public void filteredReadMatchesFilteringTheWholeTable() throws Exception {
+        Table table = TableAssertions.sampleTable("large", PTBLExporter.CHUNK_ROWS + 500);
+        File file = this.export(table, true);
+        RowFilter filter = new RowFilter.Or(
+                new RowFilter.Comparison("double", RowFilter.Operator.LT, 100),
+                new RowFilter.Comparison("double", RowFilter.Operator.GE, PTBLExporter.CHUNK_ROWS / 2.0 + 200));
+
+        Table filtered = new PTBLParser().parseFile(file, "large", List.of(), filter);
+        Table expected = new PTBLParser().parseFile(file, "large");
+        filter.filter(expected);
+
+        assertTablesEqual(expected, filtered);
+        int rows = filtered.getColumn("double").size();
+        assertTrue(rows > 0 && rows < table.getColumn("double").size());
+    }
+
+    @Test
+    public void fileFromAnotherVersionIsRejected() throws Exception {
+        File file = this.export(TableAssertions.sampleTable("sample", 10), true);
+        try (RandomAccessFile stored = new RandomAccessFile(file, "rw")) {
+            stored.seek(Integer.BYTES);
+            stored.writeInt(PTBLExporter.VERSION + 1);
+        }
+
+        assertThrows(ParserException.class, () -> new PTBLParser().parseFile(file, "sample"));
+    }
+
+    @Test
+    public void truncatedFileIsRejected() throws Exception {
+        File file = this.export(TableAssertions.sampleTable("sample", 10), true);
+        byte[] content = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(content, content.length - 3));
+
+        assertThrows(ParserException.class, () -> new PTBLParser().parseFile(file, "sample"));
+    }
+
+    @Test
+    public void emptyTableIsRestored() throws Exception {
+        Table table = new Table("empty");
+
+        Table read = new PTBLParser().parseFile(this.export(table, true), "empty");
+
+        assertTablesEqual(table, read);
+    }
+}
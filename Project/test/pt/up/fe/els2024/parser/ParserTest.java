@@ -0,0 +1,113 @@
+package pt.up.fe.els2024.parser;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.els2024.TableAssertions.assertTablesEqual;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.cache.ParseCache;
+import pt.up.fe.els2024.engine.RowFilter;
+import pt.up.fe.els2024.utils.PathExpression;
+
+/**
+ * Checks that the filters pushed down to the parsers of each format keep the same rows as filtering the parsed
+ * tables afterwards.
+ */
+@RunWith(Parameterized.class)
+public class ParserTest {
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Object[] extensions() {
+        return new Object[] {"json", "yaml", "xml"};
+    }
+
+    @Parameterized.Parameter
+    public String extension;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final List<String> PATH = List.of("rows");
+
+    /** Keeps the rows "a" and "b" of the sample, comparing numbers in any format by value. */
+    private static final RowFilter FILTER = new RowFilter.Or(
+            new RowFilter.And(new RowFilter.Comparison("value", RowFilter.Operator.GE, 4),
+                              new RowFilter.Comparison("name", RowFilter.Operator.NE, "c")),
+            new RowFilter.Membership("name", List.of("b", 7)));
+
+    private File sample() throws IOException {
+        String content = switch (this.extension) {
+            case "json" -> "{\"rows\": [{\"name\": \"a\", \"value\": 4}, {\"name\": \"b\", \"value\": 2.5},"
+                           + " {\"name\": \"c\", \"value\": 10}], \"title\": \"t\"}";
+            case "yaml" -> "rows:\n  - name: a\n    value: 4\n  - name: b\n    value: 2.5\n"
+                           + "  - name: c\n    value: 10\ntitle: t\n";
+            default -> "<data><rows><name>a</name><value>4</value></rows><rows><name>b</name><value>2.5</value></rows>"
+                       + "<rows><name>c</name><value>10</value></rows><title>t</title></data>";
+        };
+        File file = this.folder.newFile("sample." + this.extension);
+        Files.writeString(file.toPath(), content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static Table postFiltered(File file) throws Exception {
+        Table table = new Parser().parseFile(file, PATH);
+        FILTER.filter(table, PathExpression.of(PATH));
+        return table;
+    }
+
+    private static List<Object> names(Table table) {
+        List<Object> names = new ArrayList<>();
+        for (Table row : PathExpression.of(PATH).resolve(table)) {
+            names.addAll(row.getColumn("name").getRows());
+        }
+        return names;
+    }
+
+    @Test
+    public void pushedDownFilterMatchesFilteringTheParsedTable() throws Exception {
+        File file = this.sample();
+
+        Table pushed = new Parser().parseFile(file, PATH, FILTER);
+
+        assertTablesEqual(ParserTest.postFiltered(file), pushed);
+        assertEquals(List.of("a", "b"), ParserTest.names(pushed));
+    }
+
+    @Test
+    public void cachedTablesAreFilteredLikeParsedOnes() throws Exception {
+        File file = this.sample();
+        ParseCache cache = new ParseCache(this.folder.newFolder("cache"));
+
+        Table missed = new Parser(cache).parseFile(file, PATH, FILTER);
+        Table hit = new Parser(cache).parseFile(file, PATH, FILTER);
+
+        Table expected = ParserTest.postFiltered(file);
+        assertTablesEqual(expected, missed);
+        assertTablesEqual(expected, hit);
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void filterOnTheRootKeepsOrDropsItsOnlyRow() throws Exception {
+        File file = this.sample();
+        RowFilter kept = new RowFilter.Comparison("title", RowFilter.Operator.STARTS_WITH, "t");
+        RowFilter dropped = new RowFilter.Comparison("title", RowFilter.Operator.EQ, "u");
+
+        Table keptTable = new Parser().parseFile(file, List.of(), kept);
+        Table droppedTable = new Parser().parseFile(file, List.of(), dropped);
+
+        assertEquals(List.of("t"), keptTable.getColumn("title").getRows());
+        assertEquals(List.of(), droppedTable.getColumn("title").getRows());
+    }
+}
@@ -0,0 +1,96 @@
+package pt.up.fe.els2024.parser;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.els2024.exception.ParserException;
+
+public class PathReaderTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper YAML = new ObjectMapper(new YAMLFactory());
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Map<String, Object> read(ObjectMapper mapper, String document, String... path) throws IOException {
+        try (JsonParser parser = mapper.createParser(document)) {
+            return new PathReader(mapper).read(parser, List.of(path));
+        }
+    }
+
+    private static Map<String, Object> json(String document) throws IOException {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> map = JSON.readValue(document, Map.class);
+        return map;
+    }
+
+    @Test
+    public void fieldsOutsideThePathAreSkipped() throws IOException {
+        String document = "{\"skip\": {\"nested\": [1, {\"a\": 2}], \"b\": 3}, \"a\": {\"x\": [1, {\"b\": 4}],"
+                          + " \"b\": {\"c\": [5, 6]}, \"y\": \"z\"}, \"c\": 7}";
+
+        assertEquals(PathReaderTest.json("{\"a\": {\"b\": {\"c\": [5, 6]}}}"),
+                     PathReaderTest.read(JSON, document, "a", "b"));
+        assertEquals(PathReaderTest.json("{\"c\": 7}"), PathReaderTest.read(JSON, document, "c"));
+        assertEquals(Map.of(), PathReaderTest.read(JSON, document, "missing"));
+    }
+
+    @Test
+    public void arraysAlongThePathAreDescendedInto() throws IOException {
+        String document = "{\"rows\": [{\"name\": \"a\", \"value\": 1}, [{\"name\": \"b\", \"other\": 2}],"
+                          + " {\"value\": 3}, \"text\"]}";
+
+        assertEquals(PathReaderTest.json("{\"rows\": [{\"name\": \"a\"}, [{\"name\": \"b\"}], {}, \"text\"]}"),
+                     PathReaderTest.read(JSON, document, "rows", "name"));
+    }
+
+    @Test
+    public void scalarsAlongThePathAreKeptAsTheyAre() throws IOException {
+        String document = "{\"a\": {\"b\": 7, \"c\": 8}}";
+
+        assertEquals(PathReaderTest.json("{\"a\": {\"b\": 7}}"), PathReaderTest.read(JSON, document, "a", "b"));
+        assertEquals(PathReaderTest.json("{\"a\": {\"b\": 7}}"), PathReaderTest.read(JSON, document, "a", "b", "x"));
+    }
+
+    @Test
+    public void yamlIsReadLikeTheSameJson() throws IOException {
+        String yaml = "skip: [1, 2]\nrows:\n  - name: a\n    value: 1\n  - name: b\n    value: 2.5\n";
+        String json = "{\"skip\": [1, 2], \"rows\": [{\"name\": \"a\", \"value\": 1}, {\"name\": \"b\", \"value\": 2.5}]}";
+
+        assertEquals(PathReaderTest.read(JSON, json, "rows", "value"), PathReaderTest.read(YAML, yaml, "rows", "value"));
+    }
+
+    @Test
+    public void documentsThatAreNotObjectsAreNotRead() throws IOException {
+        assertNull(PathReaderTest.read(JSON, "[{\"a\": 1}]", "a"));
+        assertNull(PathReaderTest.read(JSON, "3", "a"));
+        assertNull(PathReaderTest.read(YAML, "- a\n- b\n", "a"));
+    }
+
+    @Test
+    public void filesWhoseRootIsNotAnObjectAreParseErrors() throws IOException {
+        File yaml = this.folder.newFile("list.yaml");
+        Files.writeString(yaml.toPath(), "- a\n- b\n", StandardCharsets.UTF_8);
+        File json = this.folder.newFile("list.json");
+        Files.writeString(json.toPath(), "[\"a\", \"b\"]", StandardCharsets.UTF_8);
+
+        for (File file : List.of(yaml, json)) {
+            ParserException exception = assertThrows(ParserException.class,
+                                                      () -> new Parser().parseFile(file, List.of("params")));
+            assertTrue(exception.getMessage(), exception.getMessage().contains(file.getName()));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package pt.up.fe.els2024.parser;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.xtext.resource.XtextResourceSet;
+import org.junit.Test;
+import org.xtext.example.mydsl.PreqlStandaloneSetup;
+import pt.up.fe.els2024.exception.DSLException;
+
+/**
+ * Checks that the {@link PreqlReader} reads scripts into the same models as the Xtext parser of the grammar.
+ */
+public class PreqlReaderTest {
+
+    /** A script with every statement and operation of the grammar. */
+    private static final String SCRIPT = """
+            CREATE TABLE "result";
+            IMPORT DATA FROM FILE "data/a.json" {
+                SELECT TABLE * BY NON-COMPOSITE WHERE ("value" >= -4.5 AND "name" != "c") OR "name" IN ("b", 7);
+                SELECT COLUMN "config/name" WHERE "value" CONTAINS "x";
+                ADD COLUMN "flag" AS "true" AT FIRST;
+                ADD COLUMN "total" AS EXPR a + "b" * 2 - -(1.5 + c) / 4;
+                SUM "a" AND "b" TO "c";
+                FILTER BY ("path", MAX, ["x", "y"], 3);
+            };
+            IMPORT DATA FROM FOLDER "data/" ONLY XML LEFT JOIN ON "id" {
+                SELECT COLUMN "value" BY COMPOSITE;
+            };
+            IMPORT DATA FROM FOLDER "data/" JOIN ON "id" {
+                SELECT TABLE "rows" WHERE "name" STARTS WITH "x";
+            };
+            IMPORT DATA FROM FOLDERS "root/" {
+                WITH EXTENSIONS {
+                    EXTENSION YAML {
+                        FILTER BY ("path", MIN, ["x"], 1);
+                        SELECT TABLE *;
+                    };
+                };
+            };
+            ADD SUFFIX "_s" TO "a";
+            ADD PREFIX "p_" TO "b";
+            ADD GLOBAL COLUMN "g" AS "1" AT LAST;
+            RENAME COLUMN "a" TO "b";
+            REMOVE COLUMN "b";
+            ADD *;
+            AVERAGE *;
+            AGGREGATE SUM, AVG, STDDEV *;
+            AGGREGATE APPROX_DISTINCT, APPROX_PERCENTILE(99.5) *;
+            GROUP BY "a", "b" AGGREGATE MIN, MAX OF "c", "d";
+            GROUP BY "a" AGGREGATE COUNT *;
+            ORDER BY "a" DESC, "b" ASC, "c";
+            EXPORT TO "out/result.csv";
+            """;
+
+    private static EObject readWithXtext(String script) throws Exception {
+        XtextResourceSet resourceSet = new PreqlStandaloneSetup().createInjectorAndDoEMFRegistration()
+                                                                 .getInstance(XtextResourceSet.class);
+        Resource resource = resourceSet.createResource(URI.createURI("dummy:/script.preql"));
+        resource.load(new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8)), Collections.emptyMap());
+        assertEquals(Collections.emptyList(), resource.getErrors());
+        return resource.getContents().getFirst();
+    }
+
+    @Test
+    public void everyStatementIsReadLikeXtextReadsIt() throws Exception {
+        EObject expected = PreqlReaderTest.readWithXtext(SCRIPT);
+
+        EObject actual = new PreqlReader(SCRIPT, "script.preql").read();
+
+        assertTrue(EcoreUtil.equals(expected, actual));
+    }
+
+    @Test
+    public void syntaxErrorsGiveTheirPosition() {
+        DSLException exception = assertThrows(DSLException.class,
+                                              () -> new PreqlReader("CREATE TABLE \"t\";\nAGGREGATE SUM;", "s.preql")
+                                                      .read());
+
+        assertTrue(exception.getMessage(), exception.getMessage().contains("s.preql:2:14: mismatched input ';'"));
+    }
+
+    @Test
+    public void enumerationsOnlyAcceptTheirLiterals() {
+        DSLException exception = assertThrows(DSLException.class,
+                                              () -> new PreqlReader("AGGREGATE MEDIAN *;", "s.preql").read());
+
+        assertTrue(exception.getMessage(), exception.getMessage().contains("expecting one of [NULL, SUM"));
+    }
+}
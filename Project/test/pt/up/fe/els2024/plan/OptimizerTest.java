@@ -0,0 +1,169 @@
+package pt.up.fe.els2024.plan;
+
+import static org.junit.Assert.*;
+import static pt.up.fe.els2024.TableAssertions.assertTablesEqual;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.Table;
+import pt.up.fe.els2024.TableAssertions;
+import pt.up.fe.els2024.builders.TableBuilder;
+import pt.up.fe.els2024.exception.DSLException;
+
+public class OptimizerTest {
+
+    /** Builds a table with the numeric columns {@code a} and {@code b} and the text column {@code s}, after others. */
+    private static Table table(String... others) {
+        Table table = new Table("table");
+        table.addColumn(new Column("a", new ArrayList<>(List.of(1, 2, 3))));
+        table.addColumn(new Column("b", new ArrayList<>(List.of(0.5, 1.5, 2.5))));
+        table.addColumn(new Column("s", new ArrayList<>(List.of("x", "y", "z"))));
+        for (String other : others) {
+            table.addColumn(new Column(other, new ArrayList<>(List.of(7, 8, 9))), true);
+        }
+        return table;
+    }
+
+    private static Table execute(LogicalPlan plan, Table table) throws DSLException {
+        TableBuilder tableBuilder = new TableBuilder();
+        tableBuilder.setTable(table);
+        try {
+            return PlanNode.operations(plan.execute(tableBuilder.performOperation("test"))).getTable();
+        } catch (DSLException exception) {
+            throw exception;
+        } catch (Exception exception) {
+            throw new AssertionError(exception);
+        }
+    }
+
+    /** Checks that the optimized plan gives the same table as the original one, on a fresh copy of the table. */
+    private static void assertSameResult(LogicalPlan original, LogicalPlan optimized, String... others)
+            throws DSLException {
+        assertTablesEqual(OptimizerTest.execute(original, OptimizerTest.table(others)),
+                          OptimizerTest.execute(optimized, OptimizerTest.table(others)));
+    }
+
+    /** Creates the sum of two columns, counting how many times it is computed. */
+    private static PlanNode.Operation sum(String left, String right, String result, AtomicInteger computed) {
+        return new PlanNode.Operation(PlanNode.Kind.COMPUTE, "sum", new LinkedHashSet<>(List.of(left, right)),
+                                      Set.of(result), builder -> {
+            computed.incrementAndGet();
+            return PlanNode.operations(builder).sum(left, right, result);
+        });
+    }
+
+    private static PlanNode.Operation aggregate() {
+        return PlanNode.Operation.of(PlanNode.Kind.AGGREGATE, "aggregate",
+                                     builder -> PlanNode.operations(builder).sum());
+    }
+
+    private static LogicalPlan optimize(Set<Optimizer.Rule> rules, PlanNode... nodes) {
+        return new Optimizer(rules).optimize(new LogicalPlan(List.of(nodes)));
+    }
+
+    @Test
+    public void removalsMoveUpToTheLastNodeUsingTheColumn() throws DSLException {
+        PlanNode sum = OptimizerTest.sum("a", "b", "c", new AtomicInteger());
+        PlanNode aggregate = OptimizerTest.aggregate();
+        PlanNode rename = new PlanNode.Rename("b", "d");
+        PlanNode remove = new PlanNode.Remove("c");
+        LogicalPlan original = new LogicalPlan(List.of(sum, aggregate, rename, remove));
+
+        LogicalPlan optimized = new Optimizer(EnumSet.of(Optimizer.Rule.PUSH_DOWN_REMOVALS)).optimize(original);
+
+        assertEquals(List.of(sum, remove, aggregate, rename), optimized.getNodes());
+        OptimizerTest.assertSameResult(original, optimized);
+    }
+
+    @Test
+    public void removalsDoNotMoveAcrossBarriers() {
+        PlanNode sum = OptimizerTest.sum("a", "b", "c", new AtomicInteger());
+        PlanNode select = PlanNode.Operation.of(PlanNode.Kind.SELECT, "select", builder -> builder);
+        PlanNode remove = new PlanNode.Remove("c");
+
+        LogicalPlan optimized = OptimizerTest.optimize(EnumSet.of(Optimizer.Rule.PUSH_DOWN_REMOVALS),
+                                                       sum, select, remove);
+
+        assertEquals(List.of(sum, select, remove), optimized.getNodes());
+    }
+
+    @Test
+    public void renamesAreFusedIntoOne() throws DSLException {
+        LogicalPlan original = new LogicalPlan(List.of(new PlanNode.Rename("a", "x"), new PlanNode.Rename("x", "y"),
+                                                       new PlanNode.Rename("b", "c"), new PlanNode.Remove("c")));
+
+        LogicalPlan optimized = new Optimizer(EnumSet.of(Optimizer.Rule.FUSE_RENAMES)).optimize(original);
+
+        assertEquals(2, optimized.getNodes().size());
+        PlanNode.Guarded rename = (PlanNode.Guarded) optimized.getNodes().get(0);
+        PlanNode.Guarded remove = (PlanNode.Guarded) optimized.getNodes().get(1);
+        assertEquals(Set.of("x"), rename.absent());
+        assertEquals("PROJECT rename \"a\" to \"y\"", rename.node().toString());
+        assertEquals(Set.of("c"), remove.absent());
+        assertEquals("PROJECT remove \"b\"", remove.node().toString());
+
+        Table result = OptimizerTest.execute(optimized, OptimizerTest.table());
+        assertEquals(List.of("y", "s"), TableAssertions.columnNames(result));
+        OptimizerTest.assertSameResult(original, optimized);
+    }
+
+    @Test
+    public void deadColumnsAreNotComputed() throws DSLException {
+        AtomicInteger computed = new AtomicInteger();
+        LogicalPlan original = new LogicalPlan(List.of(OptimizerTest.sum("a", "b", "z", computed),
+                                                       OptimizerTest.aggregate(), new PlanNode.Remove("z")));
+
+        LogicalPlan optimized = new Optimizer().optimize(original);
+        Table result = OptimizerTest.execute(optimized, OptimizerTest.table());
+
+        assertEquals(0, computed.get());
+        assertEquals(List.of("a", "b", "s"), TableAssertions.columnNames(result));
+        OptimizerTest.assertSameResult(original, optimized);
+    }
+
+    @Test
+    public void deadColumnsStillCheckTheColumnsTheyRead() {
+        List<String[]> cases = List.of(new String[] {"nope", "Column nope doesn't exist"},
+                                       new String[] {"s", "Cannot operate on columns with non-numbers"});
+
+        for (String[] operands : cases) {
+            AtomicInteger computed = new AtomicInteger();
+            LogicalPlan optimized = OptimizerTest.optimize(EnumSet.allOf(Optimizer.Rule.class),
+                    OptimizerTest.sum(operands[0], "a", "z", computed), new PlanNode.Remove("z"));
+
+            DSLException exception = assertThrows(DSLException.class,
+                                                  () -> OptimizerTest.execute(optimized, OptimizerTest.table()));
+
+            assertTrue(exception.getMessage(), exception.getMessage().contains(operands[1]));
+            assertEquals(0, computed.get());
+        }
+    }
+
+    @Test
+    public void guardedNodesFallBackWhenANameIsTaken() throws DSLException {
+        AtomicInteger computed = new AtomicInteger();
+        LogicalPlan renames = new LogicalPlan(List.of(new PlanNode.Rename("a", "x"), new PlanNode.Rename("x", "y")));
+        LogicalPlan deadColumn = new LogicalPlan(List.of(OptimizerTest.sum("a", "b", "z", computed),
+                                                         new PlanNode.Remove("z")));
+
+        // With an earlier column named x, the second rename renames that one rather than the renamed column
+        OptimizerTest.assertSameResult(renames, new Optimizer().optimize(renames), "x");
+        assertEquals(List.of("y", "x", "b", "s"),
+                     TableAssertions.columnNames(OptimizerTest.execute(new Optimizer().optimize(renames),
+                                                                       OptimizerTest.table("x"))));
+
+        // With an earlier column named z, the removal removes that one and the computed column is kept
+        Table result = OptimizerTest.execute(new Optimizer().optimize(deadColumn), OptimizerTest.table("z"));
+        assertEquals(1, computed.get());
+        assertEquals(List.of("a", "b", "s", "z"), TableAssertions.columnNames(result));
+        assertEquals(List.of(1.5, 3.5, 5.5), result.getColumn("z").getRows());
+        OptimizerTest.assertSameResult(deadColumn, new Optimizer().optimize(deadColumn), "z");
+    }
+}
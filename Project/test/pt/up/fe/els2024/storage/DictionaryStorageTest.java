@@ -0,0 +1,76 @@
+package pt.up.fe.els2024.storage;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import pt.up.fe.els2024.Column;
+import pt.up.fe.els2024.engine.Aggregator;
+
+public class DictionaryStorageTest {
+
+    /** Forms that {@link Double#parseDouble(String)} accepts but that are not plain decimal numbers. */
+    private static final List<String> OTHER_FORMS = List.of("NaN", "Infinity", "-Infinity", "0x1p3", "1d", "2.5f");
+
+    private static DictionaryStorage storage(List<String> strings) {
+        DictionaryStorage storage = new DictionaryStorage(strings.size());
+        strings.forEach(storage::add);
+        return storage;
+    }
+
+    @Test
+    public void plainDecimalNumbersAreDecimal() {
+        for (String string : List.of("1", "-2.5", "+.5", "5.", " 3 ", "1e3", "1E-3", "-0", "007")) {
+            assertTrue(string, DictionaryStorage.isDecimal(string));
+        }
+        for (String string : List.of("", " ", ".", "-", "e3", "1e", "1e+", "1.2.3", "1 2", "1,5", "one")) {
+            assertFalse(string, DictionaryStorage.isDecimal(string));
+        }
+        for (String string : OTHER_FORMS) {
+            assertFalse(string, DictionaryStorage.isDecimal(string));
+        }
+    }
+
+    @Test
+    public void numericEntriesAreParsedOnce() {
+        DictionaryStorage storage = DictionaryStorageTest.storage(List.of("1.5", "x", "1.5", " 2 "));
+
+        assertTrue(storage.isNumber(0));
+        assertFalse(storage.isNumber(1));
+        assertEquals(2.0, storage.getDouble(3), 0.0);
+        assertNull(storage.toDoubleArray(4));
+        assertArrayEquals(new double[] {1.5}, storage.toDoubleArray(1), 0.0);
+    }
+
+    @Test
+    public void otherFormsOfTheJdkAreText() {
+        for (String string : OTHER_FORMS) {
+            DictionaryStorage storage = DictionaryStorageTest.storage(List.of("1", string));
+
+            assertFalse(string, storage.isNumber(1));
+            assertFalse(string, storage.isNumeric(2));
+            assertNull(string, storage.toDoubleArray(2));
+        }
+    }
+
+    @Test
+    public void otherFormsOfTheJdkAreNotAggregated() {
+        for (String string : OTHER_FORMS) {
+            Column strings = new Column("strings", new ArrayList<>(List.of("1", string)));
+            Column mixed = new Column("mixed", new ArrayList<>(List.of("1", 2, string)));
+
+            assertEquals(ColumnType.STRING, strings.getType());
+            assertEquals(ColumnType.OBJECT, mixed.getType());
+            assertEquals(List.of(Aggregator.NOT_AVAILABLE),
+                         Aggregator.aggregate(strings, 2, List.of(Aggregator.Statistic.SUM)));
+            assertEquals(List.of(Aggregator.NOT_AVAILABLE),
+                         Aggregator.aggregate(mixed, 3, List.of(Aggregator.Statistic.SUM)));
+            assertNull(strings.toDoubleArray());
+        }
+
+        Column mixed = new Column("mixed", new ArrayList<>(List.of("1", 2, " 3e0 ")));
+        assertEquals(List.of(6.0), Aggregator.aggregate(mixed, 3, List.of(Aggregator.Statistic.SUM)));
+    }
+}